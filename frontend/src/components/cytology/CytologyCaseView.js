@@ -26,6 +26,7 @@ import {
   postToOpenElisServerFullResponse,
   postToOpenElisServerForPDF,
   hasRole,
+  openImage,
 } from "../utils/Utils";
 import UserSessionDetailsContext from "../../UserSessionDetailsContext";
 import { NotificationContext } from "../layout/Layout";
@@ -605,19 +606,10 @@ function CytologyCaseView() {
                       />
                     </Column>
                     <Column lg={2} md={1} sm={2}>
-                      {pathologySampleInfo.slides[index].image && (
+                      {(slide.image || slide.imageBlobId) && (
                         <>
                           <Button
-                            onClick={() => {
-                              var win = window.open();
-                              win.document.write(
-                                '<iframe src="' +
-                                  slide.fileType +
-                                  ";base64," +
-                                  slide.image +
-                                  '" frameborder="0" style="border:0; top:0px; left:0px; bottom:0px; right:0px; width:100%; height:100%;" allowfullscreen></iframe>',
-                              );
-                            }}
+                            onClick={() => openImage(slide)}
                           >
                             <Launch />{" "}
                             <FormattedMessage id="pathology.label.view" />
@@ -802,21 +794,12 @@ function CytologyCaseView() {
                       </h6>
                     </Column>
 
-                    {pathologySampleInfo.reports[index].image && (
+                    {(report.image || report.imageBlobId) && (
                       <>
                         {!reportParams[index]?.submited && (
                           <Column lg={2} md={1} sm={2}>
                             <Button
-                              onClick={() => {
-                                var win = window.open();
-                                win.document.write(
-                                  '<iframe src="' +
-                                    report.fileType +
-                                    ";base64," +
-                                    report.image +
-                                    '" frameborder="0" style="border:0; top:0px; left:0px; bottom:0px; right:0px; width:100%; height:100%;" allowfullscreen></iframe>',
-                                );
-                              }}
+                              onClick={() => openImage(report)}
                             >
                               <Launch />{" "}
                               <FormattedMessage id="pathology.label.view" />
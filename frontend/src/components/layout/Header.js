@@ -40,7 +40,11 @@ import {
   Theme,
 } from "@carbon/react";
 import SlideOverNotifications from "../notifications/SlideOverNotifications";
-import { getFromOpenElisServer, putToOpenElisServer } from "../utils/Utils";
+import {
+  getFromOpenElisServer,
+  longPollOpenElisServer,
+  putToOpenElisServer,
+} from "../utils/Utils";
 import SearchBar from "./search/searchBar";
 function OEHeader(props) {
   const { configurationProperties } = useContext(ConfigurationContext);
@@ -96,19 +100,23 @@ function OEHeader(props) {
     setSwitchCollapsed(!switchCollapsed);
   };
 
+  const showNotifications = (data) => {
+    setReadNotifications([]);
+    setUnReadNotifications([]);
+    data?.notifications?.forEach((element) => {
+      if (element.readAt) {
+        setReadNotifications((prev) => [...prev, element]);
+      } else {
+        setUnReadNotifications((prev) => [...prev, element]);
+      }
+    });
+  };
+
   const getNotifications = async () => {
     setLoading(true);
     try {
-      getFromOpenElisServer("/rest/notifications", (data) => {
-        setReadNotifications([]);
-        setUnReadNotifications([]);
-        data?.forEach((element) => {
-          if (element.readAt) {
-            setReadNotifications((prev) => [...prev, element]);
-          } else {
-            setUnReadNotifications((prev) => [...prev, element]);
-          }
-        });
+      getFromOpenElisServer("/rest/notifications/feed?limit=50", (data) => {
+        showNotifications(data);
       });
     } catch (error) {
       console.error("Failed to fetch notifications", error);
@@ -148,7 +156,11 @@ function OEHeader(props) {
   };
 
   useEffect(() => {
-    getNotifications();
+    // the feed comes at once, then again each time it changes
+    return longPollOpenElisServer(
+      "/rest/notifications/feed/poll?limit=50",
+      showNotifications,
+    );
   }, []);
 
   const panelSwitchIcon = () => {
@@ -29,6 +29,50 @@ export const getFromOpenElisServer = (endPoint, callback) => {
     });
 };
 
+// Long polls endPoint, calling back with the first response and then with each
+// one that differs from the ETag sent. Returns a function that stops polling.
+export const longPollOpenElisServer = (
+  endPoint,
+  callback,
+  retryMillis = 10000,
+) => {
+  const controller = new AbortController();
+  let eTag = null;
+  const poll = () => {
+    if (controller.signal.aborted) {
+      return;
+    }
+    fetch(config.serverBaseUrl + endPoint, {
+      //includes the browser sessionId in the Header for Authentication on the backend server
+      credentials: "include",
+      method: "GET",
+      headers: eTag ? { "If-None-Match": eTag } : {},
+      signal: controller.signal,
+    })
+      .then((response) => {
+        if (response.status === 304) {
+          poll();
+        } else if (response.ok) {
+          eTag = response.headers.get("ETag");
+          return response.json().then((jsonResp) => {
+            callback(jsonResp);
+            poll();
+          });
+        } else {
+          throw new Error(endPoint + " answered " + response.status);
+        }
+      })
+      .catch((error) => {
+        if (!controller.signal.aborted) {
+          console.error(error);
+          setTimeout(poll, retryMillis);
+        }
+      });
+  };
+  poll();
+  return () => controller.abort();
+};
+
 export const postToOpenElisServer = (
   endPoint,
   payLoad,
@@ -357,6 +401,23 @@ export function urlBase64ToUint8Array(base64String) {
   return outputArray;
 }
 
+// Opens a slide or report image, streamed from the blob store when it has
+// been moved there, otherwise from the Base64 copy sent with the case
+export function openImage(item) {
+  if (item.imageBlobId) {
+    window.open(config.serverBaseUrl + "/rest/blob/" + item.imageBlobId);
+    return;
+  }
+  var win = window.open();
+  win.document.write(
+    '<iframe src="' +
+      item.fileType +
+      ";base64," +
+      item.image +
+      '" frameborder="0" style="border:0; top:0px; left:0px; bottom:0px; right:0px; width:100%; height:100%;" allowfullscreen></iframe>',
+  );
+}
+
 export const Roles = {
   GLOBAL_ADMIN: "Global Administrator",
   USER_ACCOUNT_ADMIN: "User Account Administrator",
@@ -19,6 +19,7 @@ import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.openelisglobal.analysis.valueholder.Analysis;
 import org.openelisglobal.common.dao.BaseDAO;
@@ -137,6 +138,8 @@ public interface AnalysisDAO extends BaseDAO<Analysis, String> {
 
     List<Analysis> getAnalysesBySampleId(String id) throws LIMSRuntimeException;
 
+    List<Analysis> getAnalysesBySampleIds(List<String> sampleIds) throws LIMSRuntimeException;
+
     List<Analysis> getAnalysesBySampleIdExcludedByStatusId(String id, Set<Integer> statusIds)
             throws LIMSRuntimeException;
 
@@ -198,6 +201,20 @@ public interface AnalysisDAO extends BaseDAO<Analysis, String> {
     List<Analysis> getPageAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
             List<Integer> sampleStatusList);
 
+    /**
+     * Keyset form of the page query, returns the matching analyses whose accession
+     * number lies between the two accession numbers (inclusive)
+     */
+    List<Analysis> getPageAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
+            List<Integer> sampleStatusList, String firstAccessionNumber, String lastAccessionNumber);
+
+    /**
+     * @return for each matching analysis the analysis id, accession number and test
+     *         id, in the order the results are paged
+     */
+    List<Object[]> getPageKeysAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
+            List<Integer> sampleStatusList);
+
     int getCountAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
             List<Integer> sampleStatusList);
     // void updateData(Analysis analysis, boolean skipAuditTrail) throws
@@ -241,4 +258,15 @@ public interface AnalysisDAO extends BaseDAO<Analysis, String> {
     int getCountOfAnalysisStartedOnExcludedByStatusId(Date collectionDate, Set<Integer> statusIds);
 
     int getCountOfAnalysisStartedOnByStatusId(Date startedDate, List<Integer> statusIds);
+
+    /**
+     * @return the number of analyses in each status, by status id
+     */
+    Map<String, Long> getCountOfAnalysesByStatusId();
+
+    /**
+     * @return for each analysis started, completed or released on the date the
+     *         status id, started date, completed date and released date
+     */
+    List<Object[]> getStatusAndDatesOfAnalysesOn(Date date);
 }
@@ -1200,6 +1200,25 @@ public class AnalysisDAOImpl extends BaseDAOImpl<Analysis, String> implements An
         return list;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysesBySampleIds(List<String> sampleIds) throws LIMSRuntimeException {
+        if (sampleIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            String sql = "from Analysis a where a.sampleItem.sample.id in (:sampleIds)";
+
+            Query<Analysis> query = entityManager.unwrap(Session.class).createQuery(sql, Analysis.class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(Integer::parseInt).collect(Collectors.toList()));
+            return query.list();
+        } catch (RuntimeException e) {
+            handleException(e, "getAnalysesBySampleIds");
+        }
+        return new ArrayList<>();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Analysis> getAllAnalysisByTestsAndStatus(List<Integer> testIds, List<Integer> analysisStatusList,
@@ -1301,6 +1320,49 @@ public class AnalysisDAOImpl extends BaseDAOImpl<Analysis, String> implements An
         return null;
     }
 
+    @Override
+    public List<Analysis> getPageAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
+            List<Integer> sampleStatusList, String firstAccessionNumber, String lastAccessionNumber) {
+
+        String sql = "From Analysis a WHERE a.testSection.id = :testSectionId AND a.statusId IN"
+                + " (:analysisStatusList) AND a.sampleItem.sample.statusId IN (:sampleStatusList)"
+                + " AND a.sampleItem.sample.accessionNumber BETWEEN :firstAccessionNumber AND :lastAccessionNumber"
+                + " ORDER BY a.sampleItem.sample.accessionNumber";
+        try {
+            Query<Analysis> query = entityManager.unwrap(Session.class).createQuery(sql, Analysis.class);
+            query.setParameter("testSectionId", Integer.parseInt(testSectionId));
+            query.setParameterList("analysisStatusList", analysisStatusList);
+            query.setParameterList("sampleStatusList", sampleStatusList);
+            query.setParameter("firstAccessionNumber", firstAccessionNumber);
+            query.setParameter("lastAccessionNumber", lastAccessionNumber);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getPageAnalysisByTestSectionAndStatus");
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<Object[]> getPageKeysAnalysisByTestSectionAndStatus(String testSectionId,
+            List<Integer> analysisStatusList, List<Integer> sampleStatusList) {
+
+        String sql = "SELECT a.id, s.accessionNumber, a.test.id From Analysis a JOIN a.sampleItem si JOIN si.sample s"
+                + " WHERE a.testSection.id = :testSectionId AND a.statusId IN (:analysisStatusList)"
+                + " AND s.statusId IN (:sampleStatusList) ORDER BY s.accessionNumber, si.sortOrder, a.id";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameter("testSectionId", Integer.parseInt(testSectionId));
+            query.setParameterList("analysisStatusList", analysisStatusList);
+            query.setParameterList("sampleStatusList", sampleStatusList);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getPageKeysAnalysisByTestSectionAndStatus");
+        }
+
+        return null;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Analysis> getAnalysisStartedOnRangeByStatusId(Date lowDate, Date highDate, String statusID)
@@ -1802,4 +1864,33 @@ public class AnalysisDAOImpl extends BaseDAOImpl<Analysis, String> implements An
 
         return null;
     }
+
+    @Override
+    public Map<String, Long> getCountOfAnalysesByStatusId() {
+        String hql = "SELECT a.statusId, COUNT(*) From Analysis a GROUP BY a.statusId";
+        Map<String, Long> counts = new HashMap<>();
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(hql, Object[].class);
+            for (Object[] row : query.list()) {
+                counts.put((String) row[0], (Long) row[1]);
+            }
+        } catch (HibernateException e) {
+            handleException(e, "getCountOfAnalysesByStatusId");
+        }
+        return counts;
+    }
+
+    @Override
+    public List<Object[]> getStatusAndDatesOfAnalysesOn(Date date) {
+        String hql = "SELECT a.statusId, a.startedDate, a.completedDate, a.releasedDate From Analysis a"
+                + " WHERE a.startedDate = :date OR a.completedDate = :date OR a.releasedDate = :date";
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(hql, Object[].class);
+            query.setParameter("date", date);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getStatusAndDatesOfAnalysesOn");
+        }
+        return new ArrayList<>();
+    }
 }
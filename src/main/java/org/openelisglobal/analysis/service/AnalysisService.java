@@ -4,6 +4,7 @@ import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.openelisglobal.analysis.valueholder.Analysis;
 import org.openelisglobal.common.service.BaseObjectService;
@@ -101,6 +102,8 @@ public interface AnalysisService extends BaseObjectService<Analysis, String> {
 
     List<Analysis> getAnalysesBySampleId(String id);
 
+    List<Analysis> getAnalysesBySampleIds(List<String> sampleIds);
+
     List<Analysis> getAnalysesReadyToBeReported();
 
     List<Analysis> getAnalysisBySampleAndTestIds(String sampleKey, List<Integer> testIds);
@@ -111,6 +114,14 @@ public interface AnalysisService extends BaseObjectService<Analysis, String> {
 
     int getCountOfAnalysesForStatusIds(List<Integer> statusIdList);
 
+    Map<String, Long> getCountOfAnalysesByStatusId();
+
+    /**
+     * @return for each analysis started, completed or released on the date the
+     *         status id, started date, completed date and released date
+     */
+    List<Object[]> getStatusAndDatesOfAnalysesOn(Date date);
+
     List<Analysis> getAllMaxRevisionAnalysesPerTest(Test test);
 
     List<Analysis> getAnalysisByAccessionAndTestId(String accessionNumber, String testId);
@@ -181,6 +192,12 @@ public interface AnalysisService extends BaseObjectService<Analysis, String> {
     List<Analysis> getPageAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
             List<Integer> sampleStatusList);
 
+    List<Analysis> getPageAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
+            List<Integer> sampleStatusList, String firstAccessionNumber, String lastAccessionNumber);
+
+    List<Object[]> getPageKeysAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
+            List<Integer> sampleStatusList);
+
     int getCountAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
             List<Integer> sampleStatusList);
 
@@ -5,6 +5,7 @@ import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
@@ -332,6 +333,12 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
         return baseObjectDAO.getAnalysesBySampleId(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getAnalysesBySampleIds(List<String> sampleIds) {
+        return baseObjectDAO.getAnalysesBySampleIds(sampleIds);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Analysis> getAnalysisByAccessionAndTestId(String accessionNumber, String testId) {
@@ -365,6 +372,18 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
         return baseObjectDAO.getCountOfAnalysesForStatusIds(statusIdList);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Long> getCountOfAnalysesByStatusId() {
+        return baseObjectDAO.getCountOfAnalysesByStatusId();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getStatusAndDatesOfAnalysesOn(Date date) {
+        return baseObjectDAO.getStatusAndDatesOfAnalysesOn(date);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Analysis> getAnalysesBySampleStatusIdExcludingByStatusId(String sampleStatus,
@@ -510,6 +529,22 @@ public class AnalysisServiceImpl extends AuditableBaseObjectServiceImpl<Analysis
                 sampleStatusList);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Analysis> getPageAnalysisByTestSectionAndStatus(String testSectionId, List<Integer> analysisStatusList,
+            List<Integer> sampleStatusList, String firstAccessionNumber, String lastAccessionNumber) {
+        return getBaseObjectDAO().getPageAnalysisByTestSectionAndStatus(testSectionId, analysisStatusList,
+                sampleStatusList, firstAccessionNumber, lastAccessionNumber);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> getPageKeysAnalysisByTestSectionAndStatus(String testSectionId,
+            List<Integer> analysisStatusList, List<Integer> sampleStatusList) {
+        return getBaseObjectDAO().getPageKeysAnalysisByTestSectionAndStatus(testSectionId, analysisStatusList,
+                sampleStatusList);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Analysis> getMaxRevisionAnalysesBySampleIncludeCanceled(SampleItem sampleItem) {
@@ -14,11 +14,13 @@
 package org.openelisglobal.analyzerimport.analyzerreaders;
 
 import com.ibm.icu.text.CharsetDetector;
+import com.ibm.icu.text.CharsetMatch;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import org.openelisglobal.common.log.LogEvent;
@@ -26,9 +28,21 @@ import org.openelisglobal.common.services.PluginAnalyzerService;
 import org.openelisglobal.plugin.AnalyzerImporterPlugin;
 import org.openelisglobal.spring.util.SpringContext;
 
+/**
+ * Reads ASTM messages sent by analyzers or the analyzer bridge.
+ *
+ * <p>When a plugin recognizes the analyzer from the header record and its
+ * inserter takes the message in chunks, the message is read as it is inserted
+ * so a large export is handled in constant memory, each chunk being persisted
+ * before the next is read, and the inserter is handed records, without the
+ * framing. Otherwise the whole message is read first and handed over at once,
+ * line by line as it was sent.
+ */
 public class ASTMAnalyzerReader extends AnalyzerReader {
 
     private List<String> lines;
+    private List<String> leadingRecords;
+    private ASTMRecordReader records;
     private AnalyzerImporterPlugin plugin;
     private AnalyzerLineInserter inserter;
     private AnalyzerResponder responder;
@@ -40,17 +54,30 @@ public class ASTMAnalyzerReader extends AnalyzerReader {
     public boolean readStream(InputStream stream) {
         error = null;
         inserter = null;
-        lines = new ArrayList<>();
+        lines = null;
         BufferedInputStream bis = new BufferedInputStream(stream);
         CharsetDetector detector = new CharsetDetector();
         try {
+            // the detector only reads the start of the stream, then resets it
             detector.setText(bis);
-            String charsetName = detector.detect().getName();
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(bis, charsetName));
+            CharsetMatch match = detector.detect();
+            String charsetName = match == null ? StandardCharsets.UTF_8.name() : match.getName();
+            RewindableReader message = new RewindableReader(new InputStreamReader(bis, charsetName));
+            records = new ASTMRecordReader(new BufferedReader(message));
 
             try {
-                for (String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine()) {
-                    lines.add(line);
+                leadingRecords = readLeadingRecords();
+                if (leadingRecords.isEmpty()) {
+                    error = "Empty message";
+                    return false;
+                }
+                setInserterResponderFromHeader();
+                if (inserter != null && inserter.getRecordsPerChunk() > 0) {
+                    message.forget();
+                } else {
+                    // the inserter is handed the lines as they were sent
+                    message.rewind();
+                    lines = readLines(new BufferedReader(message));
                 }
             } catch (IOException e) {
                 error = "Unable to read input stream";
@@ -63,25 +90,32 @@ public class ASTMAnalyzerReader extends AnalyzerReader {
             return false;
         }
 
-        if (!lines.isEmpty()) {
+        if (inserter == null) {
             setInserterResponder();
             if (inserter == null) {
                 error = "Unable to understand which analyzer sent the message";
                 return false;
             }
-            return true;
-        } else {
-            error = "Empty message";
-            return false;
         }
+        return true;
     }
 
     public boolean processData(String currentUserId) {
         // it is assumed that all requests are either requests for information
         // or analyzer results to be entered
-        if (plugin.isAnalyzerResult(lines)) {
+        if (plugin.isAnalyzerResult(lines == null ? leadingRecords : lines)) {
             return insertAnalyzerData(currentUserId);
         } else {
+            if (lines == null) {
+                // queries are small, they are read whole, by a plugin that reads records
+                try {
+                    lines = records.readAll();
+                } catch (IOException e) {
+                    error = "Unable to read input stream";
+                    LogEvent.logError(e);
+                    return false;
+                }
+            }
             responseBody = buildResponseForQuery();
             hasResponse = true;
             return true;
@@ -96,6 +130,52 @@ public class ASTMAnalyzerReader extends AnalyzerReader {
         return responseBody;
     }
 
+    private static List<String> readLines(BufferedReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /*
+     * the records up to the first which is not a header record, enough to route
+     * the message and tell a query from results. They are put back to be read
+     * again.
+     */
+    private List<String> readLeadingRecords() throws IOException {
+        List<String> leading = new ArrayList<>();
+        for (String record = records.nextRecord(); record != null; record = records.nextRecord()) {
+            leading.add(record);
+            char type = ASTMRecordReader.recordType(record);
+            if (type == 'P' || type == 'O' || type == 'R' || type == 'Q') {
+                break;
+            }
+        }
+        records.unread(leading);
+        return leading;
+    }
+
+    private void setInserterResponderFromHeader() {
+        String header = leadingRecords.stream().filter(record -> ASTMRecordReader.recordType(record) == 'H')
+                .findFirst().orElse(null);
+        if (header == null) {
+            return;
+        }
+        for (AnalyzerImporterPlugin plugin : SpringContext.getBean(PluginAnalyzerService.class).getAnalyzerPlugins()) {
+            try {
+                if (plugin.isTargetAnalyzerHeader(header)) {
+                    this.plugin = plugin;
+                    inserter = plugin.getAnalyzerLineInserter();
+                    responder = plugin.getAnalyzerResponder();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                LogEvent.logError(e);
+            }
+        }
+    }
+
     private void setInserterResponder() {
         for (AnalyzerImporterPlugin plugin : SpringContext.getBean(PluginAnalyzerService.class).getAnalyzerPlugins()) {
             if (plugin.isTargetAnalyzer(lines)) {
@@ -128,6 +208,8 @@ public class ASTMAnalyzerReader extends AnalyzerReader {
             error = "Unable to understand which analyzer sent the file";
             LogEvent.logError(this.getClass().getSimpleName(), "buildResponseForQuery", error);
             return false;
+        } else if (lines == null) {
+            return insertInChunks(systemUserId);
         } else {
             boolean success = inserter.insert(lines, systemUserId);
             if (!success) {
@@ -138,6 +220,29 @@ public class ASTMAnalyzerReader extends AnalyzerReader {
         }
     }
 
+    /*
+     * each chunk is persisted on its own, the chunks inserted before a failure are
+     * kept
+     */
+    private boolean insertInChunks(String systemUserId) {
+        try {
+            int recordsPerChunk = inserter.getRecordsPerChunk();
+            for (List<String> chunk = records.nextChunk(recordsPerChunk); chunk != null; chunk = records
+                    .nextChunk(recordsPerChunk)) {
+                if (!inserter.insert(chunk, systemUserId)) {
+                    error = inserter.getError();
+                    LogEvent.logError(this.getClass().getSimpleName(), "insertInChunks", error);
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            error = "Unable to read input stream";
+            LogEvent.logError(e);
+            return false;
+        }
+    }
+
     @Override
     public String getError() {
         return error;
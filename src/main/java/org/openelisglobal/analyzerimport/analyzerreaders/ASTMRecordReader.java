@@ -0,0 +1,166 @@
+/**
+ * The contents of this file are subject to the Mozilla Public License Version 1.1 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.mozilla.org/MPL/
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" basis, WITHOUT WARRANTY OF
+ * ANY KIND, either express or implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ *
+ * <p>The Original Code is OpenELIS code.
+ *
+ * <p>Copyright (C) CIRG, University of Washington, Seattle WA. All Rights Reserved.
+ */
+package org.openelisglobal.analyzerimport.analyzerreaders;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Reads an ASTM message a record at a time, so only the record being read is
+ * held in memory. Records may come one to a line or in E1381 frames: the frame
+ * number, checksum and control characters are dropped and a record split over
+ * intermediate (ETB) frames is joined back together.
+ */
+public class ASTMRecordReader {
+
+    private static final int ENQ = 0x05;
+    private static final int EOT = 0x04;
+    private static final int ACK = 0x06;
+    private static final int NAK = 0x15;
+    private static final int STX = 0x02;
+    private static final int ETX = 0x03;
+    private static final int ETB = 0x17;
+
+    private final Reader reader;
+    private final StringBuilder record = new StringBuilder();
+    private final Deque<String> unread = new ArrayDeque<>();
+    private String header;
+    private String patient;
+
+    public ASTMRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the next record, or null at the end of the message
+     */
+    public String nextRecord() throws IOException {
+        if (!unread.isEmpty()) {
+            return unread.pop();
+        }
+        for (int c = reader.read(); c != -1; c = reader.read()) {
+            switch (c) {
+            case STX:
+                // the frame number
+                reader.read();
+                break;
+            case ETB:
+                // the record carries on in the next frame
+                skipToEndOfFrame();
+                break;
+            case ETX:
+                skipToEndOfFrame();
+                if (record.length() > 0) {
+                    return takeRecord();
+                }
+                break;
+            case '\r':
+            case '\n':
+                if (record.length() > 0) {
+                    return takeRecord();
+                }
+                break;
+            case ENQ:
+            case EOT:
+            case ACK:
+            case NAK:
+                break;
+            default:
+                record.append((char) c);
+            }
+        }
+        return record.length() > 0 ? takeRecord() : null;
+    }
+
+    /**
+     * Puts records back to be read again, in the order given
+     */
+    public void unread(List<String> records) {
+        for (int i = records.size() - 1; i >= 0; i--) {
+            unread.push(records.get(i));
+        }
+    }
+
+    /**
+     * Reads the rest of the message
+     */
+    public List<String> readAll() throws IOException {
+        List<String> records = new ArrayList<>();
+        for (String next = nextRecord(); next != null; next = nextRecord()) {
+            records.add(next);
+        }
+        return records;
+    }
+
+    /**
+     * Reads about recordsPerChunk records, stopping before a header, patient or
+     * order record so results stay with their order. Each chunk after the first
+     * starts with the message's header record, followed by the patient record when
+     * the chunk starts with an order.
+     *
+     * @return null at the end of the message
+     */
+    public List<String> nextChunk(int recordsPerChunk) throws IOException {
+        List<String> chunk = new ArrayList<>();
+        for (String next = nextRecord(); next != null; next = nextRecord()) {
+            char type = recordType(next);
+            boolean startsGroup = type == 'H' || type == 'P' || type == 'O';
+            if (startsGroup && !chunk.isEmpty() && chunk.size() >= recordsPerChunk) {
+                unread.push(next);
+                break;
+            }
+            if (chunk.isEmpty() && type != 'H' && header != null) {
+                chunk.add(header);
+                if (type != 'P' && patient != null) {
+                    chunk.add(patient);
+                }
+            }
+            if (type == 'H') {
+                header = next;
+                patient = null;
+            } else if (type == 'P') {
+                patient = next;
+            }
+            chunk.add(next);
+        }
+        return chunk.isEmpty() ? null : chunk;
+    }
+
+    /**
+     * The record type, H, P, O, R, C, Q or L, or a blank if there is none
+     */
+    public static char recordType(String record) {
+        return record.isEmpty() ? ' ' : Character.toUpperCase(record.charAt(0));
+    }
+
+    private String takeRecord() {
+        String next = record.toString();
+        record.setLength(0);
+        return next;
+    }
+
+    // the checksum and the CR LF ending the frame
+    private void skipToEndOfFrame() throws IOException {
+        for (int c = reader.read(); c != -1 && c != '\n'; c = reader.read()) {
+            if (c == STX) {
+                reader.read();
+                return;
+            }
+        }
+    }
+}
@@ -52,5 +52,14 @@ public abstract class AnalyzerLineInserter {
 
     public abstract boolean insert(List<String> lines, String currentUserId);
 
+    /**
+     * The number of records of an ASTM message to hand to insert at a time, see
+     * {@link ASTMRecordReader#nextChunk(int)}. 0, the default, hands over the whole
+     * message at once.
+     */
+    public int getRecordsPerChunk() {
+        return 0;
+    }
+
     public abstract String getError();
 }
@@ -0,0 +1,62 @@
+package org.openelisglobal.analyzerimport.analyzerreaders;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Keeps what is read from the start of a message until told to forget it, so
+ * the message can be read again from the start as it was sent after reading
+ * far enough to route it.
+ */
+class RewindableReader extends Reader {
+
+    private final Reader in;
+    private StringBuilder kept = new StringBuilder();
+    private int replayAt = -1;
+
+    RewindableReader(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (replayAt >= 0) {
+            if (replayAt < kept.length()) {
+                int count = Math.min(len, kept.length() - replayAt);
+                kept.getChars(replayAt, replayAt + count, cbuf, off);
+                replayAt += count;
+                return count;
+            }
+            // replayed, the rest is read once
+            forget();
+        }
+        int count = in.read(cbuf, off, len);
+        if (count > 0 && kept != null) {
+            kept.append(cbuf, off, count);
+        }
+        return count;
+    }
+
+    /**
+     * The next read starts again from the start of the message
+     */
+    void rewind() {
+        if (kept == null) {
+            throw new IllegalStateException("the start of the message is no longer kept");
+        }
+        replayAt = 0;
+    }
+
+    /**
+     * Stops keeping what is read, it will not be read again
+     */
+    void forget() {
+        kept = null;
+        replayAt = -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.openelisglobal.analyzerresults.dao;
 
+import java.util.Collection;
 import java.util.List;
 import org.openelisglobal.analyzerresults.valueholder.AnalyzerResults;
 import org.openelisglobal.common.dao.BaseDAO;
@@ -36,6 +37,12 @@ public interface AnalyzerResultsDAO extends BaseDAO<AnalyzerResults, String> {
 
     public List<AnalyzerResults> getDuplicateResultByAccessionAndTest(AnalyzerResults result);
 
+    /**
+     * All of the analyzer's results for any of the accession numbers, in the order
+     * they were inserted
+     */
+    public List<AnalyzerResults> getResultsByAccessionNumbers(String analyzerId, Collection<String> accessionNumbers);
+
     // public void deleteAll(List<AnalyzerResults> deletableAnalyzerResults) throws
     // LIMSRuntimeException;
 }
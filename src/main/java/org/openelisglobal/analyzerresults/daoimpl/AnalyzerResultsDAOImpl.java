@@ -16,6 +16,7 @@
 package org.openelisglobal.analyzerresults.daoimpl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -31,6 +32,9 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class AnalyzerResultsDAOImpl extends BaseDAOImpl<AnalyzerResults, String> implements AnalyzerResultsDAO {
 
+    // keeps the in list well under the number of parameters a statement can have
+    private static final int ACCESSION_NUMBERS_PER_QUERY = 1000;
+
     public AnalyzerResultsDAOImpl() {
         super(AnalyzerResults.class);
     }
@@ -59,6 +63,29 @@ public class AnalyzerResultsDAOImpl extends BaseDAOImpl<AnalyzerResults, String>
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<AnalyzerResults> getResultsByAccessionNumbers(String analyzerId, Collection<String> accessionNumbers) {
+        List<AnalyzerResults> results = new ArrayList<>();
+        List<String> remaining = new ArrayList<>(accessionNumbers);
+        try {
+            String sql = "from AnalyzerResults a where a.analyzerId = :analyzerId and "
+                    + "a.accessionNumber in (:accessionNumbers) order by a.id";
+            for (int start = 0; start < remaining.size(); start += ACCESSION_NUMBERS_PER_QUERY) {
+                Query<AnalyzerResults> query = entityManager.unwrap(Session.class).createQuery(sql,
+                        AnalyzerResults.class);
+                query.setParameter("analyzerId", Integer.parseInt(analyzerId));
+                query.setParameterList("accessionNumbers",
+                        remaining.subList(start, Math.min(start + ACCESSION_NUMBERS_PER_QUERY, remaining.size())));
+                results.addAll(query.list());
+            }
+            return results;
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in getResultsByAccessionNumbers()", e);
+        }
+    }
+
     @Override
     public AnalyzerResults readAnalyzerResults(String idString) throws LIMSRuntimeException {
         AnalyzerResults data = null;
@@ -1,7 +1,12 @@
 package org.openelisglobal.analyzerresults.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.analysis.service.AnalysisService;
 import org.openelisglobal.analysis.valueholder.Analysis;
@@ -68,54 +73,106 @@ public class AnalyzerResultsServiceImpl extends AuditableBaseObjectServiceImpl<A
         return getBaseObjectDAO().readAnalyzerResults(idString);
     }
 
+    /**
+     * Inserts the results read from an analyzer file. A result with the same
+     * accession number and test as an earlier one from the analyzer is inserted
+     * read only and linked with the latest of them, unless one of them has the
+     * same complete date, in which case the file is being read again and the
+     * result is skipped.
+     *
+     * <p>The earlier results for the whole file are read at once and the rows are
+     * written in JDBC batches.
+     */
     @Override
+    @Transactional
     public void insertAnalyzerResults(List<AnalyzerResults> results, String sysUserId) {
         try {
-            for (AnalyzerResults result : results) {
-                boolean duplicateByAccessionAndTestOnly = false;
-                List<AnalyzerResults> previousResults = baseObjectDAO.getDuplicateResultByAccessionAndTest(result);
-                AnalyzerResults previousResult = null;
-
-                // This next block may seem more complicated then it need be but it covers the
-                // case where there may be a third duplicate
-                // and it covers rereading the same file
-                if (previousResults != null) {
-                    duplicateByAccessionAndTestOnly = true;
-                    for (AnalyzerResults foundResult : previousResults) {
-                        previousResult = foundResult;
-                        if (foundResult.getCompleteDate() != null
-                                && foundResult.getCompleteDate().equals(result.getCompleteDate())) {
-                            duplicateByAccessionAndTestOnly = false;
-                            break;
-                        }
-                    }
+            Map<List<String>, List<AnalyzerResults>> previousResultsByKey = getPreviousResults(results);
+            batchWrite(() -> {
+                for (AnalyzerResults result : results) {
+                    insertAnalyzerResult(result, previousResultsByKey, sysUserId);
                 }
+            });
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in AnalyzerResult insertAnalyzerResult()", e);
+        }
+    }
 
-                if (duplicateByAccessionAndTestOnly && previousResult != null) {
-                    result.setDuplicateAnalyzerResultId(previousResult.getId());
-                    result.setReadOnly(true);
+    private void insertAnalyzerResult(AnalyzerResults result,
+            Map<List<String>, List<AnalyzerResults>> previousResultsByKey, String sysUserId) {
+        List<String> key = duplicateKey(result);
+        List<AnalyzerResults> previousResults = key == null ? null : previousResultsByKey.get(key);
+        boolean duplicateByAccessionAndTestOnly = false;
+        AnalyzerResults previousResult = null;
+
+        // This next block may seem more complicated then it need be but it covers the
+        // case where there may be a third duplicate
+        // and it covers rereading the same file
+        if (previousResults != null) {
+            duplicateByAccessionAndTestOnly = true;
+            for (AnalyzerResults foundResult : previousResults) {
+                previousResult = foundResult;
+                if (foundResult.getCompleteDate() != null
+                        && foundResult.getCompleteDate().equals(result.getCompleteDate())) {
+                    duplicateByAccessionAndTestOnly = false;
+                    break;
                 }
+            }
+        }
+
+        if (duplicateByAccessionAndTestOnly && previousResult != null) {
+            result.setDuplicateAnalyzerResultId(previousResult.getId());
+            result.setReadOnly(true);
+        }
+
+        if (previousResults == null || duplicateByAccessionAndTestOnly) {
+            result.setSysUserId(sysUserId);
+            String id = insert(result);
+            result.setId(id);
 
-                if (previousResults == null || duplicateByAccessionAndTestOnly) {
-                    result.setSysUserId(sysUserId);
-                    String id = insert(result);
-                    result.setId(id);
+            if (duplicateByAccessionAndTestOnly && previousResult != null) {
+                previousResult.setDuplicateAnalyzerResultId(id);
+                previousResult.setSysUserId(sysUserId);
+                update(previousResult);
+            }
 
-                    if (duplicateByAccessionAndTestOnly && previousResult != null) {
-                        previousResult.setDuplicateAnalyzerResultId(id);
-                        previousResult.setSysUserId(sysUserId);
-                    }
+            // a later row of the same file is a duplicate of this one
+            if (key != null) {
+                previousResultsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(result);
+            }
+        }
+    }
 
-                    if (duplicateByAccessionAndTestOnly) {
-                        update(previousResult);
-                    }
+    private Map<List<String>, List<AnalyzerResults>> getPreviousResults(List<AnalyzerResults> results) {
+        Map<String, Set<String>> accessionNumbersByAnalyzer = new HashMap<>();
+        for (AnalyzerResults result : results) {
+            if (duplicateKey(result) != null) {
+                accessionNumbersByAnalyzer.computeIfAbsent(result.getAnalyzerId(), k -> new LinkedHashSet<>())
+                        .add(result.getAccessionNumber());
+            }
+        }
+
+        Map<List<String>, List<AnalyzerResults>> previousResultsByKey = new HashMap<>();
+        accessionNumbersByAnalyzer.forEach((analyzerId, accessionNumbers) -> {
+            for (AnalyzerResults previousResult : baseObjectDAO.getResultsByAccessionNumbers(analyzerId,
+                    accessionNumbers)) {
+                List<String> key = duplicateKey(previousResult);
+                if (key != null) {
+                    previousResultsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(previousResult);
                 }
             }
+        });
+        return previousResultsByKey;
+    }
 
-        } catch (RuntimeException e) {
-            LogEvent.logError(e);
-            throw new LIMSRuntimeException("Error in AnalyzerResult insertAnalyzerResult()", e);
+    // null when the result cannot have a duplicate, as the database never matches a
+    // null
+    private static List<String> duplicateKey(AnalyzerResults result) {
+        if (result.getAnalyzerId() == null || result.getAccessionNumber() == null || result.getTestName() == null) {
+            return null;
         }
+        return Arrays.asList(result.getAnalyzerId(), result.getAccessionNumber(), result.getTestName());
     }
 
     @Override
@@ -0,0 +1,28 @@
+package org.openelisglobal.audittrail.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.openelisglobal.audittrail.valueholder.History;
+
+/**
+ * The audit history recorded in committed transactions but not yet moved into
+ * history
+ */
+public interface AuditHistoryOutboxDAO {
+
+    /**
+     * Inserts the rows in the current transaction as one JDBC batch
+     */
+    void insertAll(List<History> histories);
+
+    /**
+     * Locks up to limit of the oldest rows, rows locked by another node are
+     * skipped rather than waited for
+     *
+     * @return the rows by their id in the outbox, oldest first
+     */
+    Map<Long, History> getOldestForUpdate(int limit);
+
+    int delete(Collection<Long> ids);
+}
@@ -0,0 +1,157 @@
+package org.openelisglobal.audittrail.daoimpl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openelisglobal.common.util.StringUtil;
+
+/**
+ * The reflective information the audit trail needs about a class, worked out
+ * once per class instead of on every audited write.
+ */
+final class AuditClassMetadata {
+
+    private static final ClassValue<AuditClassMetadata> METADATA = new ClassValue<AuditClassMetadata>() {
+        @Override
+        protected AuditClassMetadata computeValue(Class<?> type) {
+            return new AuditClassMetadata(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final List<AuditedField> auditedFields;
+    private final Map<String, Optional<Method>> methods = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> declaredMethodNames = new ConcurrentHashMap<>();
+
+    private AuditClassMetadata(Class<?> type) {
+        this.type = type;
+        for (Method method : type.getDeclaredMethods()) {
+            declaredMethodNames.put(method.getName(), Boolean.TRUE);
+        }
+        this.auditedFields = Collections.unmodifiableList(findAuditedFields(type));
+    }
+
+    static AuditClassMetadata forClass(Class<?> type) {
+        return METADATA.get(type);
+    }
+
+    /**
+     * @return the no argument public method with this name, looked up once
+     */
+    static Method getMethod(Class<?> type, String methodName) throws NoSuchMethodException {
+        Optional<Method> method = forClass(type).methods.computeIfAbsent(methodName, name -> {
+            try {
+                return Optional.of(type.getMethod(name));
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        });
+        if (!method.isPresent()) {
+            throw new NoSuchMethodException(type.getName() + "." + methodName + "()");
+        }
+        return method.get();
+    }
+
+    /**
+     * @return true if the class itself (not a superclass) declares a method with
+     *         this name
+     */
+    boolean declaresMethod(String methodName) {
+        return declaredMethodNames.containsKey(methodName);
+    }
+
+    List<AuditedField> getAuditedFields() {
+        return auditedFields;
+    }
+
+    private List<AuditedField> findAuditedFields(Class<?> type) {
+        List<AuditedField> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && !current.equals(Object.class); current = current
+                .getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                // static, transient or final fields are v.unlikely to be part of the data
+                // model
+                int modifiers = field.getModifiers();
+                if (Modifier.isTransient(modifiers) || Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers)) {
+                    continue;
+                }
+                String fieldName = field.getName();
+                if (fieldName.equals("id") || fieldName.equals("sysUserId") || fieldName.equals("systemUser")
+                        || fieldName.equals("originalLastupdated")) {
+                    continue;
+                }
+                String auditFunctionName = "get" + StringUtil.capitalize(fieldName) + "_Audit";
+                Method auditMethod = findDeclaredAuditMethod(type, auditFunctionName);
+                // collections are only logged through a separate audit getter
+                if (implementsCollection(field.getType()) && auditMethod == null) {
+                    continue;
+                }
+                // make private fields accessible so we can read their values. Nothing but
+                // reading for the audit log should be done with them
+                field.setAccessible(true);
+                fields.add(new AuditedField(field, auditMethod));
+            }
+        }
+        return fields;
+    }
+
+    private Method findDeclaredAuditMethod(Class<?> type, String auditFunctionName) {
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.getName().equals(auditFunctionName)) {
+                try {
+                    return type.getMethod(auditFunctionName);
+                } catch (NoSuchMethodException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean implementsCollection(Class<?> fieldType) {
+        for (Class<?> fieldInterface : fieldType.getInterfaces()) {
+            if (fieldInterface.equals(Collection.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditClassMetadata[" + type.getName() + "]";
+    }
+
+    static final class AuditedField {
+        private final Field field;
+        private final Method auditMethod;
+
+        private AuditedField(Field field, Method auditMethod) {
+            this.field = field;
+            this.auditMethod = auditMethod;
+        }
+
+        Field getField() {
+            return field;
+        }
+
+        String getName() {
+            return field.getName();
+        }
+
+        /**
+         * @return the public getXxx_Audit method declared by the audited class, or
+         *         null if the raw field value is logged
+         */
+        Method getAuditMethod() {
+            return auditMethod;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.openelisglobal.audittrail.daoimpl;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.openelisglobal.audittrail.dao.AuditHistoryOutboxDAO;
+import org.openelisglobal.audittrail.valueholder.History;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/*
+ * written with plain JDBC, the rows have no entity and take no ids from
+ * history_seq, so the audited transaction pays for a single batched statement
+ */
+@Component
+@Transactional
+public class AuditHistoryOutboxDAOImpl implements AuditHistoryOutboxDAO {
+
+    private static final String INSERT = "INSERT INTO clinlims.audit_history_outbox (sys_user_id, reference_id,"
+            + " reference_table, \"timestamp\", activity, changes) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertAll(List<History> histories) {
+        if (histories.isEmpty()) {
+            return;
+        }
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+                for (History history : histories) {
+                    statement.setBigDecimal(1, new BigDecimal(history.getSysUserId()));
+                    statement.setBigDecimal(2, new BigDecimal(history.getReferenceId()));
+                    statement.setBigDecimal(3, new BigDecimal(history.getReferenceTable()));
+                    statement.setTimestamp(4, history.getTimestamp());
+                    statement.setString(5, history.getActivity());
+                    statement.setBytes(6, history.getChanges());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public Map<Long, History> getOldestForUpdate(int limit) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("SELECT id, sys_user_id, reference_id, reference_table,"
+                + " \"timestamp\", activity, changes FROM clinlims.audit_history_outbox ORDER BY id LIMIT :limit"
+                + " FOR UPDATE SKIP LOCKED").setParameter("limit", limit).getResultList();
+        Map<Long, History> histories = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            History history = new History();
+            history.setSysUserId(((BigDecimal) row[1]).toPlainString());
+            history.setReferenceId(((BigDecimal) row[2]).toPlainString());
+            history.setReferenceTable(((BigDecimal) row[3]).toPlainString());
+            history.setTimestamp((Timestamp) row[4]);
+            history.setActivity((String) row[5]);
+            history.setChanges((byte[]) row[6]);
+            histories.put(((Number) row[0]).longValue(), history);
+        }
+        return histories;
+    }
+
+    @Override
+    public int delete(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createNativeQuery("DELETE FROM clinlims.audit_history_outbox WHERE id IN (:ids)")
+                .setParameter("ids", ids).executeUpdate();
+    }
+}
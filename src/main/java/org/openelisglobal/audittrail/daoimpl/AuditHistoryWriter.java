@@ -0,0 +1,141 @@
+package org.openelisglobal.audittrail.daoimpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.openelisglobal.audittrail.dao.AuditHistoryOutboxDAO;
+import org.openelisglobal.audittrail.valueholder.History;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.history.service.HistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Writes audit trail history rows through an outbox in the transaction of the
+ * audited change, so the history commits or rolls back with it. The rows
+ * recorded during a transaction are held until just before it commits and then
+ * inserted into the outbox as one JDBC batch, without taking ids from
+ * history_seq.
+ *
+ * <p>Once the transaction has committed the outbox is moved into history in the
+ * background, batchSize rows per transaction. It is also moved every pollMillis
+ * for rows left behind by a restart or by another node.
+ */
+@Component
+public class AuditHistoryWriter {
+
+    @Autowired
+    private HistoryService historyService;
+    @Autowired
+    private AuditHistoryOutboxDAO auditHistoryOutboxDAO;
+    @Autowired
+    @Qualifier(AsyncConfig.DEFAULT_EXECUTOR)
+    private InstrumentedTaskExecutor defaultExecutor;
+
+    @Value("${org.openelisglobal.audit.outbox.batchSize:500}")
+    private int batchSize;
+
+    private final AtomicBoolean moving = new AtomicBoolean();
+    private final AtomicBoolean moveRequested = new AtomicBoolean();
+
+    /**
+     * Outside a transaction the row is written at once in a transaction of its
+     * own.
+     */
+    public void write(History history) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingForCurrentTransaction().add(history);
+        } else {
+            historyService.insertAll(Collections.singletonList(history));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${org.openelisglobal.audit.outbox.pollMillis:30000}",
+            fixedDelayString = "${org.openelisglobal.audit.outbox.pollMillis:30000}")
+    public void poll() {
+        moveRequested.set(true);
+        moveOutbox();
+    }
+
+    /*
+     * a request made while moving is picked up by the running move, so at most one
+     * waits on the pool
+     */
+    private void moveSoon() {
+        if (!moveRequested.getAndSet(true)) {
+            try {
+                defaultExecutor.execute(this::moveOutbox);
+            } catch (RuntimeException e) {
+                // the change has committed, the next poll moves its history
+                LogEvent.logError("could not start moving the audit history outbox", e);
+            }
+        }
+    }
+
+    void moveOutbox() {
+        while (moveRequested.get() && moving.compareAndSet(false, true)) {
+            try {
+                moveRequested.set(false);
+                int moved;
+                do {
+                    moved = historyService.moveFromOutbox(batchSize);
+                } while (moved >= batchSize);
+            } catch (RuntimeException e) {
+                // left in the outbox, the next poll tries again
+                LogEvent.logError("error moving the audit history outbox into history", e);
+            } finally {
+                moving.set(false);
+            }
+        }
+    }
+
+    private List<History> pendingForCurrentTransaction() {
+        // looked up among the synchronizations of the current transaction rather
+        // than bound as a resource so a suspended outer transaction keeps its own rows
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingHistory && ((PendingHistory) synchronization).owner() == this) {
+                return ((PendingHistory) synchronization).histories;
+            }
+        }
+        PendingHistory pending = new PendingHistory();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending.histories;
+    }
+
+    private class PendingHistory implements TransactionSynchronization {
+        private final List<History> histories = new ArrayList<>();
+        private boolean written;
+
+        private AuditHistoryWriter owner() {
+            return AuditHistoryWriter.this;
+        }
+
+        /*
+         * the transaction is still active here, the rows commit with it and a
+         * failure to write them fails the commit
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!histories.isEmpty()) {
+                auditHistoryOutboxDAO.insertAll(new ArrayList<>(histories));
+                histories.clear();
+                written = true;
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            if (written) {
+                moveSoon();
+            }
+        }
+    }
+}
@@ -16,10 +16,10 @@ package org.openelisglobal.audittrail.daoimpl;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.sql.Timestamp;
 import java.util.Vector;
 import org.openelisglobal.audittrail.dao.AuditTrailService;
+import org.openelisglobal.audittrail.daoimpl.AuditClassMetadata.AuditedField;
 import org.openelisglobal.audittrail.valueholder.History;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
@@ -28,7 +28,6 @@ import org.openelisglobal.common.util.LabelValuePair;
 import org.openelisglobal.common.util.StringUtil;
 import org.openelisglobal.common.util.XMLUtil;
 import org.openelisglobal.common.valueholder.BaseObject;
-import org.openelisglobal.history.service.HistoryService;
 import org.openelisglobal.referencetables.service.ReferenceTablesService;
 import org.openelisglobal.referencetables.valueholder.ReferenceTables;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,7 +42,7 @@ public class AuditTrailServiceImpl implements AuditTrailService {
     private ReferenceTablesService referenceTablesService;
 
     @Autowired
-    private HistoryService historyService;
+    private AuditHistoryWriter auditHistoryWriter;
 
     // For an insert log the id, sys_user_id, ref id, reftable, timestamp, activity
     // (='I'). The change column would be blank, since the
@@ -182,52 +181,6 @@ public class AuditTrailServiceImpl implements AuditTrailService {
         }
     }
 
-    /**
-     * Returns an array of all fields used by this object from it's class and all
-     * superclasses.
-     *
-     * @param objectClass the class
-     * @param fields      the current field list
-     * @return an array of fields
-     */
-    private Field[] getAllFields(Class objectClass, Field[] fields) {
-
-        Field[] newFields = objectClass.getDeclaredFields();
-
-        int fieldsSize = 0;
-        int newFieldsSize = 0;
-
-        if (fields != null) {
-            fieldsSize = fields.length;
-        }
-
-        if (newFields != null) {
-            newFieldsSize = newFields.length;
-        }
-
-        Field[] totalFields = new Field[fieldsSize + newFieldsSize];
-
-        if (fieldsSize > 0) {
-            System.arraycopy(fields, 0, totalFields, 0, fieldsSize);
-        }
-
-        if (newFieldsSize > 0) {
-            System.arraycopy(newFields, 0, totalFields, fieldsSize, newFieldsSize);
-        }
-
-        Class superClass = objectClass.getSuperclass();
-
-        Field[] finalFieldsArray;
-
-        if (superClass != null && !superClass.equals(Object.class)) {
-            finalFieldsArray = getAllFields(superClass, totalFields);
-        } else {
-            finalFieldsArray = totalFields;
-        }
-
-        return finalFieldsArray;
-    }
-
     /**
      * Logs changes to persistent data
      *
@@ -243,134 +196,35 @@ public class AuditTrailServiceImpl implements AuditTrailService {
 
         // bugzilla 1857
         Vector<Object> optionList = new Vector<>();
-        Class objectClass = existingObject.getClass();
-        // get an array of all fields in the class including those in superclasses if
-        // this is a subclass.
-        Field[] fields = getAllFields(objectClass, null);
+        // the audited fields of the class and its superclasses, filtered and made
+        // accessible once per class
+        AuditClassMetadata existingMetadata = AuditClassMetadata.forClass(existingObject.getClass());
+        AuditClassMetadata newMetadata = newObject == null ? null : AuditClassMetadata.forClass(newObject.getClass());
 
         // Iterate through all the fields in the object
-        fieldIteration: for (int ii = 0; ii < fields.length; ii++) {
-            LogEvent.logTrace(this.getClass().getName(), "getChanges", "field: " + fields[ii].getName());
-
-            // make private fields accessible so we can access their values.
-            // This is discouraged as it can introduce security vulnerabilities so care
-            // should be taken in this section of the code to not do anything other than
-            // read from this field so it can be saved in the audit log
-            fields[ii].setAccessible(true);
-
-            // if the current field is static, transient or final then don't log it as
-            // these modifiers are v.unlikely to be part of the data model.
-            if (Modifier.isTransient(fields[ii].getModifiers()) || Modifier.isFinal(fields[ii].getModifiers())
-                    || Modifier.isStatic(fields[ii].getModifiers())) {
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        fields[ii].getName() + " transient: " + Modifier.isTransient(fields[ii].getModifiers()));
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        fields[ii].getName() + " final: " + Modifier.isFinal(fields[ii].getModifiers()));
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        fields[ii].getName() + " static: " + Modifier.isStatic(fields[ii].getModifiers()));
-                continue fieldIteration;
-            }
-
-            String fieldName = fields[ii].getName();
-            if ((!fieldName.equals("id"))
-                    // bugzilla 2574
-                    // && (!fieldName.equals("lastupdated"))
-                    && (!fieldName.equals("sysUserId")) && (!fieldName.equals("systemUser"))
-                    && (!fieldName.equals("originalLastupdated"))) {
-                // bugzilla 2578
-                // && (!fieldName.equals("collectionDateForDisplay"))
-                // && (!fieldName.equals("collectionTimeForDisplay")) ) {
-                Class interfaces[] = fields[ii].getType().getInterfaces();
-                String auditFunctionName = "get" + StringUtil.capitalize(fieldName) + "_Audit";
-                for (int i = 0; i < interfaces.length;) {
-                    if (interfaces[i].equals(java.util.Collection.class)) {
-                        if (!methodExists(objectClass, auditFunctionName)) { // check if separate audit field exists
-                            continue fieldIteration;
-                        }
-                    }
-                    i++;
-                }
-
-                String propertyNewState;
-                String propertyPreUpdateState;
-
-                // get new field values
-                try {
-                    if (newObject != null) {
-                        Object objPropNewState = fields[ii].get(newObject);
-                        if (objPropNewState != null) {
-                            propertyNewState = objPropNewState.toString();
-                        } else {
-                            propertyNewState = "";
-                        }
-
-                        try {
-                            LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                                    "does " + auditFunctionName + " exist in newObject");
-
-                            if (methodExists(newObject.getClass(), auditFunctionName)) {
-                                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                                        auditFunctionName + " exists in newObject");
-
-                                Method m2 = newObject.getClass().getMethod(auditFunctionName, new Class[0]);
-                                Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
-
-                                String o2Value;
-
-                                if (o2 != null) {
-                                    o2Value = o2.toString();
-                                } else {
-                                    o2Value = "";
-                                }
-
-                                propertyNewState = o2Value;
-                            }
-                        } catch (RuntimeException | NoSuchMethodException | IllegalAccessException
-                                | InvocationTargetException e) {
-                            // buzilla 2154
-                            LogEvent.logError(e);
-                            throw new LIMSRuntimeException("Error in AuditTrail processLabelValue()", e);
-                        }
+        for (AuditedField auditedField : existingMetadata.getAuditedFields()) {
+            Field field = auditedField.getField();
+            String fieldName = auditedField.getName();
+            String auditFunctionName = "get" + StringUtil.capitalize(fieldName) + "_Audit";
+
+            String propertyNewState;
+            String propertyPreUpdateState;
+
+            // get new field values
+            try {
+                if (newObject != null) {
+                    Object objPropNewState = field.get(newObject);
+                    if (objPropNewState != null) {
+                        propertyNewState = objPropNewState.toString();
                     } else {
                         propertyNewState = "";
                     }
-                } catch (IllegalAccessException e) {
-                    // buzilla 2154
-                    LogEvent.logError(e);
-                    propertyNewState = "";
-                }
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        "field: " + fields[ii].getName() + " propertyNewState: " + propertyNewState);
-
-                try {
-                    Object objPreUpdateState = fields[ii].get(existingObject);
-                    if (objPreUpdateState != null) {
-                        propertyPreUpdateState = objPreUpdateState.toString();
-
-                    } else {
-                        propertyPreUpdateState = "";
-                    }
 
                     try {
-                        LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                                "does " + auditFunctionName + " exists in existingObject");
-
-                        if (methodExists(existingObject.getClass(), auditFunctionName)) {
-                            LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                                    auditFunctionName + " exists in existingObject");
-                            Method m2 = existingObject.getClass().getMethod(auditFunctionName, new Class[0]);
-                            Object o2 = m2.invoke(existingObject, (Object[]) new Class[0]);
-
-                            String o2Value;
-
-                            if (o2 != null) {
-                                o2Value = o2.toString();
-                            } else {
-                                o2Value = "";
-                            }
-
-                            propertyPreUpdateState = o2Value;
-
+                        if (newMetadata.declaresMethod(auditFunctionName)) {
+                            Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), auditFunctionName);
+                            Object o2 = m2.invoke(newObject);
+                            propertyNewState = o2 != null ? o2.toString() : "";
                         }
                     } catch (RuntimeException | NoSuchMethodException | IllegalAccessException
                             | InvocationTargetException e) {
@@ -378,60 +232,70 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                         LogEvent.logError(e);
                         throw new LIMSRuntimeException("Error in AuditTrail processLabelValue()", e);
                     }
-                } catch (IllegalArgumentException e) {
-                    LogEvent.logError(e);
+                } else {
+                    propertyNewState = "";
+                }
+            } catch (IllegalAccessException e) {
+                // buzilla 2154
+                LogEvent.logError(e);
+                propertyNewState = "";
+            }
+
+            try {
+                Object objPreUpdateState = field.get(existingObject);
+                if (objPreUpdateState != null) {
+                    propertyPreUpdateState = objPreUpdateState.toString();
+                } else {
                     propertyPreUpdateState = "";
-                } catch (IllegalAccessException e) {
+                }
+
+                try {
+                    Method m2 = auditedField.getAuditMethod();
+                    if (m2 != null) {
+                        Object o2 = m2.invoke(existingObject);
+                        propertyPreUpdateState = o2 != null ? o2.toString() : "";
+                    }
+                } catch (RuntimeException | IllegalAccessException | InvocationTargetException e) {
                     // buzilla 2154
                     LogEvent.logError(e);
-                    propertyPreUpdateState = "";
+                    throw new LIMSRuntimeException("Error in AuditTrail processLabelValue()", e);
                 }
-                LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                        "field: " + fields[ii].getName() + " propertyPreUpdateState: " + propertyPreUpdateState);
+            } catch (IllegalArgumentException e) {
+                LogEvent.logError(e);
+                propertyPreUpdateState = "";
+            } catch (IllegalAccessException e) {
+                // buzilla 2154
+                LogEvent.logError(e);
+                propertyPreUpdateState = "";
+            }
 
-                // bugzilla 2134 fixed the analysis_qaevent completed date problem
-                // bugzilla 2122 fixed the sample collection date problem
-                if (fieldName.equals("qaEvent") || fieldName.equals("sample")) {
-                    LabelValuePair lvb = processLabelValueFixes(fieldName, propertyPreUpdateState, existingObject,
+            // bugzilla 2134 fixed the analysis_qaevent completed date problem
+            // bugzilla 2122 fixed the sample collection date problem
+            if (fieldName.equals("qaEvent") || fieldName.equals("sample")) {
+                LabelValuePair lvb = processLabelValueFixes(fieldName, propertyPreUpdateState, existingObject,
+                        newObject);
+                if (lvb != null) {
+                    String label = lvb.getLabel();
+                    String value = lvb.getValue();
+                    optionList.add(new LabelValuePair(label, value));
+                }
+            } else {
+                // Ignore the parent class if any, only compare the current level
+                if (propertyNewState.startsWith("{org.openelisglobal")) {
+                    propertyNewState = propertyPreUpdateState;
+                }
+                if (propertyPreUpdateState.startsWith("{org.openelisglobal")) {
+                    propertyPreUpdateState = propertyNewState;
+                }
+
+                // Now we have the two property values - compare them
+                if (propertyNewState.equals(propertyPreUpdateState)) {
+                    continue; // Values haven't changed so loop to next property
+                } else {
+                    LabelValuePair lvb = processLabelValue(fieldName, propertyPreUpdateState, existingObject,
                             newObject);
                     if (lvb != null) {
-                        String label = lvb.getLabel();
-                        String value = lvb.getValue();
-                        optionList.add(new LabelValuePair(label, value));
-                    }
-                } else {
-                    // Ignore the parent class if any, only compare the current level
-                    if (propertyNewState.startsWith("{org.openelisglobal")) {
-                        propertyNewState = propertyPreUpdateState;
-                    }
-                    if (propertyPreUpdateState.startsWith("{org.openelisglobal")) {
-                        propertyPreUpdateState = propertyNewState;
-                    }
-
-                    // LogEvent.logInfo("AuditTrailDAOImpl","getChanges","TABLE NAME: " +
-                    // tableName);
-                    // LogEvent.logInfo("AuditTrailDAOImpl","getChanges","FIELD NAME: " +
-                    // fieldName);
-                    // LogEvent.logInfo("AuditTrailDAOImpl","getChanges","PRE UPDATE: " +
-                    // propertyPreUpdateState);
-                    // LogEvent.logInfo("AuditTrailDAOImpl","getChanges","NEW UPDATE: " +
-                    // propertyNewState);
-                    // LogEvent.logInfo("","","\n");
-
-                    LogEvent.logTrace(this.getClass().getName(), "getChanges",
-                            "field compare: " + fields[ii].getName() + " propertyNewState: " + propertyNewState);
-                    LogEvent.logTrace(this.getClass().getName(), "getChanges", "field compare: " + fields[ii].getName()
-                            + " propertyPreUpdateState: " + propertyPreUpdateState);
-
-                    // Now we have the two property values - compare them
-                    if (propertyNewState.equals(propertyPreUpdateState)) {
-                        continue; // Values haven't changed so loop to next property
-                    } else {
-                        LabelValuePair lvb = processLabelValue(fieldName, propertyPreUpdateState, existingObject,
-                                newObject);
-                        if (lvb != null) {
-                            optionList.add(new LabelValuePair(lvb.getLabel(), lvb.getValue()));
-                        }
+                        optionList.add(new LabelValuePair(lvb.getLabel(), lvb.getValue()));
                     }
                 }
             }
@@ -467,19 +331,19 @@ public class AuditTrailServiceImpl implements AuditTrailService {
         try {
             if (fieldName.equals("qaEvent")) {
                 fieldName = "completedDate";
-                m1 = existingObject.getClass().getMethod("getCompletedDate", new Class[0]);
+                m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getCompletedDate");
                 o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                m2 = newObject.getClass().getMethod("getCompletedDate", new Class[0]);
+                m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getCompletedDate");
                 o2 = m2.invoke(newObject, (Object[]) new Class[0]);
             }
             if (fieldName.equals("sample")) {
                 fieldName = "collectionDate";
                 try {
-                    m1 = existingObject.getClass().getMethod("getCollectionDate", new Class[0]);
+                    m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getCollectionDate");
                     o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    m2 = newObject.getClass().getMethod("getCollectionDate", new Class[0]);
+                    m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getCollectionDate");
                     o2 = m2.invoke(newObject, (Object[]) new Class[0]);
                 } catch (NoSuchMethodException e) {
                     LogEvent.logWarn(this.getClass().getSimpleName(), "processLabelValueFixes",
@@ -530,14 +394,7 @@ public class AuditTrailServiceImpl implements AuditTrailService {
     }
 
     public static boolean methodExists(Class clazz, String methodName) {
-        boolean result = false;
-        for (Method method : clazz.getDeclaredMethods()) {
-            if (method.getName().equals(methodName)) {
-                result = true;
-                break;
-            }
-        }
-        return result;
+        return AuditClassMetadata.forClass(clazz).declaresMethod(methodName);
     }
 
     /**
@@ -557,21 +414,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 && propertyPreUpdateState.startsWith("{org.openelisglobal")) {
             if (fieldName.equals("test")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getTest", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getTest");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getTest", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getTest");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -589,21 +446,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("testSection")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getTestSection", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getTestSection");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getTestSection", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getTestSection");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -622,21 +479,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("county")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getCounty", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getCounty");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getCounty", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getCounty");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -655,21 +512,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("region")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getRegion", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getRegion");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getRegion", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getRegion");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -688,21 +545,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("scriptlet")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getScriptlet", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getScriptlet");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getScriptlet", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getScriptlet");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -721,21 +578,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("organization")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getOrganization", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getOrganization");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getOrganization", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getOrganization");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -753,21 +610,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("panel")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getPanel", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getPanel");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getPanel", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getPanel");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -785,21 +642,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("person")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getPerson", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getPerson");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getPerson", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getPerson");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -817,21 +674,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("testResult")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getTestResult", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getTestResult");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getTestResult", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getTestResult");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -849,21 +706,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("analysis")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getAnalysis", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getAnalysis");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getAnalysis", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getAnalysis");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -882,21 +739,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("analyte")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getAnalyte", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getAnalyte");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getAnalyte", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getAnalyte");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -914,21 +771,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("sampleItem")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getSampleItem", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getSampleItem");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getSampleItem", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getSampleItem");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -946,21 +803,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("parentAnalysis")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getParentAnalysis", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getParentAnalysis");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getParentAnalysis", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getParentAnalysis");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -978,21 +835,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("parentResult")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getParentResult", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getParentResult");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getParentResult", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getParentResult");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -1010,21 +867,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("sample")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getSample", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getSample");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getSample", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getSample");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -1042,21 +899,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("method")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getMethod", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getMethod");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getMethod", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getMethod");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -1074,21 +931,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("testTrailer")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getTestTrailer", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getTestTrailer");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getTestTrailer", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getTestTrailer");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -1106,21 +963,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("unitOfMeasure")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getUnitOfMeasure", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getUnitOfMeasure");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getUnitOfMeasure", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getUnitOfMeasure");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -1138,21 +995,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("testAnalyte")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getTestAnalyte", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getTestAnalyte");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getTestAnalyte", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getTestAnalyte");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -1170,21 +1027,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("label")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getLabel", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getLabel");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getLabel", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getLabel");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -1202,21 +1059,21 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 }
             } else if (fieldName.equals("city")) {
                 try {
-                    Method m1 = existingObject.getClass().getMethod("getCity", new Class[0]);
+                    Method m1 = AuditClassMetadata.getMethod(existingObject.getClass(), "getCity");
                     Object o1 = m1.invoke(existingObject, (Object[]) new Class[0]);
 
-                    Method m2 = newObject.getClass().getMethod("getCity", new Class[0]);
+                    Method m2 = AuditClassMetadata.getMethod(newObject.getClass(), "getCity");
                     Object o2 = m2.invoke(newObject, (Object[]) new Class[0]);
 
                     String oldID = "";
                     String newID = "";
                     if (o1 != null) {
-                        Method m11 = o1.getClass().getMethod("getStringId", new Class[0]);
+                        Method m11 = AuditClassMetadata.getMethod(o1.getClass(), "getStringId");
                         oldID = (String) m11.invoke(o1, (Object[]) new Class[0]);
                     }
 
                     if (o2 != null) {
-                        Method m22 = o2.getClass().getMethod("getStringId", new Class[0]);
+                        Method m22 = AuditClassMetadata.getMethod(o2.getClass(), "getStringId");
                         newID = (String) m22.invoke(o2, (Object[]) new Class[0]);
                     }
 
@@ -1276,7 +1133,7 @@ public class AuditTrailServiceImpl implements AuditTrailService {
                 lvb.setLabel(fieldName);
                 lvb.setValue(propertyPreUpdateState);
                 LogEvent.logTrace(this.getClass().getName(), "processLabelValue",
-                        "lvb field: " + fieldName + " propertyPreUpdateState: " + propertyPreUpdateState);
+                        "lvb field: {} propertyPreUpdateState: {}", fieldName, propertyPreUpdateState);
 
             }
         }
@@ -1371,11 +1228,11 @@ public class AuditTrailServiceImpl implements AuditTrailService {
     }
 
     /**
-     * Save the object into history table
+     * Save the object into history table once the current transaction commits
      *
      * @param history the history object being saved
      */
     private void insertData(History history) throws LIMSRuntimeException {
-        historyService.insert(history);
+        auditHistoryWriter.write(history);
     }
 }
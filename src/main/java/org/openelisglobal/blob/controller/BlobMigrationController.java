@@ -0,0 +1,51 @@
+package org.openelisglobal.blob.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import org.openelisglobal.blob.service.BlobMigrationProgress;
+import org.openelisglobal.blob.service.BlobMigrationService;
+import org.openelisglobal.common.constants.Constants;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.rest.BaseRestController;
+import org.openelisglobal.userrole.service.UserRoleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class BlobMigrationController extends BaseRestController {
+
+    @Autowired
+    private BlobMigrationService blobMigrationService;
+    @Autowired
+    private UserRoleService userRoleService;
+
+    @GetMapping("/BlobMigration/info")
+    public ResponseEntity<BlobMigrationProgress> getMigrationInfo(HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(blobMigrationService.getProgress());
+    }
+
+    @GetMapping("/BlobMigration")
+    public ResponseEntity<Object> migrateImages(@RequestParam(defaultValue = "20") int batchSize,
+            HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(blobMigrationService.start(batchSize));
+        } catch (IllegalStateException e) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "migrateImages", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(blobMigrationService.getProgress());
+        }
+    }
+
+    private boolean isAdmin(HttpServletRequest request) {
+        String sysUserId = getSysUserId(request);
+        return sysUserId != null && userRoleService.userInRole(sysUserId, Constants.ROLE_GLOBAL_ADMIN);
+    }
+}
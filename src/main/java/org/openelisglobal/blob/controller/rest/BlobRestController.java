@@ -0,0 +1,122 @@
+package org.openelisglobal.blob.controller.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import org.openelisglobal.blob.service.BlobStoreService;
+import org.openelisglobal.common.constants.Constants;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.rest.BaseRestController;
+import org.openelisglobal.userrole.service.UserRoleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Streams images and documents in and out of the blob store. The content under
+ * an id never changes, so the id is the ETag and browsers may keep what they
+ * have read. Range requests are answered with the part asked for, so a large
+ * slide scan can be read a piece at a time.
+ */
+@RestController
+@RequestMapping("/rest/blob")
+public class BlobRestController extends BaseRestController {
+
+    private static final int DEFAULT_THUMBNAIL_SIZE = 256;
+    // each size asked for is made and kept, so only these are made
+    private static final Set<Integer> THUMBNAIL_SIZES = new HashSet<>(Arrays.asList(64, 128, 256, 512));
+    // shown in the browser, anything else is only offered as a download
+    private static final Set<String> INLINE_TYPES = new HashSet<>(Arrays.asList(MediaType.IMAGE_PNG_VALUE,
+            MediaType.IMAGE_JPEG_VALUE, "image/tiff", MediaType.APPLICATION_PDF_VALUE));
+    // the roles that open the pathology and cytology cases the files are added to
+    private static final Collection<String> CASE_ROLE_NAMES = Arrays.asList(Constants.ROLE_GLOBAL_ADMIN,
+            Constants.ROLE_PATHOLOGIST, Constants.ROLE_CYTOPATHOLOGIST);
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+    @Autowired
+    private UserRoleService userRoleService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> upload(@RequestParam("file") MultipartFile file,
+            HttpServletRequest request) {
+        if (!canOpenCases(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        String id;
+        try (InputStream in = file.getInputStream()) {
+            id = blobStoreService.store(in);
+        } catch (IOException e) {
+            LogEvent.logError("could not read the uploaded file " + file.getOriginalFilename(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        Map<String, Object> stored = new HashMap<>();
+        stored.put("id", id);
+        stored.put("contentType", blobStoreService.getContentType(id));
+        stored.put("size", file.getSize());
+        return ResponseEntity.status(HttpStatus.CREATED).body(stored);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Resource> download(@PathVariable String id, HttpServletRequest request) {
+        if (!canOpenCases(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return serve(id, blobStoreService.getPath(id), blobStoreService.getContentType(id));
+    }
+
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<Resource> thumbnail(@PathVariable String id,
+            @RequestParam(defaultValue = "" + DEFAULT_THUMBNAIL_SIZE) int size, HttpServletRequest request) {
+        if (!canOpenCases(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!THUMBNAIL_SIZES.contains(size)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return serve(id + "-" + size, blobStoreService.getThumbnail(id, size), MediaType.IMAGE_JPEG_VALUE);
+    }
+
+    private boolean canOpenCases(HttpServletRequest request) {
+        String sysUserId = getSysUserId(request);
+        return sysUserId != null && userRoleService.userInRole(sysUserId, CASE_ROLE_NAMES);
+    }
+
+    private ResponseEntity<Resource> serve(String eTag, Optional<Path> path, String contentType) {
+        if (!path.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean inline = INLINE_TYPES.contains(contentType);
+        ContentDisposition disposition = inline ? ContentDisposition.inline().build()
+                : ContentDisposition.attachment().filename(eTag).build();
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.maxAge(30, TimeUnit.DAYS).cachePrivate())
+                .contentType(inline ? MediaType.parseMediaType(contentType) : MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .header("X-Content-Type-Options", "nosniff").body(new FileSystemResource(path.get()));
+    }
+}
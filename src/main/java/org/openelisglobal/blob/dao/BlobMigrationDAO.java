@@ -0,0 +1,29 @@
+package org.openelisglobal.blob.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+
+public interface BlobMigrationDAO {
+
+    /**
+     * The tables which kept their images in an image column before the blob store
+     */
+    List<String> IMAGE_TABLES = Collections.unmodifiableList(Arrays.asList("pathology_slide", "pathology_report",
+            "cytology_slide", "cytology_report", "immunohistochemistry_report"));
+
+    /**
+     * @return the id and the image of the next rows of the table still holding an
+     *         image, in id order
+     */
+    List<Object[]> getImagesAfter(String table, int afterId, int limit) throws LIMSRuntimeException;
+
+    /**
+     * Points the row at the blob and clears its image, unless it has been cleared
+     * already
+     *
+     * @return whether the row was changed
+     */
+    boolean moveImageToBlob(String table, int id, String blobId) throws LIMSRuntimeException;
+}
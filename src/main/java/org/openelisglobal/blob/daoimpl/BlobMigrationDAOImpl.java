@@ -0,0 +1,61 @@
+package org.openelisglobal.blob.daoimpl;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.openelisglobal.blob.dao.BlobMigrationDAO;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.log.LogEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@Transactional
+public class BlobMigrationDAOImpl implements BlobMigrationDAO {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getImagesAfter(String table, int afterId, int limit) throws LIMSRuntimeException {
+        try {
+            String sql = "select id, image from " + checked(table)
+                    + " where image is not null and id > :afterId order by id limit :limit";
+            NativeQuery<Object[]> query = entityManager.unwrap(Session.class).createNativeQuery(sql);
+            query.setParameter("afterId", afterId);
+            query.setParameter("limit", limit);
+            return query.list();
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in BlobMigrationDAOImpl getImagesAfter()", e);
+        }
+    }
+
+    @Override
+    public boolean moveImageToBlob(String table, int id, String blobId) throws LIMSRuntimeException {
+        try {
+            String sql = "update " + checked(table)
+                    + " set image_blob_id = :blobId, image = null where id = :id and image is not null";
+            NativeQuery<?> query = entityManager.unwrap(Session.class).createNativeQuery(sql);
+            query.setParameter("blobId", blobId);
+            query.setParameter("id", id);
+            return query.executeUpdate() > 0;
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in BlobMigrationDAOImpl moveImageToBlob()", e);
+        }
+    }
+
+    // the table is put in the sql as it is, so only the known ones are allowed
+    private static String checked(String table) {
+        if (!IMAGE_TABLES.contains(table)) {
+            throw new LIMSRuntimeException("not a table with images: " + table);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,85 @@
+package org.openelisglobal.blob.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BlobMigrationProgress {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final int batchSize;
+    private final long startedAt;
+    private volatile Status status = Status.RUNNING;
+    private volatile String table;
+    private final AtomicLong rowsMigrated = new AtomicLong();
+    private final AtomicLong bytesMigrated = new AtomicLong();
+    private final AtomicLong rowFailures = new AtomicLong();
+    private volatile String error;
+    private volatile long finishedAt;
+
+    public BlobMigrationProgress(int batchSize) {
+        this.batchSize = batchSize;
+        startedAt = System.currentTimeMillis();
+    }
+
+    void tableStarted(String table) {
+        this.table = table;
+    }
+
+    void rowMigrated(int bytes) {
+        rowsMigrated.incrementAndGet();
+        bytesMigrated.addAndGet(bytes);
+    }
+
+    void rowFailed() {
+        rowFailures.incrementAndGet();
+    }
+
+    void completed() {
+        status = Status.COMPLETED;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    void failed(Throwable cause) {
+        status = Status.FAILED;
+        error = cause.toString();
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public long getRowsMigrated() {
+        return rowsMigrated.get();
+    }
+
+    public long getBytesMigrated() {
+        return bytesMigrated.get();
+    }
+
+    public long getRowFailures() {
+        return rowFailures.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+}
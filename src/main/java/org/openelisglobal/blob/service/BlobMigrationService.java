@@ -0,0 +1,22 @@
+package org.openelisglobal.blob.service;
+
+/**
+ * Moves the images still held in the pathology, cytology and
+ * immunohistochemistry tables into the blob store, in the background and one
+ * migration at a time.
+ */
+public interface BlobMigrationService {
+
+    /**
+     * Migrated rows no longer hold an image, so a migration which was cut short
+     * is carried on by starting another one
+     *
+     * @throws IllegalStateException if a migration is already running
+     */
+    BlobMigrationProgress start(int batchSize);
+
+    /**
+     * @return the running migration, or the last one if none is running
+     */
+    BlobMigrationProgress getProgress();
+}
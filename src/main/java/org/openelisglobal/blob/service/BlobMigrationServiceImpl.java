@@ -0,0 +1,93 @@
+package org.openelisglobal.blob.service;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import org.openelisglobal.blob.dao.BlobMigrationDAO;
+import org.openelisglobal.blob.service.BlobMigrationProgress.Status;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+/**
+ * Walks each table in id order a batch at a time, so only one batch of images
+ * is held in memory. Every image is written to the store before its row is
+ * pointed at it, so a migration stopped part way loses nothing. A row which
+ * fails is logged and skipped, keeping its image for the next run.
+ */
+@Service
+public class BlobMigrationServiceImpl implements BlobMigrationService {
+
+    @Autowired
+    private BlobMigrationDAO blobMigrationDAO;
+    @Autowired
+    private BlobStoreService blobStoreService;
+    @Autowired
+    @Qualifier(AsyncConfig.JOB_EXECUTOR)
+    private InstrumentedTaskExecutor jobExecutor;
+
+    private final Object lock = new Object();
+    private volatile BlobMigrationProgress progress;
+    private Future<?> worker;
+
+    @Override
+    public BlobMigrationProgress start(int batchSize) {
+        synchronized (lock) {
+            if (worker != null && !worker.isDone()) {
+                throw new IllegalStateException("an image migration is already running");
+            }
+            BlobMigrationProgress migration = new BlobMigrationProgress(Math.max(1, batchSize));
+            progress = migration;
+            worker = jobExecutor.submit(() -> run(migration));
+            return migration;
+        }
+    }
+
+    @Override
+    public BlobMigrationProgress getProgress() {
+        return progress;
+    }
+
+    void run(BlobMigrationProgress migration) {
+        try {
+            for (String table : BlobMigrationDAO.IMAGE_TABLES) {
+                migration.tableStarted(table);
+                migrateTable(migration, table);
+            }
+            migration.completed();
+            LogEvent.logInfo(this.getClass().getSimpleName(), "run",
+                    "image migration finished: " + migration.getRowsMigrated() + " rows, "
+                            + migration.getBytesMigrated() + " bytes, " + migration.getRowFailures()
+                            + " failed rows");
+        } catch (RuntimeException e) {
+            LogEvent.logError("the image migration failed", e);
+            migration.failed(e);
+        }
+    }
+
+    private void migrateTable(BlobMigrationProgress migration, String table) {
+        int lastId = 0;
+        while (true) {
+            List<Object[]> rows = blobMigrationDAO.getImagesAfter(table, lastId, migration.getBatchSize());
+            if (rows.isEmpty()) {
+                return;
+            }
+            for (Object[] row : rows) {
+                lastId = ((Number) row[0]).intValue();
+                byte[] image = (byte[]) row[1];
+                try {
+                    String blobId = blobStoreService.store(image);
+                    if (blobMigrationDAO.moveImageToBlob(table, lastId, blobId)) {
+                        migration.rowMigrated(image.length);
+                    }
+                } catch (RuntimeException e) {
+                    LogEvent.logError("could not move the image of " + table + " " + lastId + " to the blob store",
+                            e);
+                    migration.rowFailed();
+                }
+            }
+        }
+    }
+}
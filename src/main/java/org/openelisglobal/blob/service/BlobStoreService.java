@@ -0,0 +1,39 @@
+package org.openelisglobal.blob.service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Keeps files such as slide images and report PDFs outside the database, each
+ * under the SHA-256 of its content, so the same file is only kept once.
+ */
+public interface BlobStoreService {
+
+    /**
+     * Reads the content to the end without holding it in memory.
+     *
+     * @return the id of the content, the hex SHA-256 of it
+     */
+    String store(InputStream content);
+
+    String store(byte[] content);
+
+    /**
+     * @return empty when nothing is stored under the id, or it is not an id
+     */
+    Optional<Path> getPath(String id);
+
+    /**
+     * @return the type read from the first bytes of the content, one of
+     *         image/png, image/jpeg, image/tiff and application/pdf, otherwise
+     *         application/octet-stream
+     */
+    String getContentType(String id);
+
+    /**
+     * @return a JPEG of the stored image no wider or higher than size, made on
+     *         first request and kept. Empty when the content is not an image.
+     */
+    Optional<Path> getThumbnail(String id, int size);
+}
@@ -0,0 +1,234 @@
+package org.openelisglobal.blob.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.log.LogEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+/**
+ * Stores each blob at root/aa/bb/hash, aa and bb being the first characters of
+ * the hash, so no directory grows too large. Content is written to a temporary
+ * file while it is hashed and then moved into place, so a blob is never seen
+ * half written and storing the same content twice leaves one file.
+ * Thumbnails are kept next to the blob as hash.size.jpg.
+ */
+@Service
+public class BlobStoreServiceImpl implements BlobStoreService {
+
+    private static final Pattern ID = Pattern.compile("^[0-9a-f]{64}$");
+    private static final String OCTET_STREAM = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    private static final String TIFF = "image/tiff";
+    private static final String TEMP_DIR = "tmp";
+
+    private final Path root;
+
+    public BlobStoreServiceImpl(@Value("${org.openelisglobal.blob.dir:/var/lib/openelis-global/blobs}") String root) {
+        this.root = Paths.get(root);
+    }
+
+    @Override
+    public String store(InputStream content) {
+        Path temp = null;
+        try {
+            Path tempDir = Files.createDirectories(root.resolve(TEMP_DIR));
+            temp = Files.createTempFile(tempDir, "blob", null);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (DigestInputStream in = new DigestInputStream(content, digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String id = toHex(digest.digest());
+            Path target = pathOf(id);
+            if (Files.exists(target)) {
+                return id;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            } catch (FileAlreadyExistsException e) {
+                // stored at the same time by another request
+            }
+            return id;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new LIMSRuntimeException("could not store the file in " + root, e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    @Override
+    public String store(byte[] content) {
+        return store(new ByteArrayInputStream(content));
+    }
+
+    @Override
+    public Optional<Path> getPath(String id) {
+        if (!isId(id)) {
+            return Optional.empty();
+        }
+        Path path = pathOf(id);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public String getContentType(String id) {
+        Optional<Path> path = getPath(id);
+        if (!path.isPresent()) {
+            return OCTET_STREAM;
+        }
+        byte[] head = new byte[4];
+        int read;
+        try (InputStream in = Files.newInputStream(path.get())) {
+            read = in.readNBytes(head, 0, head.length);
+        } catch (IOException e) {
+            LogEvent.logError("could not read the type of blob " + id, e);
+            return OCTET_STREAM;
+        }
+        // only types a browser shows without running anything, so an uploaded page
+        // or script is never served as one
+        if (read < head.length) {
+            return OCTET_STREAM;
+        } else if (startsWith(head, '%', 'P', 'D', 'F')) {
+            return MediaType.APPLICATION_PDF_VALUE;
+        } else if (startsWith(head, 0x89, 'P', 'N', 'G')) {
+            return MediaType.IMAGE_PNG_VALUE;
+        } else if (startsWith(head, 0xFF, 0xD8, 0xFF)) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        } else if (startsWith(head, 'I', 'I', '*', 0) || startsWith(head, 'M', 'M', 0, '*')) {
+            return TIFF;
+        }
+        return OCTET_STREAM;
+    }
+
+    private static boolean startsWith(byte[] head, int... magic) {
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<Path> getThumbnail(String id, int size) {
+        Optional<Path> path = getPath(id);
+        if (!path.isPresent()) {
+            return Optional.empty();
+        }
+        Path thumbnail = path.get().resolveSibling(id + "." + size + ".jpg");
+        if (Files.isRegularFile(thumbnail)) {
+            return Optional.of(thumbnail);
+        }
+        try {
+            BufferedImage image = readScaledDown(path.get(), size);
+            if (image == null) {
+                return Optional.empty();
+            }
+            double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+            int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            Path temp = Files.createTempFile(Files.createDirectories(root.resolve(TEMP_DIR)), "thumb", null);
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    ImageIO.write(scaled, "jpg", out);
+                }
+                Files.move(temp, thumbnail, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                deleteQuietly(temp);
+            }
+            return Optional.of(thumbnail);
+        } catch (IOException | RuntimeException e) {
+            LogEvent.logError("could not make a thumbnail of blob " + id, e);
+            return Optional.empty();
+        }
+    }
+
+    /*
+     * reads every n-th pixel so a large slide scan is never decoded in full
+     */
+    private static BufferedImage readScaledDown(Path path, int size) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longest / (size * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static boolean isId(String id) {
+        return id != null && ID.matcher(id).matches();
+    }
+
+    private Path pathOf(String id) {
+        return root.resolve(id.substring(0, 2)).resolve(id.substring(2, 4)).resolve(id);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path != null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LogEvent.logWarn(BlobStoreServiceImpl.class.getSimpleName(), "deleteQuietly",
+                        "could not delete " + path);
+            }
+        }
+    }
+}
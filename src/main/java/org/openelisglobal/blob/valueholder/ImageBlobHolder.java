@@ -0,0 +1,17 @@
+package org.openelisglobal.blob.valueholder;
+
+/**
+ * An entity whose image is kept in the blob store, the row holding only the id
+ * of it. Rows saved before the store was used still hold the image itself
+ * until they are migrated or saved again.
+ */
+public interface ImageBlobHolder {
+
+    byte[] getImage();
+
+    void setImage(byte[] image);
+
+    String getImageBlobId();
+
+    void setImageBlobId(String imageBlobId);
+}
@@ -0,0 +1,23 @@
+package org.openelisglobal.blob.valueholder;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import org.openelisglobal.blob.service.BlobStoreService;
+import org.openelisglobal.spring.util.SpringContext;
+
+/**
+ * Moves an image set on an {@link ImageBlobHolder} into the blob store just
+ * before the row is written, so the image never reaches the database.
+ */
+public class ImageBlobListener {
+
+    @PrePersist
+    @PreUpdate
+    public void storeImage(Object entity) {
+        ImageBlobHolder holder = (ImageBlobHolder) entity;
+        if (holder.getImage() != null) {
+            holder.setImageBlobId(SpringContext.getBean(BlobStoreService.class).store(holder.getImage()));
+            holder.setImage(null);
+        }
+    }
+}
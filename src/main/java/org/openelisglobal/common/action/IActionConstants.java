@@ -237,6 +237,8 @@ public interface IActionConstants {
 
     String PERMITTED_ACTIONS_MAP = "permittedActions";
 
+    String MODULE_PERMISSIONS = "modulePermissions";
+
     String FORM_FIELD_SET_HAITI = "HAITI";
     String FORM_FIELD_SET_LNSP_HAITI = "LNSP_HAITI";
     String FORM_FIELD_SET_LNSP_CI = "LNSP_CI";
@@ -255,6 +257,7 @@ public interface IActionConstants {
 
     String RESULTS_SESSION_CACHE = "ResultsSessionCache";
     String RESULTS_PAGE_MAPPING_SESSION_CACHE = "ResultsPageMappingSessionCache";
+    String RESULTS_PAGE_CURSOR_SESSION_CACHE = "ResultsPageCursorSessionCache";
 
     String DISPLAY_LIST_SESSION_CACHE = "DisplayListSessionCache";
     String DISPLAY_LIST_MAPPING_SESSION_CACHE = "DisplayListPageMappingSessionCache";
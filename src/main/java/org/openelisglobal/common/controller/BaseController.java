@@ -17,6 +17,7 @@ import org.openelisglobal.common.util.StringUtil;
 import org.openelisglobal.internationalization.MessageUtil;
 import org.openelisglobal.login.dao.UserModuleService;
 import org.openelisglobal.login.valueholder.UserSessionData;
+import org.openelisglobal.systemmodule.service.ModulePermissionService;
 import org.openelisglobal.view.PageBuilderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -40,6 +41,8 @@ public abstract class BaseController implements IActionConstants {
     @Autowired
     protected UserModuleService userModuleService;
     @Autowired
+    protected ModulePermissionService modulePermissionService;
+    @Autowired
     protected PageBuilderService pageBuilderService;
 
     protected abstract String findLocalForward(String forward);
@@ -203,7 +206,7 @@ public abstract class BaseController implements IActionConstants {
     }
 
     protected boolean userHasPermissionForModule(HttpServletRequest request, String module) {
-        if (!userModuleService.isUserAdmin(request) && ConfigurationProperties.getInstance()
+        if (!modulePermissionService.getPermissions(request).isAdmin() && ConfigurationProperties.getInstance()
                 .getPropertyValue("permissions.agent").equalsIgnoreCase("ROLE")) {
             @SuppressWarnings("rawtypes")
             HashSet accessMap = (HashSet) request.getSession().getAttribute(IActionConstants.PERMITTED_ACTIONS_MAP);
@@ -10,6 +10,28 @@ public interface AccessionDAO {
 
     long getNextNumberIncrement(String prefix, AccessionFormat accessionFormat);
 
+    /**
+     * Advances cur_val by blockSize in a single statement.
+     *
+     * @return the last number of the reserved block, or 0 if no row exists
+     */
+    long reserveNumberBlock(String prefix, AccessionFormat accessionFormat, int blockSize);
+
+    /**
+     * Rolls cur_val back to firstUnused - 1, but only if no other reservation was
+     * made after the block ending at blockEnd.
+     *
+     * @return true if the unused part of the block was returned
+     */
+    boolean releaseNumberBlock(String prefix, AccessionFormat accessionFormat, long blockEnd, long firstUnused);
+
+    /**
+     * Moves cur_val up to curVal in a single statement, but never down.
+     *
+     * @return false if cur_val is already at or above curVal, or no row exists
+     */
+    boolean raiseCurVal(String prefix, AccessionFormat accessionFormat, long curVal);
+
     AccessionNumberInfo save(AccessionNumberInfo info);
 
     AccessionNumberInfo get(AccessionIdentity accessionIdentity);
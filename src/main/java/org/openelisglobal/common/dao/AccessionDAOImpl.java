@@ -41,6 +41,72 @@ public class AccessionDAOImpl implements AccessionDAO {
         }
     }
 
+    @Override
+    public long reserveNumberBlock(String prefix, AccessionFormat accessionFormat, int blockSize) {
+        try {
+            String sql = "UPDATE accession_number_info" //
+                    + " SET cur_val = cur_val + :blockSize " //
+                    + " WHERE prefix = :prefix" //
+                    + " AND type = :type" //
+                    + " RETURNING cur_val";
+            Query query = entityManager.createNativeQuery(sql);
+            query.setParameter("blockSize", blockSize);
+            query.setParameter("prefix", prefix);
+            query.setParameter("type", accessionFormat.name());
+
+            return ((BigInteger) query.getSingleResult()).longValue();
+        } catch (NoResultException e) {
+            return 0;
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException(
+                    "Error in " + this.getClass().getSimpleName() + " " + "reserveNumberBlock", e);
+        }
+    }
+
+    @Override
+    public boolean releaseNumberBlock(String prefix, AccessionFormat accessionFormat, long blockEnd,
+            long firstUnused) {
+        try {
+            String sql = "UPDATE accession_number_info" //
+                    + " SET cur_val = :lastUsed " //
+                    + " WHERE prefix = :prefix" //
+                    + " AND type = :type" //
+                    + " AND cur_val = :blockEnd";
+            Query query = entityManager.createNativeQuery(sql);
+            query.setParameter("lastUsed", firstUnused - 1);
+            query.setParameter("prefix", prefix);
+            query.setParameter("type", accessionFormat.name());
+            query.setParameter("blockEnd", blockEnd);
+
+            return query.executeUpdate() > 0;
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException(
+                    "Error in " + this.getClass().getSimpleName() + " " + "releaseNumberBlock", e);
+        }
+    }
+
+    @Override
+    public boolean raiseCurVal(String prefix, AccessionFormat accessionFormat, long curVal) {
+        try {
+            String sql = "UPDATE accession_number_info" //
+                    + " SET cur_val = :curVal " //
+                    + " WHERE prefix = :prefix" //
+                    + " AND type = :type" //
+                    + " AND cur_val < :curVal";
+            Query query = entityManager.createNativeQuery(sql);
+            query.setParameter("curVal", curVal);
+            query.setParameter("prefix", prefix);
+            query.setParameter("type", accessionFormat.name());
+
+            return query.executeUpdate() > 0;
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in " + this.getClass().getSimpleName() + " " + "raiseCurVal", e);
+        }
+    }
+
     @Override
     public long getNextNumberNoIncrement(String prefix, AccessionFormat accessionFormat) {
         try {
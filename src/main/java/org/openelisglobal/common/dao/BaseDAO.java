@@ -316,4 +316,29 @@ public interface BaseDAO<T extends BaseObject<PK>, PK extends Serializable> {
             int startingRecNo);
 
     void evict(T oldObject);
+
+    /**
+     * Loads the entity into the current session if it is not already there and
+     * returns a detached copy holding the state last read from or flushed to the
+     * database. Unlike get followed by evict, this leaves the entity managed so a
+     * following update does not select it again.
+     *
+     * @param id
+     * @return the copy, or empty if there is no entity with this id
+     */
+    Optional<T> getLoadedSnapshot(PK id);
+
+    /**
+     * Defers the flush done by insert, update and delete through this dao on the
+     * current thread, in the current session, until a full JDBC batch of writes
+     * is pending. Writes through other daos or in another session are flushed as
+     * usual. Calls may be nested.
+     */
+    void beginBatchWrite();
+
+    /**
+     * @param flush whether writes still pending should be flushed. Only the
+     *              outermost call ends batch write mode.
+     */
+    void endBatchWrite(boolean flush);
 }
@@ -33,9 +33,13 @@ import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import org.hibernate.Hibernate;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.dao.BaseDAO;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
@@ -61,6 +65,10 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
         EQ, LIKE, IN
     }
 
+    // writes made through this dao by this thread while inside
+    // beginBatchWrite/endBatchWrite, in the session that began the batch
+    private final ThreadLocal<BatchWrite> batchWrite = new ThreadLocal<>();
+
     private final Class<T> classType;
 
     @PersistenceContext
@@ -511,7 +519,7 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
     public PK insert(T object) {
         try {
             entityManager.persist(object);
-            entityManager.flush();
+            flushWrite();
             return object.getId();
             // Session session = entityManager.unwrap(Session.class);
             // PK id = (PK) session.save(object);
@@ -526,7 +534,7 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
     public T update(T object) {
         try {
             T dbObject = entityManager.merge(object);
-            entityManager.flush();
+            flushWrite();
             return dbObject;
             // Session session = entityManager.unwrap(Session.class);
             // T dbObject = (T) session.merge(object);
@@ -542,7 +550,7 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
     public void delete(T object) {
         try {
             entityManager.remove(object);
-            entityManager.flush();
+            flushWrite();
             // Session session = entityManager.unwrap(Session.class);
             // session.delete(object);
             // session.flush();
@@ -798,9 +806,115 @@ public abstract class BaseDAOImpl<T extends BaseObject<PK>, PK extends Serializa
 
     @Override
     public void evict(T baseObject) {
+        // an evicted entity must not have a queued write, or the write is lost
+        flushPendingWrites();
         entityManager.unwrap(Session.class).evict(baseObject);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<T> getLoadedSnapshot(PK id) {
+        try {
+            T managed = entityManager.find(classType, id);
+            if (managed == null) {
+                return Optional.empty();
+            }
+            SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+            Object entity = Hibernate.unproxy(managed);
+            EntityPersister persister = session.getEntityPersister(null, entity);
+            EntityEntry entry = session.getPersistenceContext().getEntry(entity);
+            // read only entities keep no loaded state, but they cannot be dirty either
+            Object[] state = entry == null || entry.getLoadedState() == null ? persister.getPropertyValues(entity)
+                    : entry.getLoadedState();
+            Object snapshot = persister.instantiate(persister.getIdentifier(entity, session), session);
+            persister.setPropertyValues(snapshot, state);
+            return Optional.of((T) snapshot);
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in " + this.getClass().getSimpleName() + " getLoadedSnapshot", e);
+        }
+    }
+
+    @Override
+    public void beginBatchWrite() {
+        Session session = entityManager.unwrap(Session.class);
+        BatchWrite current = batchWrite.get();
+        if (current == null || current.session != session) {
+            // a batch begun in another session, e.g. an outer transaction, is
+            // picked up again when this one ends
+            current = new BatchWrite(session, current);
+            batchWrite.set(current);
+        }
+        current.depth++;
+    }
+
+    @Override
+    public void endBatchWrite(boolean flush) {
+        BatchWrite current = batchWrite.get();
+        if (current == null) {
+            return;
+        }
+        if (--current.depth > 0) {
+            return;
+        }
+        if (current.outer == null) {
+            batchWrite.remove();
+        } else {
+            batchWrite.set(current.outer);
+        }
+        if (flush && current.pending > 0 && current.session.isOpen()) {
+            current.session.flush();
+        }
+    }
+
+    /**
+     * Flushes after a single row write, or once per JDBC batch when this dao is
+     * in batch write mode in the current session so hibernate can group the
+     * statements.
+     */
+    protected void flushWrite() {
+        BatchWrite current = getCurrentBatchWrite();
+        if (current == null) {
+            entityManager.flush();
+            return;
+        }
+        current.pending++;
+        if (current.pending >= getJdbcBatchSize()) {
+            entityManager.flush();
+            current.pending = 0;
+        }
+    }
+
+    private void flushPendingWrites() {
+        BatchWrite current = getCurrentBatchWrite();
+        if (current != null && current.pending > 0) {
+            entityManager.flush();
+            current.pending = 0;
+        }
+    }
+
+    private BatchWrite getCurrentBatchWrite() {
+        BatchWrite current = batchWrite.get();
+        return current != null && current.session == entityManager.unwrap(Session.class) ? current : null;
+    }
+
+    private int getJdbcBatchSize() {
+        Integer batchSize = entityManager.unwrap(SessionImplementor.class).getConfiguredJdbcBatchSize();
+        return batchSize == null || batchSize < 1 ? 1 : batchSize;
+    }
+
+    private static class BatchWrite {
+        private final Session session;
+        private final BatchWrite outer;
+        private int depth;
+        private int pending;
+
+        private BatchWrite(Session session, BatchWrite outer) {
+            this.session = session;
+            this.outer = outer;
+        }
+    }
+
     // private static final int RANDOM_ALIAS_LENGTH = 5;
     // private static final String MULTI_NESTED_MARKING = ",";
     // private void addRestriction(Criteria criteria, String propertyName, Object
@@ -13,15 +13,26 @@
  */
 package org.openelisglobal.common.log;
 
+import java.util.function.Supplier;
 import org.apache.log4j.Category;
 import org.owasp.encoder.Encode;
 
 /**
+ * Messages are only built and sanitized once the level is known to be enabled.
+ * Where building the message costs more than a concatenation use the
+ * {@link Supplier} or the {} parameter overloads, which do no work at all when
+ * the level is off.
+ *
  * @author Hung Nguyen
  */
 public class LogEvent {
     private static final int MAX_STACK_DEPTH = 50;
     private static final int MAX_ERROR_DEPTH = 4;
+    private static final String PARAMETER = "{}";
+
+    // looking the category up finds the caller's logger context, which walks the
+    // stack, so it is done once
+    private static final Category LOG = Category.getInstance(LogEvent.class);
 
     /**
      * Write to the log file (type error)
@@ -30,8 +41,9 @@ public class LogEvent {
      * @param throwable    the error to log
      */
     public static void logError(String className, String methodName, String errorMessage) {
-        getLog().error(
-                "Class: " + className + ", Method: " + methodName + ", Error: " + sanitizeLogMessage(errorMessage));
+        if (getLog().isErrorEnabled()) {
+            getLog().error(message(className, methodName, ", Error: ", errorMessage));
+        }
     }
 
     /**
@@ -99,9 +111,49 @@ public class LogEvent {
         }
     }
 
+    public static boolean isTraceEnabled() {
+        return getLog().isTraceEnabled();
+    }
+
+    public static boolean isDebugEnabled() {
+        return getLog().isDebugEnabled();
+    }
+
     public static void logTrace(String className, String methodName, String debugMessage) {
-        getLog().trace(
-                "Class: " + className + ", Method: " + methodName + ", Trace: " + sanitizeLogMessage(debugMessage));
+        if (getLog().isTraceEnabled()) {
+            getLog().trace(message(className, methodName, ", Trace: ", debugMessage));
+        }
+    }
+
+    /**
+     * Write to the log file (type trace), the message is only built if trace is
+     * enabled
+     *
+     * @param className    the class name
+     * @param methodName   the method name
+     * @param traceMessage builds the trace message
+     */
+    public static void logTrace(String className, String methodName, Supplier<String> traceMessage) {
+        if (getLog().isTraceEnabled()) {
+            getLog().trace(message(className, methodName, ", Trace: ", traceMessage.get()));
+        }
+    }
+
+    /**
+     * Write to the log file (type trace), each {} in the message is replaced by
+     * the next argument if trace is enabled
+     */
+    public static void logTrace(String className, String methodName, String traceMessage, Object arg) {
+        if (getLog().isTraceEnabled()) {
+            getLog().trace(message(className, methodName, ", Trace: ", format(traceMessage, arg)));
+        }
+    }
+
+    public static void logTrace(String className, String methodName, String traceMessage, Object arg1,
+            Object arg2) {
+        if (getLog().isTraceEnabled()) {
+            getLog().trace(message(className, methodName, ", Trace: ", format(traceMessage, arg1, arg2)));
+        }
     }
 
     /**
@@ -112,8 +164,40 @@ public class LogEvent {
      * @param debugMessage the debug message
      */
     public static void logDebug(String className, String methodName, String debugMessage) {
-        getLog().debug(
-                "Class: " + className + ", Method: " + methodName + ", Debug: " + sanitizeLogMessage(debugMessage));
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(message(className, methodName, ", Debug: ", debugMessage));
+        }
+    }
+
+    /**
+     * Write to the log file (type debug), the message is only built if debug is
+     * enabled
+     *
+     * @param className    the class name
+     * @param methodName   the method name
+     * @param debugMessage builds the debug message
+     */
+    public static void logDebug(String className, String methodName, Supplier<String> debugMessage) {
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(message(className, methodName, ", Debug: ", debugMessage.get()));
+        }
+    }
+
+    /**
+     * Write to the log file (type debug), each {} in the message is replaced by
+     * the next argument if debug is enabled
+     */
+    public static void logDebug(String className, String methodName, String debugMessage, Object arg) {
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(message(className, methodName, ", Debug: ", format(debugMessage, arg)));
+        }
+    }
+
+    public static void logDebug(String className, String methodName, String debugMessage, Object arg1,
+            Object arg2) {
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(message(className, methodName, ", Debug: ", format(debugMessage, arg1, arg2)));
+        }
     }
 
     /**
@@ -123,6 +207,9 @@ public class LogEvent {
      * @param throwable    the error to log
      */
     public static void logDebug(String debugMessage, Throwable throwable) {
+        if (!getLog().isDebugEnabled()) {
+            return;
+        }
         StackTraceElement[] stackTrace = throwable.getStackTrace();
         String className = stackTrace[0].getClassName();
         String methodName = stackTrace[0].getMethodName();
@@ -151,6 +238,9 @@ public class LogEvent {
      * @param throwable the error to log
      */
     public static void logDebug(Throwable throwable) {
+        if (!getLog().isDebugEnabled()) {
+            return;
+        }
         StackTraceElement[] stackTrace = throwable.getStackTrace();
         String className = stackTrace[0].getClassName();
         String methodName = stackTrace[0].getMethodName();
@@ -167,7 +257,23 @@ public class LogEvent {
      * @param infoMessage the info message
      */
     public static void logInfo(String className, String methodName, String infoMessage) {
-        getLog().info("Class: " + className + ", Method: " + methodName + ", Info: " + sanitizeLogMessage(infoMessage));
+        if (getLog().isInfoEnabled()) {
+            getLog().info(message(className, methodName, ", Info: ", infoMessage));
+        }
+    }
+
+    /**
+     * Write to the log file (type info), the message is only built if info is
+     * enabled
+     *
+     * @param className   the class name
+     * @param methodName  the method name
+     * @param infoMessage builds the info message
+     */
+    public static void logInfo(String className, String methodName, Supplier<String> infoMessage) {
+        if (getLog().isInfoEnabled()) {
+            getLog().info(message(className, methodName, ", Info: ", infoMessage.get()));
+        }
     }
 
     /**
@@ -178,8 +284,9 @@ public class LogEvent {
      * @param warnMessage the warning message
      */
     public static void logWarn(String className, String methodName, String warnMessage) {
-        getLog().warn(
-                "Class: " + className + ", Method: " + methodName + ", Warning:" + sanitizeLogMessage(warnMessage));
+        if (getLog().isWarnEnabled()) {
+            getLog().warn(message(className, methodName, ", Warning:", warnMessage));
+        }
     }
 
     /**
@@ -209,12 +316,32 @@ public class LogEvent {
      * @param warnMessage the fatal message
      */
     public static void logFatal(String className, String methodName, String fatalMessage) {
-        getLog().fatal(
-                "Class: " + className + ", Method: " + methodName + ", Fatal:" + sanitizeLogMessage(fatalMessage));
+        getLog().fatal(message(className, methodName, ", Fatal:", fatalMessage));
     }
 
     private static Category getLog() {
-        return Category.getInstance(LogEvent.class);
+        return LOG;
+    }
+
+    private static String message(String className, String methodName, String type, String message) {
+        return "Class: " + className + ", Method: " + methodName + type + sanitizeLogMessage(message);
+    }
+
+    static String format(String message, Object... args) {
+        if (message == null) {
+            return null;
+        }
+        StringBuilder formatted = new StringBuilder(message.length() + 16 * args.length);
+        int start = 0;
+        for (Object arg : args) {
+            int parameter = message.indexOf(PARAMETER, start);
+            if (parameter < 0) {
+                break;
+            }
+            formatted.append(message, start, parameter).append(arg);
+            start = parameter + PARAMETER.length();
+        }
+        return formatted.append(message, start, message.length()).toString();
     }
 
     // for preventing log forging
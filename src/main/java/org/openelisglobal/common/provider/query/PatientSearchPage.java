@@ -0,0 +1,45 @@
+package org.openelisglobal.common.provider.query;
+
+import java.util.List;
+
+/**
+ * One page of a patient search, best matches first. The total is exact up to
+ * the count threshold of the search, past that it is a lower bound.
+ */
+public class PatientSearchPage {
+
+    private final List<PatientSearchResults> results;
+    private final int page;
+    private final int pageSize;
+    private final long totalHitCount;
+    private final boolean totalHitCountExact;
+
+    public PatientSearchPage(List<PatientSearchResults> results, int page, int pageSize, long totalHitCount,
+            boolean totalHitCountExact) {
+        this.results = results;
+        this.page = page;
+        this.pageSize = pageSize;
+        this.totalHitCount = totalHitCount;
+        this.totalHitCountExact = totalHitCountExact;
+    }
+
+    public List<PatientSearchResults> getResults() {
+        return results;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public long getTotalHitCount() {
+        return totalHitCount;
+    }
+
+    public boolean isTotalHitCountExact() {
+        return totalHitCountExact;
+    }
+}
@@ -219,9 +219,11 @@ public class AlphanumAccessionValidator implements IAccessionNumberGenerator {
             localReservedNumbers.add(nextAccessionNumber);
 
             long increment = Long.parseLong(nextAccessionNumber.substring(getIncrementStartIndex()));
-            long dbIncrement = accessionService.getNextNumberNoIncrement(year + getPrefix(), AccessionFormat.ALPHANUM);
-            if (dbIncrement <= increment) {
-                accessionService.setCurVal(year + getPrefix(), AccessionFormat.ALPHANUM, increment);
+            // refused when a block leased on any node may hold the number
+            if (!accessionService.setCurVal(year + getPrefix(), AccessionFormat.ALPHANUM, increment)) {
+                localReservedNumbers.remove(nextAccessionNumber);
+                throw new IllegalArgumentException(MessageUtil
+                        .getMessage("sample.entry.invalid.accession.number.reserved", nextAccessionNumber));
             }
 
             return nextAccessionNumber;
@@ -91,10 +91,11 @@ public class AltYearAccessionValidator extends BaseSiteYearAccessionValidator im
             localReservedNumbers.add(nextAccessionNumber);
 
             long increment = Long.parseLong(nextAccessionNumber.substring(INCREMENT_START));
-            long dbIncrement = accessionService.getNextNumberNoIncrement(this.getPrefix() + year,
-                    AccessionFormat.ALT_YEAR);
-            if (dbIncrement <= increment) {
-                accessionService.setCurVal(this.getPrefix() + year, AccessionFormat.ALT_YEAR, increment);
+            // refused when a block leased on any node may hold the number
+            if (!accessionService.setCurVal(this.getPrefix() + year, AccessionFormat.ALT_YEAR, increment)) {
+                localReservedNumbers.remove(nextAccessionNumber);
+                throw new IllegalArgumentException(MessageUtil
+                        .getMessage("sample.entry.invalid.accession.number.reserved", nextAccessionNumber));
             }
 
             return nextAccessionNumber;
@@ -0,0 +1,37 @@
+package org.openelisglobal.common.rest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletRequest;
+import org.openelisglobal.common.constants.Constants;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.config.InstrumentedTaskExecutor.Stats;
+import org.openelisglobal.userrole.service.UserRoleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class ExecutorStatsRestController extends BaseRestController {
+
+    @Autowired
+    private List<InstrumentedTaskExecutor> executors;
+    @Autowired
+    private UserRoleService userRoleService;
+
+    /**
+     * Queue depth, wait and run times of the asynchronous work pools, for
+     * administrators only
+     */
+    @GetMapping("/rest/admin/executors")
+    public ResponseEntity<List<Stats>> showExecutorStats(HttpServletRequest request) {
+        String sysUserId = getSysUserId(request);
+        if (sysUserId == null || !userRoleService.userInRole(sysUserId, Constants.ROLE_GLOBAL_ADMIN)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity
+                .ok(executors.stream().map(InstrumentedTaskExecutor::getStats).collect(Collectors.toList()));
+    }
+}
@@ -31,6 +31,7 @@ import org.openelisglobal.dataexchange.fhir.FhirConfig;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
 import org.openelisglobal.dataexchange.service.order.ElectronicOrderService;
+import org.openelisglobal.homedashboard.service.DashboardMetricsService;
 import org.openelisglobal.sample.service.SampleService;
 import org.openelisglobal.sample.valueholder.Sample;
 import org.openelisglobal.samplehuman.service.SampleHumanService;
@@ -78,76 +79,8 @@ public class PatientDashBoardProvider {
     @Autowired
     SystemUserService systemUserService;
 
-    private double calculateAverageReceptionToValidationTime() {
-        List<Analysis> analyses = analysisService.getAnalysesCompletedOnByStatusId(DateUtil.getNowAsSqlDate(),
-                iStatusService.getStatusID(AnalysisStatus.Finalized));
-
-        List<Long> hours = new ArrayList<>();
-        analyses.forEach(analysis -> {
-            // Convert java.sql.Date to java.time.LocalDate
-            LocalDate localStartDate = analysis.getStartedDate().toLocalDate();
-            LocalDate localEndDate = analysis.getReleasedDate().toLocalDate();
-            // Calculate time difference in hours
-            Long hoursDiff = Duration.between(localStartDate.atStartOfDay(), localEndDate.atStartOfDay()).toHours();
-            hours.add(hoursDiff);
-        });
-
-        long sum = 0;
-        if (!hours.isEmpty()) {
-            for (Long h : hours) {
-                sum += h;
-            }
-        }
-        return hours.isEmpty() ? 0.0 : (double) sum / hours.size();
-    }
-
-    private double calculateAverageReceptionToResultTime() {
-        Set<Integer> statusIdSet = new HashSet<>();
-        statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-        List<Analysis> analyses = analysisService
-                .getAnalysesResultEnteredOnExcludedByStatusId(DateUtil.getNowAsSqlDate(), statusIdSet);
-
-        List<Long> hours = new ArrayList<>();
-        analyses.forEach(analysis -> {
-            // Convert java.sql.Date to java.time.LocalDate
-            LocalDate localStartDate = analysis.getStartedDate().toLocalDate();
-            LocalDate localEndDate = analysis.getCompletedDate().toLocalDate();
-            // Calculate time difference in hours
-            Long hoursDiff = Duration.between(localStartDate.atStartOfDay(), localEndDate.atStartOfDay()).toHours();
-            hours.add(hoursDiff);
-        });
-
-        long sum = 0;
-        if (!hours.isEmpty()) {
-            for (Long h : hours) {
-                sum += h;
-            }
-        }
-        return hours.isEmpty() ? 0.0 : (double) sum / hours.size();
-    }
-
-    private double calculateAverageResultToValidationTime() {
-        List<Analysis> analyses = analysisService.getAnalysesCompletedOnByStatusId(DateUtil.getNowAsSqlDate(),
-                iStatusService.getStatusID(AnalysisStatus.Finalized));
-
-        List<Long> hours = new ArrayList<>();
-        analyses.forEach(analysis -> {
-            // Convert java.sql.Date to java.time.LocalDate
-            LocalDate localStartDate = analysis.getCompletedDate().toLocalDate();
-            LocalDate localEndDate = analysis.getReleasedDate().toLocalDate();
-            // Calculate time difference in hours
-            Long hoursDiff = Duration.between(localStartDate.atStartOfDay(), localEndDate.atStartOfDay()).toHours();
-            hours.add(hoursDiff);
-        });
-
-        long sum = 0;
-        if (!hours.isEmpty()) {
-            for (Long h : hours) {
-                sum += h;
-            }
-        }
-        return hours.isEmpty() ? 0.0 : (double) sum / hours.size();
-    }
+    @Autowired
+    private DashboardMetricsService dashboardMetricsService;
 
     private List<Analysis> analysesWithDelayedTurnAroundTime() {
         List<Analysis> analyses = analysisService.getAnalysesCompletedOnByStatusId(DateUtil.getNowAsSqlDate(),
@@ -297,73 +230,7 @@ public class PatientDashBoardProvider {
     @GetMapping(value = "home-dashboard/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
     public DashBoardMetrics getDasBoardTiles() {
-
-        DashBoardMetrics metrics = new DashBoardMetrics();
-        java.sql.Timestamp startTimestamp = DateUtil
-                .convertStringDateStringTimeToTimestamp(DateUtil.getCurrentDateAsText(), "00:00:00.0");
-        java.sql.Timestamp endTimestamp = DateUtil
-                .convertStringDateStringTimeToTimestamp(DateUtil.getCurrentDateAsText(), "23:59:59");
-        DashBoardTile.TileType.stream().forEach(type -> {
-            List<Integer> statusIdList;
-            Set<Integer> statusIdSet;
-            switch (type) {
-            case ORDERS_IN_PROGRESS:
-                statusIdList = new ArrayList<>();
-                statusIdList.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.NotStarted)));
-                metrics.setOrdersInProgress(analysisService.getCountOfAnalysesForStatusIds(statusIdList));
-                break;
-            case ORDERS_READY_FOR_VALIDATION:
-                statusIdList = new ArrayList<>();
-                statusIdList.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.TechnicalAcceptance)));
-                metrics.setOrdersReadyForValidation(analysisService.getCountOfAnalysesForStatusIds(statusIdList));
-                break;
-            case ORDERS_COMPLETED_TODAY:
-                statusIdList = new ArrayList<>();
-                statusIdList.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.Finalized)));
-                metrics.setOrdersCompletedToday(analysisService
-                        .getCountOfAnalysisCompletedOnByStatusId(DateUtil.getNowAsSqlDate(), statusIdList));
-                break;
-            case ORDERS_PATIALLY_COMPLETED_TODAY:
-                statusIdSet = new HashSet<>();
-                statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-                statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.Finalized)));
-                metrics.setPatiallyCompletedToday(analysisService
-                        .getCountOfAnalysisStartedOnExcludedByStatusId(DateUtil.getNowAsSqlDate(), statusIdSet));
-                break;
-
-            case ORDERS_ENTERED_BY_USER_TODAY:
-                statusIdSet = new HashSet<>();
-                statusIdSet.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-                metrics.setOrderEnterdByUserToday(analysisService
-                        .getCountOfAnalysisStartedOnExcludedByStatusId(DateUtil.getNowAsSqlDate(), statusIdSet));
-                break;
-            case ORDERS_REJECTED_TODAY:
-                statusIdList = new ArrayList<>();
-                statusIdList.add(Integer.parseInt(iStatusService.getStatusID(AnalysisStatus.SampleRejected)));
-                metrics.setOrdersRejectedToday(analysisService
-                        .getCountOfAnalysisStartedOnByStatusId(DateUtil.getNowAsSqlDate(), statusIdList));
-                break;
-            case UN_PRINTED_RESULTS:
-                metrics.setUnPritendResults(unprintedResults().size());
-                break;
-            case INCOMING_ORDERS:
-                List<Integer> estausIds = new ArrayList<>();
-                estausIds.add(Integer.parseInt(iStatusService.getStatusID(ExternalOrderStatus.Entered)));
-                estausIds.add(Integer.parseInt(iStatusService.getStatusID(ExternalOrderStatus.NonConforming)));
-                metrics.setIncomigOrders(electronicOrderService.getCountOfElectronicOrdersByStatusList(estausIds));
-                break;
-            case AVERAGE_TURN_AROUND_TIME:
-                metrics.setAverageTurnAroudTime(calculateAverageReceptionToValidationTime());
-                break;
-            case DELAYED_TURN_AROUND:
-                metrics.setDelayedTurnAround(analysesWithDelayedTurnAroundTime().size());
-                break;
-            default:
-                break;
-            }
-        });
-
-        return metrics;
+        return dashboardMetricsService.getDashBoardMetrics();
     }
 
     /**
@@ -463,10 +330,6 @@ public class PatientDashBoardProvider {
     @GetMapping(value = "home-dashboard/turn-around-time-metrics", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
     public AverageTimeDisplayBean getDasBoardAverageTurnAroundTime() {
-        AverageTimeDisplayBean timeBean = new AverageTimeDisplayBean();
-        timeBean.setReceptionToResult(calculateAverageReceptionToResultTime());
-        timeBean.setReceptionToValidation(calculateAverageReceptionToValidationTime());
-        timeBean.setResultToValidation(calculateAverageResultToValidationTime());
-        return timeBean;
+        return dashboardMetricsService.getAverageTurnAroundTimes();
     }
 }
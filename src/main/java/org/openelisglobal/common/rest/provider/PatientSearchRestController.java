@@ -14,6 +14,7 @@ import org.apache.commons.validator.GenericValidator;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.r4.model.*;
 import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.provider.query.PatientSearchPage;
 import org.openelisglobal.common.provider.query.PatientSearchResults;
 import org.openelisglobal.common.provider.query.PatientSearchResultsForm;
 import org.openelisglobal.common.provider.query.workerObjects.PatientSearchLocalAndExternalWorker;
@@ -172,6 +173,18 @@ public class PatientSearchRestController extends BaseRestController {
                 externalID, patientID, guid, dateOfBirth, gender);
     }
 
+    @GetMapping("/patient-search-page")
+    public @ResponseBody PatientSearchPage getSearchResultsPage(@RequestParam(required = false) String lastName,
+            @RequestParam(required = false) String firstName, @RequestParam(required = false) String STNumber,
+            @RequestParam(required = false) String subjectNumber, @RequestParam(required = false) String nationalID,
+            @RequestParam(required = false) String externalID, @RequestParam(required = false) String patientID,
+            @RequestParam(required = false) String guid, @RequestParam(required = false) String dateOfBirth,
+            @RequestParam(required = false) String gender, @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "25") int pageSize) {
+        return searchResultsService.getSearchResultsPage(lastName, firstName, STNumber, subjectNumber, nationalID,
+                externalID, patientID, guid, dateOfBirth, gender, page, pageSize);
+    }
+
     private List<PatientSearchResults> searchPatientInClientRegistry(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String patientID, String guid, String dateOfBirth, String gender) {
         LogEvent.logWarn("PatientSearchRestController", "searchPatientInClientRegistry()",
@@ -0,0 +1,145 @@
+package org.openelisglobal.common.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.valueholder.AccessionNumberInfo.AccessionIdentity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out accession number increments from blocks leased from
+ * accession_number_info so that callers do not serialize on the row lock for
+ * every sample. Each prefix/format pair holds at most one block at a time;
+ * numbers inside a block are taken with a lock-free counter and only the
+ * refill of an exhausted block is synchronized.
+ *
+ * Numbers are unique across nodes but are no longer strictly sequential when
+ * more than one node is issuing them.
+ */
+@Component
+public class AccessionNumberBlockAllocator {
+
+    private final Map<AccessionIdentity, NumberBlock> leases = new ConcurrentHashMap<>();
+    private final Map<AccessionIdentity, Object> refillLocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AccessionNumberBlockService accessionNumberBlockService;
+
+    @Value("${org.openelisglobal.accession.blockSize:50}")
+    private int blockSize;
+
+    public AccessionNumberBlockAllocator() {
+    }
+
+    AccessionNumberBlockAllocator(AccessionNumberBlockService accessionNumberBlockService, int blockSize) {
+        this.accessionNumberBlockService = accessionNumberBlockService;
+        this.blockSize = blockSize;
+    }
+
+    public long nextNumber(AccessionIdentity accessionIdentity) {
+        while (true) {
+            NumberBlock block = leases.get(accessionIdentity);
+            if (block != null) {
+                long value = block.take();
+                if (value > 0) {
+                    return value;
+                }
+            }
+            refill(accessionIdentity, block);
+        }
+    }
+
+    /**
+     * @return the number the next call to nextNumber will most likely return, or
+     *         0 if there is no usable lease for this identity
+     */
+    public long peekNumber(AccessionIdentity accessionIdentity) {
+        NumberBlock block = leases.get(accessionIdentity);
+        return block == null ? 0 : block.peek();
+    }
+
+    /**
+     * Drops the lease for the identity, for instance because cur_val was moved
+     * by hand. The unused part of the block is given back when possible.
+     */
+    public void discardLease(AccessionIdentity accessionIdentity) {
+        synchronized (refillLockFor(accessionIdentity)) {
+            NumberBlock block = leases.remove(accessionIdentity);
+            if (block != null) {
+                release(accessionIdentity, block);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void releaseLeases() {
+        for (AccessionIdentity accessionIdentity : leases.keySet()) {
+            try {
+                discardLease(accessionIdentity);
+            } catch (RuntimeException e) {
+                LogEvent.logError(e);
+            }
+        }
+    }
+
+    private void refill(AccessionIdentity accessionIdentity, NumberBlock exhausted) {
+        synchronized (refillLockFor(accessionIdentity)) {
+            // another thread may have refilled while we waited for the lock
+            if (leases.get(accessionIdentity) != exhausted) {
+                return;
+            }
+            int size = Math.max(1, blockSize);
+            long blockEnd = accessionNumberBlockService.reserveBlock(accessionIdentity, size);
+            leases.put(accessionIdentity, new NumberBlock(blockEnd - size + 1, blockEnd));
+        }
+    }
+
+    private void release(AccessionIdentity accessionIdentity, NumberBlock block) {
+        long firstUnused = block.retire();
+        if (firstUnused > block.end) {
+            return;
+        }
+        if (!accessionNumberBlockService.releaseBlock(accessionIdentity, block.end, firstUnused)) {
+            LogEvent.logInfo(this.getClass().getName(), "release",
+                    "accession numbers " + firstUnused + " to " + block.end + " for " + accessionIdentity.getPrefix()
+                            + " " + accessionIdentity.getType() + " were reserved but not used");
+        }
+    }
+
+    private Object refillLockFor(AccessionIdentity accessionIdentity) {
+        return refillLocks.computeIfAbsent(accessionIdentity, k -> new Object());
+    }
+
+    private static class NumberBlock {
+        private final AtomicLong next;
+        private final long end;
+
+        NumberBlock(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+
+        long take() {
+            long value = next.getAndIncrement();
+            return value <= end ? value : 0;
+        }
+
+        long peek() {
+            long value = next.get();
+            return value <= end ? value : 0;
+        }
+
+        /**
+         * Stops the block handing out further numbers.
+         *
+         * @return the first number that was never handed out
+         */
+        long retire() {
+            return Math.min(next.getAndSet(end + 1), end + 1);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.openelisglobal.common.service;
+
+import org.openelisglobal.common.valueholder.AccessionNumberInfo.AccessionIdentity;
+
+public interface AccessionNumberBlockService {
+
+    /**
+     * Reserves blockSize consecutive numbers for the identity in its own
+     * transaction so the accession_number_info row lock is released as soon as
+     * the block is taken.
+     *
+     * @return the last number of the reserved block
+     */
+    long reserveBlock(AccessionIdentity accessionIdentity, int blockSize);
+
+    /**
+     * @return true if the unused numbers were given back, false if another
+     *         reservation was made after this block and they are now a gap
+     */
+    boolean releaseBlock(AccessionIdentity accessionIdentity, long blockEnd, long firstUnused);
+}
@@ -0,0 +1,35 @@
+package org.openelisglobal.common.service;
+
+import org.openelisglobal.common.dao.AccessionDAO;
+import org.openelisglobal.common.valueholder.AccessionNumberInfo;
+import org.openelisglobal.common.valueholder.AccessionNumberInfo.AccessionIdentity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@Transactional(propagation = Propagation.REQUIRES_NEW)
+public class AccessionNumberBlockServiceImpl implements AccessionNumberBlockService {
+
+    @Autowired
+    private AccessionDAO accessionDAO;
+
+    @Override
+    public long reserveBlock(AccessionIdentity accessionIdentity, int blockSize) {
+        if (accessionDAO.exists(accessionIdentity)) {
+            return accessionDAO.reserveNumberBlock(accessionIdentity.getPrefix(), accessionIdentity.getType(),
+                    blockSize);
+        }
+        AccessionNumberInfo info = new AccessionNumberInfo();
+        info.setAccessionIdentity(accessionIdentity);
+        info.setCurVal((long) blockSize);
+        return accessionDAO.save(info).getCurVal();
+    }
+
+    @Override
+    public boolean releaseBlock(AccessionIdentity accessionIdentity, long blockEnd, long firstUnused) {
+        return accessionDAO.releaseNumberBlock(accessionIdentity.getPrefix(), accessionIdentity.getType(), blockEnd,
+                firstUnused);
+    }
+}
@@ -14,5 +14,12 @@ public interface AccessionService {
 
     long getNextNumberNoIncrement(AccessionIdentity accessionIdentity) throws LIMSInvalidConfigurationException;
 
-    void setCurVal(String prefix, AccessionFormat accessionFormat, long curVal);
+    /**
+     * Claims curVal and every number below it, so no number up to it is handed
+     * out later
+     *
+     * @return false, claiming nothing, if curVal is not above every number
+     *         already handed out or leased
+     */
+    boolean setCurVal(String prefix, AccessionFormat accessionFormat, long curVal);
 }
@@ -14,10 +14,15 @@ public class AccessionServiceImpl implements AccessionService {
 
     @Autowired
     private AccessionDAO accessionDAO;
+    @Autowired
+    private AccessionNumberBlockAllocator accessionNumberBlockAllocator;
 
     @Override
     public long getNextNumberNoIncrement(String prefix, AccessionFormat accessionFormat) {
-        long value;
+        long value = accessionNumberBlockAllocator.peekNumber(new AccessionIdentity(prefix, accessionFormat));
+        if (value > 0) {
+            return value;
+        }
         if (accessionDAO.exists(new AccessionIdentity(prefix, accessionFormat))) {
             value = accessionDAO.getNextNumberNoIncrement(prefix, accessionFormat);
         } else {
@@ -28,24 +33,12 @@ public class AccessionServiceImpl implements AccessionService {
 
     @Override
     public long getNextNumberIncrement(String prefix, AccessionFormat accessionFormat) {
-        long value;
-        if (accessionDAO.exists(new AccessionIdentity(prefix, accessionFormat))) {
-            value = accessionDAO.getNextNumberIncrement(prefix, accessionFormat);
-        } else {
-            value = createAccessionInfo(prefix, accessionFormat, 1L).getCurVal();
-        }
-        return value;
+        return accessionNumberBlockAllocator.nextNumber(new AccessionIdentity(prefix, accessionFormat));
     }
 
     @Override
     public long getNextNumberIncrement(AccessionIdentity accessionIdentity) {
-        long value;
-        if (accessionDAO.exists(accessionIdentity)) {
-            value = accessionDAO.getNextNumberIncrement(accessionIdentity.getPrefix(), accessionIdentity.getType());
-        } else {
-            value = createAccessionInfo(accessionIdentity.getPrefix(), accessionIdentity.getType(), 1L).getCurVal();
-        }
-        return value;
+        return accessionNumberBlockAllocator.nextNumber(accessionIdentity);
     }
 
     @Override
@@ -67,10 +60,22 @@ public class AccessionServiceImpl implements AccessionService {
         return accessionDAO.save(info);
     }
 
+    /*
+     * every number up to cur_val may be in a block another node has leased and
+     * will hand out, so only a number above it can be claimed by hand. Moving
+     * cur_val past it keeps the blocks leased later clear of it.
+     */
     @Override
-    public void setCurVal(String prefix, AccessionFormat accessionFormat, long curVal) {
-        AccessionNumberInfo info = accessionDAO.get(new AccessionIdentity(prefix, accessionFormat));
-        info.setCurVal(curVal);
-        accessionDAO.save(info);
+    public boolean setCurVal(String prefix, AccessionFormat accessionFormat, long curVal) {
+        AccessionIdentity accessionIdentity = new AccessionIdentity(prefix, accessionFormat);
+        accessionNumberBlockAllocator.discardLease(accessionIdentity);
+        if (accessionDAO.raiseCurVal(prefix, accessionFormat, curVal)) {
+            return true;
+        }
+        if (!accessionDAO.exists(accessionIdentity)) {
+            createAccessionInfo(prefix, accessionFormat, curVal);
+            return true;
+        }
+        return false;
     }
 }
@@ -36,11 +36,13 @@ public abstract class AuditableBaseObjectServiceImpl<T extends BaseObject<PK>, P
     @Override
     @Transactional
     public List<PK> insertAll(List<T> baseObjects) {
-        List<PK> ids = new ArrayList<>();
-        for (T baseObject : baseObjects) {
-            ids.add(insert(baseObject));
-        }
-        return ids;
+        return batchWrite(() -> {
+            List<PK> ids = new ArrayList<>();
+            for (T baseObject : baseObjects) {
+                ids.add(insert(baseObject));
+            }
+            return ids;
+        });
     }
 
     @Override
@@ -58,11 +60,13 @@ public abstract class AuditableBaseObjectServiceImpl<T extends BaseObject<PK>, P
     @Override
     @Transactional
     public List<T> saveAll(List<T> baseObjects) {
-        List<T> resultObjects = new ArrayList<>();
-        for (T baseObject : baseObjects) {
-            resultObjects.add(save(baseObject));
-        }
-        return resultObjects;
+        return batchWrite(() -> {
+            List<T> resultObjects = new ArrayList<>();
+            for (T baseObject : baseObjects) {
+                resultObjects.add(save(baseObject));
+            }
+            return resultObjects;
+        });
     }
 
     @Override
@@ -73,9 +77,10 @@ public abstract class AuditableBaseObjectServiceImpl<T extends BaseObject<PK>, P
 
     protected T update(T baseObject, String auditTrailType) {
         if (auditTrailLog) {
-            T oldObject = getBaseObjectDAO().get(baseObject.getId())
+            // a copy of the loaded state, the managed entity stays in the session so the
+            // update below does not select it a second time
+            T oldObject = getBaseObjectDAO().getLoadedSnapshot(baseObject.getId())
                     .orElseThrow(() -> new ObjectNotFoundException(baseObject.getId(), classType.getName()));
-            getBaseObjectDAO().evict(oldObject);
             auditTrailService.saveHistory(baseObject, oldObject, baseObject.getSysUserId(), auditTrailType,
                     getBaseObjectDAO().getTableName());
         }
@@ -85,11 +90,13 @@ public abstract class AuditableBaseObjectServiceImpl<T extends BaseObject<PK>, P
     @Override
     @Transactional
     public List<T> updateAll(List<T> baseObjects) {
-        List<T> resultObjects = new ArrayList<>();
-        for (T baseObject : baseObjects) {
-            resultObjects.add(update(baseObject));
-        }
-        return resultObjects;
+        return batchWrite(() -> {
+            List<T> resultObjects = new ArrayList<>();
+            for (T baseObject : baseObjects) {
+                resultObjects.add(update(baseObject));
+            }
+            return resultObjects;
+        });
     }
 
     // used for "deleting" an object but operation is actually an update
@@ -121,17 +128,21 @@ public abstract class AuditableBaseObjectServiceImpl<T extends BaseObject<PK>, P
     @Override
     @Transactional
     public void deleteAll(List<T> baseObjects) {
-        for (T baseObject : baseObjects) {
-            delete(baseObject);
-        }
+        batchWrite(() -> {
+            for (T baseObject : baseObjects) {
+                delete(baseObject);
+            }
+        });
     }
 
     @Override
     @Transactional
     public void deleteAll(List<PK> ids, String sysUserId) {
-        for (PK id : ids) {
-            delete(id, sysUserId);
-        }
+        batchWrite(() -> {
+            for (PK id : ids) {
+                delete(id, sysUserId);
+            }
+        });
     }
 
     protected void disableLogging() {
@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import org.apache.commons.validator.GenericValidator;
 import org.hibernate.ObjectNotFoundException;
 import org.openelisglobal.common.dao.BaseDAO;
@@ -30,6 +31,30 @@ public abstract class BaseObjectServiceImpl<T extends BaseObject<PK>, PK extends
 
     protected abstract BaseDAO<T, PK> getBaseObjectDAO();
 
+    /**
+     * Runs the writes with the per row flush deferred so that they reach the
+     * database as JDBC batches. Pending writes are flushed when the outermost
+     * batch completes; nothing is flushed if the writes throw.
+     */
+    protected <R> R batchWrite(Supplier<R> writes) {
+        getBaseObjectDAO().beginBatchWrite();
+        boolean completed = false;
+        try {
+            R result = writes.get();
+            completed = true;
+            return result;
+        } finally {
+            getBaseObjectDAO().endBatchWrite(completed);
+        }
+    }
+
+    protected void batchWrite(Runnable writes) {
+        batchWrite(() -> {
+            writes.run();
+            return null;
+        });
+    }
+
     @Override
     @Transactional(readOnly = true)
     public T get(PK id) {
@@ -185,11 +210,13 @@ public abstract class BaseObjectServiceImpl<T extends BaseObject<PK>, PK extends
     @Override
     @Transactional
     public List<PK> insertAll(List<T> baseObjects) {
-        List<PK> ids = new ArrayList<>();
-        for (T baseObject : baseObjects) {
-            ids.add(insert(baseObject));
-        }
-        return ids;
+        return batchWrite(() -> {
+            List<PK> ids = new ArrayList<>();
+            for (T baseObject : baseObjects) {
+                ids.add(insert(baseObject));
+            }
+            return ids;
+        });
     }
 
     @Override
@@ -207,11 +234,13 @@ public abstract class BaseObjectServiceImpl<T extends BaseObject<PK>, PK extends
     @Override
     @Transactional
     public List<T> saveAll(List<T> baseObjects) {
-        List<T> resultObjects = new ArrayList<>();
-        for (T baseObject : baseObjects) {
-            resultObjects.add(save(baseObject));
-        }
-        return resultObjects;
+        return batchWrite(() -> {
+            List<T> resultObjects = new ArrayList<>();
+            for (T baseObject : baseObjects) {
+                resultObjects.add(save(baseObject));
+            }
+            return resultObjects;
+        });
     }
 
     @Override
@@ -234,11 +263,13 @@ public abstract class BaseObjectServiceImpl<T extends BaseObject<PK>, PK extends
     @Override
     @Transactional
     public List<T> updateAll(List<T> baseObjects) {
-        List<T> resultObjects = new ArrayList<>();
-        for (T baseObject : baseObjects) {
-            resultObjects.add(update(baseObject));
-        }
-        return resultObjects;
+        return batchWrite(() -> {
+            List<T> resultObjects = new ArrayList<>();
+            for (T baseObject : baseObjects) {
+                resultObjects.add(update(baseObject));
+            }
+            return resultObjects;
+        });
     }
 
     @Override
@@ -262,17 +293,21 @@ public abstract class BaseObjectServiceImpl<T extends BaseObject<PK>, PK extends
     @Override
     @Transactional
     public void deleteAll(List<T> baseObjects) {
-        for (T baseObject : baseObjects) {
-            delete(baseObject);
-        }
+        batchWrite(() -> {
+            for (T baseObject : baseObjects) {
+                delete(baseObject);
+            }
+        });
     }
 
     @Override
     @Transactional
     public void deleteAll(List<PK> ids, String sysUserId) {
-        for (PK id : ids) {
-            delete(id, sysUserId);
-        }
+        batchWrite(() -> {
+            for (PK id : ids) {
+                delete(id, sysUserId);
+            }
+        });
     }
 
     @Override
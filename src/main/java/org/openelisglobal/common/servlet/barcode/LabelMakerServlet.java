@@ -27,6 +27,7 @@ import org.openelisglobal.sample.util.AccessionNumberUtil;
 import org.openelisglobal.spring.util.SpringContext;
 import org.openelisglobal.test.service.TestService;
 import org.openelisglobal.test.valueholder.Test;
+import org.owasp.encoder.Encode;
 import org.springframework.validation.Errors;
 import org.springframework.validation.ObjectError;
 
@@ -69,6 +70,13 @@ public class LabelMakerServlet extends HttpServlet implements IActionConstants {
                 response.setContentType("text/html; charset=utf-8");
                 response.getWriter().println(MessageUtil.getMessage("error.accession.no.error"));
                 return;
+            } catch (IllegalArgumentException e) {
+                // the starting number may already be reserved, the validator says so
+                LogEvent.logWarn(this.getClass().getSimpleName(), "doGet", e.getMessage());
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.setContentType("text/html; charset=utf-8");
+                response.getWriter().println(Encode.forHtml(e.getMessage()));
+                return;
             }
         } else {
             // writes to response
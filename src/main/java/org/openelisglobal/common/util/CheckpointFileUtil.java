@@ -0,0 +1,46 @@
+package org.openelisglobal.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Reads and writes the properties files long running jobs keep their progress
+ * in, so they can carry on after a restart.
+ */
+public class CheckpointFileUtil {
+
+    private CheckpointFileUtil() {
+    }
+
+    /**
+     * Written to a temporary file first and moved over the checkpoint so a crash
+     * while saving leaves the previous checkpoint intact
+     */
+    public static void store(Properties properties, Path checkpoint, String comments) throws IOException {
+        Files.createDirectories(checkpoint.getParent());
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            properties.store(out, comments);
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the saved properties, null if there is no checkpoint
+     */
+    public static Properties load(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+}
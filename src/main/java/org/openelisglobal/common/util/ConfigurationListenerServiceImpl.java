@@ -1,6 +1,7 @@
 package org.openelisglobal.common.util;
 
 import java.util.List;
+import org.openelisglobal.config.AsyncConfig;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -17,7 +18,7 @@ public class ConfigurationListenerServiceImpl implements ConfigurationListenerSe
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.CONFIGURATION_EXECUTOR)
     public void refreshConfigurations() {
         List<ConfigurationListener> configurationListeners = getConfigurationListeners();
         for (ConfigurationListener configurationListener : configurationListeners) {
@@ -36,6 +36,9 @@ public class AnnotationWebAppInitializer implements WebApplicationInitializer {
                 new DispatcherServlet(rootContext));
         dispatcher.setLoadOnStartup(++startupOrder);
         dispatcher.addMapping("/");
+        // for the controllers that hold requests open, like the notification feed's
+        // long poll
+        dispatcher.setAsyncSupported(true);
 
         // converted to controller
         // ServletRegistration.Dynamic logoUploadServlet =
@@ -2,18 +2,81 @@ package org.openelisglobal.config;
 
 import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
+import org.openelisglobal.config.InstrumentedTaskExecutor.OverflowPolicy;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurerSupport;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+/**
+ * Each kind of asynchronous work gets its own bounded pool so a burst of one
+ * kind can neither starve the others nor create unbounded threads. Methods pick
+ * a pool with @Async("beanName"), a plain @Async runs on the default pool.
+ */
 @Configuration
 @EnableAsync
 public class AsyncConfig extends AsyncConfigurerSupport {
+
+    public static final String DEFAULT_EXECUTOR = "defaultAsyncExecutor";
+    public static final String NOTIFICATION_EXECUTOR = "notificationExecutor";
+    public static final String FHIR_EXECUTOR = "fhirExecutor";
+    public static final String CONFIGURATION_EXECUTOR = "configurationExecutor";
+    public static final String JOB_EXECUTOR = "jobExecutor";
+    public static final String EXPORT_EXECUTOR = "exportExecutor";
+
+    @Value("${org.openelisglobal.async.virtualThreads:false}")
+    private boolean virtualThreads;
+
+    @Value("${org.openelisglobal.async.default.poolSize:8}")
+    private int defaultPoolSize;
+    @Value("${org.openelisglobal.async.default.queueCapacity:500}")
+    private int defaultQueueCapacity;
+    @Value("${org.openelisglobal.async.default.overflowPolicy:CALLER_RUNS}")
+    private OverflowPolicy defaultOverflowPolicy;
+
+    @Value("${org.openelisglobal.async.notification.poolSize:4}")
+    private int notificationPoolSize;
+    @Value("${org.openelisglobal.async.notification.queueCapacity:1000}")
+    private int notificationQueueCapacity;
+    @Value("${org.openelisglobal.async.notification.overflowPolicy:CALLER_RUNS}")
+    private OverflowPolicy notificationOverflowPolicy;
+
+    @Value("${org.openelisglobal.async.fhir.poolSize:4}")
+    private int fhirPoolSize;
+    @Value("${org.openelisglobal.async.fhir.queueCapacity:1000}")
+    private int fhirQueueCapacity;
+    @Value("${org.openelisglobal.async.fhir.overflowPolicy:CALLER_RUNS}")
+    private OverflowPolicy fhirOverflowPolicy;
+
+    // a refresh that is already waiting will pick up later changes as well, so
+    // one waiting refresh is enough
+    @Value("${org.openelisglobal.async.configuration.poolSize:1}")
+    private int configurationPoolSize;
+    @Value("${org.openelisglobal.async.configuration.queueCapacity:1}")
+    private int configurationQueueCapacity;
+    @Value("${org.openelisglobal.async.configuration.overflowPolicy:DISCARD}")
+    private OverflowPolicy configurationOverflowPolicy;
+
+    @Value("${org.openelisglobal.async.job.poolSize:2}")
+    private int jobPoolSize;
+    @Value("${org.openelisglobal.async.job.queueCapacity:20}")
+    private int jobQueueCapacity;
+    @Value("${org.openelisglobal.async.job.overflowPolicy:CALLER_RUNS}")
+    private OverflowPolicy jobOverflowPolicy;
+
+    // the pool size is the number of reports sent to a receiving system at once
+    @Value("${org.openelisglobal.async.export.poolSize:4}")
+    private int exportPoolSize;
+    @Value("${org.openelisglobal.async.export.queueCapacity:200}")
+    private int exportQueueCapacity;
+    @Value("${org.openelisglobal.async.export.overflowPolicy:CALLER_RUNS}")
+    private OverflowPolicy exportOverflowPolicy;
+
     @Override
     public Executor getAsyncExecutor() {
-        return new SimpleAsyncTaskExecutor();
+        return defaultAsyncExecutor();
     }
 
     @Override
@@ -21,4 +84,39 @@ public class AsyncConfig extends AsyncConfigurerSupport {
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new AsyncExceptionHandler();
     }
+
+    @Bean(DEFAULT_EXECUTOR)
+    public InstrumentedTaskExecutor defaultAsyncExecutor() {
+        return new InstrumentedTaskExecutor("async", defaultPoolSize, defaultQueueCapacity, defaultOverflowPolicy,
+                virtualThreads);
+    }
+
+    @Bean(NOTIFICATION_EXECUTOR)
+    public InstrumentedTaskExecutor notificationExecutor() {
+        return new InstrumentedTaskExecutor("notification", notificationPoolSize, notificationQueueCapacity,
+                notificationOverflowPolicy, virtualThreads);
+    }
+
+    @Bean(FHIR_EXECUTOR)
+    public InstrumentedTaskExecutor fhirExecutor() {
+        return new InstrumentedTaskExecutor("fhir", fhirPoolSize, fhirQueueCapacity, fhirOverflowPolicy,
+                virtualThreads);
+    }
+
+    @Bean(CONFIGURATION_EXECUTOR)
+    public InstrumentedTaskExecutor configurationExecutor() {
+        return new InstrumentedTaskExecutor("configuration", configurationPoolSize, configurationQueueCapacity,
+                configurationOverflowPolicy, virtualThreads);
+    }
+
+    @Bean(JOB_EXECUTOR)
+    public InstrumentedTaskExecutor jobExecutor() {
+        return new InstrumentedTaskExecutor("job", jobPoolSize, jobQueueCapacity, jobOverflowPolicy, virtualThreads);
+    }
+
+    @Bean(EXPORT_EXECUTOR)
+    public InstrumentedTaskExecutor exportExecutor() {
+        return new InstrumentedTaskExecutor("export", exportPoolSize, exportQueueCapacity, exportOverflowPolicy,
+                virtualThreads);
+    }
 }
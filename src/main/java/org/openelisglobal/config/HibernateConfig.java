@@ -2,6 +2,7 @@ package org.openelisglobal.config;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import org.openelisglobal.hibernate.search.massindexer.LuceneIndexDirectories;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -26,6 +27,9 @@ public class HibernateConfig {
     @DependsOn("liquibase")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         if (emf == null) {
+            // a finished shadow index can only be moved into place before Hibernate
+            // Search opens the indexes
+            LuceneIndexDirectories.swapInShadowIfReady();
             emf = new LocalContainerEntityManagerFactoryBean();
             emf.setDataSource(dataSource);
             emf.setPersistenceXmlLocation("classpath:persistence/persistence.xml");
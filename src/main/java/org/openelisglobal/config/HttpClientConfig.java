@@ -38,10 +38,19 @@ public class HttpClientConfig {
     @Value("${org.openelisglobal.httpclient.socketTimeout:0}")
     private Integer socketTimeout;
 
+    // connections are pooled by the client, without these it keeps at most 2
+    // connections to the same host
+    @Value("${org.openelisglobal.httpclient.maxConnectionsPerRoute:10}")
+    private Integer maxConnectionsPerRoute;
+
+    @Value("${org.openelisglobal.httpclient.maxConnectionsTotal:50}")
+    private Integer maxConnectionsTotal;
+
     @Bean
     public CloseableHttpClient httpClient() throws Exception {
 
-        HttpClientBuilder httpBuilder = HttpClientBuilder.create().setSSLSocketFactory(sslConnectionSocketFactory());
+        HttpClientBuilder httpBuilder = HttpClientBuilder.create().setSSLSocketFactory(sslConnectionSocketFactory())
+                .setMaxConnPerRoute(maxConnectionsPerRoute).setMaxConnTotal(maxConnectionsTotal);
 
         if (connectionRequestTimeout != 0 || connectionTimeout != 0 || socketTimeout != 0) {
             final RequestConfig.Builder configBuilder = RequestConfig.custom();
@@ -0,0 +1,230 @@
+package org.openelisglobal.config;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.openelisglobal.common.log.LogEvent;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * A fixed size thread pool with a bounded queue for one kind of asynchronous
+ * work. It keeps counts and timings so the queue depth and the time tasks wait
+ * before running can be monitored.
+ */
+public class InstrumentedTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private static final long serialVersionUID = -2480616317006462542L;
+
+    /**
+     * What to do with a task when all threads are busy and the queue is full
+     */
+    public enum OverflowPolicy {
+        /** run the task on the submitting thread, which slows the submitter down */
+        CALLER_RUNS,
+        /** drop the task, for work where a later run makes up for a missed one */
+        DISCARD,
+        /** throw a TaskRejectedException to the submitter */
+        ABORT
+    }
+
+    private final String name;
+    private final OverflowPolicy overflowPolicy;
+    private final int capacity;
+    private boolean virtualThreads;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    public InstrumentedTaskExecutor(String name, int poolSize, int queueCapacity, OverflowPolicy overflowPolicy,
+            boolean useVirtualThreads) {
+        this.name = name;
+        this.overflowPolicy = overflowPolicy;
+        this.capacity = Math.max(0, queueCapacity);
+        setBeanName(name);
+        setThreadNamePrefix(name + "-");
+        setCorePoolSize(Math.max(1, poolSize));
+        setMaxPoolSize(Math.max(1, poolSize));
+        setQueueCapacity(capacity);
+        setAllowCoreThreadTimeOut(true);
+        setKeepAliveSeconds(60);
+        setWaitForTasksToCompleteOnShutdown(true);
+        setAwaitTerminationSeconds(30);
+        setTaskDecorator(this::instrument);
+        setRejectedExecutionHandler(new OverflowHandler());
+        if (useVirtualThreads) {
+            ThreadFactory virtualThreadFactory = virtualThreadFactory(name + "-");
+            if (virtualThreadFactory != null) {
+                setThreadFactory(virtualThreadFactory);
+                virtualThreads = true;
+            } else {
+                LogEvent.logInfo(this.getClass().getSimpleName(), "InstrumentedTaskExecutor",
+                        "virtual threads are not available on this JVM, " + name + " uses platform threads");
+            }
+        }
+    }
+
+    private Runnable instrument(Runnable task) {
+        long queuedAt = System.nanoTime();
+        submitted.increment();
+        return () -> {
+            long startedAt = System.nanoTime();
+            record(startedAt - queuedAt, totalWaitNanos, maxWaitNanos);
+            try {
+                task.run();
+            } finally {
+                record(System.nanoTime() - startedAt, totalRunNanos, maxRunNanos);
+                completed.increment();
+            }
+        };
+    }
+
+    private void record(long nanos, LongAdder total, AtomicLong max) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /*
+     * Thread.ofVirtual() only exists from Java 21 on, so it is looked up
+     * reflectively to keep building for older releases
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Stats getStats() {
+        ThreadPoolExecutor executor = getThreadPoolExecutor();
+        Stats stats = new Stats();
+        stats.name = name;
+        stats.overflowPolicy = overflowPolicy;
+        stats.virtualThreads = virtualThreads;
+        stats.poolSize = executor.getMaximumPoolSize();
+        stats.activeCount = executor.getActiveCount();
+        stats.queueSize = executor.getQueue().size();
+        stats.queueCapacity = capacity;
+        stats.submitted = submitted.sum();
+        stats.completed = completed.sum();
+        stats.rejected = rejected.sum();
+        long started = stats.completed + stats.activeCount;
+        stats.averageWaitMillis = started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / started);
+        stats.maxWaitMillis = TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+        stats.averageRunMillis = stats.completed == 0 ? 0
+                : TimeUnit.NANOSECONDS.toMillis(totalRunNanos.sum() / stats.completed);
+        stats.maxRunMillis = TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get());
+        return stats;
+    }
+
+    private class OverflowHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            rejected.increment();
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException(name + " is shut down");
+            }
+            switch (overflowPolicy) {
+            case CALLER_RUNS:
+                task.run();
+                break;
+            case DISCARD:
+                LogEvent.logWarn(InstrumentedTaskExecutor.class.getSimpleName(), "rejectedExecution",
+                        name + " queue is full, task discarded");
+                break;
+            case ABORT:
+            default:
+                throw new RejectedExecutionException(name + " queue is full");
+            }
+        }
+    }
+
+    public static class Stats {
+        private String name;
+        private OverflowPolicy overflowPolicy;
+        private boolean virtualThreads;
+        private int poolSize;
+        private int activeCount;
+        private int queueSize;
+        private int queueCapacity;
+        private long submitted;
+        private long completed;
+        private long rejected;
+        private long averageWaitMillis;
+        private long maxWaitMillis;
+        private long averageRunMillis;
+        private long maxRunMillis;
+
+        public String getName() {
+            return name;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public long getAverageRunMillis() {
+            return averageRunMillis;
+        }
+
+        public long getMaxRunMillis() {
+            return maxRunMillis;
+        }
+    }
+}
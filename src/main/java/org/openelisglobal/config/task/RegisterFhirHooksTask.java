@@ -99,8 +99,9 @@ public class RegisterFhirHooksTask {
         }
         try {
             Bundle returnedBundle = fhirClient.transaction().withBundle(subscriptionBundle).encodedJson().execute();
-            LogEvent.logDebug(this.getClass().getSimpleName(), "startTask", "subscription bundle returned:\n"
-                    + fhirContext.newJsonParser().encodeResourceToString(returnedBundle));
+            LogEvent.logDebug(this.getClass().getSimpleName(), "startTask",
+                    () -> "subscription bundle returned:\n"
+                            + fhirContext.newJsonParser().encodeResourceToString(returnedBundle));
         } catch (UnprocessableEntityException | DataFormatException e) {
             LogEvent.logError("error while communicating subscription bundle to " + localFhirStorePath + " for "
                     + fhirSubscriber.get(), e);
@@ -140,7 +141,8 @@ public class RegisterFhirHooksTask {
         }
         Bundle returnedBundle = fhirClient.transaction().withBundle(deleteTransactionBundle).encodedJson().execute();
         LogEvent.logTrace(this.getClass().getSimpleName(), "removeOldSubscription",
-                "delete old bundle returned:\n" + fhirContext.newJsonParser().encodeResourceToString(returnedBundle));
+                () -> "delete old bundle returned:\n"
+                        + fhirContext.newJsonParser().encodeResourceToString(returnedBundle));
     }
 
     private String createSubscriptionIdForResourceType(ResourceType resourceType) {
@@ -24,6 +24,16 @@ public interface ReportExternalExportDAO extends BaseDAO<ReportExternalExport, S
 
     public List<ReportExternalExport> getUnsentReportExports(String reportQueueTypeId) throws LIMSRuntimeException;
 
+    /**
+     * Locks up to limit unsent rows that are due and not claimed by another node.
+     * Rows already locked by another transaction are skipped rather than waited
+     * for.
+     */
+    public List<ReportExternalExport> getDueReportExportsForUpdate(String reportQueueTypeId, Timestamp now,
+            int limit) throws LIMSRuntimeException;
+
+    public int deleteReportExports(List<String> ids) throws LIMSRuntimeException;
+
     public ReportExternalExport getLatestSentReportExport(String reportQueueTypeId) throws LIMSRuntimeException;
 
     public ReportExternalExport getLatestEventReportExport(String reportQueueTypeId) throws LIMSRuntimeException;
@@ -15,7 +15,10 @@ package org.openelisglobal.dataexchange.aggregatereporting.daoimpl;
 
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.hibernate.HibernateException;
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 import org.openelisglobal.common.daoimpl.BaseDAOImpl;
@@ -71,6 +74,42 @@ public class ReportExternalExportDAOImpl extends BaseDAOImpl<ReportExternalExpor
         return null;
     }
 
+    @Override
+    public List<ReportExternalExport> getDueReportExportsForUpdate(String reportQueueTypeId, Timestamp now,
+            int limit) throws LIMSRuntimeException {
+        String sql = "from ReportExternalExport rq where rq.send = true and rq.typeId = :typeId"
+                + " and (rq.nextAttemptTime is null or rq.nextAttemptTime <= :now)"
+                + " and (rq.claimedUntil is null or rq.claimedUntil < :now) order by rq.id";
+        try {
+            Query<ReportExternalExport> query = entityManager.unwrap(Session.class).createQuery(sql,
+                    ReportExternalExport.class);
+            query.setParameter("typeId", Integer.parseInt(reportQueueTypeId));
+            query.setParameter("now", now);
+            query.setLockOptions(new LockOptions(LockMode.UPGRADE_SKIPLOCKED));
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getDueReportExportsForUpdate");
+        }
+        return null;
+    }
+
+    @Override
+    public int deleteReportExports(List<String> ids) throws LIMSRuntimeException {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String sql = "delete from ReportExternalExport rq where rq.id in (:ids)";
+        try {
+            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
+            query.setParameterList("ids", ids.stream().map(Integer::parseInt).collect(Collectors.toList()));
+            return query.executeUpdate();
+        } catch (HibernateException e) {
+            handleException(e, "deleteReportExports");
+        }
+        return 0;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public ReportExternalExport getLatestSentReportExport(String reportQueueTypeId) throws LIMSRuntimeException {
@@ -28,6 +28,9 @@ public class ReportExternalExport extends BaseObject<String> {
     private boolean send;
     private String data;
     private String bookkeepingData;
+    private int sendAttempts;
+    private Timestamp nextAttemptTime;
+    private Timestamp claimedUntil;
 
     public String getId() {
         return id;
@@ -93,6 +96,30 @@ public class ReportExternalExport extends BaseObject<String> {
         this.bookkeepingData = bookkeepingData;
     }
 
+    public int getSendAttempts() {
+        return sendAttempts;
+    }
+
+    public void setSendAttempts(int sendAttempts) {
+        this.sendAttempts = sendAttempts;
+    }
+
+    public Timestamp getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(Timestamp nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public Timestamp getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(Timestamp claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+
     public int getDataSize() {
         return data.length();
     }
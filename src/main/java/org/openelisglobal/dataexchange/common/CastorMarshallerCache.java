@@ -0,0 +1,125 @@
+/**
+ * The contents of this file are subject to the Mozilla Public License Version 1.1 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.mozilla.org/MPL/
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" basis, WITHOUT WARRANTY OF
+ * ANY KIND, either express or implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ *
+ * <p>The Original Code is OpenELIS code.
+ *
+ * <p>Copyright (C) CIRG, University of Washington, Seattle WA. All Rights Reserved.
+ */
+package org.openelisglobal.dataexchange.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.exolab.castor.mapping.Mapping;
+import org.exolab.castor.mapping.MappingException;
+import org.exolab.castor.xml.MarshalException;
+import org.exolab.castor.xml.Marshaller;
+import org.exolab.castor.xml.ValidationException;
+import org.exolab.castor.xml.XMLContext;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.util.resources.ResourceLocator;
+import org.xml.sax.InputSource;
+
+/**
+ * Loads Transmission.properties and each Castor mapping once. A Castor
+ * XMLContext holds the class descriptors of a mapping and can be shared between
+ * threads, the Marshallers it creates can not so one is made for every
+ * document.
+ */
+public final class CastorMarshallerCache {
+
+    private static final CastorMarshallerCache INSTANCE = new CastorMarshallerCache();
+
+    private final Map<String, XMLContext> contexts = new ConcurrentHashMap<>();
+    private volatile Properties transmissionMappings;
+
+    private CastorMarshallerCache() {
+    }
+
+    public static CastorMarshallerCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the mapping resource configured for the name in
+     *         Transmission.properties
+     */
+    public String getMappingName(String castorPropertyName) {
+        Properties mappings = transmissionMappings;
+        if (mappings == null) {
+            synchronized (this) {
+                if (transmissionMappings == null) {
+                    transmissionMappings = loadTransmissionMappings();
+                }
+                mappings = transmissionMappings;
+            }
+        }
+        return mappings.getProperty(castorPropertyName);
+    }
+
+    /**
+     * @return the context for the mapping, loaded on first use
+     */
+    public XMLContext getContext(String castorMappingName) throws MappingException {
+        XMLContext context = contexts.get(castorMappingName);
+        if (context == null) {
+            // loaded outside of computeIfAbsent as loading can throw and takes a while
+            XMLContext loaded = loadContext(castorMappingName);
+            context = contexts.putIfAbsent(castorMappingName, loaded);
+            if (context == null) {
+                context = loaded;
+            }
+        }
+        return context;
+    }
+
+    public void marshal(Object reportObject, String castorMappingName, Writer writer)
+            throws MappingException, MarshalException, ValidationException, IOException {
+        Marshaller marshaller = getContext(castorMappingName).createMarshaller();
+        marshaller.setWriter(writer);
+        marshaller.marshal(reportObject);
+        writer.flush();
+    }
+
+    private XMLContext loadContext(String castorMappingName) throws MappingException {
+        InputStream mappingXml = Thread.currentThread().getContextClassLoader().getResourceAsStream(castorMappingName);
+        if (mappingXml == null) {
+            throw new MappingException("Castor mapping " + castorMappingName + " not found");
+        }
+        try {
+            Mapping castorMapping = new Mapping();
+            castorMapping.loadMapping(new InputSource(mappingXml));
+            XMLContext context = new XMLContext();
+            context.addMapping(castorMapping);
+            return context;
+        } finally {
+            try {
+                mappingXml.close();
+            } catch (IOException e) {
+                LogEvent.logError(e);
+            }
+        }
+    }
+
+    private Properties loadTransmissionMappings() {
+        Properties mappings = new Properties();
+        try (InputStream propertyStream = ResourceLocator.getInstance()
+                .getNamedResourceAsInputStream(ResourceLocator.XMIT_PROPERTIES)) {
+            mappings.load(propertyStream);
+        } catch (IOException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Unable to load transmission resource mappings.", e);
+        }
+        return mappings;
+    }
+}
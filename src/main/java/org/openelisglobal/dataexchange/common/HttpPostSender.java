@@ -19,25 +19,47 @@ import org.apache.commons.validator.GenericValidator;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentProducer;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.openelisglobal.common.log.LogEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+// holds the message and url of one send, each send gets its own
 @Component
+@Scope("prototype")
 public class HttpPostSender extends HttpSender {
 
     @Autowired
     private CloseableHttpClient httpClient;
 
+    private ContentProducer content;
+
+    @Override
+    public void setMessage(String message) {
+        super.setMessage(message);
+        content = null;
+    }
+
+    /**
+     * Sends what the producer writes instead of a message string, so a large
+     * message does not have to be built in memory first
+     */
+    public void setContent(ContentProducer content) {
+        this.content = content;
+        message = null;
+    }
+
     @Override
     public boolean sendMessage() {
 
         errors = new ArrayList<>();
 
-        if (GenericValidator.isBlankOrNull(message) || GenericValidator.isBlankOrNull(url)) {
+        if ((content == null && GenericValidator.isBlankOrNull(message)) || GenericValidator.isBlankOrNull(url)) {
             LogEvent.logWarn("HttpPutSender", "send message",
                     "The " + message == null ? " message " : "url" + " is null");
             errors.add("send message The " + (message == null ? " message " : "url") + " is null");
@@ -46,13 +68,20 @@ public class HttpPostSender extends HttpSender {
         }
 
         HttpPost httpPost = new HttpPost(url);
-        httpPost.setEntity(new StringEntity(message, ContentType.TEXT_PLAIN));
-        try {
-            CloseableHttpResponse response = httpClient.execute(httpPost);
+        if (content != null) {
+            EntityTemplate entity = new EntityTemplate(content);
+            entity.setContentType(ContentType.TEXT_PLAIN.toString());
+            httpPost.setEntity(entity);
+        } else {
+            httpPost.setEntity(new StringEntity(message, ContentType.TEXT_PLAIN));
+        }
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
             returnStatus = response.getStatusLine().getStatusCode();
             return returnStatus == HttpStatus.SC_OK;
         } catch (IOException e1) {
             LogEvent.logError(e1);
+            errors.add(e1.toString());
+            returnStatus = 0;
         }
         return false;
     }
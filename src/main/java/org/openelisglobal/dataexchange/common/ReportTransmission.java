@@ -15,26 +15,19 @@ package org.openelisglobal.dataexchange.common;
 
 import ca.uhn.hl7v2.HL7Exception;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.servlet.http.HttpServletResponse;
-import org.exolab.castor.mapping.Mapping;
+import org.apache.http.entity.ContentType;
 import org.exolab.castor.mapping.MappingException;
 import org.exolab.castor.xml.MarshalException;
-import org.exolab.castor.xml.Marshaller;
 import org.exolab.castor.xml.ValidationException;
-import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
-import org.openelisglobal.common.util.resources.ResourceLocator;
 import org.openelisglobal.dataexchange.orderresult.OrderResponseWorker;
 import org.openelisglobal.dataexchange.resultreporting.beans.ResultReportXmit;
 import org.openelisglobal.spring.util.SpringContext;
-import org.xml.sax.InputSource;
 
 public class ReportTransmission {
     public enum HTTP_TYPE {
@@ -53,39 +46,72 @@ public class ReportTransmission {
         }
     }
 
+    /**
+     * Marshals the report with the Castor mapping configured for
+     * castorPropertyName straight into the body of the POST. The response handler
+     * is only given the report as a string when the send failed.
+     */
     public void sendReport(Object reportObject, String castorPropertyName, String url, boolean sendAsychronously,
             ITransmissionResponseHandler responseHandler) {
-
-        String xmlString = null;
-        String castorMappingName = getCastorMappingName(castorPropertyName);
-
-        InputSource source = getSource(castorMappingName);
-
-        Mapping castorMapping = new Mapping();
+        CastorMarshallerCache marshallerCache = CastorMarshallerCache.getInstance();
+        String castorMappingName = marshallerCache.getMappingName(castorPropertyName);
         try {
-            castorMapping.loadMapping(source);
+            // a mapping that can not be loaded is reported before anything is sent
+            marshallerCache.getContext(castorMappingName);
+        } catch (MappingException e) {
+            LogEvent.logError(e);
+            return;
+        }
 
-            Marshaller marshaller = new Marshaller();
-            marshaller.setMapping(castorMapping);
-            Writer writer = new StringWriter();
-            marshaller.setWriter(writer);
-            marshaller.marshal(reportObject);
-            xmlString = writer.toString();
+        AtomicBoolean marshalFailed = new AtomicBoolean();
+        HttpPostSender sender = SpringContext.getBean(HttpPostSender.class);
+        sender.setContent(out -> {
+            Writer writer = new OutputStreamWriter(out, ContentType.TEXT_PLAIN.getCharset());
+            try {
+                marshallerCache.marshal(reportObject, castorMappingName, writer);
+            } catch (ValidationException | MarshalException | MappingException e) {
+                LogEvent.logError(e);
+                marshalFailed.set(true);
+                // aborts the chunked request so the partial report is not accepted
+                throw new IOException(e);
+            }
+        });
+        sender.setURI(url);
+
+        ITransmissionResponseHandler streamedResponseHandler = null;
+        if (responseHandler != null) {
+            streamedResponseHandler = (httpReturnStatus, errors, msg) -> {
+                if (!marshalFailed.get()) {
+                    responseHandler.handleResponse(httpReturnStatus, errors,
+                            httpReturnStatus == HttpServletResponse.SC_OK ? null
+                                    : marshalToString(reportObject, castorMappingName));
+                }
+            };
+        }
 
-            sendRawReport(xmlString, url, sendAsychronously, responseHandler, HTTP_TYPE.POST);
+        try {
+            if (sendAsychronously) {
+                IAsyncExternalSender asynchSender = SpringContext.getBean(IAsyncExternalSender.class);
+                asynchSender.sendMessage(sender, streamedResponseHandler, null);
+            } else {
+                sender.sendMessage();
+                if (streamedResponseHandler != null) {
+                    streamedResponseHandler.handleResponse(sender.getSendResponse(), sender.getErrors(), null);
+                }
+            }
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+        }
+    }
 
-        } catch (UnknownHostException e) {
-            List<String> errors = new ArrayList<>();
-            errors.add(e.toString());
-            responseHandler.handleResponse(HttpServletResponse.SC_BAD_REQUEST, errors, xmlString);
+    private String marshalToString(Object reportObject, String castorMappingName) {
+        Writer writer = new StringWriter();
+        try {
+            CastorMarshallerCache.getInstance().marshal(reportObject, castorMappingName, writer);
+            return writer.toString();
         } catch (ValidationException | MarshalException | IOException | MappingException e) {
             LogEvent.logError(e);
-        } finally {
-            try {
-                source.getByteStream().close();
-            } catch (IOException e) {
-                LogEvent.logError(e);
-            }
+            return null;
         }
     }
 
@@ -123,36 +149,4 @@ public class ReportTransmission {
             LogEvent.logError(e);
         }
     }
-
-    private String getCastorMappingName(String mapping) {
-        InputStream propertyStream = null;
-
-        ResourceLocator resourceLocator = ResourceLocator.getInstance();
-
-        Properties transmissionMap = new Properties();
-        try {
-            propertyStream = resourceLocator.getNamedResourceAsInputStream(ResourceLocator.XMIT_PROPERTIES);
-            transmissionMap.load(propertyStream);
-        } catch (IOException e) {
-            LogEvent.logError(e);
-            throw new LIMSRuntimeException("Unable to load transmission resource mappings.", e);
-        } finally {
-            if (null != propertyStream) {
-                try {
-                    propertyStream.close();
-                } catch (IOException e) {
-                    LogEvent.logError(e);
-                }
-            }
-        }
-
-        String castorMappingName = transmissionMap.getProperty(mapping);
-        return castorMappingName;
-    }
-
-    protected InputSource getSource(String castorMappingName) {
-        InputStream mappingXml = Thread.currentThread().getContextClassLoader().getResourceAsStream(castorMappingName);
-
-        return new InputSource(mappingXml);
-    }
 }
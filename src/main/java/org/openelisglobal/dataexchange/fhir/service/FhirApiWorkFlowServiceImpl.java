@@ -4,19 +4,30 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.gclient.IQuery;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import org.apache.commons.validator.GenericValidator;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IDomainResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r4.model.Bundle.SearchEntryMode;
 import org.hl7.fhir.r4.model.CodeableConcept;
 import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.DiagnosticReport;
@@ -37,6 +48,8 @@ import org.hl7.fhir.r4.model.Task.TaskStatus;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.services.TableIdService;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
 import org.openelisglobal.dataexchange.fhir.FhirConfig;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.fhir.exception.FhirLocalPersistingException;
@@ -50,6 +63,7 @@ import org.openelisglobal.referral.fhir.service.FhirReferralService;
 import org.openelisglobal.referral.service.ReferralService;
 import org.openelisglobal.spring.util.SpringContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -74,6 +88,9 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
     private FhirTransformService fhirTransformService;
     @Autowired
     private OrganizationService organizationService;
+    @Autowired
+    @Qualifier(AsyncConfig.FHIR_EXECUTOR)
+    private InstrumentedTaskExecutor fhirExecutor;
 
     @Value("${org.openelisglobal.fhirstore.uri}")
     private String localFhirStorePath;
@@ -81,6 +98,17 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
     @Value("${org.openelisglobal.remote.source.updateStatus}")
     private Optional<Boolean> remoteStoreUpdateStatus;
 
+    @Value("${org.openelisglobal.remote.poll.idsPerSearch:50}")
+    private int idsPerSearch;
+    @Value("${org.openelisglobal.remote.poll.overlapSeconds:300}")
+    private int overlapSeconds;
+    @Value("${org.openelisglobal.remote.poll.checkpointFile:/var/lib/openelis-global/fhir/remote-poll.properties}")
+    private String checkpointFile;
+
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final AtomicBoolean pollRequested = new AtomicBoolean();
+    private RemotePollCheckpoint checkpoint;
+
     @Override
     @Scheduled(initialDelay = 10 * 1000, fixedRateString = "${org.openelisglobal.remote.poll.frequency:120000}")
     public void pollForRemoteTasks() {
@@ -88,157 +116,195 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     public void processWorkflow(ResourceType resourceType) {
-        for (String remoteStorePath : fhirConfig.getRemoteStorePaths()) {
-            switch (resourceType) {
-            case Task:
-                try {
-                    beginTaskImportOrderPath(remoteStorePath);
-                } catch (RuntimeException e) {
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
-                            "could not process Task import workflow using remote address: " + remoteStorePath);
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
-                }
-                try {
-                    beginTaskCheckIfAcceptedPath(remoteStorePath);
-                } catch (RuntimeException e) {
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
-                            "could not process Task accepted workflow using remote address: " + remoteStorePath);
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
-                } catch (FhirLocalPersistingException e) {
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
-                            "could not process Task result import workflow using remote address: " + remoteStorePath);
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
-                }
+        if (!ResourceType.Task.equals(resourceType)) {
+            return;
+        }
+        // a request made while polling is picked up by the running poll
+        pollRequested.set(true);
+        while (pollRequested.get() && polling.compareAndSet(false, true)) {
+            try {
+                pollRequested.set(false);
+                pollRemoteStores();
+            } catch (RuntimeException e) {
+                LogEvent.logError("could not poll the remote stores", e);
+            } finally {
+                polling.set(false);
+            }
+        }
+    }
+
+    /*
+     * the stores are polled in parallel on the fhir pool. This thread polls too, and
+     * only waits for stores that are being polled, so a busy pool only slows it down
+     */
+    private void pollRemoteStores() {
+        List<String> remoteStoreIdentifier = fhirConfig.getRemoteStoreIdentifier();
+        if (remoteStoreIdentifier.isEmpty()) {
+            return;
+        }
+        List<String> sentReferralIds = referralService.getSentReferralUuids().stream().map(UUID::toString)
+                .collect(Collectors.toList());
+        Queue<String> remoteStorePaths = new ConcurrentLinkedQueue<>(Arrays.asList(fhirConfig.getRemoteStorePaths()));
+        CountDownLatch storesPolled = new CountDownLatch(remoteStorePaths.size());
+        Runnable pollStores = () -> {
+            String remoteStorePath;
+            while ((remoteStorePath = remoteStorePaths.poll()) != null) {
                 try {
-                    beginTaskImportResultsPath(remoteStorePath);
-                } catch (RuntimeException e) {
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
-                            "could not process Task workflow using remote address: " + remoteStorePath);
-                    LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
+                    pollRemoteStore(remoteStorePath, remoteStoreIdentifier, sentReferralIds);
+                } finally {
+                    storesPolled.countDown();
                 }
-            default:
             }
+        };
+        for (int i = 1; i < storesPolled.getCount(); i++) {
+            fhirExecutor.execute(pollStores);
+        }
+        pollStores.run();
+        try {
+            storesPolled.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private void beginTaskCheckIfAcceptedPath(String remoteStorePath) throws FhirLocalPersistingException {
-        if (fhirConfig.getRemoteStoreIdentifier().isEmpty()) {
-            return;
+    private void pollRemoteStore(String remoteStorePath, List<String> remoteStoreIdentifier,
+            List<String> sentReferralIds) {
+        try {
+            beginTaskImportOrderPath(remoteStorePath, remoteStoreIdentifier);
+        } catch (RuntimeException e) {
+            LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
+                    "could not process Task import workflow using remote address: " + remoteStorePath);
+            LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
+        }
+        try {
+            beginTaskCheckIfAcceptedPath(remoteStorePath, sentReferralIds);
+        } catch (RuntimeException e) {
+            LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
+                    "could not process Task accepted workflow using remote address: " + remoteStorePath);
+            LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
+        } catch (FhirLocalPersistingException e) {
+            LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
+                    "could not process Task result import workflow using remote address: " + remoteStorePath);
+            LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
         }
+        try {
+            beginTaskImportResultsPath(remoteStorePath, sentReferralIds);
+        } catch (RuntimeException e) {
+            LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow",
+                    "could not process Task workflow using remote address: " + remoteStorePath);
+            LogEvent.logError(this.getClass().getSimpleName(), "processWorkflow", e.getMessage());
+        }
+    }
 
+    private void beginTaskCheckIfAcceptedPath(String remoteStorePath, List<String> referralTaskIds)
+            throws FhirLocalPersistingException {
         Map<String, Resource> updateResources = new HashMap<>();
 
         IGenericClient sourceFhirClient = fhirUtil.getFhirClient(remoteStorePath);
-        for (UUID referralTaskUuid : referralService.getSentReferralUuids()) {
+        for (List<String> batchTaskIds : inBatches(referralTaskIds)) {
             try {
                 IQuery<Bundle> searchQuery = sourceFhirClient.search() //
                         .forResource(Task.class) //
                         .returnBundle(Bundle.class) //
                         .include(Task.INCLUDE_BASED_ON) // serviceRequest
                         .where(Task.STATUS.exactly().codes(TaskStatus.REQUESTED.toCode(), TaskStatus.RECEIVED.toCode())) //
-                        .where(Task.RES_ID.exactly().identifier(referralTaskUuid.toString()));
-                Bundle originalTasksBundle = searchQuery.execute();
-                if (originalTasksBundle.hasEntry()) {
-                    LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskCheckIfAcceptedPath",
-                            "received bundle with " + originalTasksBundle.getEntry().size() + " entries");
-                } else {
-                    LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskCheckIfAcceptedPath",
-                            "received bundle with 0 entries");
-                }
+                        .where(Task.RES_ID.exactly().codes(batchTaskIds));
                 Map<String, Task> originalTasksById = new HashMap<>();
-                for (BundleEntryComponent bundleEntry : originalTasksBundle.getEntry()) {
-                    if (bundleEntry.hasResource()
-                            && bundleEntry.getResource().getResourceType().equals(ResourceType.Task)) {
-                        Task originalTask = (Task) bundleEntry.getResource();
-                        originalTasksById.put(originalTask.getIdElement().getIdPart(), originalTask);
+                for (Bundle originalTasksBundle : searchAllPages(sourceFhirClient, searchQuery)) {
+                    LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskCheckIfAcceptedPath",
+                            "received bundle with {} entries", originalTasksBundle.getEntry().size());
+                    for (BundleEntryComponent bundleEntry : originalTasksBundle.getEntry()) {
+                        if (bundleEntry.hasResource()
+                                && bundleEntry.getResource().getResourceType().equals(ResourceType.Task)) {
+                            Task originalTask = (Task) bundleEntry.getResource();
+                            originalTasksById.put(originalTask.getIdElement().getIdPart(), originalTask);
+                        }
                     }
                 }
-                if (originalTasksById.size() <= 0) {
-                    return;
-                }
 
-                List<Task> receivedTasks = new ArrayList<>();
-                List<Task> acceptedTasks = new ArrayList<>();
-                List<Task> rejectedTasks = new ArrayList<>();
                 for (Entry<String, Task> taskEntry : originalTasksById.entrySet()) {
                     Optional<Task> task = fhirPersistanceService.getTaskBasedOnTask(taskEntry.getKey());
                     if (task.isPresent()) {
                         LogEvent.logTrace(FhirApiWorkFlowServiceImpl.class.getName(), "beginTaskCheckIfAcceptedPath",
-                                "task " + task.get().getIdElement().getIdPart() + " has been detected as "
-                                        + task.get().getStatus());
+                                "task {} has been detected as {}", task.get().getIdElement().getIdPart(),
+                                task.get().getStatus());
                         LogEvent.logTrace(FhirApiWorkFlowServiceImpl.class.getName(), "beginTaskCheckIfAcceptedPath",
-                                "changing task " + taskEntry.getKey() + " to " + task.get().getStatus());
-                        if (TaskStatus.RECEIVED.equals(task.get().getStatus())) {
-                            Task taskBasedOnOrginalTask = task.get();
-                            Task originalTask = taskEntry.getValue();
-                            originalTask.setStatus(TaskStatus.RECEIVED);
-                            updateResources.put(originalTask.getIdElement().getIdPart(), originalTask);
-                            receivedTasks.add(originalTasksById.get(
-                                    taskBasedOnOrginalTask.getBasedOnFirstRep().getReferenceElement().getIdPart()));
-                        }
-                        if (TaskStatus.ACCEPTED.equals(task.get().getStatus())) {
-                            Task taskBasedOnOrginalTask = task.get();
+                                "changing task {} to {}", taskEntry.getKey(), task.get().getStatus());
+                        TaskStatus status = task.get().getStatus();
+                        if (TaskStatus.RECEIVED.equals(status) || TaskStatus.ACCEPTED.equals(status)
+                                || TaskStatus.REJECTED.equals(status)) {
                             Task originalTask = taskEntry.getValue();
-                            originalTask.setStatus(TaskStatus.ACCEPTED);
+                            originalTask.setStatus(status);
                             updateResources.put(originalTask.getIdElement().getIdPart(), originalTask);
-                            acceptedTasks.add(originalTasksById.get(
-                                    taskBasedOnOrginalTask.getBasedOnFirstRep().getReferenceElement().getIdPart()));
-                        }
-                        if (TaskStatus.REJECTED.equals(task.get().getStatus())) {
-                            Task taskBasedOnOrginalTask = task.get();
-                            Task originalTask = taskEntry.getValue();
-                            originalTask.setStatus(TaskStatus.REJECTED);
-                            updateResources.put(originalTask.getIdElement().getIdPart(), originalTask);
-                            rejectedTasks.add(originalTasksById.get(
-                                    taskBasedOnOrginalTask.getBasedOnFirstRep().getReferenceElement().getIdPart()));
                         }
                     }
                 }
             } catch (RuntimeException e) {
-                LogEvent.logError("could not check/update state of referral with UUID: " + referralTaskUuid, e);
+                LogEvent.logError("could not check/update state of referrals with UUIDs: " + batchTaskIds, e);
             }
         }
 
         fhirPersistanceService.updateFhirResourcesInFhirStore(updateResources);
     }
 
-    private void beginTaskImportResultsPath(String remoteStorePath) {
-        if (fhirConfig.getRemoteStoreIdentifier().isEmpty()) {
-            return;
-        }
+    /*
+     * A referral seen accepted by a full search only needs its results searched for
+     * from the last poll on. Until then every result completed before it was
+     * accepted is searched for, as one completed before the checkpoint would be
+     * missed. Referrals given their results are no longer sent, so drop out.
+     */
+    private void beginTaskImportResultsPath(String remoteStorePath, List<String> referralTaskIds) {
+        Date pollStart = new Date();
+        Date since = checkpoint().getResultsSince(remoteStorePath);
+        Set<String> previouslyAccepted = since == null ? new HashSet<>()
+                : new HashSet<>(checkpoint().getAcceptedReferrals(remoteStorePath));
+        previouslyAccepted.retainAll(referralTaskIds);
+        List<String> notYetAccepted = new ArrayList<>(referralTaskIds);
+        notYetAccepted.removeAll(previouslyAccepted);
 
         IGenericClient sourceFhirClient = fhirUtil.getFhirClient(remoteStorePath);
-        // IQuery<Bundle> searchQuery = sourceFhirClient.search()//
-        // .forResource(Task.class)//
-        // .returnBundle(Bundle.class)//
-        // .include(Task.INCLUDE_BASED_ON) // serviceRequest
-        // .where(Task.STATUS.exactly().code(TaskStatus.ACCEPTED.toCode()))//
-        // .where(Task.REQUESTER.hasAnyOfIds(remoteStoreIdentifier));
-        for (UUID referralTaskUuid : referralService.getSentReferralUuids()) {
-            LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportResultsPath",
-                    "searching for results for Task ID " + referralTaskUuid);
-            try {
-                IQuery<Bundle> searchQuery = sourceFhirClient.search() //
-                        .forResource(Task.class) //
-                        .returnBundle(Bundle.class) //
-                        .include(Task.INCLUDE_BASED_ON) // serviceRequest
-                        .include(ServiceRequest.INCLUDE_REQUESTER.asRecursive()) // serviceRequest
-                        .where(Task.STATUS.exactly().code(TaskStatus.ACCEPTED.toCode())) //
-                        .where(Task.RES_ID.exactly().identifier(referralTaskUuid.toString()));
-                Bundle originalTasksBundle = searchQuery.execute();
-                if (originalTasksBundle.hasEntry()) {
-                    LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportResultsPath",
-                            "received bundle with " + originalTasksBundle.getEntry().size() + " entries for Task ID "
-                                    + referralTaskUuid);
-                } else {
-                    LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportResultsPath",
-                            "received bundle with 0 entries for Task ID " + referralTaskUuid);
-                }
-                Map<String, OriginalReferralObjects> originalReferralObjectsByServiceRequest = new HashMap<>();
+        Set<String> accepted = new HashSet<>(previouslyAccepted);
+        boolean allImported = true;
+        for (List<String> batchTaskIds : inBatches(new ArrayList<>(previouslyAccepted))) {
+            allImported &= importReferralResults(sourceFhirClient, batchTaskIds, since, new HashSet<>());
+        }
+        for (List<String> batchTaskIds : inBatches(notYetAccepted)) {
+            allImported &= importReferralResults(sourceFhirClient, batchTaskIds, null, accepted);
+        }
+        if (allImported) {
+            checkpoint().resultsPolled(remoteStorePath, overlapped(pollStart), accepted);
+        }
+    }
+
+    /**
+     * @param since         when not null only results updated since then are
+     *                      imported
+     * @param acceptedTasks collects the ids of the referrals found accepted
+     * @return false when the results could not all be imported
+     */
+    private boolean importReferralResults(IGenericClient sourceFhirClient, List<String> referralTaskIds, Date since,
+            Set<String> acceptedTasks) {
+        LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportResultsPath",
+                "searching for results for Task IDs {}", referralTaskIds);
+        try {
+            IQuery<Bundle> searchQuery = sourceFhirClient.search() //
+                    .forResource(Task.class) //
+                    .returnBundle(Bundle.class) //
+                    .include(Task.INCLUDE_BASED_ON) // serviceRequest
+                    .include(ServiceRequest.INCLUDE_REQUESTER.asRecursive()) // serviceRequest
+                    .where(Task.STATUS.exactly().code(TaskStatus.ACCEPTED.toCode())) //
+                    .where(Task.RES_ID.exactly().codes(referralTaskIds));
+            Map<String, OriginalReferralObjects> originalReferralObjectsByServiceRequest = new HashMap<>();
+            for (Bundle originalTasksBundle : searchAllPages(sourceFhirClient, searchQuery)) {
+                LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportResultsPath",
+                        "received bundle with {} entries", originalTasksBundle.getEntry().size());
                 for (BundleEntryComponent bundleEntry : originalTasksBundle.getEntry()) {
                     if (bundleEntry.hasResource()) {
+                        if (bundleEntry.getResource().getResourceType().equals(ResourceType.Task)) {
+                            acceptedTasks.add(bundleEntry.getResource().getIdElement().getIdPart());
+                        }
                         try {
                             addOriginalReferralObject(bundleEntry, originalReferralObjectsByServiceRequest);
                         } catch (RuntimeException e) {
@@ -246,48 +312,50 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
                         }
                     }
                 }
-                if (originalReferralObjectsByServiceRequest.size() > 0) {
-                    searchQuery = sourceFhirClient.search() //
-                            .forResource(ServiceRequest.class) //
-                            .returnBundle(Bundle.class) //
-                            // .revInclude(Task.INCLUDE_BASED_ON)//
-                            // .include(ServiceRequest.INCLUDE_SPECIMEN) // specimen
-                            .revInclude(Observation.INCLUDE_BASED_ON.asRecursive()) //
-                            .revInclude(DiagnosticReport.INCLUDE_BASED_ON.asRecursive()) //
-                            .where(ServiceRequest.STATUS.exactly().code(ServiceRequestStatus.COMPLETED.toCode()))
-                            .where(ServiceRequest.BASED_ON
-                                    .hasAnyOfIds(originalReferralObjectsByServiceRequest.keySet()));
-                    originalTasksBundle = searchQuery.execute();
-                    Map<String, ReferralResultsImportObjects> resultImportByServiceRequest = new HashMap<>();
-                    for (BundleEntryComponent bundleEntry : originalTasksBundle.getEntry()) {
+            }
+            if (originalReferralObjectsByServiceRequest.size() > 0) {
+                searchQuery = sourceFhirClient.search() //
+                        .forResource(ServiceRequest.class) //
+                        .returnBundle(Bundle.class) //
+                        .revInclude(Observation.INCLUDE_BASED_ON.asRecursive()) //
+                        .revInclude(DiagnosticReport.INCLUDE_BASED_ON.asRecursive()) //
+                        .where(ServiceRequest.STATUS.exactly().code(ServiceRequestStatus.COMPLETED.toCode()))
+                        .where(ServiceRequest.BASED_ON.hasAnyOfIds(originalReferralObjectsByServiceRequest.keySet()));
+                if (since != null) {
+                    searchQuery = searchQuery.lastUpdated(new DateRangeParam(since, null));
+                }
+                Map<String, ReferralResultsImportObjects> resultImportByServiceRequest = new HashMap<>();
+                boolean allImported = true;
+                for (Bundle resultsBundle : searchAllPages(sourceFhirClient, searchQuery)) {
+                    for (BundleEntryComponent bundleEntry : resultsBundle.getEntry()) {
                         if (bundleEntry.hasResource()) {
                             try {
                                 addResultImportObject(bundleEntry, resultImportByServiceRequest,
                                         originalReferralObjectsByServiceRequest);
                             } catch (RuntimeException e) {
-                                LogEvent.logError(e);
                                 LogEvent.logError("could not import result for: " + bundleEntry.getResource().getId(),
                                         e);
                             }
                         }
                     }
+                }
 
-                    for (Entry<String, ReferralResultsImportObjects> resultsImportEntry : resultImportByServiceRequest
-                            .entrySet()) {
-                        try {
-                            fhirReferralService.setReferralResult(resultsImportEntry.getValue());
-                        } catch (RuntimeException e) {
-                            LogEvent.logError(e);
-                            LogEvent.logError(
-                                    "could not import result for ServiceRequest: " + resultsImportEntry.getKey(), e);
-                        }
+                for (Entry<String, ReferralResultsImportObjects> resultsImportEntry : resultImportByServiceRequest
+                        .entrySet()) {
+                    try {
+                        fhirReferralService.setReferralResult(resultsImportEntry.getValue());
+                    } catch (RuntimeException e) {
+                        LogEvent.logError(
+                                "could not import result for ServiceRequest: " + resultsImportEntry.getKey(), e);
+                        allImported = false;
                     }
                 }
-
-            } catch (RuntimeException e) {
-                LogEvent.logError(e);
-                LogEvent.logError("could not import result for referral with UUID: " + referralTaskUuid, e);
+                return allImported;
             }
+            return true;
+        } catch (RuntimeException e) {
+            LogEvent.logError("could not import result for referrals with UUIDs: " + referralTaskIds, e);
+            return false;
         }
     }
 
@@ -365,54 +433,48 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
         }
     }
 
-    private void beginTaskImportOrderPath(String remoteStorePath) {
-        if (fhirConfig.getRemoteStoreIdentifier().isEmpty()) {
-            return;
-        }
-
-        List<Bundle> importBundles = new ArrayList<>();
-        LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportOrderPath", "searching for Tasks");
+    /*
+     * everything the Tasks reference is included in the search, except the Location
+     * which Task has no search parameter for, so importing a Task does not read each
+     * of them from the store. Only Tasks updated since the last poll are searched for.
+     */
+    private void beginTaskImportOrderPath(String remoteStorePath, List<String> remoteStoreIdentifier) {
+        Date pollStart = new Date();
+        Date since = checkpoint().getOrdersSince(remoteStorePath);
+        LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportOrderPath",
+                "searching for Tasks updated since {}", since);
         IGenericClient sourceFhirClient = fhirUtil.getFhirClient(remoteStorePath);
         IQuery<Bundle> searchQuery = sourceFhirClient.search() //
                 .forResource(Task.class) //
                 .returnBundle(Bundle.class) //
-                // TODO use include
-                // .include(Task.INCLUDE_PATIENT)//
-                // .include(Task.INCLUDE_BASED_ON)//
+                .include(Task.INCLUDE_BASED_ON) //
+                .include(Task.INCLUDE_PATIENT) //
+                .include(Task.INCLUDE_REQUESTER) //
+                .include(ServiceRequest.INCLUDE_SPECIMEN.asRecursive()) //
+                .include(ServiceRequest.INCLUDE_REQUESTER.asRecursive()) //
+                .include(ServiceRequest.INCLUDE_SUBJECT.asRecursive()) //
+                .revInclude(QuestionnaireResponse.INCLUDE_BASED_ON.asRecursive()) //
                 .where(Task.STATUS.exactly().code(TaskStatus.REQUESTED.toCode())) //
-                .where(Task.OWNER.hasAnyOfIds(fhirConfig.getRemoteStoreIdentifier()));
-        Bundle importBundle = searchQuery.execute();
-        importBundles.add(importBundle);
-        if (importBundle.hasEntry()) {
-            LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportOrderPath",
-                    "received bundle with " + importBundle.getEntry().size() + " entries");
-        } else {
-            LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportOrderPath",
-                    "received bundle with 0 entries");
-        }
-
-        while (importBundle.getLink(IBaseBundle.LINK_NEXT) != null) {
-            LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportOrderPath", "following next link");
-            importBundle = sourceFhirClient.loadPage().next(importBundle).execute();
-            importBundles.add(importBundle);
-            if (importBundle.hasEntry()) {
-                LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportOrderPath",
-                        "received bundle with " + importBundle.getEntry().size() + " entries");
-            } else {
-                LogEvent.logTrace(this.getClass().getSimpleName(), "beginTaskImportOrderPath",
-                        "received bundle with 0 entries");
-            }
+                .where(Task.OWNER.hasAnyOfIds(remoteStoreIdentifier));
+        if (since != null) {
+            searchQuery = searchQuery.lastUpdated(new DateRangeParam(since, null));
         }
+        List<Bundle> importBundles = searchAllPages(sourceFhirClient, searchQuery);
+        RemoteResources included = new RemoteResources(true);
+        importBundles.forEach(included::addAll);
 
+        boolean allImported = true;
         for (Bundle bundle : importBundles) {
             for (BundleEntryComponent bundleComponent : bundle.getEntry()) {
                 if (bundleComponent.hasResource()
-                        && ResourceType.Task.equals(bundleComponent.getResource().getResourceType())) {
+                        && ResourceType.Task.equals(bundleComponent.getResource().getResourceType())
+                        && !SearchEntryMode.INCLUDE.equals(bundleComponent.getSearch().getMode())) {
 
                     Task remoteTask = (Task) bundleComponent.getResource();
                     try {
-                        processTaskImportOrder(remoteTask, remoteStorePath, sourceFhirClient, bundle);
+                        processTaskImportOrder(remoteTask, remoteStorePath, sourceFhirClient, included);
                     } catch (RuntimeException | FhirLocalPersistingException e) {
+                        allImported = false;
                         LogEvent.logError(e);
                         LogEvent.logError(this.getClass().getSimpleName(), "beginTaskImportOrderPath",
                                 "could not process Task with identifier : " + remoteTask.getId());
@@ -420,18 +482,68 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
                 }
             }
         }
+        // a Task that could not be imported is searched for again until it is
+        if (allImported) {
+            checkpoint().ordersPolled(remoteStorePath, overlapped(pollStart));
+        }
+    }
+
+    private List<Bundle> searchAllPages(IGenericClient fhirClient, IQuery<Bundle> searchQuery) {
+        List<Bundle> bundles = new ArrayList<>();
+        Bundle bundle = searchQuery.execute();
+        bundles.add(bundle);
+        while (bundle.getLink(IBaseBundle.LINK_NEXT) != null) {
+            LogEvent.logTrace(this.getClass().getSimpleName(), "searchAllPages", "following next link");
+            bundle = fhirClient.loadPage().next(bundle).execute();
+            bundles.add(bundle);
+        }
+        return bundles;
+    }
+
+    private List<List<String>> inBatches(List<String> ids) {
+        List<List<String>> batches = new ArrayList<>();
+        int batchSize = Math.max(1, idsPerSearch);
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            batches.add(ids.subList(i, Math.min(ids.size(), i + batchSize)));
+        }
+        return batches;
+    }
+
+    // resources updated while a poll runs may carry an earlier time, or be indexed late
+    private Date overlapped(Date pollStart) {
+        return new Date(pollStart.getTime() - overlapSeconds * 1000L);
+    }
+
+    private synchronized RemotePollCheckpoint checkpoint() {
+        if (checkpoint == null) {
+            checkpoint = RemotePollCheckpoint.load(Paths.get(checkpointFile));
+        }
+        return checkpoint;
+    }
+
+    /*
+     * the remote resource the search included, or read from the store when it was
+     * not
+     */
+    private <T extends Resource> T readRemote(IGenericClient fhirClient, RemoteResources included, Class<T> type,
+            String id) {
+        T resource = included.get(type, id);
+        if (resource == null) {
+            resource = fhirClient.read().resource(type).withId(id).execute();
+        }
+        return resource;
     }
 
     private void processTaskImportOrder(Task remoteTask, String remoteStorePath, IGenericClient sourceFhirClient,
-            Bundle bundle) throws FhirLocalPersistingException {
+            RemoteResources included) throws FhirLocalPersistingException {
         // TODO use fhirPersistenceService
         // should contain the Patient, the ServiceRequest, and the Task
-        OriginalReferralObjects localObjects = saveRemoteTaskAsLocalTask(sourceFhirClient, remoteTask, bundle,
+        OriginalReferralObjects localObjects = saveRemoteTaskAsLocalTask(sourceFhirClient, remoteTask, included,
                 remoteStorePath);
 
         Task taskBasedOnRemoteTask = getLocalTaskBasedOnTask(remoteTask, remoteStorePath);
         if (taskBasedOnRemoteTask == null) {
-            taskBasedOnRemoteTask = saveTaskBasedOnRemoteTask(sourceFhirClient, remoteTask, bundle, remoteStorePath);
+            taskBasedOnRemoteTask = saveTaskBasedOnRemoteTask(sourceFhirClient, remoteTask, remoteStorePath);
         }
 
         List<ServiceRequest> serviceRequestList = localObjects.serviceRequests;
@@ -488,8 +600,7 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
         return (Task) localBundle.getEntryFirstRep().getResource();
     }
 
-    private Task saveTaskBasedOnRemoteTask(IGenericClient fhirClient, Task remoteTask, Bundle bundle,
-            String remoteStorePath) {
+    private Task saveTaskBasedOnRemoteTask(IGenericClient fhirClient, Task remoteTask, String remoteStorePath) {
         Task taskBasedOnRemoteTask = new Task();
         taskBasedOnRemoteTask.setId(UUID.randomUUID().toString());
         Reference reference = new Reference();
@@ -512,19 +623,20 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
     }
 
     private OriginalReferralObjects saveRemoteTaskAsLocalTask(IGenericClient sourceFhirClient, Task remoteTask,
-            Bundle bundle, String remoteStorePath) throws FhirLocalPersistingException {
+            RemoteResources included, String remoteStorePath) throws FhirLocalPersistingException {
         FhirOperations fhirOperations = new FhirOperations();
         OriginalReferralObjects objects = new OriginalReferralObjects();
 
-        List<ServiceRequest> remoteServiceRequests = getBasedOnServiceRequestsFromServer(sourceFhirClient, remoteTask);
+        List<ServiceRequest> remoteServiceRequests = getBasedOnServiceRequestsFromServer(sourceFhirClient, included,
+                remoteTask);
         List<QuestionnaireResponse> remoteQResponses = getQuestionnaireResponsesForServiceRequestsFromServer(
-                sourceFhirClient, remoteServiceRequests);
-        List<Specimen> remoteSpecimens = getSpecimenForServiceRequestsFromServer(sourceFhirClient,
+                sourceFhirClient, included, remoteServiceRequests);
+        List<Specimen> remoteSpecimens = getSpecimenForServiceRequestsFromServer(sourceFhirClient, included,
                 remoteServiceRequests);
-        List<Practitioner> remoteRequesters = getRequestorsForServiceRequestsFromServer(sourceFhirClient,
+        List<Practitioner> remoteRequesters = getRequestorsForServiceRequestsFromServer(sourceFhirClient, included,
                 remoteServiceRequests);
-        Patient remotePatientForTask = getForPatientFromServer(sourceFhirClient, remoteTask);
-        Location remoteTaskLocation = getTaskLocationFromServer(sourceFhirClient, remoteTask);
+        Patient remotePatientForTask = getForPatientFromServer(sourceFhirClient, included, remoteTask);
+        Location remoteTaskLocation = getTaskLocationFromServer(sourceFhirClient, included, remoteTask);
         if (remoteTaskLocation != null) {
             Organization localOrganization = organizationService
                     .getOrganizationByFhirId(remoteTaskLocation.getIdElement().getIdPart());
@@ -542,9 +654,9 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
             }
         }
         if (remotePatientForTask == null) {
-            remotePatientForTask = getForPatientFromServer(sourceFhirClient, remoteServiceRequests);
+            remotePatientForTask = getForPatientFromServer(sourceFhirClient, included, remoteServiceRequests);
         }
-        Practitioner remotePractitionerForTask = getPractitionerFromServer(sourceFhirClient, remoteTask);
+        Practitioner remotePractitionerForTask = getPractitionerFromServer(sourceFhirClient, included, remoteTask);
         String originalRemoteTaskId = remoteTask.getIdElement().getIdPart();
         Optional<Task> existingLocalTask = getTaskWithSameIdentifier(remoteTask, remoteStorePath);
         if (existingLocalTask.isEmpty()) {
@@ -730,9 +842,14 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
     }
 
     private List<QuestionnaireResponse> getQuestionnaireResponsesForServiceRequestsFromServer(IGenericClient fhirClient,
-            List<ServiceRequest> remoteServiceRequests) {
+            RemoteResources included, List<ServiceRequest> remoteServiceRequests) {
         List<QuestionnaireResponse> questionnaireResponses = new ArrayList<>();
         for (ServiceRequest serviceRequest : remoteServiceRequests) {
+            if (included.hasQuestionnaireResponses()) {
+                questionnaireResponses
+                        .addAll(included.getQuestionnaireResponsesBasedOn(serviceRequest.getIdElement().getIdPart()));
+                continue;
+            }
             Bundle searchBundle = fhirClient.search() //
                     .forResource(QuestionnaireResponse.class) //
                     .where(QuestionnaireResponse.BASED_ON
@@ -749,36 +866,37 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
     }
 
     private List<Specimen> getSpecimenForServiceRequestsFromServer(IGenericClient fhirClient,
-            List<ServiceRequest> remoteServiceRequests) {
+            RemoteResources included, List<ServiceRequest> remoteServiceRequests) {
         List<Specimen> specimens = new ArrayList<>();
         for (ServiceRequest serviceRequest : remoteServiceRequests) {
             for (Reference specimenReference : serviceRequest.getSpecimen()) {
-                specimens.add(fhirClient.read().resource(Specimen.class)
-                        .withId(specimenReference.getReferenceElement().getIdPart()).execute());
+                specimens.add(readRemote(fhirClient, included, Specimen.class,
+                        specimenReference.getReferenceElement().getIdPart()));
             }
         }
         return specimens;
     }
 
     private List<Practitioner> getRequestorsForServiceRequestsFromServer(IGenericClient fhirClient,
-            List<ServiceRequest> remoteServiceRequests) {
+            RemoteResources included, List<ServiceRequest> remoteServiceRequests) {
         List<Practitioner> specimens = new ArrayList<>();
         for (ServiceRequest serviceRequest : remoteServiceRequests) {
             if (!GenericValidator.isBlankOrNull(serviceRequest.getRequester().getReferenceElement().getIdPart())
                     && serviceRequest.getRequester().getReference().contains(ResourceType.Practitioner.toString())) {
                 Reference requesterReference = serviceRequest.getRequester();
-                specimens.add(fhirClient.read().resource(Practitioner.class)
-                        .withId(requesterReference.getReferenceElement().getIdPart()).execute());
+                specimens.add(readRemote(fhirClient, included, Practitioner.class,
+                        requesterReference.getReferenceElement().getIdPart()));
             }
         }
         return specimens;
     }
 
-    private Patient getForPatientFromServer(IGenericClient fhirClient, List<ServiceRequest> serviceRequests) {
+    private Patient getForPatientFromServer(IGenericClient fhirClient, RemoteResources included,
+            List<ServiceRequest> serviceRequests) {
         for (ServiceRequest serviceRequest : serviceRequests) {
             if (serviceRequest.getSubject() != null && serviceRequest.getSubject().getReference() != null) {
-                return fhirClient.read().resource(Patient.class)
-                        .withId(serviceRequest.getSubject().getReferenceElement().getIdPart()).execute();
+                return readRemote(fhirClient, included, Patient.class,
+                        serviceRequest.getSubject().getReferenceElement().getIdPart());
             }
         }
         return null;
@@ -874,20 +992,21 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
         return Optional.empty();
     }
 
-    private List<ServiceRequest> getBasedOnServiceRequestsFromServer(IGenericClient fhirClient, Task remoteTask) {
+    private List<ServiceRequest> getBasedOnServiceRequestsFromServer(IGenericClient fhirClient,
+            RemoteResources included, Task remoteTask) {
         List<ServiceRequest> basedOn = new ArrayList<>();
         for (Reference basedOnElement : remoteTask.getBasedOn()) {
-            basedOn.add(fhirClient.read().resource(ServiceRequest.class)
-                    .withId(basedOnElement.getReferenceElement().getIdPart()).execute());
+            basedOn.add(readRemote(fhirClient, included, ServiceRequest.class,
+                    basedOnElement.getReferenceElement().getIdPart()));
         }
         return basedOn;
     }
 
-    private Patient getForPatientFromServer(IGenericClient fhirClient, Task remoteTask) {
+    private Patient getForPatientFromServer(IGenericClient fhirClient, RemoteResources included, Task remoteTask) {
         Patient forPatient = null;
         if (!(remoteTask.getFor() == null || remoteTask.getFor().getReference() == null)) {
-            forPatient = fhirClient.read().resource(Patient.class)
-                    .withId(remoteTask.getFor().getReferenceElement().getIdPart()).execute();
+            forPatient = readRemote(fhirClient, included, Patient.class,
+                    remoteTask.getFor().getReferenceElement().getIdPart());
         }
 
         if (forPatient == null) {
@@ -897,11 +1016,11 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
         return forPatient;
     }
 
-    private Location getTaskLocationFromServer(IGenericClient fhirClient, Task remoteTask) {
+    private Location getTaskLocationFromServer(IGenericClient fhirClient, RemoteResources included, Task remoteTask) {
         Location taskLocation = null;
         if (!(remoteTask.getLocation() == null || remoteTask.getLocation().getReference() == null)) {
-            taskLocation = fhirClient.read().resource(Location.class)
-                    .withId(remoteTask.getLocation().getReferenceElement().getIdPart()).execute();
+            taskLocation = readRemote(fhirClient, included, Location.class,
+                    remoteTask.getLocation().getReferenceElement().getIdPart());
         }
 
         if (taskLocation == null) {
@@ -911,12 +1030,13 @@ public class FhirApiWorkFlowServiceImpl implements FhirApiWorkflowService {
         return taskLocation;
     }
 
-    private Practitioner getPractitionerFromServer(IGenericClient fhirClient, Task remoteTask) {
+    private Practitioner getPractitionerFromServer(IGenericClient fhirClient, RemoteResources included,
+            Task remoteTask) {
         Practitioner practitioner = null;
         if (!GenericValidator.isBlankOrNull(remoteTask.getRequester().getReferenceElement().getIdPart())
                 && remoteTask.getRequester().getReference().contains(ResourceType.Practitioner.toString())) {
-            practitioner = fhirClient.read().resource(Practitioner.class)
-                    .withId(remoteTask.getRequester().getReferenceElement().getIdPart()).execute();
+            practitioner = readRemote(fhirClient, included, Practitioner.class,
+                    remoteTask.getRequester().getReferenceElement().getIdPart());
         }
 
         if (practitioner == null) {
@@ -0,0 +1,219 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openelisglobal.common.util.CheckpointFileUtil;
+
+/**
+ * The progress of a FHIR backfill. It is saved as a checkpoint after every batch
+ * so a backfill cut short by a restart carries on after the last batch that was
+ * persisted. Batches are checkpointed in id order, so every id up to the last
+ * one of a phase has been sent.
+ */
+public class FhirBackfillProgress {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    public enum Phase {
+        PATIENTS, SAMPLES, DONE
+    }
+
+    private final boolean checkAll;
+    private final boolean patientsOnly;
+    private final int batchSize;
+    private final int threads;
+    private volatile Status status = Status.RUNNING;
+    private volatile Phase phase = Phase.PATIENTS;
+    private volatile String lastPatientId = "0";
+    private volatile String lastSampleId = "0";
+    private final AtomicLong patientsProcessed = new AtomicLong();
+    private final AtomicLong samplesProcessed = new AtomicLong();
+    private final AtomicLong resourcesPersisted = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchFailures = new AtomicLong();
+    private volatile String error;
+    // throughput is measured over the current run, not the checkpointed totals
+    private volatile long runStartedAt;
+    private final AtomicLong resourcesPersistedThisRun = new AtomicLong();
+    private volatile long finishedAt;
+
+    public FhirBackfillProgress(boolean checkAll, boolean patientsOnly, int batchSize, int threads) {
+        this.checkAll = checkAll;
+        this.patientsOnly = patientsOnly;
+        this.batchSize = batchSize;
+        this.threads = threads;
+        runStartedAt = System.currentTimeMillis();
+    }
+
+    String getLastId(Phase phase) {
+        return phase == Phase.PATIENTS ? lastPatientId : lastSampleId;
+    }
+
+    void batchPersisted(Phase phase, String lastId, int objects, int resources) {
+        if (phase == Phase.PATIENTS) {
+            lastPatientId = lastId;
+            patientsProcessed.addAndGet(objects);
+        } else {
+            lastSampleId = lastId;
+            samplesProcessed.addAndGet(objects);
+        }
+        batches.incrementAndGet();
+        resourcesPersisted.addAndGet(resources);
+        resourcesPersistedThisRun.addAndGet(resources);
+    }
+
+    /*
+     * a failed batch is skipped, its objects are picked up again by the next run
+     * which only looks for objects without a FHIR uuid
+     */
+    void batchFailed(Phase phase, String lastId) {
+        if (phase == Phase.PATIENTS) {
+            lastPatientId = lastId;
+        } else {
+            lastSampleId = lastId;
+        }
+        batches.incrementAndGet();
+        batchFailures.incrementAndGet();
+    }
+
+    void nextPhase() {
+        phase = phase == Phase.PATIENTS && !patientsOnly ? Phase.SAMPLES : Phase.DONE;
+    }
+
+    void completed() {
+        phase = Phase.DONE;
+        status = Status.COMPLETED;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    void failed(Throwable cause) {
+        status = Status.FAILED;
+        error = cause.toString();
+        finishedAt = System.currentTimeMillis();
+    }
+
+    void restarted() {
+        status = Status.RUNNING;
+        error = null;
+        finishedAt = 0;
+        runStartedAt = System.currentTimeMillis();
+        resourcesPersistedThisRun.set(0);
+    }
+
+    public boolean isCheckAll() {
+        return checkAll;
+    }
+
+    public boolean isPatientsOnly() {
+        return patientsOnly;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public String getLastPatientId() {
+        return lastPatientId;
+    }
+
+    public String getLastSampleId() {
+        return lastSampleId;
+    }
+
+    public long getPatientsProcessed() {
+        return patientsProcessed.get();
+    }
+
+    public long getSamplesProcessed() {
+        return samplesProcessed.get();
+    }
+
+    public long getResourcesPersisted() {
+        return resourcesPersisted.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getBatchFailures() {
+        return batchFailures.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getRunStartedAt() {
+        return runStartedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public double getResourcesPerSecond() {
+        long end = finishedAt == 0 ? System.currentTimeMillis() : finishedAt;
+        long elapsed = Math.max(1, end - runStartedAt);
+        return resourcesPersistedThisRun.get() * 1000.0 / elapsed;
+    }
+
+    void save(Path checkpoint) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("checkAll", Boolean.toString(checkAll));
+        properties.setProperty("patientsOnly", Boolean.toString(patientsOnly));
+        properties.setProperty("batchSize", Integer.toString(batchSize));
+        properties.setProperty("threads", Integer.toString(threads));
+        properties.setProperty("status", status.name());
+        properties.setProperty("phase", phase.name());
+        properties.setProperty("lastPatientId", lastPatientId);
+        properties.setProperty("lastSampleId", lastSampleId);
+        properties.setProperty("patientsProcessed", Long.toString(patientsProcessed.get()));
+        properties.setProperty("samplesProcessed", Long.toString(samplesProcessed.get()));
+        properties.setProperty("resourcesPersisted", Long.toString(resourcesPersisted.get()));
+        properties.setProperty("batches", Long.toString(batches.get()));
+        properties.setProperty("batchFailures", Long.toString(batchFailures.get()));
+        CheckpointFileUtil.store(properties, checkpoint, "FHIR backfill checkpoint");
+    }
+
+    /**
+     * @return the progress saved in the checkpoint, null if there is none
+     */
+    static FhirBackfillProgress load(Path checkpoint) throws IOException {
+        Properties properties = CheckpointFileUtil.load(checkpoint);
+        if (properties == null) {
+            return null;
+        }
+        FhirBackfillProgress progress = new FhirBackfillProgress(
+                Boolean.parseBoolean(properties.getProperty("checkAll")),
+                Boolean.parseBoolean(properties.getProperty("patientsOnly")),
+                Integer.parseInt(properties.getProperty("batchSize")),
+                Integer.parseInt(properties.getProperty("threads")));
+        progress.status = Status.valueOf(properties.getProperty("status"));
+        progress.phase = Phase.valueOf(properties.getProperty("phase"));
+        progress.lastPatientId = properties.getProperty("lastPatientId");
+        progress.lastSampleId = properties.getProperty("lastSampleId");
+        progress.patientsProcessed.set(Long.parseLong(properties.getProperty("patientsProcessed")));
+        progress.samplesProcessed.set(Long.parseLong(properties.getProperty("samplesProcessed")));
+        progress.resourcesPersisted.set(Long.parseLong(properties.getProperty("resourcesPersisted")));
+        progress.batches.set(Long.parseLong(properties.getProperty("batches")));
+        progress.batchFailures.set(Long.parseLong(properties.getProperty("batchFailures")));
+        return progress;
+    }
+}
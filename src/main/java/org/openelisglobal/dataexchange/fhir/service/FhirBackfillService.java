@@ -0,0 +1,41 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+/**
+ * Transforms existing OpenELIS patients and samples into FHIR resources and
+ * persists them in the FHIR store, in the background and one backfill at a time.
+ */
+public interface FhirBackfillService {
+
+    /**
+     * @param checkAll when false only objects which have no FHIR uuid yet are sent
+     * @throws IllegalStateException if a backfill is already running
+     */
+    FhirBackfillProgress start(boolean checkAll, int batchSize, int threads);
+
+    /**
+     * Sends the patients with a sample only
+     *
+     * @throws IllegalStateException if a backfill is already running
+     */
+    FhirBackfillProgress startPatients(boolean checkAll, int batchSize, int threads);
+
+    /**
+     * Carries on with a backfill which failed or was cut short by a restart from
+     * its checkpoint
+     *
+     * @throws IllegalStateException if a backfill is running or there is nothing
+     *                               to resume
+     */
+    FhirBackfillProgress resume();
+
+    /**
+     * Resumes an interrupted backfill, otherwise starts one for the objects without
+     * a FHIR uuid
+     */
+    FhirBackfillProgress resumeOrStartMissing(int batchSize, int threads);
+
+    /**
+     * @return the running backfill, or the last one if none is running
+     */
+    FhirBackfillProgress getProgress();
+}
@@ -0,0 +1,259 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.hl7.fhir.r4.model.Bundle;
+import org.itech.fhir.dataexport.api.service.DataExportService;
+import org.itech.fhir.dataexport.core.model.DataExportTask;
+import org.itech.fhir.dataexport.core.service.DataExportTaskService;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.dataexchange.fhir.exception.FhirPersistanceException;
+import org.openelisglobal.dataexchange.fhir.service.FhirBackfillProgress.Phase;
+import org.openelisglobal.dataexchange.fhir.service.FhirBackfillProgress.Status;
+import org.openelisglobal.sample.service.SampleService;
+import org.openelisglobal.samplehuman.service.SampleHumanService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Walks the patient and then the sample ids in id order, a batch at a time, so
+ * the ids are never all held in memory. Each batch is transformed and persisted
+ * on the FHIR executor with at most threads batches in flight. Batches are
+ * waited on oldest first and the checkpoint moves on after each one, so a
+ * restart carries on after the last batch which finished.
+ */
+@Service
+public class FhirBackfillServiceImpl implements FhirBackfillService {
+
+    // how often the throughput is logged while a backfill runs
+    private static final long LOG_INTERVAL_MILLIS = 60 * 1000L;
+
+    @Autowired
+    private SampleService sampleService;
+    @Autowired
+    private SampleHumanService sampleHumanService;
+    @Autowired
+    private FhirTransformService fhirTransformService;
+    @Autowired
+    private DataExportService dataExportService;
+    @Autowired
+    private DataExportTaskService dataExportTaskService;
+    // the run waits on the batches it hands to the FHIR executor so it is kept
+    // off that executor
+    @Autowired
+    @Qualifier(AsyncConfig.JOB_EXECUTOR)
+    private InstrumentedTaskExecutor jobExecutor;
+
+    @Value("${org.openelisglobal.fhir.backfill.checkpointFile:/var/lib/openelis-global/fhir/backfill-checkpoint.properties}")
+    private String checkpointFile;
+
+    private final Object lock = new Object();
+    private volatile FhirBackfillProgress progress;
+    private Future<?> worker;
+    private long lastLoggedAt;
+
+    @Override
+    public FhirBackfillProgress start(boolean checkAll, int batchSize, int threads) {
+        return start(new FhirBackfillProgress(checkAll, false, Math.max(1, batchSize), Math.max(1, threads)));
+    }
+
+    @Override
+    public FhirBackfillProgress startPatients(boolean checkAll, int batchSize, int threads) {
+        return start(new FhirBackfillProgress(checkAll, true, Math.max(1, batchSize), Math.max(1, threads)));
+    }
+
+    @Override
+    public FhirBackfillProgress resume() {
+        synchronized (lock) {
+            FhirBackfillProgress saved = progress != null ? progress : loadCheckpoint();
+            if (saved == null || saved.getStatus() == Status.COMPLETED) {
+                throw new IllegalStateException("there is no interrupted FHIR backfill to resume");
+            }
+            saved.restarted();
+            return start(saved);
+        }
+    }
+
+    @Override
+    public FhirBackfillProgress resumeOrStartMissing(int batchSize, int threads) {
+        synchronized (lock) {
+            FhirBackfillProgress saved = loadCheckpoint();
+            if (saved != null && saved.getStatus() == Status.RUNNING) {
+                LogEvent.logInfo(this.getClass().getSimpleName(), "resumeOrStartMissing",
+                        "resuming the FHIR backfill interrupted at patient " + saved.getLastPatientId()
+                                + ", sample " + saved.getLastSampleId());
+                saved.restarted();
+                return start(saved);
+            }
+            return start(false, batchSize, threads);
+        }
+    }
+
+    @Override
+    public FhirBackfillProgress getProgress() {
+        return progress;
+    }
+
+    private FhirBackfillProgress start(FhirBackfillProgress backfill) {
+        synchronized (lock) {
+            if (worker != null && !worker.isDone()) {
+                throw new IllegalStateException("a FHIR backfill is already running");
+            }
+            progress = backfill;
+            checkpoint(backfill);
+            worker = jobExecutor.submit(() -> run(backfill));
+            return backfill;
+        }
+    }
+
+    void run(FhirBackfillProgress backfill) {
+        lastLoggedAt = System.currentTimeMillis();
+        try {
+            while (backfill.getPhase() != Phase.DONE) {
+                runPhase(backfill, backfill.getPhase());
+                backfill.nextPhase();
+                checkpoint(backfill);
+            }
+            backfill.completed();
+            LogEvent.logInfo(this.getClass().getSimpleName(), "run",
+                    "FHIR backfill finished: " + describe(backfill));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            backfill.failed(e);
+        } catch (RuntimeException e) {
+            LogEvent.logError("the FHIR backfill failed", e);
+            backfill.failed(e);
+        } finally {
+            checkpoint(backfill);
+        }
+    }
+
+    private void runPhase(FhirBackfillProgress backfill, Phase phase) throws InterruptedException {
+        Deque<Batch> inFlight = new ArrayDeque<>();
+        String lastId = backfill.getLastId(phase);
+        while (true) {
+            List<String> ids = nextIds(backfill, phase, lastId);
+            if (ids.isEmpty()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+            inFlight.add(submit(phase, ids, lastId));
+            if (inFlight.size() >= backfill.getThreads()) {
+                finish(backfill, phase, inFlight.poll());
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            finish(backfill, phase, inFlight.poll());
+        }
+        runExportTasks();
+    }
+
+    private List<String> nextIds(FhirBackfillProgress backfill, Phase phase, String afterId) {
+        if (phase == Phase.PATIENTS) {
+            return sampleHumanService.getPatientIdsWithSampleEnteredAfter(afterId, backfill.getBatchSize(),
+                    !backfill.isCheckAll());
+        }
+        return sampleService.getSampleIdsAfter(afterId, backfill.getBatchSize(), !backfill.isCheckAll());
+    }
+
+    private Batch submit(Phase phase, List<String> ids, String lastId) {
+        try {
+            Future<Bundle> result = phase == Phase.PATIENTS ? fhirTransformService.transformPersistPatients(ids)
+                    : fhirTransformService.transformPersistObjectsUnderSamples(ids);
+            return new Batch(ids.size(), lastId, result, null);
+        } catch (FhirPersistanceException | RuntimeException e) {
+            return new Batch(ids.size(), lastId, null, e);
+        }
+    }
+
+    private void finish(FhirBackfillProgress backfill, Phase phase, Batch batch) throws InterruptedException {
+        try {
+            if (batch.failure != null) {
+                throw new ExecutionException(batch.failure);
+            }
+            Bundle response = batch.result.get();
+            backfill.batchPersisted(phase, batch.lastId, batch.size,
+                    response == null ? 0 : response.getEntry().size());
+        } catch (ExecutionException e) {
+            backfill.batchFailed(phase, batch.lastId);
+            LogEvent.logError("error persisting the FHIR batch of " + phase.name().toLowerCase() + " ending at id "
+                    + batch.lastId, e.getCause());
+        }
+        checkpoint(backfill);
+        // sent to the consolidated server as we go so it does not get all of it at
+        // the end
+        if (backfill.getBatches() % backfill.getThreads() == 0) {
+            runExportTasks();
+        }
+        logThroughput(backfill);
+    }
+
+    private void runExportTasks() {
+        try {
+            for (DataExportTask dataExportTask : dataExportTaskService.getDAO().findAll()) {
+                dataExportService.exportNewDataFromLocalToRemote(dataExportTask);
+            }
+        } catch (RuntimeException e) {
+            LogEvent.logError("error exporting FHIR data to the remote server", e);
+        }
+    }
+
+    private void logThroughput(FhirBackfillProgress backfill) {
+        long now = System.currentTimeMillis();
+        if (now - lastLoggedAt >= LOG_INTERVAL_MILLIS) {
+            lastLoggedAt = now;
+            LogEvent.logInfo(this.getClass().getSimpleName(), "logThroughput", "FHIR backfill " + describe(backfill));
+        }
+    }
+
+    private String describe(FhirBackfillProgress backfill) {
+        return backfill.getPatientsProcessed() + " patients, " + backfill.getSamplesProcessed() + " samples, "
+                + backfill.getResourcesPersisted() + " resources, " + backfill.getBatchFailures()
+                + " failed batches, " + String.format("%.1f", backfill.getResourcesPerSecond()) + " resources/sec";
+    }
+
+    private FhirBackfillProgress loadCheckpoint() {
+        try {
+            return FhirBackfillProgress.load(checkpointPath());
+        } catch (IOException | RuntimeException e) {
+            LogEvent.logError("could not read the FHIR backfill checkpoint", e);
+            return null;
+        }
+    }
+
+    private void checkpoint(FhirBackfillProgress backfill) {
+        try {
+            backfill.save(checkpointPath());
+        } catch (IOException e) {
+            LogEvent.logError("could not save the FHIR backfill checkpoint", e);
+        }
+    }
+
+    private Path checkpointPath() {
+        return Paths.get(checkpointFile);
+    }
+
+    private static class Batch {
+        private final int size;
+        private final String lastId;
+        private final Future<Bundle> result;
+        private final Exception failure;
+
+        private Batch(int size, String lastId, Future<Bundle> result, Exception failure) {
+            this.size = size;
+            this.lastId = lastId;
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+}
@@ -115,11 +115,14 @@ public class FhirPersistanceServiceImpl implements FhirPersistanceService {
         addCreateToTransactionBundle(createResources, transactionBundle);
         Bundle transactionResponseBundle = new Bundle();
         try {
+            // the bundles are only encoded when trace is on
             LogEvent.logTrace(this.getClass().getSimpleName(), "",
-                    "creating resources: " + fhirContext.newJsonParser().encodeResourceToString(transactionBundle));
-            transactionResponseBundle = localFhirClient.transaction().withBundle(transactionBundle).execute();
-            LogEvent.logTrace(this.getClass().getSimpleName(), "", "created resources: "
-                    + fhirContext.newJsonParser().encodeResourceToString(transactionResponseBundle));
+                    () -> "creating resources: "
+                            + fhirContext.newJsonParser().encodeResourceToString(transactionBundle));
+            Bundle responseBundle = localFhirClient.transaction().withBundle(transactionBundle).execute();
+            LogEvent.logTrace(this.getClass().getSimpleName(), "",
+                    () -> "created resources: " + fhirContext.newJsonParser().encodeResourceToString(responseBundle));
+            transactionResponseBundle = responseBundle;
         } catch (Exception e) {
             LogEvent.logError(e);
             throw new FhirLocalPersistingException(e);
@@ -145,11 +148,14 @@ public class FhirPersistanceServiceImpl implements FhirPersistanceService {
         }
         Bundle transactionResponseBundle = new Bundle();
         try {
+            // the bundles are only encoded when trace is on
             LogEvent.logTrace(this.getClass().getSimpleName(), "",
-                    "creating resources: " + fhirContext.newJsonParser().encodeResourceToString(transactionBundle));
-            transactionResponseBundle = localFhirClient.transaction().withBundle(transactionBundle).execute();
-            LogEvent.logTrace(this.getClass().getSimpleName(), "", "created resources: "
-                    + fhirContext.newJsonParser().encodeResourceToString(transactionResponseBundle));
+                    () -> "creating resources: "
+                            + fhirContext.newJsonParser().encodeResourceToString(transactionBundle));
+            Bundle responseBundle = localFhirClient.transaction().withBundle(transactionBundle).execute();
+            LogEvent.logTrace(this.getClass().getSimpleName(), "",
+                    () -> "created resources: " + fhirContext.newJsonParser().encodeResourceToString(responseBundle));
+            transactionResponseBundle = responseBundle;
         } catch (Exception e) {
             LogEvent.logError(e);
             throw new FhirLocalPersistingException(e);
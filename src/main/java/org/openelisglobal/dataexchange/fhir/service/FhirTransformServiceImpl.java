@@ -9,6 +9,7 @@ import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -73,6 +74,7 @@ import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
 import org.openelisglobal.common.util.DateUtil;
 import org.openelisglobal.common.util.validator.GenericValidator;
+import org.openelisglobal.config.AsyncConfig;
 import org.openelisglobal.dataexchange.fhir.FhirConfig;
 import org.openelisglobal.dataexchange.fhir.FhirUtil;
 import org.openelisglobal.dataexchange.fhir.exception.FhirLocalPersistingException;
@@ -126,6 +128,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class FhirTransformServiceImpl implements FhirTransformService {
 
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
     @Autowired
     private FhirConfig fhirConfig;
     @Autowired
@@ -190,7 +194,7 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     }
 
     @Transactional
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Override
     public AsyncResult<Bundle> transformPersistPatients(List<String> patientIds) throws FhirLocalPersistingException {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformPersistPatients",
@@ -200,8 +204,7 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         CountingTempIdGenerator tempIdGenerator = new CountingTempIdGenerator();
 
         Map<String, org.hl7.fhir.r4.model.Patient> fhirPatients = new HashMap<>();
-        for (String patientId : patientIds) {
-            Patient patient = patientService.get(patientId);
+        for (Patient patient : patientService.get(patientIds)) {
             if (patient.getFhirUuid() == null) {
                 patient.setFhirUuid(UUID.randomUUID());
             }
@@ -222,7 +225,7 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     }
 
     @Transactional
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Override
     public AsyncResult<Bundle> transformPersistObjectsUnderSamples(List<String> sampleIds)
             throws FhirLocalPersistingException {
@@ -239,15 +242,38 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         Map<String, DiagnosticReport> diagnosticReports = new HashMap<>();
         Map<String, Observation> observations = new HashMap<>();
         Map<String, Practitioner> requesters = new HashMap<>();
-        for (String sampleId : sampleIds) {
+
+        // everything the batch needs is read up front with a few IN queries rather
+        // than several queries per sample
+        Map<String, Patient> patientsBySample = sampleHumanService.getPatientsForSamples(sampleIds);
+        Map<String, Provider> providersBySample = sampleHumanService.getProvidersForSamples(sampleIds);
+        Map<String, List<SampleItem>> sampleItemsBySample = new HashMap<>();
+        for (SampleItem sampleItem : sampleItemService.getSampleItemsBySampleIds(sampleIds)) {
+            sampleItemsBySample.computeIfAbsent(sampleItem.getSample().getId(), k -> new ArrayList<>())
+                    .add(sampleItem);
+        }
+        Map<String, List<Analysis>> analysesBySample = new HashMap<>();
+        Map<String, String> sampleIdByAnalysis = new HashMap<>();
+        for (Analysis analysis : analysisService.getAnalysesBySampleIds(sampleIds)) {
+            String sampleId = analysis.getSampleItem().getSample().getId();
+            analysesBySample.computeIfAbsent(sampleId, k -> new ArrayList<>()).add(analysis);
+            sampleIdByAnalysis.put(analysis.getId(), sampleId);
+        }
+        Map<String, List<Result>> resultsBySample = new HashMap<>();
+        for (Result result : getResultsForAnalyses(sampleIdByAnalysis.keySet())) {
+            resultsBySample.computeIfAbsent(sampleIdByAnalysis.get(result.getAnalysis().getId()),
+                    k -> new ArrayList<>()).add(result);
+        }
+
+        for (Sample sample : sampleService.get(sampleIds)) {
+            String sampleId = sample.getId();
             LogEvent.logDebug(this.getClass().getSimpleName(), "transformPersistObjectsUnderSamples",
-                    "transforming sampleId: " + sampleId);
-            Sample sample = sampleService.get(sampleId);
-            Patient patient = sampleHumanService.getPatientForSample(sample);
-            Provider provider = sampleHumanService.getProviderForSample(sample);
-            List<SampleItem> sampleItems = sampleItemService.getSampleItemsBySampleId(sampleId);
-            List<Analysis> analysises = analysisService.getAnalysesBySampleId(sampleId);
-            List<Result> results = resultService.getResultsForSample(sample);
+                    "transforming sampleId: {}", sampleId);
+            Patient patient = patientsBySample.get(sampleId);
+            Provider provider = providersBySample.get(sampleId);
+            List<SampleItem> sampleItems = sampleItemsBySample.getOrDefault(sampleId, new ArrayList<>());
+            List<Analysis> analysises = analysesBySample.getOrDefault(sampleId, new ArrayList<>());
+            List<Result> results = resultsBySample.getOrDefault(sampleId, new ArrayList<>());
 
             if (sample != null && sample.getFhirUuid() == null) {
                 sample.setFhirUuid(UUID.randomUUID());
@@ -386,8 +412,21 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         return new AsyncResult<>(responseBundle);
     }
 
+    private List<Result> getResultsForAnalyses(Collection<String> analysisIds) {
+        List<Result> results = new ArrayList<>();
+        List<Integer> ids = analysisIds.stream().map(Integer::parseInt).collect(Collectors.toList());
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            List<Result> chunk = resultService
+                    .getResultsForAnalysisIdList(ids.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, ids.size())));
+            if (chunk != null) {
+                results.addAll(chunk);
+            }
+        }
+        return results;
+    }
+
     @Override
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Transactional(readOnly = true)
     public void transformPersistPatient(PatientManagementInfo patientInfo, boolean isCreate)
             throws FhirLocalPersistingException {
@@ -422,7 +461,7 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     }
 
     @Transactional
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Override
     public void transformPersistOrganization(Organization organization) throws FhirLocalPersistingException {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformPersistOrganization",
@@ -436,15 +475,15 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Transactional(readOnly = true)
     public void transformPersistOrderEntryFhirObjects(SamplePatientUpdateData updateData,
             PatientManagementInfo patientInfo, boolean useReferral, List<ReferralItem> referralItems)
             throws FhirLocalPersistingException {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformPersistOrderEntryFhirObjects",
                 "transformPersistOrderEntryFhirObjects called");
-        LogEvent.logTrace(this.getClass().getSimpleName(), "createFhirFromSamplePatient",
-                "accessionNumber - " + updateData.getAccessionNumber());
+        LogEvent.logTrace(this.getClass().getSimpleName(), "createFhirFromSamplePatient", "accessionNumber - {}",
+                updateData.getAccessionNumber());
         CountingTempIdGenerator tempIdGenerator = new CountingTempIdGenerator();
         FhirOperations fhirOperations = new FhirOperations();
 
@@ -658,7 +697,7 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     private DateType transformToDateElement(String strDate) throws ParseException {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformToDateElement", "transformToDateElement called");
 
-        LogEvent.logTrace(this.getClass().getSimpleName(), "transformToDateElement", "transforming date " + strDate);
+        LogEvent.logTrace(this.getClass().getSimpleName(), "transformToDateElement", "transforming date {}", strDate);
         if (GenericValidator.isBlankOrNull(strDate)) {
             return null;
         }
@@ -694,8 +733,8 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     private org.hl7.fhir.r4.model.Patient transformToFhirPatient(Patient patient) {
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformToFhirPatient", "transformToFhirPatient called");
 
-        LogEvent.logTrace(this.getClass().getSimpleName(), "transformToFhirPatient",
-                "transforming patient with id: " + patient.getId());
+        LogEvent.logTrace(this.getClass().getSimpleName(), "transformToFhirPatient", "transforming patient with id: {}",
+                patient.getId());
         org.hl7.fhir.r4.model.Patient fhirPatient = new org.hl7.fhir.r4.model.Patient();
         String subjectNumber = patientService.getSubjectNumber(patient);
         String nationalId = patientService.getNationalId(patient);
@@ -703,7 +742,7 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         String stNumber = patientService.getSTNumber(patient);
         String uuid = patient.getFhirUuidAsString();
         LogEvent.logTrace(this.getClass().getSimpleName(), "transformToFhirPatient",
-                "transforming patient with id: " + patient.getId() + " fhirUuid: " + uuid);
+                "transforming patient with id: {} fhirUuid: {}", patient.getId(), uuid);
 
         fhirPatient.setId(uuid);
         fhirPatient.setIdentifier(createPatientIdentifiers(subjectNumber, nationalId, stNumber, guid, uuid));
@@ -1076,7 +1115,7 @@ public class FhirTransformServiceImpl implements FhirTransformService {
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Transactional(readOnly = true)
     public void transformPersistResultsEntryFhirObjects(ResultsUpdateDataSet actionDataSet)
             throws FhirLocalPersistingException {
@@ -1106,7 +1145,7 @@ public class FhirTransformServiceImpl implements FhirTransformService {
         Bundle responseBundle = fhirPersistanceService.createUpdateFhirResourcesInFhirStore(fhirOperations);
     }
 
-    @Async
+    @Async(AsyncConfig.FHIR_EXECUTOR)
     @Override
     @Transactional(readOnly = true)
     public void transformPersistResultValidationFhirObjects(List<Result> deletableList,
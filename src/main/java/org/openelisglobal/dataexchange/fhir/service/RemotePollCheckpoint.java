@@ -0,0 +1,101 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.util.CheckpointFileUtil;
+
+/**
+ * How far the polling of each remote FHIR store has got, kept in a file so a
+ * restart carries on from there instead of searching everything again. For
+ * each store it holds the time from which incoming orders have to be searched
+ * for, the time from which referral results have to be searched for, and the
+ * referrals already seen accepted by a full search, whose results can be
+ * searched for from that time.
+ *
+ * <p>A checkpoint that cannot be read or saved only costs a full search.
+ */
+final class RemotePollCheckpoint {
+
+    private static final String ORDERS_SINCE = "orders.since.";
+    private static final String RESULTS_SINCE = "results.since.";
+    private static final String RESULTS_ACCEPTED = "results.accepted.";
+
+    private final Path file;
+    private final Properties properties = new Properties();
+
+    private RemotePollCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    static RemotePollCheckpoint load(Path file) {
+        RemotePollCheckpoint checkpoint = new RemotePollCheckpoint(file);
+        try {
+            Properties saved = CheckpointFileUtil.load(file);
+            if (saved != null) {
+                checkpoint.properties.putAll(saved);
+            }
+        } catch (IOException e) {
+            LogEvent.logWarn(RemotePollCheckpoint.class.getSimpleName(), "load",
+                    "could not read " + file + ", the remote stores are searched in full: " + e.getMessage());
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @return null when the orders have never been searched for
+     */
+    synchronized Date getOrdersSince(String remoteStorePath) {
+        return getDate(ORDERS_SINCE + remoteStorePath);
+    }
+
+    synchronized void ordersPolled(String remoteStorePath, Date since) {
+        properties.setProperty(ORDERS_SINCE + remoteStorePath, Long.toString(since.getTime()));
+        save();
+    }
+
+    /**
+     * @return null when the results have never been searched for
+     */
+    synchronized Date getResultsSince(String remoteStorePath) {
+        return getDate(RESULTS_SINCE + remoteStorePath);
+    }
+
+    synchronized Set<String> getAcceptedReferrals(String remoteStorePath) {
+        String accepted = properties.getProperty(RESULTS_ACCEPTED + remoteStorePath);
+        return GenericValidator.isBlankOrNull(accepted) ? Collections.emptySet()
+                : new HashSet<>(Arrays.asList(accepted.split(",")));
+    }
+
+    /**
+     * @param acceptedReferrals the referrals still waiting on results that have
+     *                          been seen accepted
+     */
+    synchronized void resultsPolled(String remoteStorePath, Date since, Collection<String> acceptedReferrals) {
+        properties.setProperty(RESULTS_SINCE + remoteStorePath, Long.toString(since.getTime()));
+        properties.setProperty(RESULTS_ACCEPTED + remoteStorePath, String.join(",", acceptedReferrals));
+        save();
+    }
+
+    private Date getDate(String key) {
+        String millis = properties.getProperty(key);
+        return GenericValidator.isBlankOrNull(millis) ? null : new Date(Long.parseLong(millis));
+    }
+
+    private void save() {
+        try {
+            CheckpointFileUtil.store(properties, file, "remote FHIR store polling checkpoint");
+        } catch (IOException e) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "save",
+                    "could not save " + file + ": " + e.getMessage());
+        }
+    }
+}
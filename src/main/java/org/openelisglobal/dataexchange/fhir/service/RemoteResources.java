@@ -0,0 +1,76 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r4.model.QuestionnaireResponse;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * The resources returned by a search of a remote store, those matched and those
+ * included with them, so the references between them can be followed without
+ * reading each one from the store.
+ */
+final class RemoteResources {
+
+    static final RemoteResources NONE = new RemoteResources(false);
+
+    private final Map<String, Resource> resourcesByReference = new HashMap<>();
+    private final List<QuestionnaireResponse> questionnaireResponses = new ArrayList<>();
+    private final boolean questionnaireResponsesIncluded;
+
+    /**
+     * @param questionnaireResponsesIncluded whether the search included every
+     *                                       QuestionnaireResponse based on the
+     *                                       ServiceRequests it returned
+     */
+    RemoteResources(boolean questionnaireResponsesIncluded) {
+        this.questionnaireResponsesIncluded = questionnaireResponsesIncluded;
+    }
+
+    void addAll(Bundle bundle) {
+        for (BundleEntryComponent entry : bundle.getEntry()) {
+            if (entry.hasResource()) {
+                Resource resource = entry.getResource();
+                resourcesByReference.put(reference(resource.getResourceType().name(),
+                        resource.getIdElement().getIdPart()), resource);
+                if (resource instanceof QuestionnaireResponse) {
+                    questionnaireResponses.add((QuestionnaireResponse) resource);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return null when the search did not return it
+     */
+    <T extends Resource> T get(Class<T> type, String id) {
+        Resource resource = resourcesByReference.get(reference(type.getSimpleName(), id));
+        return type.isInstance(resource) ? type.cast(resource) : null;
+    }
+
+    boolean hasQuestionnaireResponses() {
+        return questionnaireResponsesIncluded;
+    }
+
+    List<QuestionnaireResponse> getQuestionnaireResponsesBasedOn(String serviceRequestId) {
+        List<QuestionnaireResponse> basedOn = new ArrayList<>();
+        for (QuestionnaireResponse questionnaireResponse : questionnaireResponses) {
+            for (Reference reference : questionnaireResponse.getBasedOn()) {
+                if (serviceRequestId.equals(reference.getReferenceElement().getIdPart())) {
+                    basedOn.add(questionnaireResponse);
+                    break;
+                }
+            }
+        }
+        return basedOn;
+    }
+
+    private static String reference(String resourceType, String id) {
+        return resourceType + "/" + id;
+    }
+}
@@ -2,7 +2,10 @@ package org.openelisglobal.dataexchange.fhir.service;
 
 import ca.uhn.fhir.context.FhirContext;
 import java.util.List;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.ServiceRequest;
 import org.hl7.fhir.r4.model.Task;
 import org.openelisglobal.common.log.LogEvent;
@@ -16,6 +19,7 @@ import org.openelisglobal.dataexchange.order.action.IOrderInterpreter.OrderType;
 import org.openelisglobal.dataexchange.order.action.IOrderPersister;
 import org.openelisglobal.dataexchange.order.action.MessagePatient;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrderSearchTerms;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrderType;
 import org.openelisglobal.sample.valueholder.OrderPriority;
 import org.openelisglobal.spring.util.SpringContext;
@@ -200,7 +204,32 @@ public class TaskWorker {
         eOrder.setSysUserId(persister.getServiceUserId());
         eOrder.setType(ElectronicOrderType.FHIR);
         eOrder.setPriority(orderPriority);
+        eOrder.setSearchTerms(getSearchTerms(referringOrderNumber, patient).toString());
 
         persister.persist(patient, eOrder);
     }
+
+    private ElectronicOrderSearchTerms getSearchTerms(String referringOrderNumber, MessagePatient patient) {
+        ElectronicOrderSearchTerms searchTerms = new ElectronicOrderSearchTerms().add(referringOrderNumber)
+                .addPatient(patient);
+        if (task != null) {
+            for (Identifier identifier : task.getIdentifier()) {
+                searchTerms.add(identifier.getValue());
+            }
+            for (Reference basedOn : task.getBasedOn()) {
+                searchTerms.add(basedOn.getReferenceElement().getIdPart());
+            }
+        }
+        if (serviceRequest != null) {
+            searchTerms.add(serviceRequest.getIdElement().getIdPart(), serviceRequest.getRequisition().getValue());
+            for (Identifier identifier : serviceRequest.getIdentifier()) {
+                searchTerms.add(identifier.getValue());
+            }
+            // the requested tests, by LOINC code when the requester sent one
+            for (Coding coding : serviceRequest.getCode().getCoding()) {
+                searchTerms.add(coding.getCode());
+            }
+        }
+        return searchTerms;
+    }
 }
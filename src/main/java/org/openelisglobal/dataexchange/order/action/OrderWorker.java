@@ -22,6 +22,7 @@ import org.openelisglobal.dataexchange.order.action.IOrderExistanceChecker.Check
 import org.openelisglobal.dataexchange.order.action.IOrderInterpreter.InterpreterResults;
 import org.openelisglobal.dataexchange.order.action.IOrderInterpreter.OrderType;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrderSearchTerms;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrderType;
 import org.openelisglobal.sample.valueholder.OrderPriority;
 import org.openelisglobal.spring.util.SpringContext;
@@ -143,6 +144,12 @@ public class OrderWorker {
         eOrder.setSysUserId(persister.getServiceUserId());
         eOrder.setPriority(OrderPriority.ROUTINE);
         eOrder.setType(ElectronicOrderType.HL7_V2);
+        ElectronicOrderSearchTerms searchTerms = new ElectronicOrderSearchTerms().add(referringOrderNumber)
+                .addPatient(patient);
+        if (interpreter.getTest() != null) {
+            searchTerms.add(interpreter.getTest().getLoinc());
+        }
+        eOrder.setSearchTerms(searchTerms.toString());
 
         persister.persist(patient, eOrder);
     }
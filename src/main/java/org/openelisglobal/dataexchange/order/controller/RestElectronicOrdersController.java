@@ -22,6 +22,7 @@ import org.openelisglobal.dataexchange.order.ElectronicOrderSortOrderCategoryCon
 import org.openelisglobal.dataexchange.order.form.ElectronicOrderViewForm;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrderDisplayItem;
+import org.openelisglobal.dataexchange.service.order.ElectronicOrderSearchPage;
 import org.openelisglobal.dataexchange.service.order.ElectronicOrderService;
 import org.openelisglobal.organization.service.OrganizationService;
 import org.openelisglobal.organization.valueholder.Organization;
@@ -39,6 +40,7 @@ import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -93,6 +95,15 @@ public class RestElectronicOrdersController extends BaseController {
         return form;
     }
 
+    @RequestMapping(value = "/rest/ElectronicOrders/search", method = RequestMethod.GET)
+    public ElectronicOrderSearchPage<ElectronicOrderDisplayItem> searchElectronicOrders(
+            @RequestParam String searchValue, @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int pageSize,
+            @RequestParam(defaultValue = "false") boolean useAllInfo) {
+        return electronicOrderService.searchElectronicOrders(searchValue, null, page, pageSize)
+                .map(e -> convertToDisplayItem(e, useAllInfo));
+    }
+
     private List<ElectronicOrderDisplayItem> convertToDisplayItem(List<ElectronicOrder> electronicOrders,
             boolean useAllInfo) {
         return electronicOrders.stream().map(e -> convertToDisplayItem(e, useAllInfo)).collect(Collectors.toList());
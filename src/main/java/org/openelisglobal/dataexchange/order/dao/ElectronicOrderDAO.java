@@ -16,6 +16,7 @@ package org.openelisglobal.dataexchange.order.dao;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.Map;
 import org.openelisglobal.common.dao.BaseDAO;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
@@ -42,6 +43,15 @@ public interface ElectronicOrderDAO extends BaseDAO<ElectronicOrder, String> {
     public List<ElectronicOrder> getElectronicOrdersContainingValueExludedByOrderedBy(String searchValue,
             List<Integer> exludedStatusIds, SortOrder sortOrder);
 
+    /**
+     * @return the orders with a search term containing the value, not in one of
+     *         the excluded statuses, by status then newest first
+     */
+    List<ElectronicOrder> getElectronicOrdersContainingValue(String searchValue, List<Integer> excludedStatusIds,
+            int firstResult, int maxResults);
+
+    long getCountOfElectronicOrdersContainingValue(String searchValue, List<Integer> excludedStatusIds);
+
     List<ElectronicOrder> getAllElectronicOrdersByDateAndStatus(Date startDate, Date endDate, String statusId,
             SortOrder sortOrder);
 
@@ -58,5 +68,10 @@ public interface ElectronicOrderDAO extends BaseDAO<ElectronicOrder, String> {
 
     int getCountOfElectronicOrdersByStatusList(List<Integer> statusIds);
 
+    /**
+     * @return the number of electronic orders in each status, by status id
+     */
+    Map<String, Long> getCountOfElectronicOrdersByStatusId();
+
     List<ElectronicOrder> getAllElectronicOrdersByStatusList(List<Integer> statusIds, SortOrder sortOrder);
 }
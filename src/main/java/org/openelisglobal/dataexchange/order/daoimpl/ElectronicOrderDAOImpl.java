@@ -15,7 +15,9 @@ package org.openelisglobal.dataexchange.order.daoimpl;
 
 import java.sql.Date;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import org.apache.commons.validator.GenericValidator;
 import org.hibernate.HibernateException;
@@ -25,6 +27,7 @@ import org.openelisglobal.common.daoimpl.BaseDAOImpl;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.dataexchange.order.dao.ElectronicOrderDAO;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrderSearchTerms;
 import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder.SortOrder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,6 +36,20 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String> implements ElectronicOrderDAO {
 
+    // search_terms is trigram indexed, so a LIKE on it does not read every order
+    private static final String LIKE_ESCAPE = " escape '" + ElectronicOrderSearchTerms.LIKE_ESCAPE + "'";
+    // the search terms keep the patient as the order came with them, the patient
+    // as they are now is matched by id. Past this many patients the ids are
+    // matched by subquery instead
+    private static final int MAX_PATIENT_IDS = 1000;
+    private static final String PATIENT_LIKE = "from Patient patient join patient.person person where"
+            + " lower(person.firstName) like :patientValue" + LIKE_ESCAPE
+            + " or lower(person.lastName) like :patientValue" + LIKE_ESCAPE
+            + " or lower(concat(person.firstName, ' ', person.lastName)) like :patientValue" + LIKE_ESCAPE
+            + " or lower(patient.nationalId) like :patientValue" + LIKE_ESCAPE
+            + " or patient.id in (select identity.patientId from PatientIdentity identity"
+            + " where lower(identity.identityData) like :patientValue" + LIKE_ESCAPE + ")";
+
     public ElectronicOrderDAOImpl() {
         super(ElectronicOrder.class);
     }
@@ -79,14 +96,10 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
     @Override
     public List<ElectronicOrder> getAllElectronicOrdersContainingValueOrderedBy(String searchValue, SortOrder order) {
 
-        String sql = "from ElectronicOrder eo join eo.patient patient join patient.person person  where"
-                + " lower(eo.data) like concat('%', lower(:searchValue), '%') or"
-                + " lower(person.firstName) like concat('%', lower(:searchValue), '%') or"
-                + " lower(person.lastName) like concat('%', lower(:searchValue), '%') or patient.id in"
-                + " (SELECT identity.patientId FROM PatientIdentity identity WHERE"
-                + " identity.identityData like concat('%', :searchValue, '%')) or patient.nationalId"
-                + " like concat('%', :searchValue, '%') or lower(concat(person.firstName, ' ',"
-                + " person.lastName)) like concat('%', lower(:searchValue), '%') order by ";
+        String patientValue = ElectronicOrderSearchTerms.containing(searchValue);
+        List<String> patientIds = getPatientIdsLike(patientValue);
+        String sql = "from ElectronicOrder eo where" + getSearchTermsOrPatientClause("searchValue", patientIds)
+                + " order by ";
 
         switch (order.getValue()) {
         case "statusId":
@@ -107,17 +120,10 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
         }
         try {
 
-            Query query = entityManager.unwrap(Session.class).createQuery(sql);
-            query.setParameter("searchValue", searchValue);
-            // query.setParameter("order", order.getValue());
-            List records = query.list();
-            List<ElectronicOrder> eOrders = new ArrayList<>();
-            for (int i = 0; i < records.size(); i++) {
-                Object[] oArray = (Object[]) records.get(i);
-                ElectronicOrder eo = (ElectronicOrder) oArray[0];
-                eOrders.add(eo);
-            }
-            return eOrders;
+            Query<ElectronicOrder> query = entityManager.unwrap(Session.class).createQuery(sql, ElectronicOrder.class);
+            query.setParameter("searchValue", patientValue);
+            setPatientParameters(query, patientValue, patientIds);
+            return query.list();
         } catch (HibernateException e) {
             handleException(e, "getAllElectronicOrdersContainingValue");
         }
@@ -128,13 +134,17 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
     public List<ElectronicOrder> getAllElectronicOrdersMatchingAnyValue(List<String> identifierValues,
             String patientValue, SortOrder order) {
 
-        String hql = "from ElectronicOrder eo join eo.patient patient join patient.person person where"
-                + " lower(eo.externalId) in (:identifierValues) or lower(person.firstName) ="
-                + " lower(:patientValue) or lower(person.lastName) = lower(:patientValue) or patient.id"
-                + " in (SELECT identity.patientId FROM PatientIdentity identity WHERE"
-                + " lower(identity.identityData) = lower(:patientValue)) or lower(patient.nationalId) ="
-                + " lower(:patientValue) or lower(concat(person.firstName, ' ', person.lastName)) ="
-                + " lower(:patientValue) order by ";
+        List<String> values = new ArrayList<>(identifierValues);
+        values.add(patientValue);
+        String patientPattern = ElectronicOrderSearchTerms.equalTo(patientValue);
+        List<String> patientIds = GenericValidator.isBlankOrNull(patientValue) ? new ArrayList<>()
+                : getPatientIdsLike(patientPattern);
+        StringBuilder hqlBuilder = new StringBuilder("from ElectronicOrder eo where");
+        for (int i = 0; i < values.size() - 1; i++) {
+            hqlBuilder.append(" eo.searchTerms like :value").append(i).append(LIKE_ESCAPE).append(" or");
+        }
+        hqlBuilder.append(getSearchTermsOrPatientClause("value" + (values.size() - 1), patientIds));
+        String hql = hqlBuilder.append(" order by ").toString();
 
         switch (order.getValue()) {
         case "statusId":
@@ -155,18 +165,12 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
         }
         try {
 
-            Query<?> query = entityManager.unwrap(Session.class).createQuery(hql);
-            query.setParameterList("identifierValues", identifierValues);
-            query.setParameter("patientValue", patientValue);
-            // query.setParameter("order", order.getValue());
-            List<?> records = query.list();
-            List<ElectronicOrder> eOrders = new ArrayList<>();
-            for (int i = 0; i < records.size(); i++) {
-                Object[] oArray = (Object[]) records.get(i);
-                ElectronicOrder eo = (ElectronicOrder) oArray[0];
-                eOrders.add(eo);
+            Query<ElectronicOrder> query = entityManager.unwrap(Session.class).createQuery(hql, ElectronicOrder.class);
+            for (int i = 0; i < values.size(); i++) {
+                query.setParameter("value" + i, ElectronicOrderSearchTerms.matching(values.get(i)));
             }
-            return eOrders;
+            setPatientParameters(query, patientPattern, patientIds);
+            return query.list();
         } catch (HibernateException e) {
             handleException(e, "getAllElectronicOrdersMatchingAnyValue");
         }
@@ -177,15 +181,10 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
     public List<ElectronicOrder> getElectronicOrdersContainingValueExludedByOrderedBy(String searchValue,
             List<Integer> excludedStatuses, SortOrder sortOrder) {
 
-        String sql = "from ElectronicOrder eo join eo.patient patient join patient.person person  where"
-                + " lower(eo.data) like concat('%', lower(:searchValue), '%') or"
-                + " lower(person.firstName) like concat('%', lower(:searchValue), '%') or"
-                + " lower(person.lastName) like concat('%', lower(:searchValue), '%') or"
-                + " lower(concat(person.firstName, ' ', person.lastName)) like concat('%',"
-                + " lower(:searchValue), '%')or patient.id in (SELECT identity.patientId FROM"
-                + " PatientIdentity identity WHERE identity.identityData like concat('%', :searchValue,"
-                + " '%')) or patient.nationalId like concat('%', :searchValue, '%') and eo.statusId not"
-                + " in (:excludedStatuses) order by ";
+        String patientValue = ElectronicOrderSearchTerms.containing(searchValue);
+        List<String> patientIds = getPatientIdsLike(patientValue);
+        String sql = "from ElectronicOrder eo where" + getSearchTermsOrPatientClause("searchValue", patientIds)
+                + " and eo.statusId not in (:excludedStatuses) order by ";
 
         switch (sortOrder) {
         case STATUS_ID:
@@ -206,18 +205,11 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
         }
         try {
 
-            Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
-            query.setParameter("searchValue", searchValue);
+            Query<ElectronicOrder> query = entityManager.unwrap(Session.class).createQuery(sql, ElectronicOrder.class);
+            query.setParameter("searchValue", patientValue);
+            setPatientParameters(query, patientValue, patientIds);
             query.setParameter("excludedStatuses", excludedStatuses);
-            // query.setParameter("order", order.getValue());
-            List<?> records = query.list();
-            List<ElectronicOrder> eOrders = new ArrayList<>();
-            for (int i = 0; i < records.size(); i++) {
-                Object[] oArray = (Object[]) records.get(i);
-                ElectronicOrder eo = (ElectronicOrder) oArray[0];
-                eOrders.add(eo);
-            }
-            return eOrders;
+            return query.list();
         } catch (HibernateException e) {
             handleException(e, "getAllElectronicOrdersContainingValue");
         }
@@ -230,8 +222,7 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
         String sql = "from ElectronicOrder eo " + "join eo.patient patient " + "join patient.person person  ";
         boolean whereClauseStarted = false;
         if (!GenericValidator.isBlankOrNull(accessionNumber)) {
-            sql += getWherePrefix(whereClauseStarted)
-                    + " lower(eo.data) like concat('%', lower(:accessionNumber), '%') ";
+            sql += getWherePrefix(whereClauseStarted) + " eo.searchTerms like :accessionNumber" + LIKE_ESCAPE;
             whereClauseStarted = true;
         }
         // if (!GenericValidator.isBlankOrNull(patientId)) {
@@ -240,6 +231,7 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
         // lower(:patientId), '%') ";
         // }
         if (!GenericValidator.isBlankOrNull(patientLastName)) {
+            // the name as it is now, the search terms keep the name the order came with
             sql += getWherePrefix(whereClauseStarted)
                     + " lower(person.lastName) like concat('%', lower(:patientLastName), '%') ";
             whereClauseStarted = true;
@@ -280,7 +272,7 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
 
             Query<?> query = entityManager.unwrap(Session.class).createQuery(sql);
             if (!GenericValidator.isBlankOrNull(accessionNumber)) {
-                query.setParameter("accessionNumber", accessionNumber);
+                query.setParameter("accessionNumber", ElectronicOrderSearchTerms.containing(accessionNumber));
             }
             if (!GenericValidator.isBlankOrNull(patientLastName)) {
                 query.setParameter("patientLastName", patientLastName);
@@ -306,6 +298,98 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
         return null;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ElectronicOrder> getElectronicOrdersContainingValue(String searchValue,
+            List<Integer> excludedStatusIds, int firstResult, int maxResults) {
+        List<String> patientIds = getPatientIdsLike(ElectronicOrderSearchTerms.containing(searchValue));
+        String hql = "from ElectronicOrder eo" + getSearchTermsWhereClause(excludedStatusIds, patientIds)
+                + " order by eo.statusId asc, eo.orderTimestamp desc, eo.id desc";
+        try {
+            Query<ElectronicOrder> query = entityManager.unwrap(Session.class).createQuery(hql, ElectronicOrder.class);
+            setSearchTermsParameters(query, searchValue, excludedStatusIds, patientIds);
+            query.setFirstResult(firstResult);
+            query.setMaxResults(maxResults);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getElectronicOrdersContainingValue");
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getCountOfElectronicOrdersContainingValue(String searchValue, List<Integer> excludedStatusIds) {
+        List<String> patientIds = getPatientIdsLike(ElectronicOrderSearchTerms.containing(searchValue));
+        String hql = "SELECT COUNT(*) from ElectronicOrder eo"
+                + getSearchTermsWhereClause(excludedStatusIds, patientIds);
+        try {
+            Query<Long> query = entityManager.unwrap(Session.class).createQuery(hql, Long.class);
+            setSearchTermsParameters(query, searchValue, excludedStatusIds, patientIds);
+            return query.uniqueResult();
+        } catch (HibernateException e) {
+            handleException(e, "getCountOfElectronicOrdersContainingValue");
+        }
+        return 0;
+    }
+
+    private String getSearchTermsWhereClause(List<Integer> excludedStatusIds, List<String> patientIds) {
+        String where = " where" + getSearchTermsOrPatientClause("searchValue", patientIds);
+        if (excludedStatusIds != null && !excludedStatusIds.isEmpty()) {
+            where += " and eo.statusId not in (:excludedStatusIds)";
+        }
+        return where;
+    }
+
+    private void setSearchTermsParameters(Query<?> query, String searchValue, List<Integer> excludedStatusIds,
+            List<String> patientIds) {
+        String value = ElectronicOrderSearchTerms.containing(searchValue);
+        query.setParameter("searchValue", value);
+        setPatientParameters(query, value, patientIds);
+        if (excludedStatusIds != null && !excludedStatusIds.isEmpty()) {
+            query.setParameterList("excludedStatusIds", excludedStatusIds);
+        }
+    }
+
+    /*
+     * the ids of the patients whose names, national id or identities as they are
+     * now are like the pattern, null if there are too many to be passed
+     */
+    private List<String> getPatientIdsLike(String pattern) {
+        try {
+            Query<String> query = entityManager.unwrap(Session.class).createQuery("select patient.id " + PATIENT_LIKE,
+                    String.class);
+            query.setParameter("patientValue", pattern);
+            query.setMaxResults(MAX_PATIENT_IDS + 1);
+            List<String> patientIds = query.list();
+            return patientIds.size() > MAX_PATIENT_IDS ? null : patientIds;
+        } catch (HibernateException e) {
+            handleException(e, "getPatientIdsLike");
+        }
+        return null;
+    }
+
+    /*
+     * by id the search terms and the patient id indexes can both be used
+     */
+    private String getSearchTermsOrPatientClause(String parameter, List<String> patientIds) {
+        String clause = " (eo.searchTerms like :" + parameter + LIKE_ESCAPE;
+        if (patientIds == null) {
+            clause += " or eo.patient.id in (select patient.id " + PATIENT_LIKE + ")";
+        } else if (!patientIds.isEmpty()) {
+            clause += " or eo.patient.id in (:patientIds)";
+        }
+        return clause + ")";
+    }
+
+    private void setPatientParameters(Query<?> query, String patientValue, List<String> patientIds) {
+        if (patientIds == null) {
+            query.setParameter("patientValue", patientValue);
+        } else if (!patientIds.isEmpty()) {
+            query.setParameterList("patientIds", patientIds);
+        }
+    }
+
     private String getWherePrefix(boolean whereClauseStarted) {
         if (!whereClauseStarted) {
             return " where ";
@@ -480,6 +564,21 @@ public class ElectronicOrderDAOImpl extends BaseDAOImpl<ElectronicOrder, String>
         return 0;
     }
 
+    @Override
+    public Map<String, Long> getCountOfElectronicOrdersByStatusId() {
+        String hql = "SELECT eo.statusId, COUNT(*) From ElectronicOrder eo GROUP BY eo.statusId";
+        Map<String, Long> counts = new HashMap<>();
+        try {
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(hql, Object[].class);
+            for (Object[] row : query.list()) {
+                counts.put((String) row[0], (Long) row[1]);
+            }
+        } catch (HibernateException e) {
+            handleException(e, "getCountOfElectronicOrdersByStatusId");
+        }
+        return counts;
+    }
+
     @Override
     public List<ElectronicOrder> getAllElectronicOrdersByStatusList(List<Integer> statusIds, SortOrder sortOrder) {
         String hql = "From ElectronicOrder eo WHERE 1 = 1 ";
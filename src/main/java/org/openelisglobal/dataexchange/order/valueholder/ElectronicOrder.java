@@ -62,6 +62,7 @@ public class ElectronicOrder extends BaseObject<String> {
     private StatusOfSample status; // not persisted
     private Timestamp orderTimestamp;
     private String data;
+    private String searchTerms;
     private ElectronicOrderType type;
     private OrderPriority priority;
     private String qaAuthorizer;
@@ -130,6 +131,17 @@ public class ElectronicOrder extends BaseObject<String> {
         this.data = data;
     }
 
+    /**
+     * @see ElectronicOrderSearchTerms
+     */
+    public String getSearchTerms() {
+        return searchTerms;
+    }
+
+    public void setSearchTerms(String searchTerms) {
+        this.searchTerms = searchTerms;
+    }
+
     public ElectronicOrderType getType() {
         return type;
     }
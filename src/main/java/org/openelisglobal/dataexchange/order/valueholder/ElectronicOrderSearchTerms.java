@@ -0,0 +1,99 @@
+package org.openelisglobal.dataexchange.order.valueholder;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.dataexchange.order.action.MessagePatient;
+
+/**
+ * The values an electronic order can be searched by, taken from the order when
+ * it is received: the external id, the accession numbers, the patient's names
+ * and identifiers and the codes of the tests requested. They are kept in the
+ * search_terms column, lower case and one per line with a line break before
+ * the first and after the last, which is trigram indexed so both a term
+ * containing a value and a term equal to a value can be found without reading
+ * the order itself.
+ */
+public final class ElectronicOrderSearchTerms {
+
+    private static final String SEPARATOR = "\n";
+    // escapes the LIKE wildcards in a searched value, the queries declare it with
+    // escape '!'
+    public static final char LIKE_ESCAPE = '!';
+
+    private final Set<String> terms = new LinkedHashSet<>();
+
+    public ElectronicOrderSearchTerms add(String... values) {
+        for (String value : values) {
+            String term = normalize(value);
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return this;
+    }
+
+    public ElectronicOrderSearchTerms addPatient(MessagePatient patient) {
+        if (patient != null) {
+            add(patient.getFirstName(), patient.getLastName(), patient.getNationalId(), patient.getExternalId(),
+                    patient.getGuid(), patient.getStNumber(), patient.getSubjectNumber(), patient.getObNumber(),
+                    patient.getPcNumber());
+            if (!GenericValidator.isBlankOrNull(patient.getFirstName())
+                    && !GenericValidator.isBlankOrNull(patient.getLastName())) {
+                add(patient.getFirstName().trim() + " " + patient.getLastName().trim());
+            }
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return terms.isEmpty() ? null : SEPARATOR + String.join(SEPARATOR, terms) + SEPARATOR;
+    }
+
+    /**
+     * @return the LIKE pattern for a term containing the value
+     */
+    public static String containing(String value) {
+        return "%" + escape(normalize(value)) + "%";
+    }
+
+    /**
+     * @return the LIKE pattern for a term equal to the value
+     */
+    public static String matching(String value) {
+        return "%" + SEPARATOR + escape(normalize(value)) + SEPARATOR + "%";
+    }
+
+    /**
+     * @return the LIKE pattern for a single value, not search terms, equal to the
+     *         value
+     */
+    public static String equalTo(String value) {
+        return escape(normalize(value));
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        // a line break would let a term run into the next
+        return value.replaceAll("\\s+", " ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
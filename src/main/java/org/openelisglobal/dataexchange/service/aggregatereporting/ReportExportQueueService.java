@@ -0,0 +1,31 @@
+package org.openelisglobal.dataexchange.service.aggregatereporting;
+
+import java.util.List;
+import org.openelisglobal.dataexchange.aggregatereporting.valueholder.ReportExternalExport;
+
+/**
+ * Treats report_external_export as an outbound queue which can be drained by
+ * more than one node. Rows are claimed for a lease period before they are sent
+ * and the outcome of the sends is recorded in batches.
+ */
+public interface ReportExportQueueService {
+
+    /**
+     * Claims up to limit rows of the queue type which are due to be sent. A
+     * claimed row is not handed out again until the lease has expired, so if this
+     * node stops before recording the outcome the row is sent again later.
+     */
+    List<ReportExternalExport> claimDueReportExports(String reportQueueTypeId, int limit, int leaseSeconds);
+
+    /**
+     * Tracks the results in the bookkeeping data of the rows as sent with the
+     * given document type and removes the rows from the queue
+     */
+    void recordSent(List<ReportExternalExport> sentReports, String documentTypeName);
+
+    /**
+     * Releases the rows and schedules the next attempt, the wait doubles with
+     * every failed attempt starting at retryBaseSeconds up to retryMaxSeconds
+     */
+    void recordFailed(List<ReportExternalExport> failedReports, int retryBaseSeconds, int retryMaxSeconds);
+}
@@ -0,0 +1,97 @@
+package org.openelisglobal.dataexchange.service.aggregatereporting;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.common.util.DateUtil;
+import org.openelisglobal.dataexchange.aggregatereporting.dao.ReportExternalExportDAO;
+import org.openelisglobal.dataexchange.aggregatereporting.valueholder.ReportExternalExport;
+import org.openelisglobal.referencetables.service.ReferenceTablesService;
+import org.openelisglobal.reports.service.DocumentTrackService;
+import org.openelisglobal.reports.service.DocumentTypeService;
+import org.openelisglobal.reports.valueholder.DocumentTrack;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class ReportExportQueueServiceImpl implements ReportExportQueueService {
+
+    @Autowired
+    private ReportExternalExportDAO reportExternalExportDAO;
+    @Autowired
+    private DocumentTrackService documentTrackService;
+    @Autowired
+    private DocumentTypeService documentTypeService;
+    @Autowired
+    private ReferenceTablesService referenceTablesService;
+
+    @Override
+    @Transactional
+    public List<ReportExternalExport> claimDueReportExports(String reportQueueTypeId, int limit, int leaseSeconds) {
+        Timestamp now = DateUtil.getNowAsTimestamp();
+        List<ReportExternalExport> reports = reportExternalExportDAO.getDueReportExportsForUpdate(reportQueueTypeId,
+                now, limit);
+        Timestamp claimedUntil = new Timestamp(now.getTime() + leaseSeconds * 1000L);
+        for (ReportExternalExport report : reports) {
+            report.setClaimedUntil(claimedUntil);
+        }
+        return reports;
+    }
+
+    @Override
+    @Transactional
+    public void recordSent(List<ReportExternalExport> sentReports, String documentTypeName) {
+        if (sentReports.isEmpty()) {
+            return;
+        }
+        String documentTypeId = documentTypeService.getDocumentTypeByName(documentTypeName).getId();
+        String resultTableId = referenceTablesService.getReferenceTableByName("RESULT").getId();
+        Timestamp now = DateUtil.getNowAsTimestamp();
+
+        List<DocumentTrack> documents = new ArrayList<>();
+        for (ReportExternalExport report : sentReports) {
+            String bookkeepingData = report.getBookkeepingData();
+            if (GenericValidator.isBlankOrNull(bookkeepingData) || "null".equals(bookkeepingData)) {
+                continue;
+            }
+            for (String resultId : bookkeepingData.split(",")) {
+                DocumentTrack document = new DocumentTrack();
+                document.setDocumentTypeId(documentTypeId);
+                document.setRecordId(resultId);
+                document.setReportTime(now);
+                document.setTableId(resultTableId);
+                document.setSysUserId("1");
+                documents.add(document);
+            }
+        }
+        documentTrackService.insertAll(documents);
+        reportExternalExportDAO.deleteReportExports(
+                sentReports.stream().map(ReportExternalExport::getId).collect(Collectors.toList()));
+    }
+
+    @Override
+    @Transactional
+    public void recordFailed(List<ReportExternalExport> failedReports, int retryBaseSeconds, int retryMaxSeconds) {
+        if (failedReports.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<ReportExternalExport> reports = reportExternalExportDAO
+                .get(failedReports.stream().map(ReportExternalExport::getId).collect(Collectors.toList()));
+        for (ReportExternalExport report : reports) {
+            int attempts = report.getSendAttempts() + 1;
+            report.setSendAttempts(attempts);
+            report.setNextAttemptTime(
+                    new Timestamp(now + retryDelaySeconds(attempts, retryBaseSeconds, retryMaxSeconds) * 1000L));
+            report.setClaimedUntil(null);
+        }
+    }
+
+    static long retryDelaySeconds(int attempts, int retryBaseSeconds, int retryMaxSeconds) {
+        long delay = (long) retryBaseSeconds << Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(delay, retryMaxSeconds);
+    }
+}
@@ -0,0 +1,45 @@
+package org.openelisglobal.dataexchange.service.order;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of an electronic order search, ordered by status and then newest
+ * first.
+ */
+public class ElectronicOrderSearchPage<T> {
+
+    private final List<T> results;
+    private final int page;
+    private final int pageSize;
+    private final long totalCount;
+
+    public ElectronicOrderSearchPage(List<T> results, int page, int pageSize, long totalCount) {
+        this.results = results;
+        this.page = page;
+        this.pageSize = pageSize;
+        this.totalCount = totalCount;
+    }
+
+    public <R> ElectronicOrderSearchPage<R> map(Function<T, R> mapper) {
+        return new ElectronicOrderSearchPage<>(results.stream().map(mapper).collect(Collectors.toList()), page,
+                pageSize, totalCount);
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+}
@@ -3,6 +3,7 @@ package org.openelisglobal.dataexchange.service.order;
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.Map;
 import org.openelisglobal.common.service.BaseObjectService;
 import org.openelisglobal.common.services.StatusService.ExternalOrderStatus;
 import org.openelisglobal.dataexchange.order.form.ElectronicOrderViewForm;
@@ -23,6 +24,17 @@ public interface ElectronicOrderService extends BaseObjectService<ElectronicOrde
     List<ElectronicOrder> getElectronicOrdersContainingValueExludedByOrderedBy(String searchValue,
             List<ExternalOrderStatus> excludedStatuses, SortOrder sortOrder);
 
+    /**
+     * Finds the orders with an external id, accession number, patient name or
+     * identifier or requested test code containing the value, by status then
+     * newest first
+     *
+     * @param page     the page asked for, from 0
+     * @param pageSize capped at the configured maximum
+     */
+    ElectronicOrderSearchPage<ElectronicOrder> searchElectronicOrders(String searchValue,
+            List<ExternalOrderStatus> excludedStatuses, int page, int pageSize);
+
     List<ElectronicOrder> getAllElectronicOrdersByDateAndStatus(Date startDate, Date endDate, String statusId,
             SortOrder sortOrder);
 
@@ -36,6 +48,8 @@ public interface ElectronicOrderService extends BaseObjectService<ElectronicOrde
 
     int getCountOfElectronicOrdersByStatusList(List<Integer> statusIds);
 
+    Map<String, Long> getCountOfElectronicOrdersByStatusId();
+
     List<ElectronicOrder> getAllElectronicOrdersByStatusList(List<Integer> statusIds, SortOrder sortOrder);
 
     List<ElectronicOrder> searchForElectronicOrders(ElectronicOrderViewForm form);
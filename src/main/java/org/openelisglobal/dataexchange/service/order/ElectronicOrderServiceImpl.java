@@ -5,6 +5,7 @@ import java.sql.Date;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.validator.GenericValidator;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
@@ -23,6 +24,7 @@ import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder.SortOrd
 import org.openelisglobal.organization.service.OrganizationService;
 import org.openelisglobal.test.service.TestService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -42,6 +44,9 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
     @Autowired
     private FhirConfig fhirConfig;
 
+    @Value("${org.openelisglobal.eorder.search.maxPageSize:100}")
+    private int maxPageSize;
+
     ElectronicOrderServiceImpl() {
         super(ElectronicOrder.class);
     }
@@ -90,16 +95,45 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
     @Override
     public List<ElectronicOrder> getElectronicOrdersContainingValueExludedByOrderedBy(String searchValue,
             List<ExternalOrderStatus> excludedStatuses, SortOrder sortOrder) {
-        List<Integer> exludedStatusIds = new ArrayList<>();
-        for (ExternalOrderStatus status : excludedStatuses) {
-            String statusId = statusService.getStatusID(status);
-            if (!GenericValidator.isBlankOrNull(statusId)) {
-                exludedStatusIds.add(Integer.parseInt(statusId));
-            }
+        return getBaseObjectDAO().getElectronicOrdersContainingValueExludedByOrderedBy(searchValue,
+                getStatusIds(excludedStatuses), sortOrder);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ElectronicOrderSearchPage<ElectronicOrder> searchElectronicOrders(String searchValue,
+            List<ExternalOrderStatus> excludedStatuses, int page, int pageSize) {
+        int size = Math.max(1, Math.min(pageSize, maxPageSize));
+        int pageNumber = Math.max(page, 0);
+        if (GenericValidator.isBlankOrNull(searchValue)) {
+            return new ElectronicOrderSearchPage<>(new ArrayList<>(), pageNumber, size, 0);
+        }
+        List<Integer> excludedStatusIds = getStatusIds(excludedStatuses);
+        long totalCount = getBaseObjectDAO().getCountOfElectronicOrdersContainingValue(searchValue,
+                excludedStatusIds);
+        // this is done in case sample lab number was used to search instead of the
+        // order lab number
+        if (totalCount == 0 && searchValue.contains(".")) {
+            searchValue = searchValue.substring(0, searchValue.indexOf('.'));
+            totalCount = getBaseObjectDAO().getCountOfElectronicOrdersContainingValue(searchValue, excludedStatusIds);
         }
+        List<ElectronicOrder> results = totalCount <= (long) pageNumber * size ? new ArrayList<>()
+                : getBaseObjectDAO().getElectronicOrdersContainingValue(searchValue, excludedStatusIds,
+                        pageNumber * size, size);
+        return new ElectronicOrderSearchPage<>(results, pageNumber, size, totalCount);
+    }
 
-        return getBaseObjectDAO().getElectronicOrdersContainingValueExludedByOrderedBy(searchValue, exludedStatusIds,
-                sortOrder);
+    private List<Integer> getStatusIds(List<ExternalOrderStatus> statuses) {
+        List<Integer> statusIds = new ArrayList<>();
+        if (statuses != null) {
+            for (ExternalOrderStatus status : statuses) {
+                String statusId = statusService.getStatusID(status);
+                if (!GenericValidator.isBlankOrNull(statusId)) {
+                    statusIds.add(Integer.parseInt(statusId));
+                }
+            }
+        }
+        return statusIds;
     }
 
     @Override
@@ -224,4 +258,10 @@ public class ElectronicOrderServiceImpl extends AuditableBaseObjectServiceImpl<E
     public int getCountOfElectronicOrdersByStatusList(List<Integer> statusIds) {
         return getBaseObjectDAO().getCountOfElectronicOrdersByStatusList(statusIds);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Long> getCountOfElectronicOrdersByStatusId() {
+        return getBaseObjectDAO().getCountOfElectronicOrdersByStatusId();
+    }
 }
@@ -0,0 +1,73 @@
+package org.openelisglobal.hibernate.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import org.hibernate.Session;
+import org.hibernate.boot.model.relational.QualifiedName;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.log.LogEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops startup when a sequence hibernate takes ids from in blocks does not
+ * step by the block size. Pooled-lo hands out the block starting at the
+ * sequence value, so a sequence stepping by less than increment_size gives the
+ * same ids out twice.
+ *
+ * <p>Runs once liquibase has altered the sequences, or hbm2ddl has created
+ * them, so it covers the test schema as well.
+ */
+@Component
+public class SequenceIncrementCheck {
+
+    private static final String INCREMENT_BY = "SELECT increment_by FROM pg_sequences WHERE sequencename = :name"
+            + " AND schemaname = COALESCE(CAST(:schema AS text), current_schema())";
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void checkSequenceIncrements() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Object defaultSchema = sessionFactory.getProperties().get("hibernate.default_schema");
+        List<String> mismatches = new ArrayList<>();
+        try (Session session = sessionFactory.openSession()) {
+            for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+                IdentifierGenerator generator = persister.getIdentifierGenerator();
+                if (!(generator instanceof SequenceStyleGenerator)) {
+                    continue;
+                }
+                SequenceStyleGenerator sequenceGenerator = (SequenceStyleGenerator) generator;
+                int incrementSize = sequenceGenerator.getDatabaseStructure().getIncrementSize();
+                if (incrementSize <= 1) {
+                    continue;
+                }
+                QualifiedName name = sequenceGenerator.getDatabaseStructure().getPhysicalName();
+                String schema = name.getSchemaName() == null
+                        ? (defaultSchema == null ? null : defaultSchema.toString())
+                        : name.getSchemaName().getText();
+                List<?> incrementBy = session.createNativeQuery(INCREMENT_BY)
+                        .setParameter("name", name.getObjectName().getText()).setParameter("schema", schema)
+                        .getResultList();
+                // a sequence which is not there yet fails on its first use anyway
+                if (!incrementBy.isEmpty() && ((Number) incrementBy.get(0)).longValue() != incrementSize) {
+                    mismatches.add(name.render() + " steps by " + incrementBy.get(0) + ", "
+                            + persister.getEntityName() + " takes ids in blocks of " + incrementSize);
+                }
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            String message = "sequence increments do not match the increment_size of their mapping: "
+                    + String.join("; ", mismatches);
+            LogEvent.logError(this.getClass().getSimpleName(), "checkSequenceIncrements", message);
+            throw new LIMSRuntimeException(message);
+        }
+    }
+}
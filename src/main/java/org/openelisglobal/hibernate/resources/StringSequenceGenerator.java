@@ -6,6 +6,7 @@ import org.hibernate.HibernateException;
 import org.hibernate.MappingException;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
 import org.hibernate.service.ServiceRegistry;
 import org.hibernate.type.LongType;
 import org.hibernate.type.Type;
@@ -21,6 +22,13 @@ public class StringSequenceGenerator extends SequenceStyleGenerator {
 
     @Override
     public void configure(Type type, Properties params, ServiceRegistry dialect) throws MappingException {
+        // ids are pre-allocated in blocks when the mapping sets increment_size.
+        // pooled-lo treats the sequence value as the start of the block, so rows
+        // inserted with nextval() outside of hibernate still get unique ids
+        if (!params.containsKey(OPT_PARAM) && params.containsKey(INCREMENT_PARAM)
+                && Integer.parseInt(params.getProperty(INCREMENT_PARAM)) > 1) {
+            params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        }
         super.configure(LongType.INSTANCE, params, dialect);
     }
 }
@@ -0,0 +1,195 @@
+package org.openelisglobal.hibernate.search.massindexer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openelisglobal.common.util.CheckpointFileUtil;
+
+/**
+ * The progress of one reindexing run. Ranged runs save it as a checkpoint after
+ * every chunk so a run cut short by a restart carries on after the last chunk
+ * that was indexed.
+ */
+public class IndexingJob {
+
+    public enum Type {
+        /** purge the live index and mass index everything into it */
+        FULL,
+        /** mass index everything into the shadow index, swapped in on restart */
+        SHADOW,
+        /** reindex the patients changed since a point in time */
+        CHANGED_SINCE,
+        /** reindex the patients in an id range */
+        ID_RANGE
+    }
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final Type type;
+    private volatile Status status = Status.RUNNING;
+    private final Long since;
+    private final Long fromId;
+    private final Long toId;
+    private volatile long lastIndexedId;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong indexedCount = new AtomicLong();
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String error;
+
+    public IndexingJob(Type type, Long since, Long fromId, Long toId) {
+        this(UUID.randomUUID().toString(), type, since, fromId, toId);
+    }
+
+    private IndexingJob(String id, Type type, Long since, Long fromId, Long toId) {
+        this.id = id;
+        this.type = type;
+        this.since = since;
+        this.fromId = fromId;
+        this.toId = toId;
+        lastIndexedId = fromId == null ? 0L : fromId - 1;
+        startedAt = System.currentTimeMillis();
+    }
+
+    public boolean isRanged() {
+        return type == Type.CHANGED_SINCE || type == Type.ID_RANGE;
+    }
+
+    void chunkIndexed(long lastIdInChunk, int count) {
+        lastIndexedId = lastIdInChunk;
+        indexedCount.addAndGet(count);
+    }
+
+    void addIndexed(long count) {
+        indexedCount.addAndGet(count);
+    }
+
+    void addToTotalCount(long count) {
+        totalCount.addAndGet(count);
+    }
+
+    void setTotalCount(long count) {
+        totalCount.set(count);
+    }
+
+    void completed() {
+        status = Status.COMPLETED;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    void failed(Throwable cause) {
+        status = Status.FAILED;
+        error = cause.toString();
+        finishedAt = System.currentTimeMillis();
+    }
+
+    void restarted() {
+        status = Status.RUNNING;
+        error = null;
+        finishedAt = 0;
+        startedAt = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getSince() {
+        return since;
+    }
+
+    public Long getFromId() {
+        return fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    public long getLastIndexedId() {
+        return lastIndexedId;
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getIndexedCount() {
+        return indexedCount.get();
+    }
+
+    public int getPercentComplete() {
+        long total = totalCount.get();
+        if (status == Status.COMPLETED) {
+            return 100;
+        }
+        return total == 0 ? 0 : (int) Math.min(99, indexedCount.get() * 100 / total);
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    void save(Path checkpoint) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("id", id);
+        properties.setProperty("type", type.name());
+        properties.setProperty("status", status.name());
+        properties.setProperty("lastIndexedId", Long.toString(lastIndexedId));
+        properties.setProperty("indexedCount", Long.toString(indexedCount.get()));
+        properties.setProperty("totalCount", Long.toString(totalCount.get()));
+        if (since != null) {
+            properties.setProperty("since", since.toString());
+        }
+        if (fromId != null) {
+            properties.setProperty("fromId", fromId.toString());
+        }
+        if (toId != null) {
+            properties.setProperty("toId", toId.toString());
+        }
+        CheckpointFileUtil.store(properties, checkpoint, "reindexing checkpoint");
+    }
+
+    /**
+     * @return the job saved in the checkpoint, null if there is none
+     */
+    static IndexingJob load(Path checkpoint) throws IOException {
+        Properties properties = CheckpointFileUtil.load(checkpoint);
+        if (properties == null) {
+            return null;
+        }
+        IndexingJob job = new IndexingJob(properties.getProperty("id"), Type.valueOf(properties.getProperty("type")),
+                toLong(properties.getProperty("since")), toLong(properties.getProperty("fromId")),
+                toLong(properties.getProperty("toId")));
+        job.status = Status.valueOf(properties.getProperty("status"));
+        job.lastIndexedId = Long.parseLong(properties.getProperty("lastIndexedId"));
+        job.indexedCount.set(Long.parseLong(properties.getProperty("indexedCount")));
+        job.totalCount.set(Long.parseLong(properties.getProperty("totalCount")));
+        return job;
+    }
+
+    private static Long toLong(String value) {
+        return value == null ? null : Long.valueOf(value);
+    }
+}
@@ -0,0 +1,102 @@
+package org.openelisglobal.hibernate.search.massindexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.openelisglobal.common.log.LogEvent;
+
+/**
+ * The layout of the Lucene index root. Besides one directory per index it holds
+ * the reindexing checkpoint and, while one is being built or waiting to be used,
+ * a shadow copy of the indexes.
+ *
+ * <p>Hibernate Search keeps the live indexes open while the application runs,
+ * so a finished shadow index is only moved into place at the next start, before
+ * Hibernate Search opens them.
+ */
+public final class LuceneIndexDirectories {
+
+    // must match hibernate.search.backend.directory.root in persistence.xml
+    public static final Path INDEX_ROOT = Paths.get("/var/lib/lucene_index");
+
+    private static final String SHADOW_DIRECTORY = ".shadow";
+    private static final String PREVIOUS_DIRECTORY = ".previous";
+    private static final String READY_MARKER = ".ready";
+    private static final String CHECKPOINT_FILE = ".reindex-checkpoint.properties";
+
+    private LuceneIndexDirectories() {
+    }
+
+    static Path shadowRoot() {
+        return INDEX_ROOT.resolve(SHADOW_DIRECTORY);
+    }
+
+    static Path checkpointFile() {
+        return INDEX_ROOT.resolve(CHECKPOINT_FILE);
+    }
+
+    /**
+     * Marks the shadow index as complete. It holds everything changed before
+     * buildStartedAt, later changes are reindexed after it has been swapped in.
+     */
+    static void markShadowReady(long buildStartedAt) throws IOException {
+        Files.write(shadowRoot().resolve(READY_MARKER), Long.toString(buildStartedAt).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Moves a complete shadow index into place. Must be called before Hibernate
+     * Search starts. Each index directory is swapped with a rename, so an index is
+     * never seen half written, and a swap interrupted part way is finished on the
+     * next start. Afterwards a reindex of what changed while the shadow was built
+     * is left in the checkpoint for MassIndexerService to run.
+     */
+    public static void swapInShadowIfReady() {
+        Path shadowRoot = shadowRoot();
+        Path readyMarker = shadowRoot.resolve(READY_MARKER);
+        if (!Files.exists(readyMarker)) {
+            return;
+        }
+        try {
+            long buildStartedAt = Long
+                    .parseLong(new String(Files.readAllBytes(readyMarker), StandardCharsets.UTF_8).trim());
+            Path previousRoot = INDEX_ROOT.resolve(PREVIOUS_DIRECTORY);
+            deleteRecursively(previousRoot);
+            Files.createDirectories(previousRoot);
+            try (DirectoryStream<Path> shadowIndexes = Files.newDirectoryStream(shadowRoot,
+                    path -> Files.isDirectory(path) && !path.getFileName().toString().startsWith("."))) {
+                for (Path shadowIndex : shadowIndexes) {
+                    Path liveIndex = INDEX_ROOT.resolve(shadowIndex.getFileName().toString());
+                    if (Files.exists(liveIndex)) {
+                        Files.move(liveIndex, previousRoot.resolve(liveIndex.getFileName().toString()),
+                                StandardCopyOption.ATOMIC_MOVE);
+                    }
+                    Files.move(shadowIndex, liveIndex, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            new IndexingJob(IndexingJob.Type.CHANGED_SINCE, buildStartedAt, null, null).save(checkpointFile());
+            deleteRecursively(shadowRoot);
+            deleteRecursively(previousRoot);
+            LogEvent.logInfo(LuceneIndexDirectories.class.getSimpleName(), "swapInShadowIfReady",
+                    "the shadow index has replaced the live index");
+        } catch (IOException | RuntimeException e) {
+            LogEvent.logError("could not swap in the shadow index", e);
+        }
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
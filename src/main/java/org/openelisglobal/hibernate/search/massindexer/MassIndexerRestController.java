@@ -1,10 +1,15 @@
 package org.openelisglobal.hibernate.search.massindexer;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -15,13 +20,45 @@ public class MassIndexerRestController {
     MassIndexerService massIndexerService;
 
     @GetMapping("/reindex")
-    public ResponseEntity<String> reindex() {
+    public ResponseEntity<Object> reindex() {
+        return start(massIndexerService::reindex);
+    }
+
+    @GetMapping("/reindex/shadow")
+    public ResponseEntity<Object> reindexInShadow() {
+        return start(massIndexerService::reindexInShadow);
+    }
+
+    @GetMapping("/reindex/changed")
+    public ResponseEntity<Object> reindexChangedSince(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        return start(() -> massIndexerService.reindexChangedSince(Timestamp.valueOf(since)));
+    }
+
+    @GetMapping("/reindex/range")
+    public ResponseEntity<Object> reindexIdRange(@RequestParam long fromId, @RequestParam long toId) {
+        if (fromId > toId) {
+            return ResponseEntity.badRequest().body("fromId must not be greater than toId");
+        }
+        return start(() -> massIndexerService.reindexIdRange(fromId, toId));
+    }
+
+    @GetMapping("/reindex/resume")
+    public ResponseEntity<Object> resume() {
+        return start(massIndexerService::resume);
+    }
+
+    @GetMapping("/reindex/status")
+    public ResponseEntity<IndexingJob> status() {
+        IndexingJob job = massIndexerService.getCurrentJob();
+        return job == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(job);
+    }
+
+    private ResponseEntity<Object> start(Supplier<IndexingJob> reindexing) {
         try {
-            massIndexerService.reindex();
-            return ResponseEntity.ok("Reindexing completed successfully.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error occurred during reindexing: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reindexing.get());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         }
     }
 }
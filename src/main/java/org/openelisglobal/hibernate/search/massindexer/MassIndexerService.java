@@ -1,31 +1,345 @@
 package org.openelisglobal.hibernate.search.massindexer;
 
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 import org.hibernate.search.mapper.orm.Search;
+import org.hibernate.search.mapper.orm.cfg.HibernateOrmMapperSettings;
 import org.hibernate.search.mapper.orm.massindexing.MassIndexer;
-import org.hibernate.search.mapper.orm.session.SearchSession;
+import org.hibernate.search.mapper.orm.work.SearchIndexingPlan;
+import org.hibernate.search.mapper.pojo.massindexing.MassIndexingMonitor;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.hibernate.search.massindexer.IndexingJob.Status;
+import org.openelisglobal.hibernate.search.massindexer.IndexingJob.Type;
+import org.openelisglobal.patient.valueholder.Patient;
+import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Rebuilds the Hibernate Search indexes. One run at a time is allowed and it
+ * runs in the background, its progress is available from getCurrentJob.
+ *
+ * <ul>
+ * <li>a full reindex purges the live index and mass indexes everything</li>
+ * <li>a shadow reindex mass indexes everything into a separate directory while
+ * the live index keeps serving searches, the result is swapped in on the next
+ * start</li>
+ * <li>a ranged reindex updates the patients changed since a point in time or in
+ * an id range, chunk by chunk, and carries on from its last chunk when the
+ * application is restarted part way</li>
+ * </ul>
+ */
 @Service
 public class MassIndexerService {
+
+    private static final String PERSISTENCE_XML = "classpath:persistence/persistence.xml";
+
     @PersistenceContext
     EntityManager entityManager;
 
-    // parameters to allow tuning the MassIndexer for optimal performance
+    @PersistenceUnit
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier(AsyncConfig.JOB_EXECUTOR)
+    private InstrumentedTaskExecutor jobExecutor;
+
+    // each loading thread holds a database connection for the whole run, 0 sizes
+    // the pool from the number of cores
+    @Value("${org.openelisglobal.reindex.threadsToLoadObjects:0}")
+    private int threadsToLoadObjects;
+
+    @Value("${org.openelisglobal.reindex.batchSizeToLoadObjects:50}")
+    private int batchSizeToLoadObjects;
+
+    @Value("${org.openelisglobal.reindex.idFetchSize:1000}")
+    private int idFetchSize;
+
+    // patients reindexed per transaction and checkpoint by a ranged reindex
+    @Value("${org.openelisglobal.reindex.chunkSize:500}")
+    private int chunkSize;
+
+    private final Object jobLock = new Object();
+    private final AtomicBoolean resumeChecked = new AtomicBoolean();
+    private volatile IndexingJob currentJob;
+    private Future<?> worker;
+
+    public IndexingJob reindex() {
+        return start(new IndexingJob(Type.FULL, null, null, null));
+    }
+
+    public IndexingJob reindexInShadow() {
+        return start(new IndexingJob(Type.SHADOW, null, null, null));
+    }
+
+    public IndexingJob reindexChangedSince(Timestamp since) {
+        return start(new IndexingJob(Type.CHANGED_SINCE, since.getTime(), null, null));
+    }
+
+    public IndexingJob reindexIdRange(long fromId, long toId) {
+        return start(new IndexingJob(Type.ID_RANGE, null, fromId, toId));
+    }
+
+    /**
+     * Carries on with a ranged reindex which failed, from its last indexed chunk
+     */
+    public IndexingJob resume() {
+        synchronized (jobLock) {
+            IndexingJob job = currentJob;
+            if (job == null || !job.isRanged() || job.getStatus() != Status.FAILED) {
+                throw new IllegalStateException("there is no failed ranged reindex to resume");
+            }
+            IndexingJob resumed = reloadCheckpoint();
+            if (resumed == null || !resumed.getId().equals(job.getId())) {
+                resumed = job;
+            }
+            resumed.restarted();
+            return start(resumed);
+        }
+    }
+
+    /**
+     * @return the running job, or the last one if none is running
+     */
+    public IndexingJob getCurrentJob() {
+        return currentJob;
+    }
+
+    /*
+     * a run cut short by a restart is carried on: ranged runs from their
+     * checkpoint, full and shadow runs from the start as their partial index can
+     * not be used
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void resumeInterruptedJob() {
+        if (!resumeChecked.compareAndSet(false, true)) {
+            return;
+        }
+        IndexingJob saved = reloadCheckpoint();
+        if (saved == null) {
+            return;
+        }
+        if (saved.getStatus() != Status.RUNNING) {
+            currentJob = saved;
+            return;
+        }
+        LogEvent.logInfo(this.getClass().getSimpleName(), "resumeInterruptedJob",
+                "resuming the " + saved.getType() + " reindex interrupted by a restart");
+        saved.restarted();
+        if (saved.isRanged()) {
+            start(saved);
+        } else {
+            start(new IndexingJob(saved.getType(), null, null, null));
+        }
+    }
+
+    private IndexingJob reloadCheckpoint() {
+        try {
+            return IndexingJob.load(LuceneIndexDirectories.checkpointFile());
+        } catch (IOException | RuntimeException e) {
+            LogEvent.logError("could not read the reindexing checkpoint", e);
+            return null;
+        }
+    }
+
+    private IndexingJob start(IndexingJob job) {
+        synchronized (jobLock) {
+            if (worker != null && !worker.isDone()) {
+                throw new IllegalStateException("a " + currentJob.getType() + " reindex is already running");
+            }
+            currentJob = job;
+            checkpoint(job);
+            worker = jobExecutor.submit(() -> run(job));
+            return job;
+        }
+    }
+
+    private void run(IndexingJob job) {
+        try {
+            switch (job.getType()) {
+            case FULL:
+                massIndexer(Search.mapping(entityManagerFactory).scope(Object.class).massIndexer(), job)
+                        .startAndWait();
+                break;
+            case SHADOW:
+                buildShadowIndex(job);
+                break;
+            default:
+                reindexRange(job);
+                break;
+            }
+            job.completed();
+            LogEvent.logInfo(this.getClass().getSimpleName(), "run",
+                    job.getType() + " reindex completed, " + job.getIndexedCount() + " documents indexed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.failed(e);
+        } catch (Exception e) {
+            LogEvent.logError("the " + job.getType() + " reindex failed", e);
+            job.failed(e);
+        } finally {
+            checkpoint(job);
+        }
+    }
+
+    private MassIndexer massIndexer(MassIndexer indexer, IndexingJob job) {
+        return indexer.threadsToLoadObjects(loadingThreads()).batchSizeToLoadObjects(batchSizeToLoadObjects)
+                .idFetchSize(idFetchSize).monitor(new JobMonitor(job));
+    }
+
+    int loadingThreads() {
+        if (threadsToLoadObjects > 0) {
+            return threadsToLoadObjects;
+        }
+        // one core is left for the threads writing the index
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 8));
+    }
+
+    /*
+     * A second persistence unit is started with its index root in the shadow
+     * directory and without automatic indexing, so the live index is left alone
+     */
+    private void buildShadowIndex(IndexingJob job) throws Exception {
+        LuceneIndexDirectories.deleteRecursively(LuceneIndexDirectories.shadowRoot());
+        long buildStartedAt = System.currentTimeMillis();
+
+        Map<String, Object> shadowProperties = new HashMap<>();
+        shadowProperties.put("hibernate.search.backend.directory.root",
+                LuceneIndexDirectories.shadowRoot().toString());
+        shadowProperties.put(HibernateOrmMapperSettings.AUTOMATIC_INDEXING_ENABLED, false);
+        LocalContainerEntityManagerFactoryBean shadowFactory = new LocalContainerEntityManagerFactoryBean();
+        shadowFactory.setDataSource(dataSource);
+        shadowFactory.setPersistenceXmlLocation(PERSISTENCE_XML);
+        shadowFactory.setJpaPropertyMap(shadowProperties);
+        shadowFactory.afterPropertiesSet();
+        try {
+            massIndexer(Search.mapping(shadowFactory.getObject()).scope(Object.class).massIndexer(), job)
+                    .startAndWait();
+        } finally {
+            shadowFactory.destroy();
+        }
+        LuceneIndexDirectories.markShadowReady(buildStartedAt);
+    }
+
+    private void reindexRange(IndexingJob job) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Number remaining = transactionTemplate
+                .execute(status -> (Number) patientQuery("select count(*)", job, false).uniqueResult());
+        job.setTotalCount(job.getIndexedCount() + (remaining == null ? 0 : remaining.longValue()));
+
+        int indexed;
+        do {
+            indexed = transactionTemplate.execute(status -> indexNextChunk(job));
+            checkpoint(job);
+        } while (indexed == chunkSize);
+    }
+
+    private int indexNextChunk(IndexingJob job) {
+        @SuppressWarnings("unchecked")
+        List<String> patientIds = patientQuery("select p.id", job, true).setMaxResults(chunkSize).list();
+        if (patientIds.isEmpty()) {
+            return 0;
+        }
+        List<Integer> ids = patientIds.stream().map(Integer::parseInt).collect(Collectors.toList());
+        Session session = entityManager.unwrap(Session.class);
+        SearchIndexingPlan indexingPlan = Search.session(entityManager).indexingPlan();
+        session.createQuery("from Patient p where p.id in (:ids)", Patient.class).setParameterList("ids", ids)
+                .list().forEach(indexingPlan::addOrUpdate);
+        session.createQuery("from PatientIdentity pi where pi.patientId in (:ids)", PatientIdentity.class)
+                .setParameterList("ids", ids).list().forEach(indexingPlan::addOrUpdate);
+        // the documents are written when the transaction commits
+        job.chunkIndexed(Long.parseLong(patientIds.get(patientIds.size() - 1)), patientIds.size());
+        return patientIds.size();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Query patientQuery(String select, IndexingJob job, boolean ordered) {
+        StringBuilder hql = new StringBuilder(select).append(" from Patient p where p.id > :lastIndexedId");
+        if (job.getToId() != null) {
+            hql.append(" and p.id <= :toId");
+        }
+        if (job.getSince() != null) {
+            hql.append(" and (p.lastupdated >= :since or p.person.lastupdated >= :since"
+                    + " or p.id in (select pi.patientId from PatientIdentity pi where pi.lastupdated >= :since))");
+        }
+        if (ordered) {
+            hql.append(" order by p.id");
+        }
+        Query query = entityManager.unwrap(Session.class).createQuery(hql.toString());
+        query.setParameter("lastIndexedId", Math.toIntExact(job.getLastIndexedId()));
+        if (job.getToId() != null) {
+            query.setParameter("toId", Math.toIntExact(job.getToId()));
+        }
+        if (job.getSince() != null) {
+            query.setParameter("since", new Timestamp(job.getSince()));
+        }
+        return query;
+    }
+
+    private void checkpoint(IndexingJob job) {
+        try {
+            job.save(LuceneIndexDirectories.checkpointFile());
+        } catch (IOException e) {
+            LogEvent.logError("could not save the reindexing checkpoint", e);
+        }
+    }
+
+    private static class JobMonitor implements MassIndexingMonitor {
+
+        private final IndexingJob job;
+
+        private JobMonitor(IndexingJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void documentsAdded(long increment) {
+            job.addIndexed(increment);
+        }
 
-    private int idFetchSize = 100;
+        @Override
+        public void documentsBuilt(long number) {
+        }
 
-    private int batchSizeToLoadObjects = 10;
+        @Override
+        public void entitiesLoaded(long size) {
+        }
 
-    private int threadsToLoadObjects = 6;
+        @Override
+        public void addToTotalCount(long count) {
+            job.addToTotalCount(count);
+        }
 
-    @Transactional
-    public void reindex() throws Exception {
-        SearchSession searchSession = Search.session(entityManager);
-        MassIndexer indexer = searchSession.massIndexer();
-        indexer.idFetchSize(idFetchSize).batchSizeToLoadObjects(batchSizeToLoadObjects)
-                .threadsToLoadObjects(threadsToLoadObjects).startAndWait();
+        @Override
+        public void indexingCompleted() {
+        }
     }
 }
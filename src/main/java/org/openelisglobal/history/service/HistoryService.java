@@ -10,4 +10,12 @@ public interface HistoryService extends BaseObjectService<History, String> {
     List<History> getHistoryByRefIdAndRefTableId(String Id, String Table) throws LIMSRuntimeException;
 
     List<History> getHistoryByRefIdAndRefTableId(History history) throws LIMSRuntimeException;
+
+    /**
+     * Moves up to limit of the oldest rows of the audit history outbox into
+     * history
+     *
+     * @return the number of rows moved
+     */
+    int moveFromOutbox(int limit);
 }
@@ -2,7 +2,10 @@ package org.openelisglobal.history.service;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import org.openelisglobal.audittrail.dao.AuditHistoryOutboxDAO;
 import org.openelisglobal.audittrail.dao.HistoryDAO;
 import org.openelisglobal.audittrail.valueholder.History;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
@@ -16,6 +19,8 @@ import org.springframework.transaction.annotation.Transactional;
 public class HistoryServiceImpl extends AuditableBaseObjectServiceImpl<History, String> implements HistoryService {
     @Autowired
     protected HistoryDAO baseObjectDAO;
+    @Autowired
+    private AuditHistoryOutboxDAO auditHistoryOutboxDAO;
 
     HistoryServiceImpl() {
         super(History.class);
@@ -39,6 +44,18 @@ public class HistoryServiceImpl extends AuditableBaseObjectServiceImpl<History,
         return baseObjectDAO.getHistoryByRefIdAndRefTableId(id, table);
     }
 
+    @Override
+    @Transactional
+    public int moveFromOutbox(int limit) {
+        Map<Long, History> histories = auditHistoryOutboxDAO.getOldestForUpdate(limit);
+        if (histories.isEmpty()) {
+            return 0;
+        }
+        insertAll(new ArrayList<>(histories.values()));
+        auditHistoryOutboxDAO.delete(histories.keySet());
+        return histories.size();
+    }
+
     @Override
     public String insert(History history) {
         return baseObjectDAO.insert(history);
@@ -0,0 +1,224 @@
+package org.openelisglobal.homedashboard.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The counts behind the home page dashboard for one day. Each analysis adds
+ * its state to them: the count for its status, the counts for the day it was
+ * started and released on, and its turnaround times when it was completed or
+ * released that day. A change of state takes the old one away and adds the
+ * new one, so the counts stay what the dashboard's queries would give without
+ * running them.
+ *
+ * <p>Every count may be changed and read from any thread. A read of several
+ * counts is not one snapshot, each is right as of when it was read.
+ */
+final class DashboardCounters {
+
+    // turnarounds longer than this are only counted as longer
+    static final int MAX_TURN_AROUND_DAYS = 60;
+
+    private final LocalDate day;
+    private final String finalizedStatusId;
+    private final String rejectedStatusId;
+
+    private final Map<String, AtomicLong> analysesByStatus = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> startedOnDayByStatus = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> releasedOnDayByStatus = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> electronicOrdersByStatus = new ConcurrentHashMap<>();
+    private final TurnAroundHistogram receptionToValidation = new TurnAroundHistogram(MAX_TURN_AROUND_DAYS);
+    private final TurnAroundHistogram resultToValidation = new TurnAroundHistogram(MAX_TURN_AROUND_DAYS);
+    private final TurnAroundHistogram receptionToResult = new TurnAroundHistogram(MAX_TURN_AROUND_DAYS);
+    private final AtomicLong unprintedResults = new AtomicLong();
+
+    DashboardCounters(LocalDate day, String finalizedStatusId, String rejectedStatusId) {
+        this.day = day;
+        this.finalizedStatusId = finalizedStatusId;
+        this.rejectedStatusId = rejectedStatusId;
+    }
+
+    LocalDate getDay() {
+        return day;
+    }
+
+    /**
+     * Moves an analysis from one state to another
+     *
+     * @param before null for a new analysis
+     * @param after  null for a deleted analysis
+     */
+    void analysisChanged(AnalysisState before, AnalysisState after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        if (before != null) {
+            count(before, -1);
+        }
+        if (after != null) {
+            count(after, 1);
+        }
+    }
+
+    /**
+     * Adds the analyses in a status without their dates, for those not touching
+     * the day
+     */
+    void addAnalyses(String statusId, long count) {
+        add(analysesByStatus, statusId, count);
+    }
+
+    /**
+     * Adds an analysis touching the day without counting it in its status, for
+     * adding to the counts from {@link #addAnalyses}
+     */
+    void addAnalysisOnDay(AnalysisState state) {
+        countOnDay(state, 1);
+    }
+
+    /**
+     * @param beforeStatusId null for a new order
+     * @param afterStatusId  null for a deleted order
+     */
+    void electronicOrderChanged(String beforeStatusId, String afterStatusId) {
+        if (Objects.equals(beforeStatusId, afterStatusId)) {
+            return;
+        }
+        add(electronicOrdersByStatus, beforeStatusId, -1);
+        add(electronicOrdersByStatus, afterStatusId, 1);
+    }
+
+    void addElectronicOrders(String statusId, long count) {
+        add(electronicOrdersByStatus, statusId, count);
+    }
+
+    void setUnprintedResults(long count) {
+        unprintedResults.set(count);
+    }
+
+    private void count(AnalysisState state, int by) {
+        add(analysesByStatus, state.statusId, by);
+        countOnDay(state, by);
+    }
+
+    private void countOnDay(AnalysisState state, int by) {
+        if (day.equals(state.startedDate)) {
+            add(startedOnDayByStatus, state.statusId, by);
+        }
+        if (day.equals(state.releasedDate)) {
+            add(releasedOnDayByStatus, state.statusId, by);
+            if (Objects.equals(finalizedStatusId, state.statusId)) {
+                addTurnAround(receptionToValidation, state.startedDate, state.releasedDate, by);
+                addTurnAround(resultToValidation, state.completedDate, state.releasedDate, by);
+            }
+        }
+        if (day.equals(state.completedDate) && !Objects.equals(rejectedStatusId, state.statusId)) {
+            addTurnAround(receptionToResult, state.startedDate, state.completedDate, by);
+        }
+    }
+
+    private static void addTurnAround(TurnAroundHistogram histogram, LocalDate from, LocalDate to, int by) {
+        if (from == null || to == null) {
+            return;
+        }
+        long days = ChronoUnit.DAYS.between(from, to);
+        if (by > 0) {
+            histogram.add(days);
+        } else {
+            histogram.remove(days);
+        }
+    }
+
+    private static void add(Map<String, AtomicLong> counts, String statusId, long by) {
+        if (statusId != null) {
+            counts.computeIfAbsent(statusId, id -> new AtomicLong()).addAndGet(by);
+        }
+    }
+
+    long getAnalyses(String statusId) {
+        return get(analysesByStatus, statusId);
+    }
+
+    long getStartedOnDay(String statusId) {
+        return get(startedOnDayByStatus, statusId);
+    }
+
+    long getStartedOnDay() {
+        return startedOnDayByStatus.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    long getReleasedOnDay(String statusId) {
+        return get(releasedOnDayByStatus, statusId);
+    }
+
+    long getElectronicOrders(String statusId) {
+        return get(electronicOrdersByStatus, statusId);
+    }
+
+    long getUnprintedResults() {
+        return unprintedResults.get();
+    }
+
+    TurnAroundHistogram getReceptionToValidation() {
+        return receptionToValidation;
+    }
+
+    TurnAroundHistogram getResultToValidation() {
+        return resultToValidation;
+    }
+
+    TurnAroundHistogram getReceptionToResult() {
+        return receptionToResult;
+    }
+
+    private static long get(Map<String, AtomicLong> counts, String statusId) {
+        AtomicLong count = statusId == null ? null : counts.get(statusId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * What the dashboard counts of an analysis
+     */
+    static final class AnalysisState {
+
+        private final String statusId;
+        private final LocalDate startedDate;
+        private final LocalDate completedDate;
+        private final LocalDate releasedDate;
+
+        AnalysisState(String statusId, Date startedDate, Date completedDate, Date releasedDate) {
+            this.statusId = statusId;
+            this.startedDate = toLocalDate(startedDate);
+            this.completedDate = toLocalDate(completedDate);
+            this.releasedDate = toLocalDate(releasedDate);
+        }
+
+        private static LocalDate toLocalDate(Date date) {
+            return date == null ? null : new java.sql.Date(date.getTime()).toLocalDate();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AnalysisState)) {
+                return false;
+            }
+            AnalysisState other = (AnalysisState) o;
+            return Objects.equals(statusId, other.statusId) && Objects.equals(startedDate, other.startedDate)
+                    && Objects.equals(completedDate, other.completedDate)
+                    && Objects.equals(releasedDate, other.releasedDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(statusId, startedDate, completedDate, releasedDate);
+        }
+    }
+}
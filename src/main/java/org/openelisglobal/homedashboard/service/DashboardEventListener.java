@@ -0,0 +1,123 @@
+package org.openelisglobal.homedashboard.service;
+
+import java.util.Arrays;
+import java.util.Date;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.openelisglobal.analysis.valueholder.Analysis;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
+import org.openelisglobal.homedashboard.service.DashboardCounters.AnalysisState;
+
+/**
+ * Passes each committed insert, update and delete of an analysis or an
+ * electronic order on to the dashboard counts. Hibernate only calls it once
+ * the transaction has committed, so rolled back changes are never counted.
+ *
+ * <p>An update made without the entity's previous state having been read
+ * cannot be counted as a change, the counts are rebuilt instead.
+ */
+class DashboardEventListener
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient DashboardMetricsServiceImpl metricsService;
+    private final int analysisStatus;
+    private final int analysisStarted;
+    private final int analysisCompleted;
+    private final int analysisReleased;
+    private final int electronicOrderStatus;
+
+    DashboardEventListener(DashboardMetricsServiceImpl metricsService, EntityPersister analysisPersister,
+            EntityPersister electronicOrderPersister) {
+        this.metricsService = metricsService;
+        analysisStatus = indexOf(analysisPersister, "statusId");
+        analysisStarted = indexOf(analysisPersister, "startedDate");
+        analysisCompleted = indexOf(analysisPersister, "completedDate");
+        analysisReleased = indexOf(analysisPersister, "releasedDate");
+        electronicOrderStatus = indexOf(electronicOrderPersister, "statusId");
+    }
+
+    private static int indexOf(EntityPersister persister, String propertyName) {
+        int index = Arrays.asList(persister.getPropertyNames()).indexOf(propertyName);
+        if (index < 0) {
+            throw new IllegalStateException(persister.getEntityName() + " has no property " + propertyName);
+        }
+        return index;
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return isAnalysis(persister) || isElectronicOrder(persister);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getPersister(), null, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!requiresPostCommitHanding(event.getPersister())) {
+            return;
+        }
+        if (event.getOldState() == null) {
+            metricsService.rebuildSoon();
+            return;
+        }
+        changed(event.getPersister(), event.getOldState(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getPersister(), event.getDeletedState(), null);
+    }
+
+    private void changed(EntityPersister persister, Object[] before, Object[] after) {
+        DashboardCounters counters = metricsService.getCounters();
+        if (counters == null) {
+            return;
+        }
+        if (isAnalysis(persister)) {
+            counters.analysisChanged(analysisState(before), analysisState(after));
+        } else if (isElectronicOrder(persister)) {
+            counters.electronicOrderChanged(before == null ? null : (String) before[electronicOrderStatus],
+                    after == null ? null : (String) after[electronicOrderStatus]);
+        }
+    }
+
+    private AnalysisState analysisState(Object[] state) {
+        if (state == null) {
+            return null;
+        }
+        return new AnalysisState((String) state[analysisStatus], (Date) state[analysisStarted],
+                (Date) state[analysisCompleted], (Date) state[analysisReleased]);
+    }
+
+    private static boolean isAnalysis(EntityPersister persister) {
+        return Analysis.class.equals(persister.getMappedClass());
+    }
+
+    private static boolean isElectronicOrder(EntityPersister persister) {
+        return ElectronicOrder.class.equals(persister.getMappedClass());
+    }
+
+    // the counts are left as they are, the change never happened
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+}
@@ -0,0 +1,22 @@
+package org.openelisglobal.homedashboard.service;
+
+import org.openelisglobal.common.rest.provider.bean.homedashboard.AverageTimeDisplayBean;
+import org.openelisglobal.common.rest.provider.bean.homedashboard.DashBoardMetrics;
+
+public interface DashboardMetricsService {
+
+    /**
+     * @return the home page tiles for today, from memory
+     */
+    DashBoardMetrics getDashBoardMetrics();
+
+    /**
+     * @return today's average turnaround times in hours, from memory
+     */
+    AverageTimeDisplayBean getAverageTurnAroundTimes();
+
+    /**
+     * Counts everything again from the database
+     */
+    void rebuild();
+}
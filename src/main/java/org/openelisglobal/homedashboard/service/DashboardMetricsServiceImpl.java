@@ -0,0 +1,209 @@
+package org.openelisglobal.homedashboard.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.openelisglobal.analysis.service.AnalysisService;
+import org.openelisglobal.analysis.valueholder.Analysis;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.rest.provider.bean.homedashboard.AverageTimeDisplayBean;
+import org.openelisglobal.common.rest.provider.bean.homedashboard.DashBoardMetrics;
+import org.openelisglobal.common.services.IStatusService;
+import org.openelisglobal.common.services.StatusService.AnalysisStatus;
+import org.openelisglobal.common.services.StatusService.ExternalOrderStatus;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
+import org.openelisglobal.dataexchange.service.order.ElectronicOrderService;
+import org.openelisglobal.homedashboard.service.DashboardCounters.AnalysisState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Serves the home page dashboard from counts kept in memory, so loading the
+ * page no longer runs a query per tile. The counts are built from the database
+ * at startup and at the start of each day, kept up to date from every committed
+ * change to an analysis or an electronic order, and built again every
+ * reconcileMillis to take in changes made by other nodes or outside Hibernate.
+ *
+ * <p>The number of unprinted results depends on the reports run, not on the
+ * analyses, so it is only counted when the counts are built.
+ */
+@Service
+@DependsOn({ "springContext" })
+public class DashboardMetricsServiceImpl implements DashboardMetricsService {
+
+    // an analysis taking longer than this from reception to validation is late
+    private static final long DELAYED_TURN_AROUND_HOURS = 96;
+
+    @Autowired
+    private AnalysisService analysisService;
+    @Autowired
+    private ElectronicOrderService electronicOrderService;
+    @Autowired
+    private IStatusService statusService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier(AsyncConfig.DEFAULT_EXECUTOR)
+    private InstrumentedTaskExecutor asyncExecutor;
+
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private volatile DashboardCounters counters;
+
+    @PostConstruct
+    public void start() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        MetamodelImplementor metamodel = sessionFactory.getMetamodel();
+        DashboardEventListener listener = new DashboardEventListener(this,
+                metamodel.entityPersister(Analysis.class), metamodel.entityPersister(ElectronicOrder.class));
+        EventListenerRegistry listenerRegistry = sessionFactory.getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listenerRegistry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        listenerRegistry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        listenerRegistry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        rebuild();
+    }
+
+    @Override
+    public DashBoardMetrics getDashBoardMetrics() {
+        DashboardCounters today = counters();
+        String finalized = statusService.getStatusID(AnalysisStatus.Finalized);
+        String rejected = statusService.getStatusID(AnalysisStatus.SampleRejected);
+        long startedToday = today.getStartedOnDay();
+        long rejectedToday = today.getStartedOnDay(rejected);
+
+        DashBoardMetrics metrics = new DashBoardMetrics();
+        metrics.setOrdersInProgress(
+                (int) today.getAnalyses(statusService.getStatusID(AnalysisStatus.NotStarted)));
+        metrics.setOrdersReadyForValidation(
+                (int) today.getAnalyses(statusService.getStatusID(AnalysisStatus.TechnicalAcceptance)));
+        metrics.setOrdersCompletedToday((int) today.getReleasedOnDay(finalized));
+        metrics.setPatiallyCompletedToday((int) (startedToday - rejectedToday - today.getStartedOnDay(finalized)));
+        metrics.setOrderEnterdByUserToday((int) (startedToday - rejectedToday));
+        metrics.setOrdersRejectedToday((int) rejectedToday);
+        metrics.setUnPritendResults((int) today.getUnprintedResults());
+        metrics.setIncomigOrders(
+                (int) (today.getElectronicOrders(statusService.getStatusID(ExternalOrderStatus.Entered))
+                        + today.getElectronicOrders(statusService.getStatusID(ExternalOrderStatus.NonConforming))));
+        metrics.setAverageTurnAroudTime(today.getReceptionToValidation().getAverageHours());
+        metrics.setDelayedTurnAround(
+                (int) today.getReceptionToValidation().getCountOverHours(DELAYED_TURN_AROUND_HOURS));
+        return metrics;
+    }
+
+    @Override
+    public AverageTimeDisplayBean getAverageTurnAroundTimes() {
+        DashboardCounters today = counters();
+        AverageTimeDisplayBean timeBean = new AverageTimeDisplayBean();
+        timeBean.setReceptionToResult(today.getReceptionToResult().getAverageHours());
+        timeBean.setReceptionToValidation(today.getReceptionToValidation().getAverageHours());
+        timeBean.setResultToValidation(today.getResultToValidation().getAverageHours());
+        return timeBean;
+    }
+
+    DashboardCounters getCounters() {
+        return counters;
+    }
+
+    private DashboardCounters counters() {
+        DashboardCounters current = counters;
+        if (current == null || !LocalDate.now().equals(current.getDay())) {
+            // only the first read of the day waits, on the day's counts
+            synchronized (rebuildLock) {
+                current = counters;
+                if (current == null || !LocalDate.now().equals(current.getDay())) {
+                    current = rebuildCounters();
+                }
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${org.openelisglobal.dashboard.reconcileMillis:300000}",
+            fixedDelayString = "${org.openelisglobal.dashboard.reconcileMillis:300000}")
+    public void reconcile() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            LogEvent.logError("error counting the dashboard metrics", e);
+        }
+    }
+
+    /*
+     * a rebuild that has not started yet counts every change committed before it
+     * does, so one queued rebuild is enough
+     */
+    void rebuildSoon() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            asyncExecutor.execute(() -> {
+                rebuildQueued.set(false);
+                reconcile();
+            });
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            rebuildCounters();
+        }
+    }
+
+    /*
+     * in a transaction of its own, after a commit the finished one is still bound.
+     * A change committed while the counts are read may be missed or counted twice,
+     * the next rebuild puts it right.
+     */
+    private DashboardCounters rebuildCounters() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        counters = transactionTemplate.execute(status -> countAll(LocalDate.now()));
+        return counters;
+    }
+
+    private DashboardCounters countAll(LocalDate day) {
+        String finalized = statusService.getStatusID(AnalysisStatus.Finalized);
+        DashboardCounters dayCounters = new DashboardCounters(day, finalized,
+                statusService.getStatusID(AnalysisStatus.SampleRejected));
+        analysisService.getCountOfAnalysesByStatusId().forEach(dayCounters::addAnalyses);
+        for (Object[] row : analysisService.getStatusAndDatesOfAnalysesOn(Date.valueOf(day))) {
+            dayCounters.addAnalysisOnDay(new AnalysisState((String) row[0], (java.util.Date) row[1],
+                    (java.util.Date) row[2], (java.util.Date) row[3]));
+        }
+        electronicOrderService.getCountOfElectronicOrdersByStatusId().forEach(dayCounters::addElectronicOrders);
+        dayCounters.setUnprintedResults(countUnprintedResults(day, finalized));
+        return dayCounters;
+    }
+
+    private long countUnprintedResults(LocalDate day, String finalized) {
+        List<Analysis> analyses = analysisService.getAnalysesCompletedOnByStatusId(Date.valueOf(day), finalized);
+        if (analyses == null) {
+            return 0;
+        }
+        // the report is run for the sample, so once for all of its analyses
+        Map<String, Boolean> printedBySample = new HashMap<>();
+        return analyses.stream().filter(analysis -> !printedBySample.computeIfAbsent(
+                analysis.getSampleItem().getSample().getId(), id -> analysisService.patientReportHasBeenDone(analysis)))
+                .count();
+    }
+}
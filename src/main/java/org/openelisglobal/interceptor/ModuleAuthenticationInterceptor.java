@@ -1,19 +1,15 @@
 package org.openelisglobal.interceptor;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.validator.BaseErrors;
 import org.openelisglobal.login.dao.UserModuleService;
-import org.openelisglobal.systemmodule.service.SystemModuleUrlService;
-import org.openelisglobal.systemmodule.valueholder.SystemModuleParam;
-import org.openelisglobal.systemmodule.valueholder.SystemModuleUrl;
+import org.openelisglobal.systemmodule.service.ModulePermissionService;
+import org.openelisglobal.systemmodule.service.UserModulePermissions;
+import org.openelisglobal.systemmodule.service.UserModulePermissions.Access;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.web.DefaultRedirectStrategy;
@@ -27,8 +23,6 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 @Qualifier(value = "ModuleAuthenticationInterceptor")
 public class ModuleAuthenticationInterceptor extends HandlerInterceptorAdapter {
 
-    private static final boolean USE_PARAMETERS = true;
-
     // whether to reject access to protected pages if no modules are assigned
     public static final boolean REQUIRE_MODULE = true;
 
@@ -37,7 +31,7 @@ public class ModuleAuthenticationInterceptor extends HandlerInterceptorAdapter {
     @Autowired
     private UserModuleService userModuleService;
     @Autowired
-    private SystemModuleUrlService systemModuleUrlService;
+    private ModulePermissionService modulePermissionService;
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
@@ -61,52 +55,20 @@ public class ModuleAuthenticationInterceptor extends HandlerInterceptorAdapter {
     }
 
     protected boolean hasPermission(Errors errors, HttpServletRequest request) {
+        UserModulePermissions permissions = modulePermissionService.getPermissions(request);
         if (ConfigurationProperties.getInstance().getPropertyValue("permissions.agent").equalsIgnoreCase("ROLE")) {
-            return hasPermissionForUrl(request, USE_PARAMETERS) || userModuleService.isUserAdmin(request);
+            return hasPermissionForUrl(request, permissions) || permissions.isAdmin();
         } else {
-            return userModuleService.isVerifyUserModule(request) || userModuleService.isUserAdmin(request);
+            return userModuleService.isVerifyUserModule(request) || permissions.isAdmin();
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private boolean hasPermissionForUrl(HttpServletRequest request, boolean useParameters) {
-        HashSet<String> accessMap = (HashSet<String>) request.getSession()
-                .getAttribute(IActionConstants.PERMITTED_ACTIONS_MAP);
-        if (accessMap == null) {
-            accessMap = (HashSet<String>) request.getAttribute(IActionConstants.PERMITTED_ACTIONS_MAP);
-        }
-        List<SystemModuleUrl> sysModsByUrl = systemModuleUrlService.getByRequest(request);
-
-        if (useParameters) {
-            sysModsByUrl = filterParamMatches(request, sysModsByUrl);
-        }
-        if (sysModsByUrl.isEmpty() && REQUIRE_MODULE) {
+    private boolean hasPermissionForUrl(HttpServletRequest request, UserModulePermissions permissions) {
+        Access access = permissions.getAccess(request);
+        if (access == Access.NO_MODULE && REQUIRE_MODULE) {
             LogEvent.logWarn("ModuleAuthenticationInterceptor", "hasPermissionForUrl()",
                     "This page has no modules assigned to it");
-            return false;
-        }
-        for (SystemModuleUrl sysModUrl : sysModsByUrl) {
-            if (accessMap.contains(sysModUrl.getSystemModule().getSystemModuleName())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private List<SystemModuleUrl> filterParamMatches(HttpServletRequest request, List<SystemModuleUrl> sysModsByUrl) {
-        List<SystemModuleUrl> filteredSysModsByUrl = new ArrayList<>();
-        for (SystemModuleUrl sysModUrl : sysModsByUrl) {
-            boolean matchAll = true;
-            SystemModuleParam param = sysModUrl.getParam();
-            if (param != null) {
-                if (!param.getValue().equals(request.getParameter(param.getName()))) {
-                    matchAll = false;
-                }
-            }
-            if (matchAll) {
-                filteredSysModsByUrl.add(sysModUrl);
-            }
         }
-        return filteredSysModsByUrl;
+        return access == Access.PERMITTED;
     }
 }
@@ -0,0 +1,192 @@
+package org.openelisglobal.liquibase;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.hl7v2.HL7Exception;
+import ca.uhn.hl7v2.model.v251.datatype.CX;
+import ca.uhn.hl7v2.model.v251.message.OML_O21;
+import ca.uhn.hl7v2.model.v251.segment.PID;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import org.apache.commons.validator.GenericValidator;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Task;
+import org.openelisglobal.dataexchange.order.action.MessagePatient;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrderSearchTerms;
+
+/**
+ * Adds to the search terms of the electronic orders received before they were
+ * kept the terms that are only in the message the order came in, the way
+ * OrderWorker and TaskWorker take them when an order is received: for an HL7
+ * order the order number, the patient's names and identifiers and the code of
+ * the test requested, for a FHIR order the ids and identifiers of the Task and
+ * the ids of the ServiceRequests it is based on. The ServiceRequests themselves
+ * are not kept with the order, so their identifiers and test codes can not be
+ * added.
+ */
+public class ElectronicOrderSearchTermsBackfill implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 500;
+
+    private IParser fhirParser;
+    private int updated;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try {
+            Set<String> testLoincs = getTestLoincs(connection);
+            try (Statement select = connection.createStatement();
+                    PreparedStatement update = connection
+                            .prepareStatement("UPDATE clinlims.electronic_order SET search_terms = ? WHERE id = ?")) {
+                // read a batch at a time rather than every order at once
+                select.setFetchSize(BATCH_SIZE);
+                int batched = 0;
+                try (ResultSet orders = select
+                        .executeQuery("SELECT id, data, search_terms FROM clinlims.electronic_order")) {
+                    while (orders.next()) {
+                        String searchTerms = orders.getString("search_terms");
+                        String backfilled = addTermsFromData(searchTerms, orders.getString("data"), testLoincs);
+                        if (backfilled == null || backfilled.equals(searchTerms)) {
+                            continue;
+                        }
+                        update.setString(1, backfilled);
+                        update.setBigDecimal(2, orders.getBigDecimal("id"));
+                        update.addBatch();
+                        updated++;
+                        if (++batched == BATCH_SIZE) {
+                            update.executeBatch();
+                            batched = 0;
+                        }
+                    }
+                }
+                if (batched > 0) {
+                    update.executeBatch();
+                }
+            }
+        } catch (SQLException e) {
+            throw new CustomChangeException("could not fill in the search terms of the electronic orders", e);
+        }
+    }
+
+    private Set<String> getTestLoincs(Connection connection) throws SQLException {
+        Set<String> testLoincs = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet loincs = statement
+                        .executeQuery("SELECT DISTINCT loinc FROM clinlims.test WHERE loinc IS NOT NULL")) {
+            while (loincs.next()) {
+                testLoincs.add(loincs.getString(1));
+            }
+        }
+        return testLoincs;
+    }
+
+    /**
+     * @param testLoincs the LOINC codes of the tests, a requested test is only
+     *                   searched by when it is one of them
+     * @return the search terms with the ones in the message added, null if there
+     *         are none
+     */
+    String addTermsFromData(String searchTerms, String data, Set<String> testLoincs) {
+        ElectronicOrderSearchTerms terms = new ElectronicOrderSearchTerms();
+        if (searchTerms != null) {
+            terms.add(searchTerms.split("\n"));
+        }
+        String message = data == null ? "" : data.trim();
+        // the type of the order was not kept for the oldest ones, so it is told by
+        // the message
+        if (message.startsWith("{")) {
+            addTaskTerms(terms, message);
+        } else if (message.startsWith("MSH")) {
+            addHL7Terms(terms, message, testLoincs);
+        }
+        return terms.toString();
+    }
+
+    private void addTaskTerms(ElectronicOrderSearchTerms terms, String message) {
+        Task task;
+        try {
+            task = getFhirParser().parseResource(Task.class, message);
+        } catch (DataFormatException e) {
+            return;
+        }
+        terms.add(task.getIdElement().getIdPart());
+        for (Identifier identifier : task.getIdentifier()) {
+            terms.add(identifier.getValue());
+        }
+        for (Reference basedOn : task.getBasedOn()) {
+            terms.add(basedOn.getReferenceElement().getIdPart());
+        }
+    }
+
+    private void addHL7Terms(ElectronicOrderSearchTerms terms, String message, Set<String> testLoincs) {
+        try {
+            OML_O21 order = new OML_O21();
+            order.parse(message);
+
+            String orderNumber = order.getORDER().getOBSERVATION_REQUEST().getOBR()
+                    .getObr4_UniversalServiceIdentifier().getCe1_Identifier().getValue();
+            if (orderNumber != null && orderNumber.contains(";")) {
+                orderNumber = orderNumber.substring(orderNumber.indexOf(";") + 1);
+            }
+            terms.add(orderNumber);
+
+            PID pid = order.getPATIENT().getPID();
+            MessagePatient patient = new MessagePatient();
+            patient.setExternalId(pid.getPatientID().getIDNumber().getValue());
+            patient.setLastName(pid.getPatientName(0).getFamilyName().getSurname().getValue());
+            patient.setFirstName(pid.getPatientName(0).getGivenName().getValue());
+            terms.addPatient(patient);
+            // the identity types are told apart only to be stored, all are searched by
+            for (CX identity : pid.getPatientIdentifierList()) {
+                terms.add(identity.getCx1_IDNumber().getValue());
+            }
+
+            String loinc = order.getORDER().getORC().getOrderType().getIdentifier().encode();
+            if (!GenericValidator.isBlankOrNull(loinc) && testLoincs.contains(loinc)) {
+                terms.add(loinc);
+            }
+        } catch (HL7Exception e) {
+            // the order is left with the terms it has
+        }
+    }
+
+    private IParser getFhirParser() {
+        if (fhirParser == null) {
+            fhirParser = FhirContext.forR4().newJsonParser();
+        }
+        return fhirParser;
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "filled in the search terms of " + updated + " electronic orders from their messages";
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
@@ -49,6 +49,9 @@ public interface NoteDAO extends BaseDAO<Note, String> {
     List<Note> getNotesChronologicallyByRefIdAndRefTableAndType(String objectId, String tableId, List<String> filter)
             throws LIMSRuntimeException;
 
+    List<Note> getNotesChronologicallyByRefIdsAndRefTableAndType(List<String> objectIds, String tableId,
+            List<String> filter) throws LIMSRuntimeException;
+
     // public List<Note> getNoteByRefIAndRefTableAndSubject(String refId, String
     // table_id, String
     // subject)
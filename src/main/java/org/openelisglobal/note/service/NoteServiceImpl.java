@@ -5,8 +5,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.PostConstruct;
 import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.analysis.service.AnalysisServiceImpl;
@@ -181,6 +183,110 @@ public class NoteServiceImpl extends AuditableBaseObjectServiceImpl<Note, String
         return notes;
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public Map<String, String> getNotesAsStringForAnalyses(List<Analysis> analyses, boolean prefixType,
+            boolean prefixTimestamp, String noteSeparator, NoteType[] filter, boolean excludeExternPrefix) {
+        Map<String, String> notesByAnalysis = new HashMap<>();
+        if (analyses.isEmpty()) {
+            return notesByAnalysis;
+        }
+
+        boolean includeNoneConformity = false;
+        List<String> dbFilter = new ArrayList<>(filter.length);
+        for (NoteType type : filter) {
+            if (type == NoteType.NON_CONFORMITY) {
+                includeNoneConformity = true;
+            }
+
+            dbFilter.add(type.getDBCode());
+        }
+
+        Set<String> analysisIds = new LinkedHashSet<>();
+        Set<String> sampleItemIds = new LinkedHashSet<>();
+        Set<String> sampleIds = new LinkedHashSet<>();
+        for (Analysis analysis : analyses) {
+            analysisIds.add(analysis.getId());
+            sampleItemIds.add(analysis.getSampleItem().getId());
+            sampleIds.add(analysis.getSampleItem().getSample().getId());
+        }
+
+        Map<String, List<Note>> analysisNotes = groupByReferenceId(
+                baseObjectDAO.getNotesChronologicallyByRefIdsAndRefTableAndType(new ArrayList<>(analysisIds),
+                        AnalysisServiceImpl.getTableReferenceId(), dbFilter));
+
+        Map<String, List<Note>> sampleItemNotes = new HashMap<>();
+        Map<String, List<Note>> sampleNotes = new HashMap<>();
+        Map<String, List<Note>> qaEventNotes = new HashMap<>();
+        Map<String, List<SampleQaEvent>> qaEventsBySample = new HashMap<>();
+        if (includeNoneConformity) {
+            List<String> nonConformityFilter = new ArrayList<>(1);
+            nonConformityFilter.add(NoteType.NON_CONFORMITY.getDBCode());
+            sampleItemNotes = groupByReferenceId(baseObjectDAO.getNotesChronologicallyByRefIdsAndRefTableAndType(
+                    new ArrayList<>(sampleItemIds), SampleItemServiceImpl.getSampleItemTableReferenceId(),
+                    nonConformityFilter));
+            sampleNotes = groupByReferenceId(baseObjectDAO.getNotesChronologicallyByRefIdsAndRefTableAndType(
+                    new ArrayList<>(sampleIds), SampleServiceImpl.getTableReferenceId(), nonConformityFilter));
+
+            List<String> qaEventIds = new ArrayList<>();
+            for (SampleQaEvent event : sampleQAService.getSampleQaEventsBySampleIds(new ArrayList<>(sampleIds))) {
+                qaEventsBySample.computeIfAbsent(event.getSample().getId(), k -> new ArrayList<>()).add(event);
+                qaEventIds.add(event.getId());
+            }
+            qaEventNotes = groupByReferenceId(baseObjectDAO.getNotesChronologicallyByRefIdsAndRefTableAndType(
+                    qaEventIds, QAService.TABLE_REFERENCE_ID, nonConformityFilter));
+        }
+
+        for (Analysis analysis : analyses) {
+            List<Note> noteList = new ArrayList<>(
+                    analysisNotes.getOrDefault(analysis.getId(), Collections.emptyList()));
+
+            if (includeNoneConformity) {
+                // the same non conformity notes getNonConformityReasons finds for one
+                // analysis
+                SampleItem sampleItem = analysis.getSampleItem();
+                String sampleId = sampleItem.getSample().getId();
+                List<Note> nonConformityNoteList = new ArrayList<>();
+                nonConformityNoteList.addAll(sampleItemNotes.getOrDefault(sampleItem.getId(), Collections.emptyList()));
+                nonConformityNoteList.addAll(sampleNotes.getOrDefault(sampleId, Collections.emptyList()));
+                for (SampleQaEvent event : qaEventsBySample.getOrDefault(sampleId, Collections.emptyList())) {
+                    if (event.getSampleItem() == null || sampleItem.getId().equals(event.getSampleItem().getId())) {
+                        nonConformityNoteList.addAll(qaEventNotes.getOrDefault(event.getId(), Collections.emptyList()));
+                        Note proxyNote = new Note();
+                        proxyNote.setNoteType(Note.NON_CONFORMITY);
+                        proxyNote.setText(event.getQaEvent().getLocalizedName());
+                        proxyNote.setLastupdated(event.getLastupdated());
+                        nonConformityNoteList.add(proxyNote);
+                    }
+                }
+                if (!nonConformityNoteList.isEmpty()) {
+                    noteList.addAll(nonConformityNoteList);
+                    Collections.sort(noteList, new Comparator<Note>() {
+                        @Override
+                        public int compare(Note o1, Note o2) {
+                            return o1.getLastupdated().compareTo(o2.getLastupdated());
+                        }
+                    });
+                }
+            }
+
+            String notes = notesToString(analysis, prefixType, prefixTimestamp, noteSeparator, noteList,
+                    excludeExternPrefix, EncodeContext.HTML);
+            if (notes != null) {
+                notesByAnalysis.put(analysis.getId(), notes);
+            }
+        }
+        return notesByAnalysis;
+    }
+
+    private Map<String, List<Note>> groupByReferenceId(List<Note> notes) {
+        Map<String, List<Note>> notesByReferenceId = new HashMap<>();
+        for (Note note : notes) {
+            notesByReferenceId.computeIfAbsent(note.getReferenceId(), k -> new ArrayList<>()).add(note);
+        }
+        return notesByReferenceId;
+    }
+
     @Transactional(readOnly = true)
     @Override
     public String getNotesAsString(NoteObject noteObject, boolean prefixType, boolean prefixTimestamp,
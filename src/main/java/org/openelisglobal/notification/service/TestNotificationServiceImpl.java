@@ -7,6 +7,7 @@ import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
+import org.openelisglobal.config.AsyncConfig;
 import org.openelisglobal.dictionary.service.DictionaryService;
 import org.openelisglobal.dictionary.valueholder.Dictionary;
 import org.openelisglobal.notification.service.sender.ClientNotificationSender;
@@ -92,7 +93,7 @@ public class TestNotificationServiceImpl implements TestNotificationService {
     }
 
     @Override
-    @Async
+    @Async(AsyncConfig.NOTIFICATION_EXECUTOR)
     @Transactional(readOnly = true)
     public void createAndSendNotificationsToConfiguredSources(NotificationNature nature, Result result) {
         Optional<? extends NotificationConfig<?>> notificationConfig = analysisNotificationConfigService
@@ -0,0 +1,620 @@
+package org.openelisglobal.notification.service.sender;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.jsmpp.InvalidResponseException;
+import org.jsmpp.PDUException;
+import org.jsmpp.bean.AlertNotification;
+import org.jsmpp.bean.Alphabet;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.DeliveryReceipt;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.MessageClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SMSCDeliveryReceipt;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.DataSmResult;
+import org.jsmpp.session.MessageReceiverListener;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.Session;
+import org.jsmpp.util.AbsoluteTimeFormatter;
+import org.jsmpp.util.DeliveryReceiptState;
+import org.jsmpp.util.InvalidDeliveryReceiptException;
+import org.jsmpp.util.TimeFormatter;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.util.ConfigurationProperties;
+import org.openelisglobal.common.util.ConfigurationProperties.Property;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.notification.valueholder.SMSNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a small pool of sessions bound to the SMSC and sends the queued SMS
+ * over them, instead of binding and unbinding for every message.
+ *
+ * <ul>
+ * <li>the sessions are bound on first use, kept alive with enquire_link and
+ * rebound when the SMSC drops them</li>
+ * <li>at most window submit_sm per session are waiting for their response at
+ * any time, the rest wait in the outbound queue</li>
+ * <li>the queue is drained no faster than maxPerSecond</li>
+ * <li>only when bound as a transceiver, which has to be asked for, delivery
+ * receipts are requested and matched to the submitted message by its message
+ * id</li>
+ * </ul>
+ *
+ * The queue is drained, and each submit_sm sent, on the notification executor.
+ * Nothing holds a thread while the queue is empty.
+ */
+@Component
+public class SMPPSessionManager {
+
+    private static final TimeFormatter TIME_FORMATTER = new AbsoluteTimeFormatter();
+    private static final String SOURCE_ADDRESS = "OpenELIS";
+
+    @Value("${org.openelisglobal.smsc.serviceType:CMT}")
+    private String serviceType;
+
+    @Value("${org.openelisglobal.smsc.bindParamSystemType:}")
+    private String bindParamSystemType;
+
+    // BIND_TRX to receive delivery receipts, the SMSC account has to allow it
+    @Value("${org.openelisglobal.smsc.bindType:BIND_TX}")
+    private String bindType;
+
+    @Value("${org.openelisglobal.smsc.sessions:1}")
+    private int sessions;
+
+    // submit_sm waiting for a response, per session. They are sent on the
+    // notification executor so no more than its pool size are sent at once
+    @Value("${org.openelisglobal.smsc.window:10}")
+    private int window;
+
+    @Value("${org.openelisglobal.smsc.maxPerSecond:20}")
+    private int maxPerSecond;
+
+    @Value("${org.openelisglobal.smsc.queueCapacity:10000}")
+    private int queueCapacity;
+
+    @Value("${org.openelisglobal.smsc.maxAttempts:3}")
+    private int maxAttempts;
+
+    @Value("${org.openelisglobal.smsc.enquireLinkMillis:30000}")
+    private int enquireLinkMillis;
+
+    @Value("${org.openelisglobal.smsc.responseTimeoutMillis:10000}")
+    private long responseTimeoutMillis;
+
+    @Value("${org.openelisglobal.smsc.rebindDelayMillis:5000}")
+    private long rebindDelayMillis;
+
+    // receipts which have not arrived by then are given up on
+    @Value("${org.openelisglobal.smsc.receiptTimeoutMinutes:1440}")
+    private long receiptTimeoutMinutes;
+
+    @Autowired
+    @Qualifier(AsyncConfig.NOTIFICATION_EXECUTOR)
+    private InstrumentedTaskExecutor notificationExecutor;
+
+    private final Object lifecycleLock = new Object();
+    private BlockingQueue<OutboundMessage> outbox;
+    private List<PooledSession> pool;
+    private Semaphore inFlight;
+    private int maxInFlight;
+    private RateLimiter rateLimiter;
+    private volatile boolean running;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile Future<?> drainer;
+    private volatile long lastPrunedAt;
+    // no session can be bound before then, the drain is scheduled for it
+    private volatile long drainPausedUntil;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicInteger nextSession = new AtomicInteger();
+
+    private final Map<String, PendingReceipt> pendingReceipts = new ConcurrentHashMap<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong undelivered = new AtomicLong();
+    private final AtomicLong binds = new AtomicLong();
+
+    /**
+     * Queues the notification to be sent
+     *
+     * @return false if the queue is full and the notification was dropped
+     */
+    public boolean enqueue(SMSNotification notification) {
+        start();
+        if (!outbox.offer(new OutboundMessage(notification.getReceiverPhoneNumber(), notification.getMessage()))) {
+            failed.incrementAndGet();
+            LogEvent.logError(this.getClass().getSimpleName(), "enqueue",
+                    "the SMS queue is full, dropping the message to " + notification.getReceiverPhoneNumber());
+            return false;
+        }
+        drainSoon();
+        return true;
+    }
+
+    private void start() {
+        synchronized (lifecycleLock) {
+            if (running) {
+                return;
+            }
+            int poolSize = Math.max(1, sessions);
+            int windowSize = Math.max(1, window);
+            outbox = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+            pool = new ArrayList<>(poolSize);
+            for (int i = 0; i < poolSize; i++) {
+                pool.add(new PooledSession(i));
+            }
+            maxInFlight = poolSize * windowSize;
+            inFlight = new Semaphore(maxInFlight);
+            rateLimiter = new RateLimiter(maxPerSecond);
+            lastPrunedAt = System.currentTimeMillis();
+            running = true;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (lifecycleLock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            Future<?> currentDrainer = drainer;
+            if (currentDrainer != null) {
+                currentDrainer.cancel(true);
+            }
+            // the submit_sm already sent are given until their response is due
+            try {
+                if (inFlight.tryAcquire(maxInFlight, responseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    inFlight.release(maxInFlight);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pool.forEach(PooledSession::close);
+            if (!outbox.isEmpty()) {
+                LogEvent.logWarn(this.getClass().getSimpleName(), "shutdown",
+                        outbox.size() + " SMS were still queued and have not been sent");
+            }
+        }
+    }
+
+    /*
+     * one drain runs at a time, started when a message is queued or a submit_sm
+     * gets its response, and ending when the queue is empty or the window is
+     * full. It never waits for the window so it can not hold up the submits it
+     * has handed to the same executor.
+     */
+    private void drainSoon() {
+        if (running && draining.compareAndSet(false, true)) {
+            try {
+                drainer = notificationExecutor.submit(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                LogEvent.logWarn(this.getClass().getSimpleName(), "drainSoon",
+                        "could not start sending the queued SMS, they are sent when the next one is queued: "
+                                + e.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            if (System.currentTimeMillis() - lastPrunedAt > TimeUnit.MINUTES.toMillis(1)) {
+                pruneExpiredReceipts();
+                lastPrunedAt = System.currentTimeMillis();
+            }
+            // only the drain takes from the queue so the head stays the same between
+            // peek and poll
+            while (running && outbox.peek() != null) {
+                long readyAt = readyAt();
+                if (readyAt > System.currentTimeMillis()) {
+                    drainAt(readyAt);
+                    break;
+                }
+                rateLimiter.acquire();
+                if (!inFlight.tryAcquire()) {
+                    break;
+                }
+                send(outbox.poll());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LogEvent.logError("error sending queued SMS", e);
+        } finally {
+            draining.set(false);
+        }
+        // a message queued, or a window slot freed, after the last check
+        drainIfReady();
+    }
+
+    private void drainIfReady() {
+        if (running && !outbox.isEmpty() && inFlight.availablePermits() > 0
+                && System.currentTimeMillis() >= drainPausedUntil) {
+            drainSoon();
+        }
+    }
+
+    /*
+     * the queue waits without holding a thread until a session may be bound again
+     */
+    private void drainAt(long readyAt) {
+        drainPausedUntil = readyAt;
+        if (drainScheduled.compareAndSet(false, true)) {
+            CompletableFuture.delayedExecutor(Math.max(0, readyAt - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS, notificationExecutor).execute(() -> {
+                        drainScheduled.set(false);
+                        drainSoon();
+                    });
+        }
+    }
+
+    /*
+     * when the first session of the pool is bound, or may be bound again
+     */
+    private long readyAt() {
+        long readyAt = Long.MAX_VALUE;
+        for (PooledSession pooledSession : pool) {
+            readyAt = Math.min(readyAt, pooledSession.readyAt());
+        }
+        return readyAt;
+    }
+
+    /*
+     * the next session in turn which is bound, or may be bound again
+     */
+    private PooledSession nextReadySession() {
+        int first = nextSession.getAndIncrement();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < pool.size(); i++) {
+            PooledSession pooledSession = pool.get(Math.floorMod(first + i, pool.size()));
+            if (pooledSession.readyAt() <= now) {
+                return pooledSession;
+            }
+        }
+        return pool.get(Math.floorMod(first, pool.size()));
+    }
+
+    private void send(OutboundMessage message) {
+        try {
+            notificationExecutor.execute(() -> {
+                try {
+                    submit(message);
+                } finally {
+                    inFlight.release();
+                    drainIfReady();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            retry(message, e);
+        }
+    }
+
+    private void submit(OutboundMessage message) {
+        PooledSession pooledSession = nextReadySession();
+        try {
+            SMPPSession session = pooledSession.bound();
+            if (session == null) {
+                // not an attempt, it is sent once the session may be bound again
+                requeue(message, pooledSession.readyAt());
+                return;
+            }
+            boolean receipts = session.getSessionState().isReceivable();
+            String messageId = session.submitShortMessage(serviceType, TypeOfNumber.UNKNOWN,
+                    NumberingPlanIndicator.UNKNOWN, SOURCE_ADDRESS, TypeOfNumber.UNKNOWN,
+                    NumberingPlanIndicator.UNKNOWN, message.receiverPhoneNumber, new ESMClass(), (byte) 0, (byte) 1,
+                    TIME_FORMATTER.format(new Date()), null,
+                    new RegisteredDelivery(
+                            receipts ? SMSCDeliveryReceipt.SUCCESS_FAILURE : SMSCDeliveryReceipt.DEFAULT),
+                    (byte) 0, new GeneralDataCoding(Alphabet.ALPHA_DEFAULT, MessageClass.CLASS1, false), (byte) 0,
+                    message.text.getBytes());
+            submitted.incrementAndGet();
+            if (receipts) {
+                // the receipt can come in before submitShortMessage has returned
+                pendingReceipts.compute(messageId, (id, early) -> {
+                    if (early != null) {
+                        receiptMatched(early.receipt, message.receiverPhoneNumber);
+                        return null;
+                    }
+                    return new PendingReceipt(message.receiverPhoneNumber, null);
+                });
+            }
+            LogEvent.logDebug(this.getClass().getSimpleName(), "submit", "sms messageId: " + messageId);
+        } catch (NegativeResponseException | InvalidResponseException | PDUException | IllegalArgumentException e) {
+            // the SMSC refused this message, sending it again will not help
+            failed.incrementAndGet();
+            LogEvent.logError("the SMSC refused the SMS to " + message.receiverPhoneNumber, e);
+        } catch (IOException | ResponseTimeoutException | URISyntaxException e) {
+            pooledSession.broken();
+            retry(message, e);
+        }
+    }
+
+    private void requeue(OutboundMessage message, long readyAt) {
+        if (running && outbox.offer(message)) {
+            drainAt(readyAt);
+        } else {
+            failed.incrementAndGet();
+            LogEvent.logError(this.getClass().getSimpleName(), "requeue",
+                    "could not requeue the SMS to " + message.receiverPhoneNumber);
+        }
+    }
+
+    private void retry(OutboundMessage message, Exception cause) {
+        if (++message.attempts < Math.max(1, maxAttempts) && running && outbox.offer(message)) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "retry", "requeued the SMS to "
+                    + message.receiverPhoneNumber + " after attempt " + message.attempts + ": " + cause);
+            drainIfReady();
+        } else {
+            failed.incrementAndGet();
+            LogEvent.logError("could not send the SMS to " + message.receiverPhoneNumber, cause);
+        }
+    }
+
+    void receiptReceived(DeliverSm deliverSm) {
+        DeliveryReceipt receipt;
+        try {
+            receipt = deliverSm.getShortMessageAsDeliveryReceipt();
+        } catch (InvalidDeliveryReceiptException e) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "receiptReceived",
+                    "could not read a delivery receipt: " + e.getMessage());
+            return;
+        }
+        pendingReceipts.compute(receipt.getId(), (id, pending) -> {
+            if (pending == null || pending.receipt != null) {
+                return new PendingReceipt(null, receipt);
+            }
+            receiptMatched(receipt, pending.receiverPhoneNumber);
+            return null;
+        });
+    }
+
+    private void receiptMatched(DeliveryReceipt receipt, String receiverPhoneNumber) {
+        if (receipt.getFinalStatus() == DeliveryReceiptState.DELIVRD) {
+            delivered.incrementAndGet();
+            LogEvent.logDebug(this.getClass().getSimpleName(), "receiptMatched",
+                    "sms " + receipt.getId() + " delivered to " + receiverPhoneNumber);
+        } else {
+            undelivered.incrementAndGet();
+            LogEvent.logWarn(this.getClass().getSimpleName(), "receiptMatched", "sms " + receipt.getId() + " to "
+                    + receiverPhoneNumber + " was not delivered: " + receipt.getFinalStatus());
+        }
+    }
+
+    private void pruneExpiredReceipts() {
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(receiptTimeoutMinutes);
+        pendingReceipts.values().removeIf(pending -> pending.createdAt < expiredBefore);
+    }
+
+    /*
+     * overridden by tests to point at a local SMSC
+     */
+    SmscAccount account() throws URISyntaxException {
+        ConfigurationProperties configurationProperties = ConfigurationProperties.getInstance();
+        URI uri = new URI(configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_ADDRESS));
+        return new SmscAccount(uri.getHost(), uri.getPort(),
+                configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_USERNAME),
+                configurationProperties.getPropertyValue(Property.PATIENT_RESULTS_BMP_SMS_PASSWORD));
+    }
+
+    public int getQueuedCount() {
+        return outbox == null ? 0 : outbox.size();
+    }
+
+    public int getPendingReceiptCount() {
+        return pendingReceipts.size();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public long getUndeliveredCount() {
+        return undelivered.get();
+    }
+
+    public long getBindCount() {
+        return binds.get();
+    }
+
+    static class SmscAccount {
+        private final String host;
+        private final int port;
+        private final String username;
+        private final String password;
+
+        SmscAccount(String host, int port, String username, String password) {
+            this.host = host;
+            this.port = port;
+            this.username = username;
+            this.password = password;
+        }
+    }
+
+    /**
+     * One connection to the SMSC. It is bound when first used and after the SMSC
+     * has dropped it, but not more often than every rebindDelayMillis so an SMSC
+     * which is down is not hammered with binds. Messages wait in the queue
+     * meanwhile, no thread waits for the delay.
+     */
+    private class PooledSession implements MessageReceiverListener {
+
+        private final int index;
+        private volatile SMPPSession session;
+        private volatile long nextBindAt;
+
+        private PooledSession(int index) {
+            this.index = index;
+        }
+
+        /*
+         * null while the session is down and may not be bound again yet
+         */
+        private synchronized SMPPSession bound() throws IOException, URISyntaxException {
+            if (session != null && session.getSessionState().isBound()) {
+                return session;
+            }
+            close();
+            long now = System.currentTimeMillis();
+            if (now < nextBindAt) {
+                return null;
+            }
+            nextBindAt = now + rebindDelayMillis;
+            SmscAccount account = account();
+            SMPPSession newSession = new SMPPSession();
+            newSession.setEnquireLinkTimer(enquireLinkMillis);
+            newSession.setTransactionTimer(responseTimeoutMillis);
+            newSession.setMessageReceiverListener(this);
+            newSession.addSessionStateListener(this::stateChanged);
+            String systemId = newSession.connectAndBind(account.host, account.port,
+                    new BindParameter(BindType.valueOf(bindType), account.username, account.password,
+                            bindParamSystemType, TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null),
+                    responseTimeoutMillis);
+            binds.incrementAndGet();
+            LogEvent.logDebug(SMPPSessionManager.class.getSimpleName(), "bound",
+                    "SMPP session " + index + " bound with system id {" + systemId + "}");
+            session = newSession;
+            return session;
+        }
+
+        /*
+         * not synchronized, so it does not wait for a bind in progress
+         */
+        private long readyAt() {
+            SMPPSession current = session;
+            return current != null && current.getSessionState().isBound() ? 0 : nextBindAt;
+        }
+
+        private void stateChanged(SessionState newState, SessionState oldState, Session source) {
+            if (oldState.isBound() && !newState.isBound() && running) {
+                LogEvent.logWarn(SMPPSessionManager.class.getSimpleName(), "stateChanged",
+                        "SMPP session " + index + " went from " + oldState + " to " + newState
+                                + ", it is rebound when next used");
+            }
+        }
+
+        private synchronized void broken() {
+            close();
+        }
+
+        private synchronized void close() {
+            if (session != null) {
+                if (session.getSessionState().isBound()) {
+                    session.unbindAndClose();
+                } else {
+                    session.close();
+                }
+                session = null;
+            }
+        }
+
+        @Override
+        public void onAcceptDeliverSm(DeliverSm deliverSm) throws ProcessRequestException {
+            if (deliverSm.isSmscDeliveryReceipt()) {
+                receiptReceived(deliverSm);
+            }
+        }
+
+        @Override
+        public void onAcceptAlertNotification(AlertNotification alertNotification) {
+        }
+
+        @Override
+        public DataSmResult onAcceptDataSm(DataSm dataSm, Session source) throws ProcessRequestException {
+            return null;
+        }
+    }
+
+    private static class OutboundMessage {
+        private final String receiverPhoneNumber;
+        private final String text;
+        private int attempts;
+
+        private OutboundMessage(String receiverPhoneNumber, String text) {
+            this.receiverPhoneNumber = receiverPhoneNumber;
+            this.text = text;
+        }
+    }
+
+    /*
+     * a submitted message waiting for its receipt, or a receipt which came in
+     * before its message id was known
+     */
+    private static class PendingReceipt {
+        private final String receiverPhoneNumber;
+        private final DeliveryReceipt receipt;
+        private final long createdAt = System.currentTimeMillis();
+
+        private PendingReceipt(String receiverPhoneNumber, DeliveryReceipt receipt) {
+            this.receiverPhoneNumber = receiverPhoneNumber;
+            this.receipt = receipt;
+        }
+    }
+
+    /**
+     * Spaces the messages evenly, 1/permitsPerSecond apart, 0 or less is no limit
+     */
+    static class RateLimiter {
+        private final long intervalNanos;
+        private long nextFreeAt = System.nanoTime();
+
+        RateLimiter(int permitsPerSecond) {
+            intervalNanos = permitsPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            long wait = nextFreeAt - now;
+            nextFreeAt = Math.max(now, nextFreeAt) + intervalNanos;
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package org.openelisglobal.notifications.dao;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.openelisglobal.notifications.entity.Notification;
+import org.openelisglobal.notifications.service.NotificationFeedItem;
+import org.openelisglobal.notifications.service.NotificationFeedVersion;
 import org.openelisglobal.systemuser.valueholder.SystemUser;
 
 public interface NotificationDAO {
@@ -10,6 +15,12 @@ public interface NotificationDAO {
 
     List<Notification> getNotifications();
 
+    /**
+     * Every user's notifications with an id below beforeId, or the newest ones when
+     * it is null, newest first
+     */
+    List<Notification> getNotifications(Long beforeId, int limit);
+
     List<Notification> getNotificationsByUserId(Long userId);
 
     Notification getNotificationById(Long id);
@@ -19,4 +30,44 @@ public interface NotificationDAO {
     void setAllUserNotificationsToRead(Long userId);
 
     List<SystemUser> getSystemUsers();
+
+    List<Notification> getNotificationsByIds(Collection<Long> ids);
+
+    SystemUser getUserReference(String userId);
+
+    List<String> getUserIdsInRole(String roleName);
+
+    List<String> getUserIdsInLabUnit(String labUnit);
+
+    /**
+     * The user's notifications with an id below beforeId, or the newest ones when
+     * it is null, newest first
+     */
+    List<NotificationFeedItem> getFeedBefore(String userId, Long beforeId, int limit);
+
+    /**
+     * The user's notifications with an id above afterId, oldest first
+     */
+    List<NotificationFeedItem> getFeedAfter(String userId, Long afterId, int limit);
+
+    long getUnreadCount(String userId);
+
+    /**
+     * Read in one query on the user's notifications, see
+     * {@link NotificationFeedVersion}
+     */
+    NotificationFeedVersion getFeedVersion(String userId);
+
+    /**
+     * The versions of the users' feeds in one query, users without notifications
+     * are left out
+     */
+    Map<String, NotificationFeedVersion> getFeedVersions(Collection<String> userIds);
+
+    /**
+     * Moves up to limit notifications read before readBefore to the archive
+     *
+     * @return the number of notifications moved
+     */
+    int archiveReadNotifications(OffsetDateTime readBefore, int limit);
 }
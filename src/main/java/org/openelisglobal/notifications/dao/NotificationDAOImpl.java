@@ -1,11 +1,17 @@
 package org.openelisglobal.notifications.dao;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import org.openelisglobal.login.controller.LoginPageController;
 import org.openelisglobal.notifications.entity.Notification;
+import org.openelisglobal.notifications.service.NotificationFeedItem;
+import org.openelisglobal.notifications.service.NotificationFeedVersion;
 import org.openelisglobal.systemuser.valueholder.SystemUser;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,6 +35,16 @@ public class NotificationDAOImpl implements NotificationDAO {
         return query.getResultList();
     }
 
+    @Override
+    public List<Notification> getNotifications(Long beforeId, int limit) {
+        TypedQuery<Notification> query = entityManager.createQuery("SELECT n FROM Notification n LEFT JOIN FETCH n.user"
+                + (beforeId == null ? "" : " WHERE n.id < :beforeId") + " ORDER BY n.id DESC", Notification.class);
+        if (beforeId != null) {
+            query.setParameter("beforeId", beforeId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
     @Override
     public Notification getNotificationById(Long id) {
         return entityManager.find(Notification.class, id);
@@ -64,4 +80,106 @@ public class NotificationDAOImpl implements NotificationDAO {
         TypedQuery<SystemUser> query = entityManager.createQuery("SELECT u FROM SystemUser u", SystemUser.class);
         return query.getResultList();
     }
+
+    @Override
+    public List<Notification> getNotificationsByIds(Collection<Long> ids) {
+        TypedQuery<Notification> query = entityManager.createQuery(
+                "SELECT n FROM Notification n LEFT JOIN FETCH n.user WHERE n.id IN (:ids)", Notification.class);
+        query.setParameter("ids", ids);
+        return query.getResultList();
+    }
+
+    @Override
+    public SystemUser getUserReference(String userId) {
+        return entityManager.getReference(SystemUser.class, userId);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> getUserIdsInRole(String roleName) {
+        return entityManager
+                .createNativeQuery("SELECT DISTINCT CAST(sur.system_user_id AS varchar) FROM system_user_role sur"
+                        + " JOIN system_role sr ON sr.id = sur.role_id WHERE sr.name = :roleName")
+                .setParameter("roleName", roleName).getResultList();
+    }
+
+    // users given a role in every lab unit are included
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> getUserIdsInLabUnit(String labUnit) {
+        return entityManager
+                .createNativeQuery("SELECT DISTINCT CAST(lur.system_user_id AS varchar) FROM lab_unit_roles lur"
+                        + " JOIN lab_unit_role_map lurm ON lurm.lab_unit_role_map_id = lur.lab_unit_role_map_id"
+                        + " WHERE lurm.lab_unit IN (:labUnit, :allLabUnits)")
+                .setParameter("labUnit", labUnit).setParameter("allLabUnits", LoginPageController.ALL_LAB_UNITS)
+                .getResultList();
+    }
+
+    @Override
+    public List<NotificationFeedItem> getFeedBefore(String userId, Long beforeId, int limit) {
+        TypedQuery<NotificationFeedItem> query = entityManager.createQuery("SELECT new "
+                + NotificationFeedItem.class.getName() + "(n.id, n.message, n.createdDate, n.readAt)"
+                + " FROM Notification n WHERE n.user.id = :userId" + (beforeId == null ? "" : " AND n.id < :beforeId")
+                + " ORDER BY n.id DESC", NotificationFeedItem.class);
+        query.setParameter("userId", userId);
+        if (beforeId != null) {
+            query.setParameter("beforeId", beforeId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<NotificationFeedItem> getFeedAfter(String userId, Long afterId, int limit) {
+        TypedQuery<NotificationFeedItem> query = entityManager.createQuery("SELECT new "
+                + NotificationFeedItem.class.getName() + "(n.id, n.message, n.createdDate, n.readAt)"
+                + " FROM Notification n WHERE n.user.id = :userId AND n.id > :afterId ORDER BY n.id ASC",
+                NotificationFeedItem.class);
+        query.setParameter("userId", userId);
+        query.setParameter("afterId", afterId);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long getUnreadCount(String userId) {
+        return ((Number) entityManager
+                .createQuery("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.readAt IS NULL")
+                .setParameter("userId", userId).getSingleResult()).longValue();
+    }
+
+    @Override
+    public NotificationFeedVersion getFeedVersion(String userId) {
+        return entityManager.createQuery("SELECT new " + NotificationFeedVersion.class.getName()
+                + "(MAX(n.id), COUNT(n), SUM(CASE WHEN n.readAt IS NULL THEN 1 ELSE 0 END), MAX(n.readAt))"
+                + " FROM Notification n WHERE n.user.id = :userId", NotificationFeedVersion.class)
+                .setParameter("userId", userId).getSingleResult();
+    }
+
+    @Override
+    public Map<String, NotificationFeedVersion> getFeedVersions(Collection<String> userIds) {
+        Map<String, NotificationFeedVersion> versions = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return versions;
+        }
+        List<Object[]> rows = entityManager.createQuery("SELECT n.user.id, MAX(n.id), COUNT(n),"
+                + " SUM(CASE WHEN n.readAt IS NULL THEN 1 ELSE 0 END), MAX(n.readAt) FROM Notification n"
+                + " WHERE n.user.id IN (:userIds) GROUP BY n.user.id", Object[].class)
+                .setParameter("userIds", userIds).getResultList();
+        for (Object[] row : rows) {
+            versions.put(String.valueOf(row[0]), new NotificationFeedVersion((Number) row[1], (Number) row[2],
+                    (Number) row[3], (OffsetDateTime) row[4]));
+        }
+        return versions;
+    }
+
+    // moves the rows in one statement so a notification is never in both tables
+    @Override
+    @Transactional
+    public int archiveReadNotifications(OffsetDateTime readBefore, int limit) {
+        return entityManager.createNativeQuery("WITH moved AS (DELETE FROM notifications WHERE id IN"
+                + " (SELECT id FROM notifications WHERE read_at < :readBefore ORDER BY id LIMIT :limit)"
+                + " RETURNING id, created_date, read_at, message, user_id)"
+                + " INSERT INTO notifications_archive (id, created_date, read_at, message, user_id, archived_date)"
+                + " SELECT id, created_date, read_at, message, user_id, now() FROM moved")
+                .setParameter("readBefore", readBefore).setParameter("limit", limit).executeUpdate();
+    }
 }
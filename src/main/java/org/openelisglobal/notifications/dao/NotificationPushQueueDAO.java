@@ -0,0 +1,17 @@
+package org.openelisglobal.notifications.dao;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.openelisglobal.notifications.entity.NotificationPushTask;
+
+public interface NotificationPushQueueDAO {
+
+    void save(NotificationPushTask task);
+
+    List<NotificationPushTask> getDueForUpdate(OffsetDateTime now, int limit);
+
+    List<NotificationPushTask> getTasks(Collection<Long> ids);
+
+    int deleteTasks(Collection<Long> ids);
+}
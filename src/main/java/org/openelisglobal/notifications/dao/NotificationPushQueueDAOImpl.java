@@ -0,0 +1,60 @@
+package org.openelisglobal.notifications.dao;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.openelisglobal.notifications.entity.NotificationPushTask;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class NotificationPushQueueDAOImpl implements NotificationPushQueueDAO {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void save(NotificationPushTask task) {
+        entityManager.persist(task);
+    }
+
+    // rows locked by another node are skipped rather than waited for
+    @Override
+    public List<NotificationPushTask> getDueForUpdate(OffsetDateTime now, int limit) {
+        Query<NotificationPushTask> query = entityManager.unwrap(Session.class).createQuery(
+                "SELECT t FROM NotificationPushTask t WHERE (t.nextAttemptTime IS NULL OR t.nextAttemptTime <= :now)"
+                        + " AND (t.claimedUntil IS NULL OR t.claimedUntil < :now) ORDER BY t.id",
+                NotificationPushTask.class);
+        query.setParameter("now", now);
+        query.setLockOptions(new LockOptions(LockMode.UPGRADE_SKIPLOCKED));
+        query.setMaxResults(limit);
+        return query.list();
+    }
+
+    @Override
+    public List<NotificationPushTask> getTasks(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return entityManager.createQuery("SELECT t FROM NotificationPushTask t WHERE t.id IN (:ids)",
+                NotificationPushTask.class).setParameter("ids", ids).getResultList();
+    }
+
+    @Override
+    @Transactional
+    public int deleteTasks(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery("DELETE FROM NotificationPushTask t WHERE t.id IN (:ids)")
+                .setParameter("ids", ids).executeUpdate();
+    }
+}
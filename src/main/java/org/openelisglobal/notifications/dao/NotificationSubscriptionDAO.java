@@ -1,5 +1,7 @@
 package org.openelisglobal.notifications.dao;
 
+import java.util.Collection;
+import java.util.List;
 import org.openelisglobal.notifications.entity.NotificationSubscriptions;
 
 public interface NotificationSubscriptionDAO {
@@ -14,4 +16,8 @@ public interface NotificationSubscriptionDAO {
 
     void delete(NotificationSubscriptions ns);
 
+    List<NotificationSubscriptions> getNotificationSubscriptionsByUserIds(Collection<String> userIds);
+
+    int deleteByEndpoints(Collection<String> endpoints);
+
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package org.openelisglobal.notifications.dao;
 
+import java.util.Collection;
+import java.util.List;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import org.openelisglobal.notifications.entity.NotificationSubscriptions;
@@ -30,6 +32,13 @@ public class NotificationSubscriptionDAOImpl implements NotificationSubscription
 
     }
 
+    @Override
+    public List<NotificationSubscriptions> getNotificationSubscriptionsByUserIds(Collection<String> userIds) {
+        return entityManager.createQuery(
+                "SELECT ns FROM NotificationSubscriptions ns JOIN FETCH ns.user WHERE ns.user.id IN (:userIds)",
+                NotificationSubscriptions.class).setParameter("userIds", userIds).getResultList();
+    }
+
     @Override
     @Transactional
     public void updateNotificationSubscription(NotificationSubscriptions notificationSubscription) {
@@ -50,6 +59,16 @@ public class NotificationSubscriptionDAOImpl implements NotificationSubscription
         }
     }
 
+    @Override
+    @Transactional
+    public int deleteByEndpoints(Collection<String> endpoints) {
+        if (endpoints.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery("DELETE FROM NotificationSubscriptions ns WHERE ns.pfEndpoint IN (:endpoints)")
+                .setParameter("endpoints", endpoints).executeUpdate();
+    }
+
     // Update saveOrUpdate method
 
     @Transactional
@@ -0,0 +1,86 @@
+package org.openelisglobal.notifications.entity;
+
+import java.time.OffsetDateTime;
+import javax.persistence.*;
+
+/**
+ * A notification waiting to be pushed to its user's browser. The row is removed
+ * once the push has been accepted, or given up on.
+ */
+@Entity
+@Table(name = "notification_push_queue")
+public class NotificationPushTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "notification_id", nullable = false)
+    private Notification notification;
+
+    // the id of the notification without loading it
+    @Column(name = "notification_id", insertable = false, updatable = false)
+    private Long notificationId;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_time")
+    private OffsetDateTime nextAttemptTime;
+
+    @Column(name = "claimed_until")
+    private OffsetDateTime claimedUntil;
+
+    public NotificationPushTask() {
+    }
+
+    public NotificationPushTask(Notification notification) {
+        this.notification = notification;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Notification getNotification() {
+        return notification;
+    }
+
+    public void setNotification(Notification notification) {
+        this.notification = notification;
+    }
+
+    public Long getNotificationId() {
+        return notificationId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public OffsetDateTime getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(OffsetDateTime nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public OffsetDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(OffsetDateTime claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+}
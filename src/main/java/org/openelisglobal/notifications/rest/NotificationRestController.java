@@ -1,24 +1,31 @@
 package org.openelisglobal.notifications.rest;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.security.Security;
 import java.time.OffsetDateTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
-import nl.martijndwars.webpush.PushService;
-import org.apache.http.HttpResponse;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openelisglobal.common.constants.Constants;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
 import org.openelisglobal.login.valueholder.UserSessionData;
 import org.openelisglobal.notifications.dao.NotificationDAO;
 import org.openelisglobal.notifications.dao.NotificationSubscriptionDAO;
 import org.openelisglobal.notifications.entity.Notification;
 import org.openelisglobal.notifications.entity.NotificationSubscriptions;
+import org.openelisglobal.notifications.service.NotificationFeed;
+import org.openelisglobal.notifications.service.NotificationFeedService;
+import org.openelisglobal.notifications.service.PushNotificationDispatcher;
 import org.openelisglobal.systemuser.service.SystemUserService;
 import org.openelisglobal.systemuser.valueholder.SystemUser;
+import org.openelisglobal.userrole.service.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -27,7 +34,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RequestMapping("/rest")
 @RestController
@@ -41,6 +50,25 @@ public class NotificationRestController {
     @Autowired
     private ConfigurableEnvironment env;
 
+    @Autowired
+    private PushNotificationDispatcher pushNotificationDispatcher;
+
+    @Autowired
+    private NotificationFeedService notificationFeedService;
+
+    @Autowired
+    private UserRoleService userRoleService;
+
+    @Autowired
+    @Qualifier(AsyncConfig.NOTIFICATION_EXECUTOR)
+    private InstrumentedTaskExecutor notificationExecutor;
+
+    @Value("${org.openelisglobal.notifications.feed.pollTimeoutMillis:25000}")
+    private long pollTimeoutMillis;
+
+    @Value("${org.openelisglobal.notifications.all.maxLimit:500}")
+    private int maxAllLimit;
+
     @Autowired
     public NotificationRestController(NotificationDAO notificationDAO, SystemUserService systemUserService,
             NotificationSubscriptionDAO notificationSubscriptionDAO) {
@@ -50,8 +78,9 @@ public class NotificationRestController {
     }
 
     @GetMapping("/notifications/all")
-    public List<Notification> getNotifications() {
-        return notificationDAO.getNotifications();
+    public List<Notification> getNotifications(@RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "100") int limit) {
+        return notificationDAO.getNotifications(before, Math.max(1, Math.min(limit, maxAllLimit)));
     }
 
     @GetMapping("/notifications")
@@ -60,6 +89,66 @@ public class NotificationRestController {
         return notificationDAO.getNotificationsByUserId(Long.parseLong(sysUserId));
     }
 
+    /**
+     * A page of the user's notifications, newest first, see
+     * {@link NotificationFeedService#getFeed}. A client sending back the ETag of
+     * the latest feed is answered with 304 without reading the feed.
+     */
+    @GetMapping("/notifications/feed")
+    public ResponseEntity<NotificationFeed> getNotificationFeed(@RequestParam(required = false) Long after,
+            @RequestParam(required = false) Long before, @RequestParam(defaultValue = "20") int limit,
+            HttpServletRequest request) {
+        String sysUserId = getSysUserId(request);
+        String eTag = notificationFeedService.getETag(sysUserId);
+        if (eTag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            return notModified(eTag);
+        }
+        return feed(sysUserId, after, before, limit);
+    }
+
+    /**
+     * Long poll for the feed. When the client's ETag is still the latest the
+     * request is held until the user's notifications change, answered with the
+     * new feed, or until pollTimeoutMillis passes, answered with 304.
+     */
+    @GetMapping("/notifications/feed/poll")
+    public DeferredResult<ResponseEntity<NotificationFeed>> pollNotificationFeed(
+            @RequestParam(required = false) Long after, @RequestParam(defaultValue = "20") int limit,
+            HttpServletRequest request) {
+        String sysUserId = getSysUserId(request);
+        String eTag = notificationFeedService.getETag(sysUserId);
+        DeferredResult<ResponseEntity<NotificationFeed>> result = new DeferredResult<>(pollTimeoutMillis,
+                notModified(eTag));
+        if (!eTag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            result.setResult(feed(sysUserId, after, null, limit));
+            return result;
+        }
+        // the feed is read on the notification pool, not on the thread making the
+        // change
+        Runnable cancel = notificationFeedService.awaitChange(sysUserId, eTag,
+                () -> notificationExecutor.execute(() -> {
+                    try {
+                        result.setResult(feed(sysUserId, after, null, limit));
+                    } catch (RuntimeException e) {
+                        result.setErrorResult(e);
+                    }
+                }));
+        result.onCompletion(cancel);
+        return result;
+    }
+
+    private ResponseEntity<NotificationFeed> feed(String sysUserId, Long after, Long before, int limit) {
+        // the tag is taken before the read so a change during it is not missed
+        String eTag = notificationFeedService.getETag(sysUserId);
+        NotificationFeed feed = notificationFeedService.getFeed(sysUserId, after, before, limit);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(feed);
+    }
+
+    private ResponseEntity<NotificationFeed> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache())
+                .build();
+    }
+
     @PostMapping("/notification/{userId}")
     public ResponseEntity<?> saveNotification(@PathVariable String userId, @RequestBody Notification notification) {
         try {
@@ -68,66 +157,33 @@ public class NotificationRestController {
             notification.setCreatedDate(OffsetDateTime.now());
             notification.setReadAt(null);
 
-            // Save notification
-            notificationDAO.save(notification);
+            // Save notification, it is pushed to the user in the background
+            pushNotificationDispatcher.notifyUser(notification);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Failed to save notification: " + e.getMessage());
         }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body("Notification saved, push notification queued");
+    }
 
-        try {
-            // Ensure BouncyCastleProvider is added for cryptographic operations
-            if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
-                Security.addProvider(new BouncyCastleProvider());
-            }
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Failed to add BouncyCastleProvider: " + e.getMessage());
-        }
-
-        NotificationSubscriptions ns;
-        try {
-            // Get notification subscription by userId
-            ns = notificationSubscriptionDAO.getNotificationSubscriptionByUserId(Long.valueOf(userId));
-            if (ns == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Subscription not found for userId: " + userId);
-            }
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Failed to retrieve notification subscription: " + e.getMessage());
+    @PostMapping("/notification/role/{roleName}")
+    public ResponseEntity<?> notifyRole(@PathVariable String roleName, @RequestBody Notification notification,
+            HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
+        int notified = pushNotificationDispatcher.notifyRole(roleName, notification.getMessage());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Collections.singletonMap("notified", notified));
+    }
 
-        try {
-            // Configure PushService with VAPID keys
-            PushService pushService = new PushService(env.getProperty("vapid.public.key"),
-                    env.getProperty("vapid.private.key"), "mailto:your-email@example.com");
-
-            String title = "OpenELIS Global Notification";
-            String body = notification.getMessage();
-            String url = "http://localhost";
-
-            // Create a notification message
-            Map<String, String> payload = new HashMap<>();
-            payload.put("title", title);
-            payload.put("body", body);
-            payload.put("url", url);
-
-            ObjectMapper objectMapper = new ObjectMapper();
-            String payloadJson = objectMapper.writeValueAsString(payload);
-
-            // Use fully qualified name for web push Notification
-            nl.martijndwars.webpush.Notification webPushNotification = new nl.martijndwars.webpush.Notification(
-                    ns.getPfEndpoint(), ns.getPfP256dh(), ns.getPfAuth(), payloadJson);
-
-            // Send push notification
-            HttpResponse response = pushService.send(webPushNotification);
-
-            return ResponseEntity.ok()
-                    .body("Push notification sent successfully. Response: " + response.getStatusLine());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Failed to send push notification: " + e.getMessage());
+    @PostMapping("/notification/labunit/{labUnit}")
+    public ResponseEntity<?> notifyLabUnit(@PathVariable String labUnit, @RequestBody Notification notification,
+            HttpServletRequest request) {
+        if (!isAdmin(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
+        int notified = pushNotificationDispatcher.notifyLabUnit(labUnit, notification.getMessage());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Collections.singletonMap("notified", notified));
     }
 
     @GetMapping("/notification/pnconfig")
@@ -146,16 +202,16 @@ public class NotificationRestController {
 
     @PutMapping("/notification/markasread/{id}")
     public ResponseEntity<?> markNotificationAsRead(@PathVariable String id) {
-        Notification notification = notificationDAO.getNotificationById(Long.parseLong(id));
-        notification.setReadAt(OffsetDateTime.now());
-        notificationDAO.updateNotification(notification);
+        if (!notificationFeedService.markAsRead(Long.parseLong(id))) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Notification not found");
+        }
         return ResponseEntity.ok().body("Notification updated successfully");
     }
 
     @PutMapping("/notification/markasread/all")
     public ResponseEntity<?> markAllNotificationsAsRead(HttpServletRequest request) {
         String sysUserId = getSysUserId(request);
-        notificationDAO.setAllUserNotificationsToRead(Long.valueOf(sysUserId));
+        notificationFeedService.markAllAsRead(sysUserId);
         return ResponseEntity.ok().body("All notifications updated successfully");
     }
 
@@ -221,4 +277,12 @@ public class NotificationRestController {
         }
         return String.valueOf(usd.getSystemUserId());
     }
+
+    /*
+     * only administrators may notify everyone in a role or lab unit
+     */
+    private boolean isAdmin(HttpServletRequest request) {
+        String sysUserId = getSysUserId(request);
+        return sysUserId != null && userRoleService.userInRole(sysUserId, Constants.ROLE_GLOBAL_ADMIN);
+    }
 }
@@ -0,0 +1,37 @@
+package org.openelisglobal.notifications.service;
+
+import java.util.List;
+
+/**
+ * A page of a user's notifications, newest first, with the number of
+ * notifications the user has not read
+ */
+public class NotificationFeed {
+
+    private final List<NotificationFeedItem> notifications;
+    private final long unreadCount;
+    private final boolean hasMore;
+
+    public NotificationFeed(List<NotificationFeedItem> notifications, long unreadCount, boolean hasMore) {
+        this.notifications = notifications;
+        this.unreadCount = unreadCount;
+        this.hasMore = hasMore;
+    }
+
+    public List<NotificationFeedItem> getNotifications() {
+        return notifications;
+    }
+
+    public long getUnreadCount() {
+        return unreadCount;
+    }
+
+    /**
+     * true when the page is full and the next one may have more, asked for with
+     * before set to the id of the last notification, or after set to the id of
+     * the first one when paging forward
+     */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,37 @@
+package org.openelisglobal.notifications.service;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A notification as shown in the feed, without its user
+ */
+public class NotificationFeedItem {
+
+    private final Long id;
+    private final String message;
+    private final OffsetDateTime createdDate;
+    private final OffsetDateTime readAt;
+
+    public NotificationFeedItem(Long id, String message, OffsetDateTime createdDate, OffsetDateTime readAt) {
+        this.id = id;
+        this.message = message;
+        this.createdDate = createdDate;
+        this.readAt = readAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public OffsetDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public OffsetDateTime getReadAt() {
+        return readAt;
+    }
+}
@@ -0,0 +1,44 @@
+package org.openelisglobal.notifications.service;
+
+public interface NotificationFeedService {
+
+    /**
+     * A page of the user's notifications, newest first. With afterId the page
+     * holds the notifications that came after it, otherwise the ones before
+     * beforeId or the newest when that is null as well.
+     */
+    NotificationFeed getFeed(String userId, Long afterId, Long beforeId, int limit);
+
+    /**
+     * A tag that changes whenever the user's notifications do, worked out from
+     * the database in one query so it is the same on every node. It is kept in
+     * memory until the notifications change, so only the first ask reads it.
+     */
+    String getETag(String userId);
+
+    /**
+     * Reads the kept tags again every reconcileMillis, to take in changes made on
+     * other nodes and wake the polls waiting for them
+     */
+    void reconcileETags();
+
+    /**
+     * Runs onChange once the user's tag is no longer eTag. A change made on
+     * another node ends the wait once it is reconciled.
+     *
+     * @return cancels the wait
+     */
+    Runnable awaitChange(String userId, String eTag, Runnable onChange);
+
+    /**
+     * @return false when there is no such notification
+     */
+    boolean markAsRead(Long notificationId);
+
+    void markAllAsRead(String userId);
+
+    /**
+     * Moves the notifications read more than retentionDays ago to the archive
+     */
+    void archiveReadNotifications();
+}
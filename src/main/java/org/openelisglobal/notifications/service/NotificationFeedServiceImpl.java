@@ -0,0 +1,133 @@
+package org.openelisglobal.notifications.service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.notifications.dao.NotificationDAO;
+import org.openelisglobal.notifications.entity.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class NotificationFeedServiceImpl implements NotificationFeedService {
+
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private NotificationDAO notificationDAO;
+    @Autowired
+    private NotificationFeedWatcher feedWatcher;
+
+    @Value("${org.openelisglobal.notifications.feed.maxLimit:100}")
+    private int maxLimit;
+    @Value("${org.openelisglobal.notifications.retentionDays:90}")
+    private int retentionDays;
+    @Value("${org.openelisglobal.notifications.archiveBatchSize:1000}")
+    private int archiveBatchSize;
+
+    @Override
+    @Transactional(readOnly = true)
+    public NotificationFeed getFeed(String userId, Long afterId, Long beforeId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxLimit));
+        // one more than the page is read to tell if there is another page
+        List<NotificationFeedItem> items;
+        if (afterId != null) {
+            items = new ArrayList<>(notificationDAO.getFeedAfter(userId, afterId, pageSize + 1));
+        } else {
+            items = new ArrayList<>(notificationDAO.getFeedBefore(userId, beforeId, pageSize + 1));
+        }
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = new ArrayList<>(items.subList(0, pageSize));
+        }
+        if (afterId != null) {
+            Collections.reverse(items);
+        }
+        return new NotificationFeed(items, notificationDAO.getUnreadCount(userId), hasMore);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getETag(String userId) {
+        return feedWatcher.getETag(userId, () -> notificationDAO.getFeedVersion(userId).toETag());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Scheduled(initialDelayString = "${org.openelisglobal.notifications.feed.reconcileMillis:5000}",
+            fixedDelayString = "${org.openelisglobal.notifications.feed.reconcileMillis:5000}")
+    public void reconcileETags() {
+        List<String> userIds = new ArrayList<>(feedWatcher.getKeptUserIds());
+        Map<String, String> currentETags = new HashMap<>();
+        try {
+            for (int start = 0; start < userIds.size(); start += RECONCILE_BATCH_SIZE) {
+                List<String> batch = userIds.subList(start, Math.min(start + RECONCILE_BATCH_SIZE, userIds.size()));
+                Map<String, NotificationFeedVersion> versions = notificationDAO.getFeedVersions(batch);
+                for (String userId : batch) {
+                    currentETags.put(userId,
+                            versions.getOrDefault(userId, NotificationFeedVersion.EMPTY).toETag());
+                }
+            }
+        } catch (RuntimeException e) {
+            LogEvent.logError("error reading the notification feed versions", e);
+            return;
+        }
+        feedWatcher.reconcile(currentETags);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Runnable awaitChange(String userId, String eTag, Runnable onChange) {
+        return feedWatcher.await(userId, () -> !eTag.equals(getETag(userId)), onChange);
+    }
+
+    @Override
+    @Transactional
+    public boolean markAsRead(Long notificationId) {
+        Notification notification = notificationDAO.getNotificationById(notificationId);
+        if (notification == null) {
+            return false;
+        }
+        notification.setReadAt(OffsetDateTime.now());
+        notificationDAO.updateNotification(notification);
+        feedWatcher.changed(Collections.singleton(notification.getUser().getId()));
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void markAllAsRead(String userId) {
+        notificationDAO.setAllUserNotificationsToRead(Long.valueOf(userId));
+        feedWatcher.changed(Collections.singleton(userId));
+    }
+
+    @Override
+    @Scheduled(initialDelay = 10 * 60 * 1000,
+            fixedDelayString = "${org.openelisglobal.notifications.archiveFrequency:86400000}")
+    public void archiveReadNotifications() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        OffsetDateTime readBefore = OffsetDateTime.now().minusDays(retentionDays);
+        int archived = 0;
+        int moved;
+        // each batch commits on its own so a large backlog does not hold one long
+        // transaction
+        do {
+            moved = notificationDAO.archiveReadNotifications(readBefore, archiveBatchSize);
+            archived += moved;
+        } while (moved == archiveBatchSize);
+        if (archived > 0) {
+            feedWatcher.changedForAll();
+            LogEvent.logInfo(this.getClass().getSimpleName(), "archiveReadNotifications",
+                    "archived " + archived + " notifications read before " + readBefore);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.openelisglobal.notifications.service;
+
+import java.time.OffsetDateTime;
+
+/**
+ * What a user's feed is made of, summed up from the database: the newest
+ * notification, how many there are, how many are unread and when one was last
+ * read. Any new, read, unread or archived notification changes one of them, so
+ * every node works out the same tag for the same feed.
+ */
+public class NotificationFeedVersion {
+
+    // the version of a feed without notifications
+    public static final NotificationFeedVersion EMPTY = new NotificationFeedVersion(null, null, null, null);
+
+    private final long maxId;
+    private final long count;
+    private final long unreadCount;
+    private final OffsetDateTime lastReadAt;
+
+    public NotificationFeedVersion(Number maxId, Number count, Number unreadCount, OffsetDateTime lastReadAt) {
+        this.maxId = maxId == null ? 0 : maxId.longValue();
+        this.count = count == null ? 0 : count.longValue();
+        this.unreadCount = unreadCount == null ? 0 : unreadCount.longValue();
+        this.lastReadAt = lastReadAt;
+    }
+
+    public String toETag() {
+        return "W/\"" + maxId + "-" + count + "-" + unreadCount + "-"
+                + (lastReadAt == null ? 0 : lastReadAt.toInstant().toEpochMilli()) + "\"";
+    }
+}
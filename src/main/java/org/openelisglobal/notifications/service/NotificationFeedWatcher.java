@@ -0,0 +1,153 @@
+package org.openelisglobal.notifications.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the feed tag of the users who have asked for it recently and holds the
+ * long polls waiting for their notifications to change. A change made on this
+ * node drops the user's tag once it commits and wakes their polls. A change
+ * made on another node is taken in by {@link #reconcile}, from the tags read
+ * again from the database.
+ */
+@Component
+public class NotificationFeedWatcher {
+
+    // a tag not asked for in this long is no longer kept, and no longer reconciled
+    static final long IDLE_MILLIS = 5 * 60 * 1000;
+
+    private final ConcurrentHashMap<String, Set<Runnable>> waiters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, KeptETag> eTags = new ConcurrentHashMap<>();
+
+    /**
+     * The user's tag as kept, read with fromDatabase when it is not. A change
+     * committing while it is read drops it only once it has been kept, so a tag
+     * read before the change is not kept after it.
+     */
+    public String getETag(String userId, Supplier<String> fromDatabase) {
+        KeptETag kept = eTags.computeIfAbsent(userId, id -> new KeptETag(fromDatabase.get()));
+        kept.lastAskedFor = System.currentTimeMillis();
+        return kept.eTag;
+    }
+
+    /**
+     * @return the users whose tag is kept
+     */
+    public Set<String> getKeptUserIds() {
+        return new HashSet<>(eTags.keySet());
+    }
+
+    /**
+     * Takes in the tags read again from the database for users whose tag is kept.
+     * A tag that differs was changed on another node, it is dropped and the
+     * user's polls are woken. A tag not asked for recently is dropped as well.
+     */
+    public void reconcile(Map<String, String> currentETags) {
+        long idleSince = System.currentTimeMillis() - IDLE_MILLIS;
+        currentETags.forEach((userId, currentETag) -> {
+            KeptETag kept = eTags.get(userId);
+            if (kept == null) {
+                return;
+            }
+            if (!kept.eTag.equals(currentETag)) {
+                eTags.remove(userId, kept);
+                wake(waiters.remove(userId));
+            } else if (kept.lastAskedFor < idleSince && !waiters.containsKey(userId)) {
+                eTags.remove(userId, kept);
+            }
+        });
+    }
+
+    /**
+     * Wakes the polls of the users. Inside a transaction this happens once it
+     * commits, so a client woken by it reads the change.
+     */
+    public void changed(Collection<String> userIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Collection<String> changedUserIds = new ArrayList<>(userIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeAll(changedUserIds);
+                }
+            });
+        } else {
+            wakeAll(userIds);
+        }
+    }
+
+    /**
+     * Wakes every poll, for changes not made one user at a time
+     */
+    public void changedForAll() {
+        eTags.clear();
+        for (String userId : waiters.keySet()) {
+            wake(waiters.remove(userId));
+        }
+    }
+
+    /**
+     * Runs onChange once, as soon as the user's notifications change. onChange is
+     * run on the thread making the change so it should hand any real work off.
+     *
+     * @param changedMeanwhile checked once the wait is registered, for a change
+     *                         made since the caller last looked
+     * @return cancels the wait
+     */
+    public Runnable await(String userId, BooleanSupplier changedMeanwhile, Runnable onChange) {
+        AtomicBoolean done = new AtomicBoolean();
+        Runnable once = () -> {
+            if (done.compareAndSet(false, true)) {
+                onChange.run();
+            }
+        };
+        Set<Runnable> userWaiters = waiters.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet());
+        userWaiters.add(once);
+        // the change may have come while this was being registered
+        if (changedMeanwhile.getAsBoolean()) {
+            once.run();
+        }
+        return () -> {
+            done.set(true);
+            userWaiters.remove(once);
+            waiters.computeIfPresent(userId, (id, remaining) -> remaining.isEmpty() ? null : remaining);
+        };
+    }
+
+    int getWaiterCount() {
+        return waiters.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void wakeAll(Collection<String> userIds) {
+        for (String userId : userIds) {
+            eTags.remove(userId);
+            wake(waiters.remove(userId));
+        }
+    }
+
+    private void wake(Set<Runnable> userWaiters) {
+        if (userWaiters != null) {
+            userWaiters.forEach(Runnable::run);
+        }
+    }
+
+    private static class KeptETag {
+
+        private final String eTag;
+        private volatile long lastAskedFor;
+
+        private KeptETag(String eTag) {
+            this.eTag = eTag;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.openelisglobal.notifications.service;
+
+import java.util.Collection;
+import java.util.List;
+import org.openelisglobal.notifications.entity.Notification;
+
+public interface NotificationPushQueueService {
+
+    /**
+     * Saves the notification and queues it to be pushed to its user
+     */
+    Notification saveAndQueue(Notification notification);
+
+    /**
+     * Saves a notification with the message for each of the users and queues them
+     * to be pushed
+     */
+    List<Notification> saveAndQueue(Collection<String> userIds, String message);
+
+    List<String> getUserIdsInRole(String roleName);
+
+    List<String> getUserIdsInLabUnit(String labUnit);
+
+    /**
+     * Claims up to limit queued pushes for leaseSeconds. Queued notifications
+     * whose user has no subscription are removed from the queue.
+     */
+    List<PendingPush> claimDue(int limit, int leaseSeconds);
+
+    void recordSent(Collection<Long> taskIds);
+
+    /**
+     * Schedules the next attempt after a wait that doubles with each failure, a
+     * push that has failed maxAttempts times is given up on
+     */
+    void recordFailed(Collection<Long> taskIds, int retryBaseSeconds, int retryMaxSeconds, int maxAttempts);
+
+    /**
+     * Gives up the claim on pushes that could not be tried, they are due again
+     * after delaySeconds without counting as a failed attempt
+     */
+    void release(Collection<Long> taskIds, int delaySeconds);
+
+    /**
+     * Removes the subscriptions with endpoints the push service reported as gone,
+     * along with the pushes sent to them. A user who has subscribed again since
+     * has a new endpoint and keeps the new subscription.
+     */
+    void recordGone(Collection<String> endpoints, Collection<Long> taskIds);
+}
@@ -0,0 +1,163 @@
+package org.openelisglobal.notifications.service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.openelisglobal.notifications.dao.NotificationDAO;
+import org.openelisglobal.notifications.dao.NotificationPushQueueDAO;
+import org.openelisglobal.notifications.dao.NotificationSubscriptionDAO;
+import org.openelisglobal.notifications.entity.Notification;
+import org.openelisglobal.notifications.entity.NotificationPushTask;
+import org.openelisglobal.notifications.entity.NotificationSubscriptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class NotificationPushQueueServiceImpl implements NotificationPushQueueService {
+
+    @Autowired
+    private NotificationDAO notificationDAO;
+    @Autowired
+    private NotificationSubscriptionDAO notificationSubscriptionDAO;
+    @Autowired
+    private NotificationPushQueueDAO notificationPushQueueDAO;
+    @Autowired
+    private NotificationFeedWatcher feedWatcher;
+
+    @Override
+    @Transactional
+    public Notification saveAndQueue(Notification notification) {
+        save(notification);
+        feedWatcher.changed(Collections.singleton(notification.getUser().getId()));
+        return notification;
+    }
+
+    @Override
+    @Transactional
+    public List<Notification> saveAndQueue(Collection<String> userIds, String message) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Notification> notifications = new ArrayList<>();
+        Set<String> distinctUserIds = new LinkedHashSet<>(userIds);
+        for (String userId : distinctUserIds) {
+            Notification notification = new Notification();
+            notification.setUser(notificationDAO.getUserReference(userId));
+            notification.setMessage(message);
+            notification.setCreatedDate(now);
+            save(notification);
+            notifications.add(notification);
+        }
+        feedWatcher.changed(distinctUserIds);
+        return notifications;
+    }
+
+    private void save(Notification notification) {
+        notificationDAO.save(notification);
+        notificationPushQueueDAO.save(new NotificationPushTask(notification));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getUserIdsInRole(String roleName) {
+        return notificationDAO.getUserIdsInRole(roleName);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getUserIdsInLabUnit(String labUnit) {
+        return notificationDAO.getUserIdsInLabUnit(labUnit);
+    }
+
+    @Override
+    @Transactional
+    public List<PendingPush> claimDue(int limit, int leaseSeconds) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<NotificationPushTask> tasks = notificationPushQueueDAO.getDueForUpdate(now, limit);
+        if (tasks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Notification> notifications = notificationDAO
+                .getNotificationsByIds(
+                        tasks.stream().map(NotificationPushTask::getNotificationId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Notification::getId, Function.identity()));
+        Map<String, NotificationSubscriptions> subscriptions = new HashMap<>();
+        notificationSubscriptionDAO
+                .getNotificationSubscriptionsByUserIds(notifications.values().stream()
+                        .map(notification -> notification.getUser().getId()).collect(Collectors.toSet()))
+                .forEach(subscription -> subscriptions.put(subscription.getUser().getId(), subscription));
+
+        OffsetDateTime claimedUntil = now.plusSeconds(leaseSeconds);
+        List<PendingPush> pushes = new ArrayList<>();
+        List<Long> unsubscribed = new ArrayList<>();
+        for (NotificationPushTask task : tasks) {
+            Notification notification = notifications.get(task.getNotificationId());
+            NotificationSubscriptions subscription = notification == null ? null
+                    : subscriptions.get(notification.getUser().getId());
+            if (subscription == null) {
+                // the notification is still shown in the application
+                unsubscribed.add(task.getId());
+                continue;
+            }
+            task.setClaimedUntil(claimedUntil);
+            pushes.add(new PendingPush(task.getId(), subscription.getPfEndpoint(),
+                    subscription.getPfP256dh(), subscription.getPfAuth(), notification.getMessage()));
+        }
+        notificationPushQueueDAO.deleteTasks(unsubscribed);
+        return pushes;
+    }
+
+    @Override
+    @Transactional
+    public void recordSent(Collection<Long> taskIds) {
+        notificationPushQueueDAO.deleteTasks(taskIds);
+    }
+
+    @Override
+    @Transactional
+    public void recordFailed(Collection<Long> taskIds, int retryBaseSeconds, int retryMaxSeconds,
+            int maxAttempts) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Long> givenUp = new ArrayList<>();
+        for (NotificationPushTask task : notificationPushQueueDAO.getTasks(taskIds)) {
+            int attempts = task.getAttempts() + 1;
+            if (attempts >= maxAttempts) {
+                givenUp.add(task.getId());
+                continue;
+            }
+            task.setAttempts(attempts);
+            task.setNextAttemptTime(now.plusSeconds(retryDelaySeconds(attempts, retryBaseSeconds, retryMaxSeconds)));
+            task.setClaimedUntil(null);
+        }
+        notificationPushQueueDAO.deleteTasks(givenUp);
+    }
+
+    @Override
+    @Transactional
+    public void release(Collection<Long> taskIds, int delaySeconds) {
+        OffsetDateTime nextAttemptTime = OffsetDateTime.now().plusSeconds(delaySeconds);
+        for (NotificationPushTask task : notificationPushQueueDAO.getTasks(taskIds)) {
+            task.setNextAttemptTime(nextAttemptTime);
+            task.setClaimedUntil(null);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void recordGone(Collection<String> endpoints, Collection<Long> taskIds) {
+        notificationSubscriptionDAO.deleteByEndpoints(endpoints);
+        notificationPushQueueDAO.deleteTasks(taskIds);
+    }
+
+    static long retryDelaySeconds(int attempts, int retryBaseSeconds, int retryMaxSeconds) {
+        long delay = (long) retryBaseSeconds << Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(delay, retryMaxSeconds);
+    }
+}
@@ -0,0 +1,42 @@
+package org.openelisglobal.notifications.service;
+
+/**
+ * A claimed push with everything needed to send it, so it can be sent outside
+ * of the transaction which claimed it
+ */
+public class PendingPush {
+
+    private final Long taskId;
+    private final String endpoint;
+    private final String p256dh;
+    private final String auth;
+    private final String message;
+
+    public PendingPush(Long taskId, String endpoint, String p256dh, String auth, String message) {
+        this.taskId = taskId;
+        this.endpoint = endpoint;
+        this.p256dh = p256dh;
+        this.auth = auth;
+        this.message = message;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getP256dh() {
+        return p256dh;
+    }
+
+    public String getAuth() {
+        return auth;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,313 @@
+package org.openelisglobal.notifications.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import nl.martijndwars.webpush.Encoding;
+import nl.martijndwars.webpush.PushService;
+import org.apache.commons.validator.GenericValidator;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.jose4j.lang.JoseException;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.notifications.entity.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pushes saved notifications to their users' browsers. Notifications are queued
+ * in the database in the same transaction that saves them, so the caller does
+ * not wait on the push services, and the queue is drained in the background:
+ * right after something is queued and then every pollMillis for retries and
+ * anything another node left behind.
+ *
+ * <p>Each drain runs on the notification pool, claims a limited number of due
+ * pushes and sends them in parallel on the same pool, each with its own
+ * timeout. A subscription the push service reports as gone (404 or 410) is
+ * removed, a push that fails for another reason is retried after a wait that
+ * doubles with each failure.
+ */
+@Component
+public class PushNotificationDispatcher {
+
+    private static final String TITLE = "OpenELIS Global Notification";
+
+    @Autowired
+    private NotificationPushQueueService queueService;
+    @Autowired
+    @Qualifier(AsyncConfig.NOTIFICATION_EXECUTOR)
+    private InstrumentedTaskExecutor notificationExecutor;
+    @Autowired
+    private ConfigurableEnvironment env;
+
+    @Value("${org.openelisglobal.push.subject:mailto:your-email@example.com}")
+    private String subject;
+    @Value("${org.openelisglobal.push.url:http://localhost}")
+    private String url;
+    @Value("${org.openelisglobal.push.timeoutMillis:10000}")
+    private int timeoutMillis;
+    @Value("${org.openelisglobal.push.claimLimit:100}")
+    private int claimLimit;
+    @Value("${org.openelisglobal.push.leaseSeconds:300}")
+    private int leaseSeconds;
+    @Value("${org.openelisglobal.push.maxAttempts:5}")
+    private int maxAttempts;
+    @Value("${org.openelisglobal.push.retryBaseSeconds:30}")
+    private int retryBaseSeconds;
+    @Value("${org.openelisglobal.push.retryMaxSeconds:3600}")
+    private int retryMaxSeconds;
+    @Value("${org.openelisglobal.push.maxConnectionsPerRoute:20}")
+    private int maxConnectionsPerRoute;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private CloseableHttpClient httpClient;
+    private volatile PushService pushService;
+
+    @PostConstruct
+    public void start() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        // the push services use public certificates, not the ones in the lab's trust
+        // store
+        RequestConfig timeouts = RequestConfig.custom().setConnectTimeout(timeoutMillis)
+                .setConnectionRequestTimeout(timeoutMillis).setSocketTimeout(timeoutMillis).build();
+        httpClient = HttpClients.custom().useSystemProperties().setDefaultRequestConfig(timeouts)
+                .setMaxConnPerRoute(maxConnectionsPerRoute).setMaxConnTotal(maxConnectionsPerRoute * 4).build();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * Saves the notification and queues it to be pushed to its user
+     */
+    public Notification notifyUser(Notification notification) {
+        Notification saved = queueService.saveAndQueue(notification);
+        drainSoon();
+        return saved;
+    }
+
+    /**
+     * Saves a notification with the message for each user and queues them to be
+     * pushed
+     *
+     * @return the number of users notified
+     */
+    public int notifyUsers(Collection<String> userIds, String message) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        int notified = queueService.saveAndQueue(userIds, message).size();
+        drainSoon();
+        return notified;
+    }
+
+    public int notifyRole(String roleName, String message) {
+        return notifyUsers(queueService.getUserIdsInRole(roleName), message);
+    }
+
+    public int notifyLabUnit(String labUnit, String message) {
+        return notifyUsers(queueService.getUserIdsInLabUnit(labUnit), message);
+    }
+
+    /*
+     * if the caller has its own transaction the pushes are only seen once it
+     * commits, the next poll picks them up then. A drain already requested picks
+     * up this one as well, so at most one waits on the notification pool
+     */
+    private void drainSoon() {
+        if (!drainRequested.getAndSet(true)) {
+            notificationExecutor.execute(this::drain);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${org.openelisglobal.push.pollMillis:30000}",
+            fixedDelayString = "${org.openelisglobal.push.pollMillis:30000}")
+    public void poll() {
+        drainRequested.set(true);
+        drain();
+    }
+
+    void drain() {
+        // a request made while draining is picked up by the running drain
+        while (drainRequested.get() && draining.compareAndSet(false, true)) {
+            try {
+                drainRequested.set(false);
+                List<PendingPush> pushes;
+                do {
+                    pushes = queueService.claimDue(claimLimit, leaseSeconds);
+                    send(pushes);
+                } while (!pushes.isEmpty());
+            } catch (RuntimeException e) {
+                LogEvent.logError("error sending the queued push notifications", e);
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void send(List<PendingPush> pushes) {
+        if (pushes.isEmpty()) {
+            return;
+        }
+        PushService service = pushService();
+        if (service == null) {
+            // not an attempt, they are sent once the keys are there
+            queueService.release(pushes.stream().map(PendingPush::getTaskId).collect(Collectors.toList()),
+                    retryBaseSeconds);
+            return;
+        }
+        // the drain holds a thread of the pool, a pool of one sends them itself
+        Executor executor = notificationExecutor.getMaxPoolSize() > 1 ? notificationExecutor : Runnable::run;
+        CompletionService<Outcome> completionService = new ExecutorCompletionService<>(executor);
+        for (PendingPush push : pushes) {
+            completionService.submit(() -> send(service, push));
+        }
+
+        List<Long> sent = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        List<Long> goneTasks = new ArrayList<>();
+        List<String> goneEndpoints = new ArrayList<>();
+        try {
+            for (int i = 0; i < pushes.size(); i++) {
+                Outcome outcome = completionService.take().get();
+                switch (outcome.result) {
+                case SENT:
+                    sent.add(outcome.push.getTaskId());
+                    break;
+                case GONE:
+                    goneTasks.add(outcome.push.getTaskId());
+                    goneEndpoints.add(outcome.push.getEndpoint());
+                    break;
+                default:
+                    failed.add(outcome.push.getTaskId());
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // send handles its own errors, the pushes left are released when their
+            // claim expires
+            LogEvent.logError(e);
+        } finally {
+            queueService.recordSent(sent);
+            queueService.recordGone(goneEndpoints, goneTasks);
+            queueService.recordFailed(failed, retryBaseSeconds, retryMaxSeconds, maxAttempts);
+        }
+    }
+
+    private Outcome send(PushService service, PendingPush push) {
+        try {
+            nl.martijndwars.webpush.Notification webPushNotification = new nl.martijndwars.webpush.Notification(
+                    push.getEndpoint(), push.getP256dh(), push.getAuth(), payload(push));
+            HttpPost httpPost = service.preparePost(webPushNotification, Encoding.AESGCM);
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                // reading the body to the end lets the connection go back to the pool
+                EntityUtils.consume(response.getEntity());
+                int status = response.getStatusLine().getStatusCode();
+                Result result = resultOf(status);
+                if (result != Result.SENT) {
+                    LogEvent.logWarn(this.getClass().getSimpleName(), "send",
+                            "push " + push.getTaskId() + " was refused with status " + status);
+                }
+                return new Outcome(push, result);
+            }
+        } catch (IOException | GeneralSecurityException | JoseException | RuntimeException e) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "send",
+                    "push " + push.getTaskId() + " could not be sent: " + e.getMessage());
+            return new Outcome(push, Result.FAILED);
+        }
+    }
+
+    private byte[] payload(PendingPush push) throws JsonProcessingException {
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("title", TITLE);
+        payload.put("body", push.getMessage());
+        payload.put("url", url);
+        return objectMapper.writeValueAsString(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static Result resultOf(int status) {
+        if (status >= 200 && status < 300) {
+            return Result.SENT;
+        }
+        // the browser has unsubscribed or the subscription has expired
+        if (status == 404 || status == 410) {
+            return Result.GONE;
+        }
+        return Result.FAILED;
+    }
+
+    /*
+     * built once, the keys only change with a restart
+     */
+    private PushService pushService() {
+        if (pushService == null) {
+            synchronized (this) {
+                if (pushService == null) {
+                    String publicKey = env.getProperty("vapid.public.key");
+                    String privateKey = env.getProperty("vapid.private.key");
+                    if (GenericValidator.isBlankOrNull(publicKey) || GenericValidator.isBlankOrNull(privateKey)) {
+                        LogEvent.logError(this.getClass().getSimpleName(), "pushService",
+                                "push notifications are queued but the VAPID keys are not configured");
+                        return null;
+                    }
+                    try {
+                        pushService = new PushService(publicKey, privateKey, subject);
+                    } catch (GeneralSecurityException e) {
+                        LogEvent.logError("could not read the VAPID keys", e);
+                        return null;
+                    }
+                }
+            }
+        }
+        return pushService;
+    }
+
+    enum Result {
+        SENT, GONE, FAILED
+    }
+
+    private static class Outcome {
+        private final PendingPush push;
+        private final Result result;
+
+        private Outcome(PendingPush push, Result result) {
+            this.push = push;
+            this.result = result;
+        }
+    }
+}
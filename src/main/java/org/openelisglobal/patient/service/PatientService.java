@@ -1,6 +1,7 @@
 package org.openelisglobal.patient.service;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import org.openelisglobal.common.service.BaseObjectService;
@@ -39,6 +40,13 @@ public interface PatientService extends BaseObjectService<Patient, String> {
 
     String getNationalId(Patient patient);
 
+    /**
+     * @return the national id of each patient, keyed by patient id
+     */
+    Map<String, String> getNationalIds(Collection<Patient> patients);
+
+    List<Patient> get(List<String> ids);
+
     String getSTNumber(Patient patient);
 
     String getSubjectNumber(Patient patient);
@@ -2,6 +2,8 @@ package org.openelisglobal.patient.service;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -264,6 +266,35 @@ public class PatientServiceImpl extends AuditableBaseObjectServiceImpl<Patient,
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Patient> get(List<String> ids) {
+        return ids.isEmpty() ? new ArrayList<>() : baseObjectDAO.get(ids);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, String> getNationalIds(Collection<Patient> patients) {
+        Map<String, String> nationalIds = new HashMap<>();
+        List<String> lookupIds = new ArrayList<>();
+        for (Patient patient : patients) {
+            if (!GenericValidator.isBlankOrNull(patient.getNationalId())) {
+                nationalIds.put(patient.getId(), patient.getNationalId());
+            } else {
+                nationalIds.put(patient.getId(), "");
+                lookupIds.add(patient.getId());
+            }
+        }
+
+        if (!lookupIds.isEmpty() && !GenericValidator.isBlankOrNull(PATIENT_NATIONAL_IDENTITY)) {
+            for (PatientIdentity identity : patientIdentityService.getPatientIdentitiesForPatientsAndType(lookupIds,
+                    PATIENT_NATIONAL_IDENTITY)) {
+                nationalIds.put(identity.getPatientId(), identity.getIdentityData());
+            }
+        }
+        return nationalIds;
+    }
+
     /*
      * (non-Javadoc)
      *
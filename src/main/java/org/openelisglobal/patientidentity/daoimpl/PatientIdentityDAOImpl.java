@@ -1,7 +1,9 @@
 package org.openelisglobal.patientidentity.daoimpl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -135,4 +137,27 @@ public class PatientIdentityDAOImpl extends BaseDAOImpl<PatientIdentity, String>
 
         return null;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PatientIdentity> getPatientIdentitiesForPatientsAndType(List<String> patientIds,
+            String identityTypeId) throws LIMSRuntimeException {
+        if (patientIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "from PatientIdentity pi where pi.patientId in (:patientIds) and pi.identityTypeId = :typeId";
+
+        try {
+            Query<PatientIdentity> query = entityManager.unwrap(Session.class).createQuery(sql, PatientIdentity.class);
+            query.setParameterList("patientIds",
+                    patientIds.stream().map(Integer::parseInt).collect(Collectors.toList()));
+            query.setParameter("typeId", Integer.parseInt(identityTypeId));
+
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getPatientIdentitiesForPatientsAndType");
+        }
+
+        return null;
+    }
 }
@@ -11,4 +11,6 @@ public interface PatientIdentityService extends BaseObjectService<PatientIdentit
     PatientIdentity getPatitentIdentityForPatientAndType(String patientId, String identityTypeId);
 
     List<PatientIdentity> getPatientIdentitiesByValueAndType(String value, String identityType);
+
+    List<PatientIdentity> getPatientIdentitiesForPatientsAndType(List<String> patientIds, String identityTypeId);
 }
@@ -40,4 +40,11 @@ public class PatientIdentityServiceImpl extends AuditableBaseObjectServiceImpl<P
     public List<PatientIdentity> getPatientIdentitiesByValueAndType(String value, String identityType) {
         return getBaseObjectDAO().getPatientIdentitiesByValueAndType(value, identityType);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PatientIdentity> getPatientIdentitiesForPatientsAndType(List<String> patientIds,
+            String identityTypeId) {
+        return getBaseObjectDAO().getPatientIdentitiesForPatientsAndType(patientIds, identityTypeId);
+    }
 }
@@ -1,14 +1,21 @@
 package org.openelisglobal.patientidentity.valueholder;
 
+import org.hibernate.search.engine.backend.types.Projectable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 import org.openelisglobal.common.valueholder.BaseObject;
 
+@Indexed
 public class PatientIdentity extends BaseObject<String> {
 
     private static final long serialVersionUID = 1L;
 
     private String id;
+    @KeywordField
     private String identityTypeId;
+    @KeywordField(projectable = Projectable.YES)
     private String patientId;
+    @KeywordField(normalizer = "lowercase")
     private String identityData;
 
     public String getId() {
@@ -23,6 +23,17 @@ import org.openelisglobal.analyzerimport.analyzerreaders.AnalyzerResponder;
 public interface AnalyzerImporterPlugin extends APlugin {
     public boolean isTargetAnalyzer(List<String> lines);
 
+    /**
+     * Whether an ASTM message is from this plugin's analyzer, judging from its
+     * header record alone. A plugin which can tell lets the message be read as it
+     * is inserted instead of being read whole first, and is then asked
+     * isAnalyzerResult with the records up to the first patient, order, result or
+     * query record.
+     */
+    default boolean isTargetAnalyzerHeader(String headerRecord) {
+        return false;
+    }
+
     public AnalyzerLineInserter getAnalyzerLineInserter();
 
     default boolean isAnalyzerResult(List<String> lines) {
@@ -2,17 +2,21 @@ package org.openelisglobal.program.valueholder.cytology;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import org.hibernate.annotations.Type;
+import org.openelisglobal.blob.valueholder.ImageBlobHolder;
+import org.openelisglobal.blob.valueholder.ImageBlobListener;
 import org.openelisglobal.common.valueholder.BaseObject;
 
 @Entity
 @Table(name = "cytology_slide")
-public class CytologySlide extends BaseObject<Integer> {
+@EntityListeners(ImageBlobListener.class)
+public class CytologySlide extends BaseObject<Integer> implements ImageBlobHolder {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cytology_slide_generator")
     @SequenceGenerator(name = "cytology_slide_generator", sequenceName = "cytology_slide_seq", allocationSize = 1)
@@ -28,6 +32,9 @@ public class CytologySlide extends BaseObject<Integer> {
     @Column(name = "file_type")
     private String fileType;
 
+    @Column(name = "image_blob_id")
+    private String imageBlobId;
+
     @Column(name = "location")
     private String location;
 
@@ -49,14 +56,26 @@ public class CytologySlide extends BaseObject<Integer> {
         this.slideNumber = slideNumber;
     }
 
+    @Override
     public byte[] getImage() {
         return image;
     }
 
+    @Override
     public void setImage(byte[] image) {
         this.image = image;
     }
 
+    @Override
+    public String getImageBlobId() {
+        return imageBlobId;
+    }
+
+    @Override
+    public void setImageBlobId(String imageBlobId) {
+        this.imageBlobId = imageBlobId;
+    }
+
     public String getFileType() {
         return fileType;
     }
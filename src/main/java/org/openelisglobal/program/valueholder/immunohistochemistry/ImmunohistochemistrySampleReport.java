@@ -2,6 +2,7 @@ package org.openelisglobal.program.valueholder.immunohistochemistry;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
@@ -11,11 +12,14 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 import org.hibernate.annotations.Type;
+import org.openelisglobal.blob.valueholder.ImageBlobHolder;
+import org.openelisglobal.blob.valueholder.ImageBlobListener;
 import org.openelisglobal.common.valueholder.BaseObject;
 
 @Entity
 @Table(name = "immunohistochemistry_report")
-public class ImmunohistochemistrySampleReport extends BaseObject<Integer> {
+@EntityListeners(ImageBlobListener.class)
+public class ImmunohistochemistrySampleReport extends BaseObject<Integer> implements ImageBlobHolder {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "immunohistochemistry_report_generator")
@@ -28,6 +32,9 @@ public class ImmunohistochemistrySampleReport extends BaseObject<Integer> {
     @Column(name = "file_type")
     private String fileType;
 
+    @Column(name = "image_blob_id")
+    private String imageBlobId;
+
     @Column(name = "report_type")
     @Enumerated(EnumType.STRING)
     @NotNull
@@ -43,14 +50,26 @@ public class ImmunohistochemistrySampleReport extends BaseObject<Integer> {
         this.id = id;
     }
 
+    @Override
     public byte[] getImage() {
         return image;
     }
 
+    @Override
     public void setImage(byte[] image) {
         this.image = image;
     }
 
+    @Override
+    public String getImageBlobId() {
+        return imageBlobId;
+    }
+
+    @Override
+    public void setImageBlobId(String imageBlobId) {
+        this.imageBlobId = imageBlobId;
+    }
+
     public String getFileType() {
         return fileType;
     }
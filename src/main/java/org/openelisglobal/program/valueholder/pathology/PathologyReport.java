@@ -2,6 +2,7 @@ package org.openelisglobal.program.valueholder.pathology;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
@@ -11,11 +12,14 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 import org.hibernate.annotations.Type;
+import org.openelisglobal.blob.valueholder.ImageBlobHolder;
+import org.openelisglobal.blob.valueholder.ImageBlobListener;
 import org.openelisglobal.common.valueholder.BaseObject;
 
 @Entity
 @Table(name = "pathology_report")
-public class PathologyReport extends BaseObject<Integer> {
+@EntityListeners(ImageBlobListener.class)
+public class PathologyReport extends BaseObject<Integer> implements ImageBlobHolder {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pathology_report_generator")
     @SequenceGenerator(name = "pathology_report_generator", sequenceName = "pathology_report_seq", allocationSize = 1)
@@ -27,6 +31,9 @@ public class PathologyReport extends BaseObject<Integer> {
     @Column(name = "file_type")
     private String fileType;
 
+    @Column(name = "image_blob_id")
+    private String imageBlobId;
+
     @Column(name = "report_type")
     @Enumerated(EnumType.STRING)
     @NotNull
@@ -42,14 +49,26 @@ public class PathologyReport extends BaseObject<Integer> {
         this.id = id;
     }
 
+    @Override
     public byte[] getImage() {
         return image;
     }
 
+    @Override
     public void setImage(byte[] image) {
         this.image = image;
     }
 
+    @Override
+    public String getImageBlobId() {
+        return imageBlobId;
+    }
+
+    @Override
+    public void setImageBlobId(String imageBlobId) {
+        this.imageBlobId = imageBlobId;
+    }
+
     public String getFileType() {
         return fileType;
     }
@@ -13,8 +13,10 @@
  */
 package org.openelisglobal.reports.action.implementation;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -23,7 +25,7 @@ import javax.xml.ws.Response;
 import net.sf.jasperreports.engine.JRException;
 import org.openelisglobal.reports.action.implementation.reportBeans.RoutineColumnBuilder;
 
-public abstract class CSVRoutineSampleExportReport extends CSVRoutineExportReport {
+public abstract class CSVRoutineSampleExportReport extends CSVRoutineExportReport implements IStreamingReportCreator {
 
     protected String lowDateStr;
     protected String highDateStr;
@@ -64,15 +66,29 @@ public abstract class CSVRoutineSampleExportReport extends CSVRoutineExportRepor
         }
 
         ByteArrayOutputStream buffer = new ByteArrayOutputStream(100000);
-        buffer.write(csvRoutineColumnBuilder.getColumnNamesLine().getBytes("windows-1252"));
+        streamReport(buffer);
+        return buffer.toByteArray();
+    }
 
-        writeResultsToBuffer(buffer);
-        csvRoutineColumnBuilder.closeResultSet();
+    @Override
+    public boolean isStreamable() {
+        return !errorFound;
+    }
 
-        return buffer.toByteArray();
+    @Override
+    public void streamReport(OutputStream out) throws IOException, SQLException, ParseException {
+        // lines are small, buffer them so each one is not a separate write
+        BufferedOutputStream buffer = new BufferedOutputStream(out, 64 * 1024);
+        try {
+            buffer.write(csvRoutineColumnBuilder.getColumnNamesLine().getBytes("windows-1252"));
+            writeResultsToBuffer(buffer);
+            buffer.flush();
+        } finally {
+            csvRoutineColumnBuilder.closeResultSet();
+        }
     }
 
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer)
+    protected void writeResultsToBuffer(OutputStream buffer)
             throws IOException, UnsupportedEncodingException, SQLException, ParseException {
         while (csvRoutineColumnBuilder.next()) {
             buffer.write(csvRoutineColumnBuilder.nextLine().getBytes("windows-1252"));
@@ -13,8 +13,8 @@
  */
 package org.openelisglobal.reports.action.implementation;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -120,7 +120,7 @@ public class ExportRoutineByDate extends CSVRoutineSampleExportReport
     }
 
     @Override
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer)
+    protected void writeResultsToBuffer(OutputStream buffer)
             throws IOException, UnsupportedEncodingException, SQLException, ParseException {
 
         String currentAccessionNumber = null;
@@ -151,7 +151,7 @@ public class ExportRoutineByDate extends CSVRoutineSampleExportReport
         }
     }
 
-    protected void writeConsolidatedBaseToBuffer(ByteArrayOutputStream buffer, String[] splitBase)
+    protected void writeConsolidatedBaseToBuffer(OutputStream buffer, String[] splitBase)
             throws IOException, UnsupportedEncodingException {
 
         if (splitBase != null) {
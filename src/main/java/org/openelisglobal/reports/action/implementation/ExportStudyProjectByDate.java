@@ -15,8 +15,8 @@ package org.openelisglobal.reports.action.implementation;
 
 import static org.apache.commons.validator.GenericValidator.isBlankOrNull;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -131,7 +131,7 @@ public class ExportStudyProjectByDate extends CSVSampleExportReport implements I
     }
 
     @Override
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer) throws IOException, SQLException, ParseException {
+    protected void writeResultsToBuffer(OutputStream buffer) throws IOException, SQLException, ParseException {
 
         String currentAccessionNumber = null;
         String[] splitBase = null;
@@ -161,7 +161,7 @@ public class ExportStudyProjectByDate extends CSVSampleExportReport implements I
         }
     }
 
-    protected void writeConsolidatedBaseToBuffer(ByteArrayOutputStream buffer, String[] splitBase)
+    protected void writeConsolidatedBaseToBuffer(OutputStream buffer, String[] splitBase)
             throws IOException, UnsupportedEncodingException {
 
         if (splitBase != null) {
@@ -15,8 +15,8 @@ package org.openelisglobal.reports.action.implementation;
 
 import static org.apache.commons.validator.GenericValidator.isBlankOrNull;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -134,7 +134,7 @@ public class ExportTrendsByDate extends CSVSampleExportReport implements IReport
     }
 
     @Override
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer)
+    protected void writeResultsToBuffer(OutputStream buffer)
             throws IOException, UnsupportedEncodingException, SQLException, ParseException {
 
         String currentAccessionNumber = null;
@@ -196,7 +196,7 @@ public class ExportTrendsByDate extends CSVSampleExportReport implements IReport
         }
     }
 
-    protected void writeConsolidatedBaseToBuffer(ByteArrayOutputStream buffer, String[] splitBase)
+    protected void writeConsolidatedBaseToBuffer(OutputStream buffer, String[] splitBase)
             throws IOException, UnsupportedEncodingException {
 
         if (splitBase != null) {
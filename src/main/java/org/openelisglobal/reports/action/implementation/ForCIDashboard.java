@@ -15,8 +15,8 @@ package org.openelisglobal.reports.action.implementation;
 
 import static org.apache.commons.validator.GenericValidator.isBlankOrNull;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -135,7 +135,7 @@ public class ForCIDashboard extends CSVSampleExportReport implements IReportPara
     }
 
     @Override
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer) throws IOException, SQLException, ParseException {
+    protected void writeResultsToBuffer(OutputStream buffer) throws IOException, SQLException, ParseException {
 
         String currentAccessionNumber = null;
         String[] splitBase = {};
@@ -189,7 +189,7 @@ public class ForCIDashboard extends CSVSampleExportReport implements IReportPara
         }
     }
 
-    protected void writeConsolidatedBaseToBuffer(ByteArrayOutputStream buffer, String[] splitBase) throws IOException {
+    protected void writeConsolidatedBaseToBuffer(OutputStream buffer, String[] splitBase) throws IOException {
 
         if (splitBase != null) {
             int splitBaseNumChars = StringUtil.countChars(splitBase);
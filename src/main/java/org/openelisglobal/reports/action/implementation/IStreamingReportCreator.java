@@ -0,0 +1,39 @@
+/**
+ * The contents of this file are subject to the Mozilla Public License Version 1.1 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.mozilla.org/MPL/
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" basis, WITHOUT WARRANTY OF
+ * ANY KIND, either express or implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ *
+ * <p>The Original Code is OpenELIS code.
+ *
+ * <p>Copyright (C) CIRG, University of Washington, Seattle WA. All Rights Reserved.
+ */
+package org.openelisglobal.reports.action.implementation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.text.ParseException;
+
+/**
+ * A report which can write itself to the response a row at a time instead of
+ * being built into a byte array by runReport, so a large export does not have
+ * to fit in memory.
+ */
+public interface IStreamingReportCreator extends IReportCreator {
+
+    /**
+     * @return false when the report can only be produced by runReport, for
+     *         instance when it has fallen back to an error page
+     */
+    boolean isStreamable();
+
+    /**
+     * Writes the report to out, releasing the database cursor when done. The
+     * stream is flushed but not closed.
+     */
+    void streamReport(OutputStream out) throws IOException, SQLException, ParseException;
+}
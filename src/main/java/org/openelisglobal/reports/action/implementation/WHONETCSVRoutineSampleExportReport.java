@@ -13,8 +13,10 @@
  */
 package org.openelisglobal.reports.action.implementation;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -23,7 +25,7 @@ import javax.xml.ws.Response;
 import net.sf.jasperreports.engine.JRException;
 import org.openelisglobal.reports.action.implementation.reportBeans.WHONETCSVRoutineColumnBuilder;
 
-public abstract class WHONETCSVRoutineSampleExportReport extends WHONETCSVRoutineExportReport {
+public abstract class WHONETCSVRoutineSampleExportReport extends WHONETCSVRoutineExportReport implements IStreamingReportCreator {
 
     protected String lowDateStr;
     protected String highDateStr;
@@ -64,14 +66,25 @@ public abstract class WHONETCSVRoutineSampleExportReport extends WHONETCSVRoutin
         }
 
         ByteArrayOutputStream buffer = new ByteArrayOutputStream(100000);
-        buffer.write(WHONETcsvRoutineColumnBuilder.getColumnNamesLine().getBytes("windows-1252"));
+        streamReport(buffer);
+        return buffer.toByteArray();
+    }
 
-        writeResultsToBuffer(buffer);
+    @Override
+    public boolean isStreamable() {
+        return !errorFound;
+    }
 
-        return buffer.toByteArray();
+    @Override
+    public void streamReport(OutputStream out) throws IOException, SQLException, ParseException {
+        // lines are small, buffer them so each one is not a separate write
+        BufferedOutputStream buffer = new BufferedOutputStream(out, 64 * 1024);
+        buffer.write(WHONETcsvRoutineColumnBuilder.getColumnNamesLine().getBytes("windows-1252"));
+        writeResultsToBuffer(buffer);
+        buffer.flush();
     }
 
-    protected void writeResultsToBuffer(ByteArrayOutputStream buffer)
+    protected void writeResultsToBuffer(OutputStream buffer)
             throws IOException, UnsupportedEncodingException, SQLException, ParseException {
         while (WHONETcsvRoutineColumnBuilder.next()) {
             buffer.write(WHONETcsvRoutineColumnBuilder.nextLine().getBytes("windows-1252"));
@@ -23,6 +23,7 @@ import static org.openelisglobal.reports.action.implementation.reportBeans.CSVCo
 
 import java.sql.Connection;
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -134,6 +135,9 @@ public abstract class CSVColumnBuilder {
 
     protected ResultSet resultSet;
 
+    // rows read from the database at a time while the report is written
+    private static final int FETCH_SIZE = 1000;
+
     protected String eol = System.getProperty("line.separator");
 
     private static ProjectService projectService = SpringContext.getBean(ProjectService.class);
@@ -251,8 +255,13 @@ public abstract class CSVColumnBuilder {
 
             @Override
             public ResultSet execute(Connection connection) throws SQLException {
-                return connection.prepareStatement(sql, ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY)
-                        .executeQuery();
+                // a forward only cursor with a fetch size lets the driver hold a batch of rows
+                // at a time rather than the whole export, this needs autocommit off which the
+                // transaction takes care of
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement.executeQuery();
             }
         });
     }
@@ -745,7 +754,10 @@ public abstract class CSVColumnBuilder {
      * @throws SQLException
      */
     public void closeResultSet() throws SQLException {
-        resultSet.close();
+        if (resultSet != null) {
+            // closing the statement closes the result set and the cursor behind it
+            resultSet.getStatement().close();
+        }
         resultSet = null;
     }
 
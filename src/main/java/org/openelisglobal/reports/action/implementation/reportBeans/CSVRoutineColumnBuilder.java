@@ -22,6 +22,7 @@ import static org.openelisglobal.reports.action.implementation.reportBeans.CSVRo
 import static org.openelisglobal.reports.action.implementation.reportBeans.CSVRoutineColumnBuilder.Strategy.TEST_RESULT;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
@@ -124,6 +125,11 @@ public abstract class CSVRoutineColumnBuilder {
 
     protected ResultSet resultSet;
 
+    // rows read from the database at a time while the report is written
+    private static final int FETCH_SIZE = 1000;
+
+    private Session session;
+
     protected String eol = System.getProperty("line.separator");
 
     protected ResultService resultService = SpringContext.getBean(ResultService.class);
@@ -222,14 +228,20 @@ public abstract class CSVRoutineColumnBuilder {
         // ResultSet.TYPE_SCROLL_SENSITIVE,
         // ResultSet.CONCUR_READ_ONLY);
         // resultSet = stmt.executeQuery();
-        Session session = SpringContext.getBean(SessionFactory.class).openSession();
+        session = SpringContext.getBean(SessionFactory.class).openSession();
+        session.beginTransaction();
         resultSet = session.doReturningWork(new ReturningWork<ResultSet>() {
 
             @Override
             public ResultSet execute(Connection connection) throws SQLException {
 
-                return connection.prepareStatement(sql, ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY)
-                        .executeQuery();
+                // a forward only cursor with a fetch size lets the driver hold a batch of rows
+                // at a time rather than the whole export, this needs autocommit off which the
+                // transaction takes care of
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement.executeQuery();
             }
         });
     }
@@ -708,8 +720,19 @@ public abstract class CSVRoutineColumnBuilder {
      * @throws SQLException
      */
     public void closeResultSet() throws SQLException {
-        resultSet.close();
-        resultSet = null;
+        try {
+            if (resultSet != null) {
+                resultSet.getStatement().close();
+            }
+        } finally {
+            resultSet = null;
+            if (session != null) {
+                // nothing was written, the transaction was only there for the cursor
+                session.getTransaction().rollback();
+                session.close();
+                session = null;
+            }
+        }
     }
 
     protected String getGendCD4CountAnalyteId() {
@@ -12,12 +12,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import javax.servlet.ServletContext;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import net.sf.jasperreports.engine.JRException;
-import org.apache.commons.validator.GenericValidator;
 import org.openelisglobal.common.controller.BaseController;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.form.BaseForm;
@@ -55,6 +53,9 @@ public class ReportController extends BaseController {
     @Autowired
     private ServletContext context;
 
+    @Autowired
+    private ReportResponseWriter reportResponseWriter;
+
     private String reportPath = null;
     private String imagesPath = null;
 
@@ -116,23 +117,7 @@ public class ReportController extends BaseController {
             parameterMap.put("imagesPath", getImagesPath());
 
             try {
-                response.setContentType(reportCreator.getContentType());
-                String responseHeaderName = reportCreator.getResponseHeaderName();
-                String responseHeaderContent = reportCreator.getResponseHeaderContent();
-                if (!GenericValidator.isBlankOrNull(responseHeaderName)
-                        && !GenericValidator.isBlankOrNull(responseHeaderContent)) {
-                    response.setHeader(responseHeaderName, responseHeaderContent);
-                }
-
-                byte[] bytes = reportCreator.runReport();
-
-                response.setContentLength(bytes.length);
-
-                ServletOutputStream servletOutputStream = response.getOutputStream();
-
-                servletOutputStream.write(bytes, 0, bytes.length);
-                servletOutputStream.flush();
-                servletOutputStream.close();
+                reportResponseWriter.writeReport(reportCreator, request, response);
             } catch (IOException | SQLException | JRException | DocumentException | ParseException e) {
                 LogEvent.logError(e);
             }
@@ -0,0 +1,82 @@
+package org.openelisglobal.reports.controller;
+
+import com.lowagie.text.DocumentException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import net.sf.jasperreports.engine.JRException;
+import org.openelisglobal.common.util.validator.GenericValidator;
+import org.openelisglobal.reports.action.implementation.IReportCreator;
+import org.openelisglobal.reports.action.implementation.IStreamingReportCreator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes a report to the response. Reports which can stream are written as they
+ * are read from the database, without a content length so the response is
+ * chunked, and gzipped when the client accepts it. Other reports are built in
+ * memory by runReport as before.
+ */
+@Component
+public class ReportResponseWriter {
+
+    @Value("${org.openelisglobal.reports.streaming.gzip:true}")
+    private boolean gzipStreamedReports;
+
+    public void writeReport(IReportCreator reportCreator, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, SQLException, JRException, DocumentException, ParseException {
+        response.setContentType(reportCreator.getContentType());
+        String responseHeaderName = reportCreator.getResponseHeaderName();
+        String responseHeaderContent = reportCreator.getResponseHeaderContent();
+        if (!GenericValidator.isBlankOrNull(responseHeaderName)
+                && !GenericValidator.isBlankOrNull(responseHeaderContent)) {
+            response.setHeader(responseHeaderName, responseHeaderContent);
+        }
+
+        if (reportCreator instanceof IStreamingReportCreator
+                && ((IStreamingReportCreator) reportCreator).isStreamable()) {
+            streamReport((IStreamingReportCreator) reportCreator, request, response);
+            return;
+        }
+
+        byte[] bytes = reportCreator.runReport();
+
+        response.setContentLength(bytes.length);
+
+        ServletOutputStream servletOutputStream = response.getOutputStream();
+
+        servletOutputStream.write(bytes, 0, bytes.length);
+        servletOutputStream.flush();
+        servletOutputStream.close();
+    }
+
+    private void streamReport(IStreamingReportCreator reportCreator, HttpServletRequest request,
+            HttpServletResponse response) throws IOException, SQLException, ParseException {
+        ServletOutputStream servletOutputStream = response.getOutputStream();
+        if (gzipStreamedReports && acceptsGzip(request)) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.addHeader("Vary", "Accept-Encoding");
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(servletOutputStream, 8192);
+            reportCreator.streamReport(gzipOutputStream);
+            gzipOutputStream.finish();
+        } else {
+            reportCreator.streamReport(servletOutputStream);
+        }
+        finish(servletOutputStream);
+    }
+
+    private void finish(OutputStream out) throws IOException {
+        out.flush();
+        out.close();
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+}
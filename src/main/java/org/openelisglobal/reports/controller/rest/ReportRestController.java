@@ -10,16 +10,15 @@ import java.sql.SQLException;
 import java.text.ParseException;
 import java.util.HashMap;
 import javax.servlet.ServletContext;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import net.sf.jasperreports.engine.JRException;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.rest.BaseRestController;
-import org.openelisglobal.common.util.validator.GenericValidator;
 import org.openelisglobal.reports.action.implementation.IReportCreator;
 import org.openelisglobal.reports.action.implementation.ReportImplementationFactory;
+import org.openelisglobal.reports.controller.ReportResponseWriter;
 import org.openelisglobal.reports.form.ReportForm;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -35,6 +34,9 @@ public class ReportRestController extends BaseRestController {
     @Autowired
     private ServletContext context;
 
+    @Autowired
+    private ReportResponseWriter reportResponseWriter;
+
     private static String reportPath = null;
 
     private static String imagesPath = null;
@@ -58,24 +60,7 @@ public class ReportRestController extends BaseRestController {
             parameterMap.put("imagesPath", getImagesPath());
 
             try {
-                response.setContentType(reportCreator.getContentType());
-                String responseHeaderName = reportCreator.getResponseHeaderName();
-                String responseHeaderContent = reportCreator.getResponseHeaderContent();
-                if (!GenericValidator.isBlankOrNull(responseHeaderName)
-                        && !GenericValidator.isBlankOrNull(responseHeaderContent)) {
-                    response.setHeader(responseHeaderName, responseHeaderContent);
-                }
-
-                byte[] bytes = reportCreator.runReport();
-
-                response.setContentLength(bytes.length);
-
-                ServletOutputStream servletOutputStream = response.getOutputStream();
-
-                servletOutputStream.write(bytes, 0, bytes.length);
-                servletOutputStream.flush();
-                servletOutputStream.close();
-
+                reportResponseWriter.writeReport(reportCreator, request, response);
             } catch (IOException | SQLException | JRException | DocumentException | ParseException e) {
                 LogEvent.logError(e);
             }
@@ -51,9 +51,6 @@ import org.openelisglobal.inventory.action.InventoryUtility;
 import org.openelisglobal.inventory.form.InventoryKitItem;
 import org.openelisglobal.localization.service.LocalizationService;
 import org.openelisglobal.localization.valueholder.Localization;
-import org.openelisglobal.note.service.NoteService;
-import org.openelisglobal.note.service.NoteServiceImpl.NoteType;
-import org.openelisglobal.observationhistory.service.ObservationHistoryService;
 import org.openelisglobal.observationhistory.valueholder.ObservationHistory;
 import org.openelisglobal.observationhistory.valueholder.ObservationHistory.ValueType;
 import org.openelisglobal.patient.form.PatientInfoForm;
@@ -63,17 +60,15 @@ import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
 import org.openelisglobal.patientidentitytype.util.PatientIdentityTypeMap;
 import org.openelisglobal.person.service.PersonService;
-import org.openelisglobal.referral.service.ReferralService;
 import org.openelisglobal.referral.valueholder.Referral;
-import org.openelisglobal.result.service.ResultInventoryService;
+import org.openelisglobal.result.service.ResultItemPrefetch;
+import org.openelisglobal.result.service.ResultItemPrefetchService;
 import org.openelisglobal.result.service.ResultService;
-import org.openelisglobal.result.service.ResultSignatureService;
 import org.openelisglobal.result.valueholder.Result;
 import org.openelisglobal.result.valueholder.ResultInventory;
 import org.openelisglobal.result.valueholder.ResultSignature;
 import org.openelisglobal.resultlimit.service.ResultLimitService;
 import org.openelisglobal.resultlimits.valueholder.ResultLimit;
-import org.openelisglobal.sample.service.SampleService;
 import org.openelisglobal.sample.valueholder.Sample;
 import org.openelisglobal.samplehuman.service.SampleHumanService;
 import org.openelisglobal.sampleitem.service.SampleItemService;
@@ -129,16 +124,8 @@ public class ResultsLoadUtility {
     @Autowired
     private LocalizationService localizationService;
     @Autowired
-    private ResultSignatureService resultSignatureService;
-    @Autowired
-    private ResultInventoryService resultInventoryService;
-    @Autowired
-    private ObservationHistoryService observationHistoryService;
-    @Autowired
     private AnalysisService analysisService;
     @Autowired
-    private ReferralService referralService;
-    @Autowired
     private AnalyteService analyteService;
     @Autowired
     private SystemUserService systemUserService;
@@ -150,6 +137,8 @@ public class ResultsLoadUtility {
     private SampleItemService sampleItemService;
     @Autowired
     private SampleQaEventService sampleQaEventService;
+    @Autowired
+    private ResultItemPrefetchService resultItemPrefetchService;
 
     private final StatusRules statusRules = new StatusRules();
 
@@ -270,6 +259,35 @@ public class ResultsLoadUtility {
         return getGroupedTestsForAnalysisList(fullAnalysisList, SORT_FORWARD);
     }
 
+    /**
+     * Reads only the keys of the unfinished analyses in the test section, the
+     * result items for a page are built by getTestResultItemsForPage
+     */
+    public ResultsPageCursor getUnfinishedResultsCursorInTestSection(String testSectionId, Set<String> testIds,
+            int pageSize) {
+        List<Object[]> keys = analysisService.getPageKeysAnalysisByTestSectionAndStatus(testSectionId,
+                analysisStatusList, sampleStatusList);
+        return new ResultsPageCursor(testSectionId, analysisStatusList, sampleStatusList, keys, testIds, pageSize);
+    }
+
+    public List<TestResultItem> getTestResultItemsForPage(ResultsPageCursor cursor, int pageNumber) {
+        ResultsPageCursor.Page page = cursor.getPage(pageNumber);
+        if (page == null) {
+            return new ArrayList<>();
+        }
+        List<Analysis> pageAnalysisList = analysisService.getPageAnalysisByTestSectionAndStatus(
+                cursor.getTestSectionId(), cursor.getAnalysisStatusList(), cursor.getSampleStatusList(),
+                page.getFirstAccessionNumber(), page.getLastAccessionNumber());
+        // analyses entered since the cursor was made belong to no page yet
+        List<Analysis> analysisList = new ArrayList<>();
+        for (Analysis analysis : pageAnalysisList) {
+            if (page.contains(analysis.getId())) {
+                analysisList.add(analysis);
+            }
+        }
+        return getGroupedTestsForAnalysisList(analysisList, SORT_FORWARD);
+    }
+
     public int getTotalCountAnalysisByTestSectionAndStatus(String testSectionId) {
         return analysisService.getCountAnalysisByTestSectionAndStatus(testSectionId, analysisStatusList,
                 sampleStatusList);
@@ -283,16 +301,16 @@ public class ResultsLoadUtility {
         reflexGroup = 1;
 
         List<TestResultItem> selectedTestList = new ArrayList<>();
+        ResultItemPrefetch prefetch = resultItemPrefetchService.prefetch(filteredAnalysisList, true,
+                useTechSignature, supportReferrals, useInitialSampleCondition);
 
         for (Analysis analysis : filteredAnalysisList) {
-            patientService = SpringContext.getBean(PatientService.class);
-            SampleService sampleService = SpringContext.getBean(SampleService.class);
             Sample sample = analysis.getSampleItem().getSample();
-            currentPatient = sampleService.getPatient(sample);
+            currentPatient = prefetch.getPatient(sample.getId());
 
             String patientName = "";
             String patientInfo;
-            String nationalId = patientService.getNationalId(currentPatient);
+            String nationalId = prefetch.getNationalId(currentPatient);
             if (depersonalize) {
                 patientInfo = GenericValidator.isBlankOrNull(nationalId) ? patientService.getExternalId(currentPatient)
                         : nationalId;
@@ -303,8 +321,8 @@ public class ResultsLoadUtility {
             }
 
             currSample = analysis.getSampleItem().getSample();
-            List<TestResultItem> testResultItemList = getTestResultItemFromAnalysis(analysis, patientName, patientInfo,
-                    nationalId);
+            List<TestResultItem> testResultItemList = getTestResultItemFromAnalysis(analysis, prefetch, patientName,
+                    patientInfo, nationalId);
 
             for (TestResultItem selectionItem : testResultItemList) {
                 selectedTestList.add(selectionItem);
@@ -398,22 +416,18 @@ public class ResultsLoadUtility {
         return testService.getTestsByTestSection(id);
     }
 
-    private List<TestResultItem> getTestResultItemFromAnalysis(Analysis analysis, String patientName,
-            String patientInfo, String nationalId) throws LIMSRuntimeException {
+    private List<TestResultItem> getTestResultItemFromAnalysis(Analysis analysis, ResultItemPrefetch prefetch,
+            String patientName, String patientInfo, String nationalId) throws LIMSRuntimeException {
         List<TestResultItem> testResultList = new ArrayList<>();
 
         SampleItem sampleItem = analysis.getSampleItem();
-        List<Result> resultList = resultService.getResultsByAnalysis(analysis);
+        List<Result> resultList = prefetch.getResults(analysis.getId());
 
         ResultInventory testKit = null;
 
         String techSignature = "";
         String techSignatureId = "";
 
-        if (resultList == null) {
-            return testResultList;
-        }
-
         // For historical reasons we add a null member to the collection if it
         // is empty
         // this should be refactored.
@@ -434,32 +448,27 @@ public class ResultsLoadUtility {
 
             if (result != null) {
                 if (useTechSignature) {
-                    List<ResultSignature> signatures = resultSignatureService.getResultSignaturesByResults(resultList);
-
-                    for (ResultSignature signature : signatures) {
-                        // we no longer use supervisor signature but there may be some in db
-                        if (!signature.getIsSupervisor()) {
-                            techSignature = signature.getNonUserName();
-                            techSignatureId = signature.getId();
-                        }
+                    ResultSignature signature = prefetch.getTechSignature(analysis.getId());
+                    if (signature != null) {
+                        techSignature = signature.getNonUserName();
+                        techSignatureId = signature.getId();
                     }
                 }
 
-                testKit = getInventoryForResult(result);
+                testKit = prefetch.getInventory(result.getId());
 
                 multiSelectionResult = TypeOfTestResultServiceImpl.ResultType
                         .isMultiSelectVariant(result.getResultType());
             }
 
-            String initialConditions = getInitialSampleConditionString(sampleItem);
-            NoteType[] noteTypes = { NoteType.EXTERNAL, NoteType.INTERNAL, NoteType.REJECTION_REASON,
-                    NoteType.NON_CONFORMITY };
-            NoteService noteService = SpringContext.getBean(NoteService.class);
-            String notes = noteService.getNotesAsString(analysis, true, true, "<br/>", noteTypes, false);
+            String initialConditions = getInitialSampleConditionString(
+                    prefetch.getObservationHistories(sampleItem.getId()));
+            String notes = prefetch.getNotes(analysis.getId());
 
-            TestResultItem resultItem = createTestResultItem(analysis, testKit, notes, sampleItem.getSortOrder(),
-                    result, sampleItem.getSample().getAccessionNumber(), patientName, patientInfo, techSignature,
-                    techSignatureId, initialConditions, SpringContext.getBean(TypeOfSampleService.class)
+            TestResultItem resultItem = createTestResultItem(analysis, prefetch, testKit, notes,
+                    sampleItem.getSortOrder(), result, sampleItem.getSample().getAccessionNumber(), patientName,
+                    patientInfo, techSignature, techSignatureId, initialConditions,
+                    SpringContext.getBean(TypeOfSampleService.class)
                             .getTypeOfSampleNameForId(sampleItem.getTypeOfSampleId()));
             resultItem.setNationalId(nationalId);
             testResultList.add(resultItem);
@@ -472,10 +481,8 @@ public class ResultsLoadUtility {
         return testResultList;
     }
 
-    private String getInitialSampleConditionString(SampleItem sampleItem) {
+    private String getInitialSampleConditionString(List<ObservationHistory> observationList) {
         if (useInitialSampleCondition) {
-            List<ObservationHistory> observationList = observationHistoryService
-                    .getObservationHistoriesBySampleItemId(sampleItem.getId());
             StringBuilder conditions = new StringBuilder();
 
             for (ObservationHistory observation : observationList) {
@@ -503,12 +510,6 @@ public class ResultsLoadUtility {
         return null;
     }
 
-    private ResultInventory getInventoryForResult(Result result) throws LIMSRuntimeException {
-        List<ResultInventory> inventoryList = resultInventoryService.getResultInventorysByResult(result);
-
-        return inventoryList.size() > 0 ? inventoryList.get(0) : null;
-    }
-
     private List<TestResultItem> getGroupedTestsForSamples() {
 
         List<TestResultItem> testList = new ArrayList<>();
@@ -540,21 +541,29 @@ public class ResultsLoadUtility {
 
         List<TestResultItem> testList = new ArrayList<>();
 
+        List<List<Analysis>> analysesBySample = new ArrayList<>();
+        List<Analysis> allAnalyses = new ArrayList<>();
         for (Sample sample : samples) {
-            currSample = sample;
-            List<SampleItem> sampleItems = getSampleItemsForSample(sample);
+            List<Analysis> sampleAnalyses = new ArrayList<>();
+            for (SampleItem item : getSampleItemsForSample(sample)) {
+                sampleAnalyses.addAll(getAnalysisForSampleItem(item));
+            }
+            analysesBySample.add(sampleAnalyses);
+            allAnalyses.addAll(sampleAnalyses);
+        }
 
-            for (SampleItem item : sampleItems) {
-                List<Analysis> analysisList = getAnalysisForSampleItem(item);
+        ResultItemPrefetch prefetch = resultItemPrefetchService.prefetch(allAnalyses, false, useTechSignature,
+                supportReferrals, useInitialSampleCondition);
 
-                for (Analysis analysis : analysisList) {
+        for (int i = 0; i < samples.size(); i++) {
+            currSample = samples.get(i);
 
-                    List<TestResultItem> selectedItemList = getTestResultItemFromAnalysis(analysis, NO_PATIENT_NAME,
-                            NO_PATIENT_INFO, "");
+            for (Analysis analysis : analysesBySample.get(i)) {
+                List<TestResultItem> selectedItemList = getTestResultItemFromAnalysis(analysis, prefetch,
+                        NO_PATIENT_NAME, NO_PATIENT_INFO, "");
 
-                    for (TestResultItem selectedItem : selectedItemList) {
-                        testList.add(selectedItem);
-                    }
+                for (TestResultItem selectedItem : selectedItemList) {
+                    testList.add(selectedItem);
                 }
             }
         }
@@ -623,9 +632,10 @@ public class ResultsLoadUtility {
         return analysisService.getAnalysesBySampleItemsExcludingByStatusIds(item, excludedAnalysisStatus);
     }
 
-    private TestResultItem createTestResultItem(Analysis analysis, ResultInventory testKit, String notes,
-            String sequenceNumber, Result result, String accessionNumber, String patientName, String patientInfo,
-            String techSignature, String techSignatureId, String initialSampleConditions, String sampleType) {
+    private TestResultItem createTestResultItem(Analysis analysis, ResultItemPrefetch prefetch,
+            ResultInventory testKit, String notes, String sequenceNumber, Result result, String accessionNumber,
+            String patientName, String patientInfo, String techSignature, String techSignatureId,
+            String initialSampleConditions, String sampleType) {
 
         TestService testService = SpringContext.getBean(TestService.class);
         Test test = analysisService.getTest(analysis);
@@ -669,7 +679,7 @@ public class ResultsLoadUtility {
         String referralReasonId = null;
         boolean referralCanceled = false;
         if (supportReferrals) {
-            Referral referral = referralService.getReferralByAnalysisId(analysis.getId());
+            Referral referral = prefetch.getReferral(analysis.getId());
             if (referral != null) {
                 referralCanceled = referral.isCanceled();
                 referralId = referral.getId();
@@ -0,0 +1,137 @@
+/**
+ * The contents of this file are subject to the Mozilla Public License Version 1.1 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.mozilla.org/MPL/
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" basis, WITHOUT WARRANTY OF
+ * ANY KIND, either express or implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ *
+ * <p>The Original Code is OpenELIS code.
+ *
+ * <p>Copyright (C) CIRG, University of Washington, Seattle WA. All Rights Reserved.
+ */
+package org.openelisglobal.result.action.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.openelisglobal.common.util.IdValuePair;
+
+/**
+ * What is kept in the session for a results view that is paged from the
+ * database: the analysis ids on each page and the accession number range that
+ * the keyset query for the page covers. The result items themselves are built
+ * again each time a page is shown.
+ */
+public class ResultsPageCursor implements Serializable {
+
+    private static final long serialVersionUID = 3302712816047233447L;
+
+    private final String testSectionId;
+    private final List<Integer> analysisStatusList;
+    private final List<Integer> sampleStatusList;
+    private final List<Page> pages = new ArrayList<>();
+    private final List<IdValuePair> searchTermToPage = new ArrayList<>();
+    private int analysisCount;
+
+    /**
+     * @param keys     analysis id, accession number and test id of each analysis
+     *                 in display order
+     * @param testIds  the tests the user may see, analyses for other tests are
+     *                 left out
+     * @param pageSize the number of analyses after which a page is closed at the
+     *                 next accession number
+     */
+    public ResultsPageCursor(String testSectionId, List<Integer> analysisStatusList, List<Integer> sampleStatusList,
+            List<Object[]> keys, Collection<String> testIds, int pageSize) {
+        this.testSectionId = testSectionId;
+        this.analysisStatusList = new ArrayList<>(analysisStatusList);
+        this.sampleStatusList = new ArrayList<>(sampleStatusList);
+
+        Page page = null;
+        for (Object[] key : keys) {
+            String analysisId = String.valueOf(key[0]);
+            String accessionNumber = String.valueOf(key[1]);
+            if (!testIds.contains(String.valueOf(key[2]))) {
+                continue;
+            }
+            // a sample is never split over two pages
+            boolean newAccession = page == null || !accessionNumber.equals(page.lastAccessionNumber);
+            if (newAccession && (page == null || page.analysisIds.size() >= pageSize)) {
+                page = new Page(accessionNumber);
+                pages.add(page);
+            }
+            if (newAccession) {
+                page.lastAccessionNumber = accessionNumber;
+                searchTermToPage.add(new IdValuePair(accessionNumber, String.valueOf(pages.size())));
+            }
+            page.analysisIds.add(analysisId);
+            analysisCount++;
+        }
+    }
+
+    public String getTestSectionId() {
+        return testSectionId;
+    }
+
+    public List<Integer> getAnalysisStatusList() {
+        return Collections.unmodifiableList(analysisStatusList);
+    }
+
+    public List<Integer> getSampleStatusList() {
+        return Collections.unmodifiableList(sampleStatusList);
+    }
+
+    public int getTotalPages() {
+        return pages.size();
+    }
+
+    public int getAnalysisCount() {
+        return analysisCount;
+    }
+
+    public boolean isEmpty() {
+        return pages.isEmpty();
+    }
+
+    /**
+     * @param page First page is page 1
+     */
+    public Page getPage(int page) {
+        return page > 0 && page <= pages.size() ? pages.get(page - 1) : null;
+    }
+
+    public List<IdValuePair> getSearchTermToPage() {
+        return Collections.unmodifiableList(searchTermToPage);
+    }
+
+    public static class Page implements Serializable {
+        private static final long serialVersionUID = -5186408712342617935L;
+
+        private final String firstAccessionNumber;
+        private String lastAccessionNumber;
+        private final Set<String> analysisIds = new HashSet<>();
+
+        private Page(String firstAccessionNumber) {
+            this.firstAccessionNumber = firstAccessionNumber;
+            this.lastAccessionNumber = firstAccessionNumber;
+        }
+
+        public String getFirstAccessionNumber() {
+            return firstAccessionNumber;
+        }
+
+        public String getLastAccessionNumber() {
+            return lastAccessionNumber;
+        }
+
+        public boolean contains(String analysisId) {
+            return analysisIds.contains(analysisId);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * The contents of this file are subject to the Mozilla Public License Version 1.1 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.mozilla.org/MPL/
+ *
+ * <p>Software distributed under the License is distributed on an "AS IS" basis, WITHOUT WARRANTY OF
+ * ANY KIND, either express or implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ *
+ * <p>The Original Code is OpenELIS code.
+ *
+ * <p>Copyright (C) CIRG, University of Washington, Seattle WA. All Rights Reserved.
+ */
+package org.openelisglobal.result.action.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.test.beanItems.TestResultItem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the result items a user has modified on a page that is built from the
+ * database, until they are saved. Each user session gets a bounded number of
+ * items and is dropped when it has not been used for a while.
+ */
+@Component
+public class ResultsPageEditStore {
+
+    @Value("${org.openelisglobal.paging.results.maxEditedItems:1000}")
+    private int maxEditedItems;
+
+    @Value("${org.openelisglobal.paging.results.editExpiryMinutes:60}")
+    private int editExpiryMinutes;
+
+    private final Map<String, Edits> editsByUser = new ConcurrentHashMap<>();
+
+    public void putModified(String userKey, List<TestResultItem> items) {
+        removeExpired();
+        Edits edits = editsByUser.computeIfAbsent(userKey, k -> new Edits());
+        synchronized (edits) {
+            for (TestResultItem item : items) {
+                if (item.getIsModified()) {
+                    edits.items.put(item.getAnalysisId() + "_" + item.getResultId(), item);
+                }
+            }
+            Iterator<TestResultItem> oldest = edits.items.values().iterator();
+            while (edits.items.size() > maxEditedItems && oldest.hasNext()) {
+                TestResultItem dropped = oldest.next();
+                oldest.remove();
+                LogEvent.logWarn(this.getClass().getSimpleName(), "putModified",
+                        "too many unsaved results, dropping edit for analysis " + dropped.getAnalysisId());
+            }
+            edits.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @return the modified items for the user, which are removed from the store
+     */
+    public List<TestResultItem> takeModified(String userKey) {
+        Edits edits = editsByUser.remove(userKey);
+        if (edits == null) {
+            return new ArrayList<>();
+        }
+        synchronized (edits) {
+            return new ArrayList<>(edits.items.values());
+        }
+    }
+
+    public void clear(String userKey) {
+        editsByUser.remove(userKey);
+    }
+
+    private void removeExpired() {
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(editExpiryMinutes);
+        editsByUser.values().removeIf(edits -> edits.lastUsed < expiredBefore);
+    }
+
+    private static class Edits {
+        private final Map<String, TestResultItem> items = new LinkedHashMap<>();
+        private volatile long lastUsed = System.currentTimeMillis();
+    }
+}
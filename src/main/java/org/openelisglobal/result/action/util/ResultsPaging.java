@@ -16,7 +16,9 @@ package org.openelisglobal.result.action.util;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 import org.openelisglobal.common.action.IActionConstants;
 import org.openelisglobal.common.paging.IPageDivider;
 import org.openelisglobal.common.paging.IPageFlattener;
@@ -25,6 +27,7 @@ import org.openelisglobal.common.paging.PagingBean;
 import org.openelisglobal.common.paging.PagingProperties;
 import org.openelisglobal.common.paging.PagingUtility;
 import org.openelisglobal.common.util.IdValuePair;
+import org.openelisglobal.login.valueholder.UserSessionData;
 import org.openelisglobal.result.form.ResultsPagingForm;
 import org.openelisglobal.spring.util.SpringContext;
 import org.openelisglobal.test.beanItems.TestResultItem;
@@ -37,6 +40,7 @@ public class ResultsPaging {
     public void setDatabaseResults(HttpServletRequest request, ResultsPagingForm form, List<TestResultItem> tests)
             throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
 
+        clearPageCursor(request.getSession());
         paging.setDatabaseResults(request.getSession(), tests, pagingHelper);
 
         List<TestResultItem> resultPage = paging.getPage(1, request.getSession());
@@ -46,6 +50,28 @@ public class ResultsPaging {
         }
     }
 
+    /**
+     * Pages the unfinished results of a test section from the database. Only the
+     * keys of the analyses are kept in the session, each page is loaded when it is
+     * requested.
+     *
+     * @param testIds the tests the user may enter results for
+     */
+    public void setTestSectionResults(HttpServletRequest request, ResultsPagingForm form,
+            ResultsLoadUtility resultsLoadUtility, String testSectionId, Set<String> testIds) {
+        HttpSession session = request.getSession();
+        ResultsPageCursor cursor = resultsLoadUtility.getUnfinishedResultsCursorInTestSection(testSectionId, testIds,
+                SpringContext.getBean(PagingProperties.class).getResultsPageSize());
+
+        clearPageCursor(session);
+        session.removeAttribute(IActionConstants.RESULTS_SESSION_CACHE);
+        session.removeAttribute(IActionConstants.RESULTS_PAGE_MAPPING_SESSION_CACHE);
+        session.setAttribute(IActionConstants.RESULTS_PAGE_CURSOR_SESSION_CACHE, cursor);
+
+        form.setTestResult(resultsLoadUtility.getTestResultItemsForPage(cursor, 1));
+        form.setPaging(getPagingBean(cursor, 1));
+    }
+
     public void page(HttpServletRequest request, ResultsPagingForm form, int newPage)
             throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
 
@@ -58,6 +84,19 @@ public class ResultsPaging {
         if (newPage < 0) {
             newPage = 0;
         }
+
+        ResultsPageCursor cursor = getPageCursor(request);
+        if (cursor != null) {
+            if (cursor.getPage(newPage) != null) {
+                ResultsLoadUtility resultsLoadUtility = SpringContext.getBean(ResultsLoadUtility.class);
+                resultsLoadUtility.setSysUser(getSysUserId(request));
+                form.setTestResult(resultsLoadUtility.getTestResultItemsForPage(cursor, newPage));
+                form.setTestSectionId("0");
+                form.setPaging(getPagingBean(cursor, newPage));
+            }
+            return;
+        }
+
         List<TestResultItem> resultPage = paging.getPage(newPage, request.getSession());
         if (resultPage != null) {
             form.setTestResult(resultPage);
@@ -68,15 +107,68 @@ public class ResultsPaging {
 
     public void updatePagedResults(HttpServletRequest request, ResultsPagingForm form) {
         List<TestResultItem> clientTests = form.getTestResult();
+
+        if (getPageCursor(request) != null) {
+            if (clientTests != null) {
+                SpringContext.getBean(ResultsPageEditStore.class).putModified(request.getSession().getId(),
+                        clientTests);
+            }
+            return;
+        }
+
         PagingBean bean = form.getPaging();
 
         paging.updatePagedResults(request.getSession(), clientTests, bean, pagingHelper);
     }
 
+    /**
+     * @return all results of the view, or only the modified ones when the view is
+     *         paged from the database
+     */
     public List<TestResultItem> getResults(HttpServletRequest request) {
+        if (getPageCursor(request) != null) {
+            return SpringContext.getBean(ResultsPageEditStore.class).takeModified(request.getSession().getId());
+        }
         return paging.getAllResults(request.getSession(), pagingHelper);
     }
 
+    /**
+     * @return true if there is nothing which could be saved, for instance because
+     *         the session was reset
+     */
+    public boolean hasNoResults(HttpServletRequest request) {
+        ResultsPageCursor cursor = getPageCursor(request);
+        if (cursor != null) {
+            return cursor.isEmpty();
+        }
+        List<List<TestResultItem>> pages = paging.getAllPages(request.getSession());
+        return pages == null || pages.isEmpty() || pages.get(0).isEmpty();
+    }
+
+    private ResultsPageCursor getPageCursor(HttpServletRequest request) {
+        return (ResultsPageCursor) request.getSession()
+                .getAttribute(IActionConstants.RESULTS_PAGE_CURSOR_SESSION_CACHE);
+    }
+
+    private void clearPageCursor(HttpSession session) {
+        session.removeAttribute(IActionConstants.RESULTS_PAGE_CURSOR_SESSION_CACHE);
+        SpringContext.getBean(ResultsPageEditStore.class).clear(session.getId());
+    }
+
+    private PagingBean getPagingBean(ResultsPageCursor cursor, int currentPage) {
+        PagingBean pagingBean = new PagingBean();
+        pagingBean.setCurrentPage(String.valueOf(currentPage));
+        // an empty view still shows one (empty) page
+        pagingBean.setTotalPages(String.valueOf(Math.max(1, cursor.getTotalPages())));
+        pagingBean.setSearchTermToPage(new ArrayList<>(cursor.getSearchTermToPage()));
+        return pagingBean;
+    }
+
+    private String getSysUserId(HttpServletRequest request) {
+        UserSessionData usd = (UserSessionData) request.getSession().getAttribute(IActionConstants.USER_SESSION_DATA);
+        return usd == null ? null : String.valueOf(usd.getSystemUserId());
+    }
+
     private static class TestItemPageHelper implements IPageDivider<List<TestResultItem>>,
             IPageUpdater<List<TestResultItem>>, IPageFlattener<List<TestResultItem>> {
 
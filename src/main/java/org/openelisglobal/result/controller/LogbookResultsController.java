@@ -234,6 +234,7 @@ public class LogbookResultsController extends LogbookResultsBaseController {
 
         List<TestResultItem> tests;
         List<TestResultItem> filteredTests = new ArrayList<>();
+        boolean pagedFromDatabase = false;
 
         ResultsPaging paging = new ResultsPaging();
         List<InventoryKitItem> inventoryList = new ArrayList<>();
@@ -247,9 +248,11 @@ public class LogbookResultsController extends LogbookResultsBaseController {
             new StatusRules().setAllowableStatusForLoadingResults(resultsLoadUtility);
 
             if (!GenericValidator.isBlankOrNull(form.getTestSectionId())) {
-                tests = resultsLoadUtility.getUnfinishedTestResultItemsInTestSection(form.getTestSectionId());
-                filteredTests = userService.filterResultsByLabUnitRoles(getSysUserId(request), tests,
-                        Constants.ROLE_RESULTS);
+                // test sections can hold a lot of results, only the current page is loaded
+                paging.setTestSectionResults(request, form, resultsLoadUtility, form.getTestSectionId(),
+                        userService.getUserTestIdsByLabUnitRoles(getSysUserId(request), Constants.ROLE_RESULTS));
+                filteredTests = form.getTestResult();
+                pagedFromDatabase = true;
                 int count = resultsLoadUtility.getTotalCountAnalysisByTestSectionAndStatus(form.getTestSectionId());
                 request.setAttribute("analysisCount", count);
                 request.setAttribute("pageSize", filteredTests.size());
@@ -285,18 +288,16 @@ public class LogbookResultsController extends LogbookResultsBaseController {
                 tests = new ArrayList<>();
             }
 
-            if (ConfigurationProperties.getInstance().isPropertyValueEqual(Property.PATIENT_DATA_ON_RESULTS_BY_ROLE,
-                    "true") && !userHasPermissionForModule(request, "PatientResults")) {
-                for (TestResultItem resultItem : filteredTests) {
-                    resultItem.setPatientInfo("---");
-                }
-            }
+            hidePatientInfoIfNotAllowed(request, filteredTests);
 
-            paging.setDatabaseResults(request, form, filteredTests);
+            if (!pagedFromDatabase) {
+                paging.setDatabaseResults(request, form, filteredTests);
+            }
 
         } else {
             int requestedPageNumber = Integer.parseInt(requestedPage);
             paging.page(request, form, requestedPageNumber);
+            hidePatientInfoIfNotAllowed(request, form.getTestResult());
         }
         form.setDisplayTestKit(false);
         List<String> hivKits = new ArrayList<>();
@@ -319,6 +320,17 @@ public class LogbookResultsController extends LogbookResultsBaseController {
         return findForward(FWD_SUCCESS, form);
     }
 
+    private void hidePatientInfoIfNotAllowed(HttpServletRequest request, List<TestResultItem> resultItems) {
+        if (resultItems != null
+                && ConfigurationProperties.getInstance().isPropertyValueEqual(Property.PATIENT_DATA_ON_RESULTS_BY_ROLE,
+                        "true")
+                && !userHasPermissionForModule(request, "PatientResults")) {
+            for (TestResultItem resultItem : resultItems) {
+                resultItem.setPatientInfo("---");
+            }
+        }
+    }
+
     private String getCurrentDate() {
         Date today = Calendar.getInstance().getTime();
         return DateUtil.formatDateAsText(today);
@@ -358,10 +370,7 @@ public class LogbookResultsController extends LogbookResultsBaseController {
         // user
         // ie: empty when another user saved and hasn't reloaded.
 
-        List<Result> checkPagedResults = (List<Result>) request.getSession()
-                .getAttribute(IActionConstants.RESULTS_SESSION_CACHE);
-        List<Result> checkResults = (List<Result>) checkPagedResults.get(0);
-        if (checkResults.size() == 0) {
+        if (new ResultsPaging().hasNoResults(request)) {
             LogEvent.logDebug(this.getClass().getSimpleName(), "LogbookResults()", "Attempted save of stale page.");
 
             List<TestResultItem> resultList = form.getTestResult();
@@ -239,6 +239,7 @@ public class LogbookResultsRestController extends LogbookResultsBaseController {
 
         List<TestResultItem> tests = new ArrayList<>();
         List<TestResultItem> filteredTests = new ArrayList<>();
+        boolean pagedFromDatabase = false;
 
         ResultsPaging paging = new ResultsPaging();
         List<InventoryKitItem> inventoryList = new ArrayList<>();
@@ -254,9 +255,11 @@ public class LogbookResultsRestController extends LogbookResultsBaseController {
             new StatusRules().setAllowableStatusForLoadingResults(resultsLoadUtility);
 
             if (!GenericValidator.isBlankOrNull(form.getTestSectionId())) {
-                tests = resultsLoadUtility.getUnfinishedTestResultItemsInTestSection(form.getTestSectionId());
-                filteredTests = userService.filterResultsByLabUnitRoles(getSysUserId(request), tests,
-                        Constants.ROLE_RESULTS);
+                // test sections can hold a lot of results, only the current page is loaded
+                paging.setTestSectionResults(request, form, resultsLoadUtility, form.getTestSectionId(),
+                        userService.getUserTestIdsByLabUnitRoles(getSysUserId(request), Constants.ROLE_RESULTS));
+                filteredTests = form.getTestResult();
+                pagedFromDatabase = true;
                 int count = resultsLoadUtility.getTotalCountAnalysisByTestSectionAndStatus(form.getTestSectionId());
                 request.setAttribute("analysisCount", count);
                 request.setAttribute("pageSize", filteredTests.size());
@@ -347,26 +350,16 @@ public class LogbookResultsRestController extends LogbookResultsBaseController {
                 tests = new ArrayList<>();
             }
 
-            if (ConfigurationProperties.getInstance().isPropertyValueEqual(Property.PATIENT_DATA_ON_RESULTS_BY_ROLE,
-                    "true") && !userHasPermissionForModule(request, "PatientResults")) {
-                for (TestResultItem resultItem : filteredTests) {
-                    resultItem.setPatientInfo("---");
-                }
-            }
+            prepareResultItemsForDisplay(request, filteredTests);
 
-            for (TestResultItem resultItem : filteredTests) {
-                Result newResult = new Result();
-                if (resultItem.getResult() != null) {
-                    newResult.setId(resultItem.getResult().getId());
-                    resultItem.setResult(newResult);
-                }
+            if (!pagedFromDatabase) {
+                paging.setDatabaseResults(request, form, filteredTests);
             }
 
-            paging.setDatabaseResults(request, form, filteredTests);
-
         } else {
             int requestedPageNumber = Integer.parseInt(requestedPage);
             paging.page(request, form, requestedPageNumber);
+            prepareResultItemsForDisplay(request, form.getTestResult());
         }
         form.setDisplayTestKit(false);
         List<String> hivKits = new ArrayList<>();
@@ -395,6 +388,26 @@ public class LogbookResultsRestController extends LogbookResultsBaseController {
         return (form);
     }
 
+    private void prepareResultItemsForDisplay(HttpServletRequest request, List<TestResultItem> resultItems) {
+        if (resultItems == null) {
+            return;
+        }
+        if (ConfigurationProperties.getInstance().isPropertyValueEqual(Property.PATIENT_DATA_ON_RESULTS_BY_ROLE,
+                "true") && !userHasPermissionForModule(request, "PatientResults")) {
+            for (TestResultItem resultItem : resultItems) {
+                resultItem.setPatientInfo("---");
+            }
+        }
+
+        for (TestResultItem resultItem : resultItems) {
+            Result newResult = new Result();
+            if (resultItem.getResult() != null) {
+                newResult.setId(resultItem.getResult().getId());
+                resultItem.setResult(newResult);
+            }
+        }
+    }
+
     private String getCurrentDate() {
         Date today = Calendar.getInstance().getTime();
         return DateUtil.formatDateAsText(today);
@@ -423,10 +436,7 @@ public class LogbookResultsRestController extends LogbookResultsBaseController {
             saveErrors(result);
         }
 
-        List<Result> checkPagedResults = (List<Result>) request.getSession()
-                .getAttribute(IActionConstants.RESULTS_SESSION_CACHE);
-        List<Result> checkResults = (List<Result>) checkPagedResults.get(0);
-        if (checkResults.size() == 0) {
+        if (new ResultsPaging().hasNoResults(request)) {
             LogEvent.logDebug(this.getClass().getSimpleName(), "LogbookResults()", "Attempted save of stale page.");
 
             List<TestResultItem> resultList = form.getTestResult();
@@ -36,4 +36,6 @@ public interface ResultInventoryDAO extends BaseDAO<ResultInventory, String> {
     ResultInventory getResultInventoryById(ResultInventory resultInventory) throws LIMSRuntimeException;
 
     List<ResultInventory> getResultInventorysByResult(Result result) throws LIMSRuntimeException;
+
+    List<ResultInventory> getResultInventorysByResults(List<Result> results) throws LIMSRuntimeException;
 }
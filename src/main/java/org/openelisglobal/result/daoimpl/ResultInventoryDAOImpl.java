@@ -16,7 +16,9 @@
 package org.openelisglobal.result.daoimpl;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
@@ -114,4 +116,23 @@ public class ResultInventoryDAOImpl extends BaseDAOImpl<ResultInventory, String>
             throw new LIMSRuntimeException("Error in ResultInventory getResultInventoryById()", e);
         }
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResultInventory> getResultInventorysByResults(List<Result> results) throws LIMSRuntimeException {
+        if (results.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            String sql = "from ResultInventory r where r.resultId in (:resultIds) order by r.id";
+            Query<ResultInventory> query = entityManager.unwrap(Session.class).createQuery(sql, ResultInventory.class);
+            query.setParameterList("resultIds",
+                    results.stream().map(result -> Integer.parseInt(result.getId())).collect(Collectors.toList()));
+
+            return query.list();
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in ResultInventory getResultInventorysByResults()", e);
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package org.openelisglobal.result.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openelisglobal.observationhistory.valueholder.ObservationHistory;
+import org.openelisglobal.patient.valueholder.Patient;
+import org.openelisglobal.referral.valueholder.Referral;
+import org.openelisglobal.result.valueholder.Result;
+import org.openelisglobal.result.valueholder.ResultInventory;
+import org.openelisglobal.result.valueholder.ResultSignature;
+
+/**
+ * The data needed to build the result entry rows for a list of analyses, read
+ * up front so building a row does not go back to the database.
+ */
+public class ResultItemPrefetch {
+
+    final Map<String, Patient> patientBySampleId = new HashMap<>();
+    final Map<String, String> nationalIdByPatientId = new HashMap<>();
+    final Map<String, List<Result>> resultsByAnalysisId = new HashMap<>();
+    final Map<String, ResultSignature> techSignatureByAnalysisId = new HashMap<>();
+    final Map<String, ResultInventory> inventoryByResultId = new HashMap<>();
+    final Map<String, String> notesByAnalysisId = new HashMap<>();
+    final Map<String, Referral> referralByAnalysisId = new HashMap<>();
+    final Map<String, List<ObservationHistory>> observationsBySampleItemId = new HashMap<>();
+
+    public Patient getPatient(String sampleId) {
+        return patientBySampleId.get(sampleId);
+    }
+
+    public String getNationalId(Patient patient) {
+        return patient == null ? "" : nationalIdByPatientId.getOrDefault(patient.getId(), "");
+    }
+
+    /**
+     * @return the results of the analysis ordered by id, the list may be changed
+     *         by the caller
+     */
+    public List<Result> getResults(String analysisId) {
+        return new ArrayList<>(resultsByAnalysisId.getOrDefault(analysisId, Collections.emptyList()));
+    }
+
+    /**
+     * @return the last non supervisor signature on any result of the analysis
+     */
+    public ResultSignature getTechSignature(String analysisId) {
+        return techSignatureByAnalysisId.get(analysisId);
+    }
+
+    public ResultInventory getInventory(String resultId) {
+        return inventoryByResultId.get(resultId);
+    }
+
+    public String getNotes(String analysisId) {
+        return notesByAnalysisId.get(analysisId);
+    }
+
+    public Referral getReferral(String analysisId) {
+        return referralByAnalysisId.get(analysisId);
+    }
+
+    public List<ObservationHistory> getObservationHistories(String sampleItemId) {
+        return observationsBySampleItemId.getOrDefault(sampleItemId, Collections.emptyList());
+    }
+}
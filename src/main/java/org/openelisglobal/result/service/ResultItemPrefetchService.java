@@ -0,0 +1,20 @@
+package org.openelisglobal.result.service;
+
+import java.util.List;
+import org.openelisglobal.analysis.valueholder.Analysis;
+
+public interface ResultItemPrefetchService {
+
+    /**
+     * Reads what is needed to show the analyses on the result entry page with a
+     * fixed number of queries, however many analyses there are
+     *
+     * @param withPatients         read the patient of each sample
+     * @param withTechSignatures   read the result signatures
+     * @param withReferrals        read the referral of each analysis
+     * @param withSampleConditions read the observation history of each sample
+     *                             item
+     */
+    ResultItemPrefetch prefetch(List<Analysis> analyses, boolean withPatients, boolean withTechSignatures,
+            boolean withReferrals, boolean withSampleConditions);
+}
@@ -0,0 +1,139 @@
+package org.openelisglobal.result.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.openelisglobal.analysis.valueholder.Analysis;
+import org.openelisglobal.note.service.NoteService;
+import org.openelisglobal.note.service.NoteServiceImpl.NoteType;
+import org.openelisglobal.observationhistory.service.ObservationHistoryService;
+import org.openelisglobal.observationhistory.valueholder.ObservationHistory;
+import org.openelisglobal.patient.service.PatientService;
+import org.openelisglobal.referral.service.ReferralService;
+import org.openelisglobal.referral.valueholder.Referral;
+import org.openelisglobal.result.valueholder.Result;
+import org.openelisglobal.result.valueholder.ResultInventory;
+import org.openelisglobal.result.valueholder.ResultSignature;
+import org.openelisglobal.samplehuman.service.SampleHumanService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class ResultItemPrefetchServiceImpl implements ResultItemPrefetchService {
+
+    // keeps the IN lists, and the result id lists that follow from them, well
+    // under the number of parameters a statement may have
+    private static final int CHUNK_SIZE = 500;
+
+    private static final NoteType[] NOTE_TYPES = { NoteType.EXTERNAL, NoteType.INTERNAL, NoteType.REJECTION_REASON,
+            NoteType.NON_CONFORMITY };
+
+    @Autowired
+    private SampleHumanService sampleHumanService;
+    @Autowired
+    private PatientService patientService;
+    @Autowired
+    private ResultService resultService;
+    @Autowired
+    private ResultSignatureService resultSignatureService;
+    @Autowired
+    private ResultInventoryService resultInventoryService;
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private ReferralService referralService;
+    @Autowired
+    private ObservationHistoryService observationHistoryService;
+
+    @Override
+    @Transactional(readOnly = true)
+    public ResultItemPrefetch prefetch(List<Analysis> analyses, boolean withPatients, boolean withTechSignatures,
+            boolean withReferrals, boolean withSampleConditions) {
+        ResultItemPrefetch prefetch = new ResultItemPrefetch();
+        for (int i = 0; i < analyses.size(); i += CHUNK_SIZE) {
+            prefetchChunk(prefetch, analyses.subList(i, Math.min(analyses.size(), i + CHUNK_SIZE)), withPatients,
+                    withTechSignatures, withReferrals, withSampleConditions);
+        }
+        return prefetch;
+    }
+
+    private void prefetchChunk(ResultItemPrefetch prefetch, List<Analysis> analyses, boolean withPatients,
+            boolean withTechSignatures, boolean withReferrals, boolean withSampleConditions) {
+        Set<String> analysisIds = new LinkedHashSet<>();
+        Set<String> sampleItemIds = new LinkedHashSet<>();
+        Set<String> sampleIds = new LinkedHashSet<>();
+        for (Analysis analysis : analyses) {
+            analysisIds.add(analysis.getId());
+            sampleItemIds.add(analysis.getSampleItem().getId());
+            sampleIds.add(analysis.getSampleItem().getSample().getId());
+        }
+
+        if (withPatients) {
+            prefetch.patientBySampleId.putAll(sampleHumanService.getPatientsForSamples(new ArrayList<>(sampleIds)));
+            prefetch.nationalIdByPatientId.putAll(patientService.getNationalIds(prefetch.patientBySampleId.values()));
+        }
+
+        prefetchResults(prefetch, analysisIds, withTechSignatures);
+
+        prefetch.notesByAnalysisId.putAll(
+                noteService.getNotesAsStringForAnalyses(analyses, true, true, "<br/>", NOTE_TYPES, false));
+
+        if (withReferrals) {
+            Map<String, List<Referral>> referrals = new HashMap<>();
+            for (Referral referral : referralService.getReferralsByAnalysisIds(new ArrayList<>(analysisIds))) {
+                referrals.computeIfAbsent(referral.getAnalysis().getId(), k -> new ArrayList<>()).add(referral);
+            }
+            // getReferralByAnalysisId only gives a referral when there is exactly one
+            referrals.forEach((analysisId, analysisReferrals) -> {
+                if (analysisReferrals.size() == 1) {
+                    prefetch.referralByAnalysisId.put(analysisId, analysisReferrals.get(0));
+                }
+            });
+        }
+
+        if (withSampleConditions) {
+            for (ObservationHistory observation : observationHistoryService
+                    .getObservationHistoriesBySampleItemIds(new ArrayList<>(sampleItemIds))) {
+                prefetch.observationsBySampleItemId
+                        .computeIfAbsent(observation.getSampleItemId(), k -> new ArrayList<>()).add(observation);
+            }
+        }
+    }
+
+    private void prefetchResults(ResultItemPrefetch prefetch, Set<String> analysisIds, boolean withTechSignatures) {
+        List<Result> results = resultService.getResultsForAnalysisIdList(
+                analysisIds.stream().map(Integer::parseInt).collect(Collectors.toList()));
+        if (results == null || results.isEmpty()) {
+            return;
+        }
+        // same order as getResultsByAnalysis
+        results.sort(Comparator.comparing(result -> Integer.parseInt(result.getId())));
+
+        Map<String, String> analysisIdByResultId = new HashMap<>();
+        for (Result result : results) {
+            String analysisId = result.getAnalysis().getId();
+            prefetch.resultsByAnalysisId.computeIfAbsent(analysisId, k -> new ArrayList<>()).add(result);
+            analysisIdByResultId.put(result.getId(), analysisId);
+        }
+
+        if (withTechSignatures) {
+            for (ResultSignature signature : resultSignatureService.getResultSignaturesByResults(results)) {
+                // we no longer use supervisor signature but there may be some in db
+                if (!signature.getIsSupervisor()) {
+                    prefetch.techSignatureByAnalysisId.put(analysisIdByResultId.get(signature.getResultId()),
+                            signature);
+                }
+            }
+        }
+
+        for (ResultInventory inventory : resultInventoryService.getResultInventorysByResults(results)) {
+            prefetch.inventoryByResultId.putIfAbsent(inventory.getResultId(), inventory);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.openelisglobal.resultlimit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.resultlimits.valueholder.ResultLimit;
+
+/**
+ * The result limits of every test arranged for looking up the one which
+ * applies to a patient of a given gender and age. The index is never changed
+ * once built, a change to the limits builds a new one.
+ *
+ * <p>A lookup gives the same limit as working down the test's limits in id
+ * order: a limit for the patient's gender and age, then for the age with any
+ * gender, then for the gender with any age, then the limit with neither. An age
+ * is looked up with a binary search over the ends of the age ranges, and
+ * nothing is allocated.
+ */
+final class ReferenceRangeIndex {
+
+    /**
+     * Returned when the test has limits but none of them applies
+     */
+    static final ResultLimit NO_LIMIT = new ResultLimit();
+
+    static final ReferenceRangeIndex EMPTY = new ReferenceRangeIndex(Collections.emptyMap());
+
+    private final Map<String, TestRanges> testRanges;
+
+    private ReferenceRangeIndex(Map<String, TestRanges> testRanges) {
+        this.testRanges = testRanges;
+    }
+
+    static ReferenceRangeIndex build(Collection<ResultLimit> resultLimits) {
+        Map<String, List<ResultLimit>> limitsByTest = new LinkedHashMap<>();
+        for (ResultLimit limit : resultLimits) {
+            if (!GenericValidator.isBlankOrNull(limit.getTestId())) {
+                limitsByTest.computeIfAbsent(limit.getTestId(), testId -> new ArrayList<>()).add(limit);
+            }
+        }
+        Map<String, TestRanges> testRanges = new HashMap<>();
+        limitsByTest.forEach((testId, limits) -> testRanges.put(testId, new TestRanges(limits)));
+        return new ReferenceRangeIndex(testRanges);
+    }
+
+    int getTestCount() {
+        return testRanges.size();
+    }
+
+    /**
+     * @param gender     blank when the patient's gender is not known
+     * @param hasAge     false when the patient's birth date is not known
+     * @param ageInDays  only used when hasAge
+     * @return null when the test has no limits, {@link #NO_LIMIT} when none of
+     *         them applies
+     */
+    ResultLimit lookup(String testId, String gender, boolean hasAge, double ageInDays) {
+        TestRanges ranges = testId == null ? null : testRanges.get(testId);
+        if (ranges == null) {
+            return null;
+        }
+        ResultLimit limit = ranges.lookup(GenericValidator.isBlankOrNull(gender) ? null : gender, hasAge, ageInDays);
+        return limit == null ? NO_LIMIT : limit;
+    }
+
+    private static final class TestRanges {
+
+        // no gender and any age
+        private final ResultLimit defaultLimit;
+        // an age range and no gender
+        private final AgeRanges noGenderByAge;
+        // an age range and any gender, or none
+        private final AgeRanges anyGenderByAge;
+        private final Map<String, GenderRanges> byGender;
+
+        private TestRanges(List<ResultLimit> limits) {
+            List<ResultLimit> ordered = new ArrayList<>(limits);
+            ordered.sort(Comparator.comparing(ResultLimit::getId, TestRanges::compareIds));
+
+            ResultLimit firstDefault = null;
+            List<ResultLimit> noGenderAgeLimits = new ArrayList<>();
+            List<ResultLimit> ageLimits = new ArrayList<>();
+            Map<String, List<ResultLimit>> limitsByGender = new HashMap<>();
+            for (ResultLimit limit : ordered) {
+                boolean noGender = GenericValidator.isBlankOrNull(limit.getGender());
+                if (noGender && limit.ageLimitsAreDefault() && firstDefault == null) {
+                    firstDefault = limit;
+                }
+                if (!limit.ageLimitsAreDefault()) {
+                    ageLimits.add(limit);
+                    if (noGender) {
+                        noGenderAgeLimits.add(limit);
+                    }
+                }
+                if (!noGender) {
+                    limitsByGender.computeIfAbsent(limit.getGender(), gender -> new ArrayList<>()).add(limit);
+                }
+            }
+            defaultLimit = firstDefault;
+            noGenderByAge = new AgeRanges(noGenderAgeLimits);
+            anyGenderByAge = new AgeRanges(ageLimits);
+            byGender = new HashMap<>();
+            limitsByGender.forEach((gender, genderLimits) -> byGender.put(gender, new GenderRanges(genderLimits)));
+        }
+
+        private ResultLimit lookup(String gender, boolean hasAge, double ageInDays) {
+            ResultLimit limit = null;
+            if (gender == null && hasAge) {
+                limit = noGenderByAge.find(ageInDays);
+                if (limit == null) {
+                    limit = anyGenderByAge.find(ageInDays);
+                }
+            } else if (gender != null) {
+                GenderRanges genderRanges = byGender.get(gender);
+                if (hasAge) {
+                    limit = genderRanges == null ? null : genderRanges.byAge.find(ageInDays);
+                    if (limit == null) {
+                        limit = anyGenderByAge.find(ageInDays);
+                    }
+                    if (limit == null && genderRanges != null) {
+                        limit = genderRanges.anyAge;
+                    }
+                } else if (genderRanges != null) {
+                    limit = genderRanges.anyAge != null ? genderRanges.anyAge : genderRanges.first;
+                }
+            }
+            return limit == null ? defaultLimit : limit;
+        }
+
+        // ids are numbers, compared as such so the order is the one they were added in
+        private static int compareIds(String id1, String id2) {
+            if (id1 == null || id2 == null) {
+                return id1 == null ? (id2 == null ? 0 : 1) : -1;
+            }
+            if (id1.length() != id2.length()) {
+                return id1.length() - id2.length();
+            }
+            return id1.compareTo(id2);
+        }
+    }
+
+    private static final class GenderRanges {
+
+        private final ResultLimit anyAge;
+        private final ResultLimit first;
+        private final AgeRanges byAge;
+
+        private GenderRanges(List<ResultLimit> limits) {
+            ResultLimit firstAnyAge = null;
+            List<ResultLimit> ageLimits = new ArrayList<>();
+            for (ResultLimit limit : limits) {
+                if (limit.ageLimitsAreDefault()) {
+                    if (firstAnyAge == null) {
+                        firstAnyAge = limit;
+                    }
+                } else {
+                    ageLimits.add(limit);
+                }
+            }
+            anyAge = firstAnyAge;
+            first = limits.get(0);
+            byAge = new AgeRanges(ageLimits);
+        }
+    }
+
+    /**
+     * Age ranges, which may overlap, cut into pieces at each of their ends. Each
+     * end is a piece of its own as the ranges include their ends, and each piece
+     * holds the first limit covering it.
+     */
+    private static final class AgeRanges {
+
+        private final double[] ends;
+        // piece 2i + 1 is ends[i], piece 2i lies between ends[i - 1] and ends[i]
+        private final ResultLimit[] pieces;
+
+        private AgeRanges(List<ResultLimit> limits) {
+            TreeSet<Double> distinctEnds = new TreeSet<>();
+            for (ResultLimit limit : limits) {
+                distinctEnds.add(limit.getMinAge());
+                distinctEnds.add(limit.getMaxAge());
+            }
+            ends = distinctEnds.stream().mapToDouble(Double::doubleValue).toArray();
+            pieces = new ResultLimit[2 * ends.length + 1];
+            for (int i = 0; i < ends.length; i++) {
+                pieces[2 * i + 1] = firstCovering(limits, ends[i], ends[i]);
+                if (i > 0) {
+                    pieces[2 * i] = firstCovering(limits, ends[i - 1], ends[i]);
+                }
+            }
+        }
+
+        private static ResultLimit firstCovering(List<ResultLimit> limits, double from, double to) {
+            for (ResultLimit limit : limits) {
+                if (limit.getMinAge() <= from && limit.getMaxAge() >= to) {
+                    return limit;
+                }
+            }
+            return null;
+        }
+
+        private ResultLimit find(double age) {
+            if (ends.length == 0) {
+                return null;
+            }
+            int index = Arrays.binarySearch(ends, age);
+            return index >= 0 ? pieces[2 * index + 1] : pieces[2 * (-index - 1)];
+        }
+    }
+}
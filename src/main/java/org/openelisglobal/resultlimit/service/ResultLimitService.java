@@ -33,10 +33,20 @@ public interface ResultLimitService extends BaseObjectService<ResultLimit, Strin
 
     String getDisplayNormalRange(double low, double high, String significantDigits, String separator);
 
+    /**
+     * The limit for the patient's gender and age, looked up in memory. Null when
+     * the test has no limits.
+     */
     ResultLimit getResultLimitForTestAndPatient(String testId, Patient patient);
 
     ResultLimit getResultLimitForTestAndPatient(Test test, Patient patient);
 
+    /**
+     * Reloads the limits used by getResultLimitForTestAndPatient, for when they
+     * are changed other than through this service
+     */
+    void rebuildReferenceRanges();
+
     List<IdValuePair> getPredefinedAgeRanges();
 
     List<ResultLimit> getResultLimits(String testId);
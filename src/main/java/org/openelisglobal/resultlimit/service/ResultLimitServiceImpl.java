@@ -3,7 +3,6 @@ package org.openelisglobal.resultlimit.service;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -29,7 +28,12 @@ import org.openelisglobal.typeoftestresult.service.TypeOfTestResultService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @DependsOn({ "springContext" })
@@ -52,12 +56,18 @@ public class ResultLimitServiceImpl extends AuditableBaseObjectServiceImpl<Resul
     private TypeOfTestResultService typeOfTestResultService;
     @Autowired
     private SampleHumanService sampleHumanService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Object referenceRangesLock = new Object();
+    private volatile ReferenceRangeIndex referenceRanges = ReferenceRangeIndex.EMPTY;
 
     @PostConstruct
     public void initializeGlobalVariables() {
         NUMERIC_RESULT_TYPE_ID = typeOfTestResultService.getTypeOfTestResultByType("N").getId();
         SELECT_LIST_RESULT_TYPE_IDS = typeOfTestResultService.getTypeOfTestResultByType("D").getId()
                 + typeOfTestResultService.getTypeOfTestResultByType("M").getId();
+        rebuildReferenceRanges();
     }
 
     public ResultLimitServiceImpl() {
@@ -70,150 +80,76 @@ public class ResultLimitServiceImpl extends AuditableBaseObjectServiceImpl<Resul
     }
 
     @Override
-    @Transactional(readOnly = true)
     public ResultLimit getResultLimitForTestAndPatient(Test test, Patient patient) {
         return getResultLimitForTestAndPatient(test.getId(), patient);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public ResultLimit getResultLimitForTestAndPatient(String testId, Patient patient) {
-        List<ResultLimit> resultLimits = getResultLimits(testId);
-
-        if (resultLimits.isEmpty()) {
-            return null;
-        } else if (patient == null
-                || patient.getBirthDate() == null && GenericValidator.isBlankOrNull(patient.getGender())) {
-            return defaultResultLimit(resultLimits);
-        } else if (GenericValidator.isBlankOrNull(patient.getGender())) {
-            return ageBasedResultLimit(resultLimits, patient);
-        } else if (patient.getBirthDate() == null) {
-            return genderBasedResultLimit(resultLimits, patient);
-        } else {
-            return ageAndGenderBasedResultLimit(resultLimits, patient);
-        }
+        String gender = patient == null ? null : patient.getGender();
+        boolean hasAge = patient != null && patient.getBirthDate() != null;
+        double ageInDays = hasAge ? DateUtil.getAgeInDays(patient.getBirthDate(), new Date()) : INVALID_PATIENT_AGE;
+        ResultLimit resultLimit = referenceRanges.lookup(testId, gender, hasAge, ageInDays);
+        // a new one each time as callers may change it
+        return resultLimit == ReferenceRangeIndex.NO_LIMIT ? new ResultLimit() : resultLimit;
     }
 
-    private ResultLimit defaultResultLimit(List<ResultLimit> resultLimits) {
-
-        for (ResultLimit limit : resultLimits) {
-            if (GenericValidator.isBlankOrNull(limit.getGender()) && limit.ageLimitsAreDefault()) {
-                return limit;
-            }
-        }
-        return new ResultLimit();
-    }
-
-    private ResultLimit ageBasedResultLimit(List<ResultLimit> resultLimits, Patient patient) {
-
-        ResultLimit resultLimit = null;
-
-        // First we look for a limit with no gender
-        for (ResultLimit limit : resultLimits) {
-            if (GenericValidator.isBlankOrNull(limit.getGender()) && !limit.ageLimitsAreDefault()
-                    && getCurrPatientAge(patient) >= limit.getMinAge()
-                    && getCurrPatientAge(patient) <= limit.getMaxAge()) {
-
-                resultLimit = limit;
-                break;
-            }
+    /*
+     * the index is rebuilt once the transaction commits so lookups never see
+     * limits that are rolled back
+     */
+    private void referenceRangesChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuildReferenceRanges();
+            return;
         }
-
-        // if none is found then drop the no gender requirement
-        if (resultLimit == null) {
-            for (ResultLimit limit : resultLimits) {
-                if (!limit.ageLimitsAreDefault() && getCurrPatientAge(patient) >= limit.getMinAge()
-                        && getCurrPatientAge(patient) <= limit.getMaxAge()) {
-
-                    resultLimit = limit;
-                    break;
-                }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof RebuildReferenceRanges) {
+                return;
             }
         }
-
-        return resultLimit == null ? defaultResultLimit(resultLimits) : resultLimit;
+        TransactionSynchronizationManager.registerSynchronization(new RebuildReferenceRanges());
     }
 
-    private ResultLimit genderBasedResultLimit(List<ResultLimit> resultLimits, Patient patient) {
-
-        ResultLimit resultLimit = null;
-
-        // First we look for a limit with no age
-        for (ResultLimit limit : resultLimits) {
-            if (limit.ageLimitsAreDefault() && patient.getGender().equals(limit.getGender())) {
-
-                resultLimit = limit;
-                break;
-            }
-        }
-
-        // drop the age limit
-        if (resultLimit == null) {
-            for (ResultLimit limit : resultLimits) {
-                if (patient.getGender().equals(limit.getGender())) {
-                    resultLimit = limit;
-                    break;
-                }
-            }
+    // in a transaction of its own, after a commit the finished one is still bound
+    @Override
+    public void rebuildReferenceRanges() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        synchronized (referenceRangesLock) {
+            referenceRanges = transactionTemplate
+                    .execute(status -> ReferenceRangeIndex.build(baseObjectDAO.getAllResultLimits()));
         }
-        return resultLimit == null ? defaultResultLimit(resultLimits) : resultLimit;
     }
 
-    /*
-     * We only get here if patient has age and gender
-     */
-    private ResultLimit ageAndGenderBasedResultLimit(List<ResultLimit> resultLimits, Patient patient) {
-
-        ResultLimit resultLimit = null;
-
-        List<ResultLimit> fullySpecifiedLimits = new ArrayList<>();
-        // first age and gender matter
-        for (ResultLimit limit : resultLimits) {
-            if (patient.getGender().equals(limit.getGender()) && !limit.ageLimitsAreDefault()) {
-
-                // if fully qualified don't retest for only part of the
-                // qualification
-                fullySpecifiedLimits.add(limit);
-
-                if (patientInAgeRange(patient, limit)) {
-
-                    resultLimit = limit;
-                    break;
-                }
-            }
-        }
-
-        resultLimits.removeAll(fullySpecifiedLimits);
-
-        // second only age matters
-        if (resultLimit == null) {
-            for (ResultLimit limit : resultLimits) {
-                if (!limit.ageLimitsAreDefault() && patientInAgeRange(patient, limit)) {
-
-                    resultLimit = limit;
-                    break;
-                }
-            }
-        }
-
-        // third only gender matters
-        return resultLimit == null ? genderBasedResultLimit(resultLimits, patient) : resultLimit;
+    @Override
+    @Transactional
+    public String insert(ResultLimit resultLimit) {
+        String id = super.insert(resultLimit);
+        referenceRangesChanged();
+        return id;
     }
 
-    private boolean patientInAgeRange(Patient patient, ResultLimit limit) {
-        return getCurrPatientAge(patient) >= limit.getMinAge() && getCurrPatientAge(patient) <= limit.getMaxAge();
+    @Override
+    protected ResultLimit update(ResultLimit resultLimit, String auditTrailType) {
+        ResultLimit updated = super.update(resultLimit, auditTrailType);
+        referenceRangesChanged();
+        return updated;
     }
 
-    private double getCurrPatientAge(Patient patient) {
-        if (patient.getBirthDate() != null) {
-
-            Calendar dob = Calendar.getInstance();
-            dob.setTime(patient.getBirthDate());
+    @Override
+    @Transactional
+    public void delete(ResultLimit resultLimit) {
+        super.delete(resultLimit);
+        referenceRangesChanged();
+    }
 
-            return DateUtil.getAgeInDays(patient.getBirthDate(), new Date());
+    private class RebuildReferenceRanges implements TransactionSynchronization {
+        @Override
+        public void afterCommit() {
+            rebuildReferenceRanges();
         }
-
-        return INVALID_PATIENT_AGE;
     }
 
     @Override
@@ -78,6 +78,11 @@ public interface SampleDAO extends BaseDAO<Sample, String> {
 
     List<Sample> getAllMissingFhirUuid();
 
+    /**
+     * @return up to limit sample ids greater than afterId, in id order
+     */
+    List<String> getSampleIdsAfter(String afterId, int limit, boolean missingFhirUuidOnly);
+
     List<Sample> getSamplesByAnalysisIds(List<String> analysisIds);
 
     List<Sample> getSamplesForSiteBetweenOrderDates(String referringSiteId, LocalDate lowerDate, LocalDate upperDate);
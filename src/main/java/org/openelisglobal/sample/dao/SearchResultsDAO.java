@@ -2,6 +2,7 @@ package org.openelisglobal.sample.dao;
 
 import java.util.List;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.provider.query.PatientSearchPage;
 import org.openelisglobal.common.provider.query.PatientSearchResults;
 
 public interface SearchResultsDAO {
@@ -29,6 +30,15 @@ public interface SearchResultsDAO {
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender) throws LIMSRuntimeException;
 
+    /**
+     * @param page     zero based page number
+     * @param pageSize the number of results per page
+     * @return the page of matches, best matches first
+     */
+    PatientSearchPage getSearchResultsPage(String lastName, String firstName, String STNumber, String subjectNumber,
+            String nationalID, String externalID, String patientID, String guid, String dateOfBirth, String gender,
+            int page, int pageSize) throws LIMSRuntimeException;
+
     List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender) throws LIMSRuntimeException;
@@ -24,6 +24,7 @@ import org.apache.commons.validator.GenericValidator;
 import org.hibernate.Session;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.common.provider.query.PatientSearchPage;
 import org.openelisglobal.common.provider.query.PatientSearchResults;
 import org.openelisglobal.patientidentitytype.util.PatientIdentityTypeMap;
 import org.openelisglobal.sample.dao.SearchResultsDAO;
@@ -187,6 +188,20 @@ public class DBSearchResultsDAOImpl implements SearchResultsDAO {
         return results;
     }
 
+    @Override
+    @Transactional
+    public PatientSearchPage getSearchResultsPage(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int page, int pageSize) throws LIMSRuntimeException {
+        // the SQL search has no ranking, so the page is cut from the full result list
+        List<PatientSearchResults> results = getSearchResults(lastName, firstName, STNumber, subjectNumber,
+                nationalID, externalID, patientID, guid, dateOfBirth, gender);
+        int from = Math.min(Math.max(page, 0) * pageSize, results.size());
+        int to = Math.min(from + pageSize, results.size());
+        return new PatientSearchPage(new ArrayList<>(results.subList(from, to)), page, pageSize, results.size(),
+                true);
+    }
+
     @Override
     @SuppressWarnings("rawtypes")
     @Transactional
@@ -2,7 +2,10 @@ package org.openelisglobal.sample.daoimpl;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -10,95 +13,65 @@ import javax.transaction.Transactional;
 import org.apache.commons.validator.GenericValidator;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
+import org.hibernate.search.engine.search.predicate.dsl.BooleanPredicateClausesStep;
+import org.hibernate.search.engine.search.predicate.dsl.PredicateFinalStep;
+import org.hibernate.search.engine.search.predicate.dsl.SearchPredicateFactory;
+import org.hibernate.search.engine.search.query.SearchResult;
 import org.hibernate.search.mapper.orm.Search;
 import org.hibernate.search.mapper.orm.session.SearchSession;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.openelisglobal.common.provider.query.PatientSearchPage;
 import org.openelisglobal.common.provider.query.PatientSearchResults;
 import org.openelisglobal.patient.valueholder.Patient;
+import org.openelisglobal.patientidentity.valueholder.PatientIdentity;
 import org.openelisglobal.patientidentitytype.util.PatientIdentityTypeMap;
 import org.openelisglobal.sample.dao.SearchResultsDAO;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Finds patients in the Lucene index. The demographic fields and the identifiers
+ * (national id, external id and the ST, subject number and GUID identities) are
+ * all matched in the index, a patient matching either the demographics or any
+ * identifier is a hit. Hits are ranked by score and only the page asked for is
+ * read from the database, so a common name can not pull back the whole patient
+ * table.
+ */
 @Component
 public class LuceneSearchResultsDAOImpl implements SearchResultsDAO {
 
     @PersistenceContext
     EntityManager entityManager;
 
+    // the most hits a search can return, also the size of the lists returned by
+    // the unpaged searches
+    @Value("${org.openelisglobal.patientSearch.maxResults:500}")
+    private int maxResults;
+
+    @Value("${org.openelisglobal.patientSearch.maxPageSize:100}")
+    private int maxPageSize;
+
+    // hits are counted exactly up to this number, past it the count is a lower
+    // bound which lets Lucene stop counting early
+    @Value("${org.openelisglobal.patientSearch.totalHitCountThreshold:1000}")
+    private int totalHitCountThreshold;
+
     @Override
     @Transactional
     public List<PatientSearchResults> getSearchResults(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender) throws LIMSRuntimeException {
+        return search(lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID, guid,
+                dateOfBirth, gender, true, 0, maxResults).getResults();
+    }
 
-        SearchSession searchSession = Search.session(entityManager);
-
-        List<String> hits = searchSession.search(Patient.class).select(f -> f.id(String.class)).where(f -> f.bool(b -> {
-            if (!GenericValidator.isBlankOrNull(patientID)) {
-                b.must(f.match().field("id").matching(patientID));
-            }
-            if (!GenericValidator.isBlankOrNull(gender)) {
-                b.must(f.match().field("gender").matching(gender));
-            }
-            if (!GenericValidator.isBlankOrNull(dateOfBirth)) {
-                b.must(f.match().field("birthDateForDisplay").matching(dateOfBirth));
-            }
-            if (!GenericValidator.isBlankOrNull(firstName) && !GenericValidator.isBlankOrNull(lastName)) {
-                b.must(f.nested().objectField("person")
-                        .nest(f.bool().must(f.match().field("person.firstName").matching(firstName).fuzzy())
-                                .must(f.match().field("person.lastName").matching(lastName).fuzzy())));
-            } else {
-                if (!GenericValidator.isBlankOrNull(firstName)) {
-                    b.must(f.match().field("person.firstName").matching(firstName).fuzzy());
-                }
-                if (!GenericValidator.isBlankOrNull(lastName)) {
-                    b.must(f.match().field("person.lastName").matching(lastName).fuzzy());
-                }
-            }
-        })).fetchAllHits();
-
-        List<Long> longHits = hits.stream().map(Long::parseLong).collect(Collectors.toList());
-        // 'IN' predicate requires the list to contain at least one value
-        longHits.add(-1L);
-
-        String sqlString = buildQueryString(nationalID, externalID, STNumber, subjectNumber, guid);
-        Query query = entityManager.unwrap(Session.class).createNativeQuery(sqlString);
-        query.setParameter(ID_TYPE_FOR_ST, Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("ST")));
-        query.setParameter(ID_TYPE_FOR_SUBJECT_NUMBER,
-                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("SUBJECT")));
-        query.setParameter(ID_TYPE_FOR_GUID,
-                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("GUID")));
-
-        if (!GenericValidator.isBlankOrNull(nationalID)) {
-            query.setParameter(NATIONAL_ID_PARAM, nationalID);
-        }
-        if (!GenericValidator.isBlankOrNull(externalID)) {
-            query.setParameter(EXTERNAL_ID_PARAM, nationalID);
-        }
-        if (!GenericValidator.isBlankOrNull(STNumber)) {
-            query.setParameter(ST_NUMBER_PARAM, STNumber);
-        }
-        if (!GenericValidator.isBlankOrNull(subjectNumber)) {
-            query.setParameter(SUBJECT_NUMBER_PARAM, subjectNumber);
-        }
-        if (!GenericValidator.isBlankOrNull(guid)) {
-            query.setParameter(GUID, guid);
-        }
-        query.setParameter("idList", longHits);
-
-        List<Object[]> queryResults = query.list();
-
-        List<PatientSearchResults> patientSearchResultsList = new ArrayList<>();
-
-        for (Object[] tuple : queryResults) {
-
-            PatientSearchResults patientSearchResults = new PatientSearchResults((BigDecimal) tuple[0],
-                    (String) tuple[1], (String) tuple[2], (String) tuple[3], (String) tuple[4], (String) tuple[5],
-                    (String) tuple[6], (String) tuple[7], (String) tuple[8], (String) tuple[9], null);
-            patientSearchResultsList.add(patientSearchResults);
-        }
-
-        return patientSearchResultsList;
+    @Override
+    @Transactional
+    public PatientSearchPage getSearchResultsPage(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int page, int pageSize) throws LIMSRuntimeException {
+        return search(lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID, guid,
+                dateOfBirth, gender, true, Math.max(page, 0), Math.max(1, Math.min(pageSize, maxPageSize)));
     }
 
     @Override
@@ -116,136 +89,154 @@ public class LuceneSearchResultsDAOImpl implements SearchResultsDAO {
     public List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender) throws LIMSRuntimeException {
+        return search(lastName, firstName, STNumber, subjectNumber, nationalID, externalID, patientID, guid,
+                dateOfBirth, gender, false, 0, maxResults).getResults();
+    }
+
+    private PatientSearchPage search(String lastName, String firstName, String STNumber, String subjectNumber,
+            String nationalID, String externalID, String patientID, String guid, String dateOfBirth, String gender,
+            boolean fuzzy, int page, int pageSize) {
+        // no search goes deeper than maxResults hits
+        int offset = page * pageSize;
+        if (offset >= maxResults) {
+            return new PatientSearchPage(new ArrayList<>(), page, pageSize, 0, false);
+        }
+        int size = Math.min(pageSize, maxResults - offset);
+
+        boolean hasDemographics = !GenericValidator.isBlankOrNull(patientID) || !GenericValidator.isBlankOrNull(gender)
+                || !GenericValidator.isBlankOrNull(dateOfBirth) || !GenericValidator.isBlankOrNull(firstName)
+                || !GenericValidator.isBlankOrNull(lastName);
 
         SearchSession searchSession = Search.session(entityManager);
+        List<String> identifiedPatientIds = getPatientIdsForIdentities(searchSession, STNumber, subjectNumber, guid);
+
+        if (!hasDemographics && GenericValidator.isBlankOrNull(nationalID)
+                && GenericValidator.isBlankOrNull(externalID) && identifiedPatientIds.isEmpty()) {
+            return new PatientSearchPage(new ArrayList<>(), page, pageSize, 0, true);
+        }
+
+        SearchResult<String> result = searchSession.search(Patient.class).select(f -> f.id(String.class))
+                .where(f -> f.bool(b -> {
+                    if (hasDemographics) {
+                        b.should(f.bool(d -> addDemographicClauses(f, d, lastName, firstName, patientID, dateOfBirth,
+                                gender, fuzzy)));
+                    }
+                    if (!GenericValidator.isBlankOrNull(nationalID)) {
+                        b.should(f.match().field("nationalId").matching(nationalID));
+                    }
+                    if (!GenericValidator.isBlankOrNull(externalID)) {
+                        b.should(f.match().field("externalId").matching(externalID));
+                    }
+                    if (!identifiedPatientIds.isEmpty()) {
+                        b.should(f.id().matchingAny(identifiedPatientIds));
+                    }
+                })).totalHitCountThreshold(totalHitCountThreshold).fetch(offset, size);
+
+        return new PatientSearchPage(getSearchResultsForPatients(result.hits()), page, pageSize,
+                result.total().hitCountLowerBound(), result.total().isHitCountExact());
+    }
 
-        List<String> hits = searchSession.search(Patient.class).select(f -> f.id(String.class)).where(f -> f.bool(b -> {
-            if (!GenericValidator.isBlankOrNull(patientID)) {
-                b.must(f.match().field("id").matching(patientID));
-            }
-            if (!GenericValidator.isBlankOrNull(gender)) {
-                b.must(f.match().field("gender").matching(gender));
-            }
-            if (!GenericValidator.isBlankOrNull(dateOfBirth)) {
-                b.must(f.match().field("birthDateForDisplay").matching(dateOfBirth));
+    private void addDemographicClauses(SearchPredicateFactory f, BooleanPredicateClausesStep<?> b, String lastName,
+            String firstName, String patientID, String dateOfBirth, String gender, boolean fuzzy) {
+        if (!GenericValidator.isBlankOrNull(patientID)) {
+            b.must(f.match().field("id").matching(patientID));
+        }
+        if (!GenericValidator.isBlankOrNull(gender)) {
+            b.must(f.match().field("gender").matching(gender));
+        }
+        if (!GenericValidator.isBlankOrNull(dateOfBirth)) {
+            b.must(f.match().field("birthDateForDisplay").matching(dateOfBirth));
+        }
+        if (!GenericValidator.isBlankOrNull(firstName) && !GenericValidator.isBlankOrNull(lastName)) {
+            b.must(f.nested().objectField("person")
+                    .nest(f.bool().must(nameMatch(f, "person.firstName", firstName, fuzzy))
+                            .must(nameMatch(f, "person.lastName", lastName, fuzzy))));
+        } else {
+            if (!GenericValidator.isBlankOrNull(firstName)) {
+                b.must(nameMatch(f, "person.firstName", firstName, fuzzy));
             }
-            if (!GenericValidator.isBlankOrNull(firstName) && !GenericValidator.isBlankOrNull(lastName)) {
-                b.must(f.nested().objectField("person")
-                        .nest(f.bool().must(f.match().field("person.firstName").matching(firstName))
-                                .must(f.match().field("person.lastName").matching(lastName))));
-            } else {
-                if (!GenericValidator.isBlankOrNull(firstName)) {
-                    b.must(f.match().field("person.firstName").matching(firstName));
-                }
-                if (!GenericValidator.isBlankOrNull(lastName)) {
-                    b.must(f.match().field("person.lastName").matching(lastName));
-                }
+            if (!GenericValidator.isBlankOrNull(lastName)) {
+                b.must(nameMatch(f, "person.lastName", lastName, fuzzy));
             }
-        })).fetchAllHits();
-
-        List<Long> longHits = hits.stream().map(Long::parseLong).collect(Collectors.toList());
-        // 'IN' predicate requires the list to contain at least one value
-        longHits.add(-1L);
+        }
+    }
 
-        String sqlString = buildQueryString(nationalID, externalID, STNumber, subjectNumber, guid);
-        Query query = entityManager.unwrap(Session.class).createNativeQuery(sqlString);
-        query.setParameter(ID_TYPE_FOR_ST, Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("ST")));
-        query.setParameter(ID_TYPE_FOR_SUBJECT_NUMBER,
-                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("SUBJECT")));
-        query.setParameter(ID_TYPE_FOR_GUID,
-                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("GUID")));
+    private PredicateFinalStep nameMatch(SearchPredicateFactory f, String field, String name, boolean fuzzy) {
+        return fuzzy ? f.match().field(field).matching(name).fuzzy() : f.match().field(field).matching(name);
+    }
 
-        if (!GenericValidator.isBlankOrNull(nationalID)) {
-            query.setParameter(NATIONAL_ID_PARAM, nationalID);
-        }
-        if (!GenericValidator.isBlankOrNull(externalID)) {
-            query.setParameter(EXTERNAL_ID_PARAM, nationalID);
-        }
+    /*
+     * The ST number, subject number and GUID are patient identities which have an
+     * index of their own
+     */
+    private List<String> getPatientIdsForIdentities(SearchSession searchSession, String STNumber,
+            String subjectNumber, String guid) {
+        Map<String, String> identities = new HashMap<>();
         if (!GenericValidator.isBlankOrNull(STNumber)) {
-            query.setParameter(ST_NUMBER_PARAM, STNumber);
+            identities.put(PatientIdentityTypeMap.getInstance().getIDForType("ST"), STNumber);
         }
         if (!GenericValidator.isBlankOrNull(subjectNumber)) {
-            query.setParameter(SUBJECT_NUMBER_PARAM, subjectNumber);
+            identities.put(PatientIdentityTypeMap.getInstance().getIDForType("SUBJECT"), subjectNumber);
         }
         if (!GenericValidator.isBlankOrNull(guid)) {
-            query.setParameter(GUID, guid);
+            identities.put(PatientIdentityTypeMap.getInstance().getIDForType("GUID"), guid);
+        }
+        if (identities.isEmpty()) {
+            return new ArrayList<>();
         }
-        query.setParameter("idList", longHits);
 
-        List<Object[]> queryResults = query.list();
+        List<String> patientIds = searchSession.search(PatientIdentity.class)
+                .select(f -> f.field("patientId", String.class)).where(f -> f.bool(b -> {
+                    for (Map.Entry<String, String> identity : identities.entrySet()) {
+                        b.should(f.bool().must(f.match().field("identityTypeId").matching(identity.getKey()))
+                                .must(f.match().field("identityData").matching(identity.getValue())));
+                    }
+                })).fetchHits(maxResults);
+        return new ArrayList<>(new LinkedHashSet<>(patientIds));
+    }
 
+    private List<PatientSearchResults> getSearchResultsForPatients(List<String> patientIds) {
         List<PatientSearchResults> patientSearchResultsList = new ArrayList<>();
+        if (patientIds.isEmpty()) {
+            return patientSearchResultsList;
+        }
 
-        for (Object[] tuple : queryResults) {
+        Query<?> query = entityManager.unwrap(Session.class).createNativeQuery(PATIENT_ROWS_SQL);
+        query.setParameter(ID_TYPE_FOR_ST, Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("ST")));
+        query.setParameter(ID_TYPE_FOR_SUBJECT_NUMBER,
+                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("SUBJECT")));
+        query.setParameter(ID_TYPE_FOR_GUID,
+                Integer.valueOf(PatientIdentityTypeMap.getInstance().getIDForType("GUID")));
+        query.setParameterList("idList", patientIds.stream().map(Long::parseLong).collect(Collectors.toList()));
 
+        Map<String, PatientSearchResults> resultsById = new HashMap<>();
+        for (Object row : query.list()) {
+            Object[] tuple = (Object[]) row;
             PatientSearchResults patientSearchResults = new PatientSearchResults((BigDecimal) tuple[0],
                     (String) tuple[1], (String) tuple[2], (String) tuple[3], (String) tuple[4], (String) tuple[5],
                     (String) tuple[6], (String) tuple[7], (String) tuple[8], (String) tuple[9], null);
-            patientSearchResultsList.add(patientSearchResults);
+            // a patient with more than one identity of a type gives more than one row,
+            // the first one is kept
+            resultsById.putIfAbsent(patientSearchResults.getPatientID(), patientSearchResults);
         }
 
+        // keep the order of the hits, best match first
+        for (String patientId : patientIds) {
+            PatientSearchResults patientSearchResults = resultsById.remove(patientId);
+            if (patientSearchResults != null) {
+                patientSearchResultsList.add(patientSearchResults);
+            }
+        }
         return patientSearchResultsList;
     }
 
-    private String buildQueryString(String nationalID, String externalID, String STNumber, String subjectNumber,
-            String guid) {
-
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("select p.id, pr.first_name, pr.last_name, p.gender, p.entered_birth_date, p.national_id,"
-                + " p.external_id, pi.identity_data as st, piSN.identity_data as subject,"
-                + " piGUID.identity_data as guid ");
-        queryBuilder.append("from patient p join person pr on p.person_id = pr.id ");
-        queryBuilder.append("left join patient_identity pi on pi.patient_id = p.id and pi.identity_type_id = :");
-        queryBuilder.append(ID_TYPE_FOR_ST).append(" ");
-        queryBuilder.append("left join patient_identity piSN on piSN.patient_id = p.id and piSN.identity_type_id = :");
-        queryBuilder.append(ID_TYPE_FOR_SUBJECT_NUMBER).append(" ");
-        queryBuilder.append(
-                "left join patient_identity piGUID on piGUID.patient_id = p.id and piGUID.identity_type_id" + " = :");
-        queryBuilder.append(ID_TYPE_FOR_GUID).append(" ");
-        queryBuilder.append("where ");
-
-        queryBuilder.append("( false or ");
-        if (!GenericValidator.isBlankOrNull(subjectNumber)) {
-            queryBuilder.append("piSN.identity_data ilike :");
-            queryBuilder.append(SUBJECT_NUMBER_PARAM).append(" or ");
-        }
-
-        if (!GenericValidator.isBlankOrNull(nationalID)) {
-            queryBuilder.append("p.national_id ilike :");
-            queryBuilder.append(NATIONAL_ID_PARAM).append(" or ");
-        }
-
-        if (!GenericValidator.isBlankOrNull(externalID)) {
-            queryBuilder.append("p.external_id ilike :");
-            queryBuilder.append(EXTERNAL_ID_PARAM).append(" or ");
-        }
-
-        if (!GenericValidator.isBlankOrNull(STNumber)) {
-            queryBuilder.append("pi.identity_data ilike :");
-            queryBuilder.append(ST_NUMBER_PARAM).append(" and ");
-        }
-
-        // Need to close paren before dangling AND/OR.
-        int lastAndIndex = queryBuilder.lastIndexOf("and");
-        int lastOrIndex = queryBuilder.lastIndexOf("or");
-
-        if (lastAndIndex > lastOrIndex) {
-            queryBuilder.delete(lastAndIndex, queryBuilder.length());
-            queryBuilder.append(") and ");
-        } else if (lastOrIndex > lastAndIndex) {
-            queryBuilder.delete(lastOrIndex, queryBuilder.length());
-            queryBuilder.append(") or ");
-        }
-
-        if (!GenericValidator.isBlankOrNull(guid)) {
-            queryBuilder.append("piGUID.identity_data = :");
-            queryBuilder.append(GUID).append(" and ");
-        }
-
-        // idList contains patient IDs from Lucene search results matching the fields
-        // id, person.firstName, person.lastName, birthDateForDisplay and gender
-        queryBuilder.append("p.id in :idList");
-
-        return queryBuilder.toString();
-    }
+    private static final String PATIENT_ROWS_SQL = "select p.id, pr.first_name, pr.last_name, p.gender,"
+            + " p.entered_birth_date, p.national_id, p.external_id, pi.identity_data as st,"
+            + " piSN.identity_data as subject, piGUID.identity_data as guid"
+            + " from patient p join person pr on p.person_id = pr.id"
+            + " left join patient_identity pi on pi.patient_id = p.id and pi.identity_type_id = :" + ID_TYPE_FOR_ST
+            + " left join patient_identity piSN on piSN.patient_id = p.id and piSN.identity_type_id = :"
+            + ID_TYPE_FOR_SUBJECT_NUMBER
+            + " left join patient_identity piGUID on piGUID.patient_id = p.id and piGUID.identity_type_id = :"
+            + ID_TYPE_FOR_GUID + " where p.id in (:idList)";
 }
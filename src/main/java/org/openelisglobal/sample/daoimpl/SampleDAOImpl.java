@@ -651,6 +651,21 @@ public class SampleDAOImpl extends BaseDAOImpl<Sample, String> implements Sample
         return new ArrayList<>();
     }
 
+    @Override
+    public List<String> getSampleIdsAfter(String afterId, int limit, boolean missingFhirUuidOnly) {
+        String sql = "select s.id from Sample s where s.id > :afterId"
+                + (missingFhirUuidOnly ? " and s.fhirUuid is NULL" : "") + " order by s.id";
+        try {
+            Query<String> query = entityManager.unwrap(Session.class).createQuery(sql, String.class);
+            query.setParameter("afterId", Integer.parseInt(afterId));
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (HibernateException e) {
+            handleException(e, "getSampleIdsAfter");
+        }
+        return new ArrayList<>();
+    }
+
     @Override
     public List<Sample> getSamplesByAnalysisIds(List<String> analysisIds) {
         String hql = "FROM Sample s WHERE s.id IN (SELECT si.sample.id FROM SampleItem si WHERE si.id IN (SELECT"
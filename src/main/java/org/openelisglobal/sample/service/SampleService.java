@@ -106,6 +106,10 @@ public interface SampleService extends BaseObjectService<Sample, String> {
 
     List<Sample> getAllMissingFhirUuid();
 
+    List<String> getSampleIdsAfter(String afterId, int limit, boolean missingFhirUuidOnly);
+
+    List<Sample> get(List<String> ids);
+
     List<Sample> getSamplesByAnalysisIds(List<String> analysisIds);
 
     List<Organization> getOrganizationRequesters(Sample sample);
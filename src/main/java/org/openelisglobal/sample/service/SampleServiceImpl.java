@@ -569,6 +569,18 @@ public class SampleServiceImpl extends AuditableBaseObjectServiceImpl<Sample, St
         return sampleDAO.getAllMissingFhirUuid();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getSampleIdsAfter(String afterId, int limit, boolean missingFhirUuidOnly) {
+        return sampleDAO.getSampleIdsAfter(afterId, limit, missingFhirUuidOnly);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Sample> get(List<String> ids) {
+        return ids.isEmpty() ? new ArrayList<>() : sampleDAO.get(ids);
+    }
+
     @Override
     public List<Sample> getSamplesByAnalysisIds(List<String> analysisIds) {
         return sampleDAO.getSamplesByAnalysisIds(analysisIds);
@@ -14,6 +14,7 @@
 package org.openelisglobal.samplehuman.dao;
 
 import java.util.List;
+import java.util.Map;
 import org.openelisglobal.common.dao.BaseDAO;
 import org.openelisglobal.common.exception.LIMSRuntimeException;
 import org.openelisglobal.patient.valueholder.Patient;
@@ -50,4 +51,21 @@ public interface SampleHumanDAO extends BaseDAO<SampleHuman, String> {
     public List<Patient> getAllPatientsWithSampleEntered();
 
     public List<Patient> getAllPatientsWithSampleEnteredMissingFhirUuid();
+
+    /**
+     * @return the patient of each sample, keyed by sample id
+     */
+    Map<String, Patient> getPatientsForSamples(List<String> sampleIds) throws LIMSRuntimeException;
+
+    /**
+     * @return the provider of each sample which has one, keyed by sample id
+     */
+    Map<String, Provider> getProvidersForSamples(List<String> sampleIds) throws LIMSRuntimeException;
+
+    /**
+     * @return up to limit ids of patients with a sample, greater than afterId, in
+     *         id order
+     */
+    List<String> getPatientIdsWithSampleEnteredAfter(String afterId, int limit, boolean missingFhirUuidOnly)
+            throws LIMSRuntimeException;
 }
@@ -17,7 +17,10 @@ package org.openelisglobal.samplehuman.daoimpl;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -186,4 +189,71 @@ public class SampleHumanDAOImpl extends BaseDAOImpl<SampleHuman, String> impleme
 
         return patients;
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Patient> getPatientsForSamples(List<String> sampleIds) throws LIMSRuntimeException {
+        Map<String, Patient> patients = new HashMap<>();
+        if (sampleIds.isEmpty()) {
+            return patients;
+        }
+        try {
+            String sql = "select sampleHuman.sampleId, patient from Patient as patient join fetch patient.person,"
+                    + " SampleHuman as sampleHuman where sampleHuman.patientId = patient.id and sampleHuman.sampleId"
+                    + " in (:sampleIds)";
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(Integer::parseInt).collect(Collectors.toList()));
+            for (Object[] row : query.list()) {
+                patients.put(String.valueOf(row[0]), (Patient) row[1]);
+            }
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SampleHuman getPatientsForSamples()", e);
+        }
+
+        return patients;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Provider> getProvidersForSamples(List<String> sampleIds) throws LIMSRuntimeException {
+        Map<String, Provider> providers = new HashMap<>();
+        if (sampleIds.isEmpty()) {
+            return providers;
+        }
+        try {
+            String sql = "select sampleHuman.sampleId, provider from Provider as provider, SampleHuman as sampleHuman"
+                    + " where sampleHuman.providerId = provider.id and sampleHuman.sampleId in (:sampleIds)";
+            Query<Object[]> query = entityManager.unwrap(Session.class).createQuery(sql, Object[].class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(Integer::parseInt).collect(Collectors.toList()));
+            for (Object[] row : query.list()) {
+                providers.put(String.valueOf(row[0]), (Provider) row[1]);
+            }
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SampleHuman getProvidersForSamples()", e);
+        }
+
+        return providers;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getPatientIdsWithSampleEnteredAfter(String afterId, int limit, boolean missingFhirUuidOnly)
+            throws LIMSRuntimeException {
+        try {
+            String sql = "select distinct patient.id from Patient as patient, SampleHuman as sampleHuman where"
+                    + " sampleHuman.patientId = patient.id and patient.id > :afterId"
+                    + (missingFhirUuidOnly ? " and patient.fhirUuid is null" : "") + " order by patient.id";
+            Query<String> query = entityManager.unwrap(Session.class).createQuery(sql, String.class);
+            query.setParameter("afterId", Integer.parseInt(afterId));
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SampleHuman getPatientIdsWithSampleEnteredAfter()", e);
+        }
+    }
 }
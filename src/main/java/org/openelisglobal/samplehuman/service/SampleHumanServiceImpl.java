@@ -1,6 +1,7 @@
 package org.openelisglobal.samplehuman.service;
 
 import java.util.List;
+import java.util.Map;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
 import org.openelisglobal.patient.valueholder.Patient;
 import org.openelisglobal.provider.valueholder.Provider;
@@ -65,4 +66,22 @@ public class SampleHumanServiceImpl extends AuditableBaseObjectServiceImpl<Sampl
     public List<Patient> getAllPatientsWithSampleEnteredMissingFhirUuid() {
         return baseObjectDAO.getAllPatientsWithSampleEnteredMissingFhirUuid();
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Patient> getPatientsForSamples(List<String> sampleIds) {
+        return baseObjectDAO.getPatientsForSamples(sampleIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Provider> getProvidersForSamples(List<String> sampleIds) {
+        return baseObjectDAO.getProvidersForSamples(sampleIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> getPatientIdsWithSampleEnteredAfter(String afterId, int limit, boolean missingFhirUuidOnly) {
+        return baseObjectDAO.getPatientIdsWithSampleEnteredAfter(afterId, limit, missingFhirUuidOnly);
+    }
 }
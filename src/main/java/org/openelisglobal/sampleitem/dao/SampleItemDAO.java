@@ -47,6 +47,8 @@ public interface SampleItemDAO extends BaseDAO<SampleItem, String> {
 
     public List<SampleItem> getSampleItemsBySampleId(String id) throws LIMSRuntimeException;
 
+    public List<SampleItem> getSampleItemsBySampleIds(List<String> sampleIds) throws LIMSRuntimeException;
+
     public List<SampleItem> getSampleItemsBySampleIdAndType(String sampleId, TypeOfSample typeOfSample)
             throws LIMSRuntimeException;
 
@@ -19,6 +19,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -180,6 +181,25 @@ public class SampleItemDAOImpl extends BaseDAOImpl<SampleItem, String> implement
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<SampleItem> getSampleItemsBySampleIds(List<String> sampleIds) throws LIMSRuntimeException {
+        if (sampleIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            String sql = "from SampleItem sampleItem where sampleItem.sample.id in (:sampleIds) order by"
+                    + " sampleItem.sample.id, sampleItem.sortOrder";
+            Query<SampleItem> query = entityManager.unwrap(Session.class).createQuery(sql, SampleItem.class);
+            query.setParameterList("sampleIds",
+                    sampleIds.stream().map(Integer::parseInt).collect(Collectors.toList()));
+            return query.list();
+        } catch (HibernateException e) {
+            LogEvent.logError(e);
+            throw new LIMSRuntimeException("Error in SampleItem getSampleItemsBySampleIds()", e);
+        }
+    }
+
     /**
      * @see org.openelisglobal.sampleitem.dao.SampleItemDAO#getSampleItemsBySampleIdAndType(java.lang.String,
      *      org.openelisglobal.typeofsample.valueholder.TypeOfSample)
@@ -19,6 +19,8 @@ public interface SampleItemService extends BaseObjectService<SampleItem, String>
 
     List<SampleItem> getSampleItemsBySampleId(String id);
 
+    List<SampleItem> getSampleItemsBySampleIds(List<String> sampleIds);
+
     List<SampleItem> getSampleItemsBySampleIdAndStatus(String id, Set<Integer> includedStatusList);
 
     void getDataBySample(SampleItem sampleItem);
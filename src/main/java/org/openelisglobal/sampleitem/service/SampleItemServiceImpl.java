@@ -58,6 +58,12 @@ public class SampleItemServiceImpl extends AuditableBaseObjectServiceImpl<Sample
         return baseObjectDAO.getAllMatching("sample.id", id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<SampleItem> getSampleItemsBySampleIds(List<String> sampleIds) {
+        return baseObjectDAO.getSampleItemsBySampleIds(sampleIds);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<SampleItem> getSampleItemsBySampleIdAndStatus(String id, Set<Integer> enteredStatusSampleList) {
@@ -45,6 +45,8 @@ public interface SampleQaEventDAO extends BaseDAO<SampleQaEvent, String> {
 
     List<SampleQaEvent> getSampleQaEventsBySample(Sample sample) throws LIMSRuntimeException;
 
+    List<SampleQaEvent> getSampleQaEventsBySampleIds(List<String> sampleIds) throws LIMSRuntimeException;
+
     SampleQaEvent getSampleQaEventBySampleAndQaEvent(SampleQaEvent sampleQaEvent) throws LIMSRuntimeException;
 
     List<SampleQaEvent> getSampleQaEventsByUpdatedDate(Date lowDate, Date highDate) throws LIMSRuntimeException;
@@ -1,6 +1,7 @@
 package org.openelisglobal.scheduler;
 
 import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
@@ -11,7 +12,7 @@ import org.springframework.stereotype.Service;
 public class ImmediateJobRunner implements IImmediateJobRunner {
 
     @Override
-    @Async
+    @Async(AsyncConfig.JOB_EXECUTOR)
     public void runNow(Scheduler scheduler, String jobName) {
         try {
             synchronized (scheduler) {
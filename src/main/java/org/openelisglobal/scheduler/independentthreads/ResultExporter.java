@@ -13,53 +13,67 @@
  */
 package org.openelisglobal.scheduler.independentthreads;
 
-import java.sql.Timestamp;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import javax.annotation.PostConstruct;
-import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.validator.GenericValidator;
-import org.openelisglobal.common.exception.LIMSRuntimeException;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.common.util.ConfigurationProperties.Property;
-import org.openelisglobal.common.util.DateUtil;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
 import org.openelisglobal.dataexchange.aggregatereporting.valueholder.ReportExternalExport;
-import org.openelisglobal.dataexchange.common.IRowTransmissionResponseHandler;
-import org.openelisglobal.dataexchange.common.ReportTransmission;
-import org.openelisglobal.dataexchange.common.ReportTransmission.HTTP_TYPE;
-import org.openelisglobal.dataexchange.orderresult.valueholder.HL7MessageOut;
-import org.openelisglobal.dataexchange.service.aggregatereporting.ReportExternalExportService;
+import org.openelisglobal.dataexchange.service.aggregatereporting.ReportExportQueueService;
 import org.openelisglobal.dataexchange.service.aggregatereporting.ReportQueueTypeService;
-import org.openelisglobal.dataexchange.service.orderresult.HL7MessageOutService;
-import org.openelisglobal.referencetables.service.ReferenceTablesService;
-import org.openelisglobal.reports.service.DocumentTrackService;
-import org.openelisglobal.reports.service.DocumentTypeService;
-import org.openelisglobal.reports.valueholder.DocumentTrack;
-import org.openelisglobal.reports.valueholder.DocumentType;
-import org.openelisglobal.spring.util.SpringContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Scope;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Sends the queued result reports. Each run claims a limited number of due rows
+ * so several nodes can drain the queue without sending a row twice, sends them
+ * in parallel on the export pool and records the outcomes in batches as the
+ * sends complete. A row that fails is retried on a later run after a wait that
+ * doubles with each failure.
+ */
 @Component
 public class ResultExporter {
 
+    private static final String DOCUMENT_TYPE = "resultExport";
+
     @Autowired
     private ReportQueueTypeService reportQueueTypeService;
     @Autowired
-    private ReferenceTablesService referenceTablesService;
-    @Autowired
-    private DocumentTypeService documentTypeService;
+    private ReportExportQueueService reportExportQueueService;
     @Autowired
-    private DocumentTrackService trackService;
+    private CloseableHttpClient httpClient;
     @Autowired
-    private HL7MessageOutService hl7MessageService;
-    @Autowired
-    private ReportExternalExportService reportExternalExportService;
+    @Qualifier(AsyncConfig.EXPORT_EXECUTOR)
+    private InstrumentedTaskExecutor exportExecutor;
+
+    @Value("${org.openelisglobal.resultExport.claimLimit:200}")
+    private int claimLimit;
+    @Value("${org.openelisglobal.resultExport.batchSize:50}")
+    private int batchSize;
+    @Value("${org.openelisglobal.resultExport.leaseSeconds:600}")
+    private int leaseSeconds;
+    @Value("${org.openelisglobal.resultExport.retryBaseSeconds:60}")
+    private int retryBaseSeconds;
+    @Value("${org.openelisglobal.resultExport.retryMaxSeconds:3600}")
+    private int retryMaxSeconds;
 
     private String resultReportTypeId;
 
@@ -70,99 +84,99 @@ public class ResultExporter {
 
     @Scheduled(fixedRateString = "#{resultsResendTime}")
     private void exportResults() {
-        if (shouldReportResults()) {
-            List<ReportExternalExport> reportList = reportExternalExportService
-                    .getUnsentReportExports(resultReportTypeId);
-
-            ReportTransmission transmitter = new ReportTransmission();
-            String url = ConfigurationProperties.getInstance().getPropertyValue(Property.resultReportingURL);
-            boolean sendAsychronously = false;
-
-            for (ReportExternalExport report : reportList) {
-                IRowTransmissionResponseHandler responseHandler = (IRowTransmissionResponseHandler) SpringContext
-                        .getBean("successReportHandler");
-                responseHandler.setRowId(report.getId());
-                transmitter.sendRawReport(report.getData(), url, sendAsychronously, responseHandler, HTTP_TYPE.POST);
-            }
+        if (!shouldReportResults()) {
+            return;
         }
-    }
-
-    private boolean shouldReportResults() {
-        String reportResults = ConfigurationProperties.getInstance().getPropertyValueLowerCase(Property.reportResults);
-        return ("true".equals(reportResults) || "enable".equals(reportResults));
-    }
-
-    @Service("successReportHandler")
-    @Scope("prototype")
-    class SuccessReportHandler implements IRowTransmissionResponseHandler {
-        String externalExportRowId;
-
-        public SuccessReportHandler(String rowId) {
-            externalExportRowId = rowId;
+        String url = ConfigurationProperties.getInstance().getPropertyValue(Property.resultReportingURL);
+        if (GenericValidator.isBlankOrNull(url)) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "exportResults",
+                    "result reporting is enabled but no result reporting url is configured");
+            return;
         }
 
-        public SuccessReportHandler() {
+        List<ReportExternalExport> reports = reportExportQueueService.claimDueReportExports(resultReportTypeId,
+                claimLimit, leaseSeconds);
+        if (reports.isEmpty()) {
+            return;
         }
 
-        @Override
-        public void setRowId(String rowId) {
-            externalExportRowId = rowId;
+        CompletionService<SendOutcome> completionService = new ExecutorCompletionService<>(exportExecutor);
+        for (ReportExternalExport report : reports) {
+            completionService.submit(() -> send(report, url));
         }
 
-        @Override
-        @Transactional
-        public void handleResponse(int httpReturnStatus, List<String> errors, String msg) {
-
-            if (httpReturnStatus == HttpServletResponse.SC_OK) {
-                ReportExternalExport report = reportExternalExportService.readReportExternalExport(externalExportRowId);
-                List<DocumentTrack> documents = getSentDocuments(report.getBookkeepingData());
-
-                try {
-                    HL7MessageOut hl7Message = hl7MessageService.getByData(msg);
-                    if (hl7Message != null) {
-                        hl7Message.setStatus(HL7MessageOut.SUCCESS);
-                        hl7MessageService.update(hl7Message);
-                    }
-                    for (DocumentTrack document : documents) {
-                        trackService.insert(document);
-                    }
-                    reportExternalExportService.delete(report);
-
-                } catch (LIMSRuntimeException e) {
-                    LogEvent.logError(e);
-                    throw e;
+        List<ReportExternalExport> sent = new ArrayList<>();
+        List<ReportExternalExport> failed = new ArrayList<>();
+        try {
+            for (int i = 0; i < reports.size(); i++) {
+                SendOutcome outcome = completionService.take().get();
+                if (outcome.success) {
+                    sent.add(outcome.report);
+                } else {
+                    failed.add(outcome.report);
+                }
+                if (sent.size() + failed.size() >= batchSize) {
+                    recordOutcomes(sent, failed);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // send handles its own errors, the rows left are released when their claim
+            // expires
+            LogEvent.logError(e);
+        } finally {
+            recordOutcomes(sent, failed);
         }
+    }
 
-        private List<DocumentTrack> getSentDocuments(String bookkeepingData) {
-            List<DocumentTrack> documentList = new ArrayList<>();
-            String resultTableId = getResultTableId();
-            DocumentType type = getResultType();
-            Timestamp now = DateUtil.getNowAsTimestamp();
-
-            if (!GenericValidator.isBlankOrNull(bookkeepingData) && !"null".equals(bookkeepingData)) {
-                String[] resultIdList = bookkeepingData.split(",");
-
-                for (int i = 0; i < resultIdList.length; i++) {
-                    DocumentTrack document = new DocumentTrack();
-                    document.setDocumentTypeId(type.getId());
-                    document.setRecordId(resultIdList[i]);
-                    document.setReportTime(now);
-                    document.setTableId(resultTableId);
-                    document.setSysUserId("1");
-                    documentList.add(document);
-                }
+    private SendOutcome send(ReportExternalExport report, String url) {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setEntity(new StringEntity(report.getData(), ContentType.TEXT_PLAIN));
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            // reading the body to the end lets the connection go back to the pool
+            EntityUtils.consume(response.getEntity());
+            int status = response.getStatusLine().getStatusCode();
+            if (status != HttpStatus.SC_OK) {
+                LogEvent.logWarn(this.getClass().getSimpleName(), "send",
+                        "result report " + report.getId() + " was refused with status " + status);
             }
-            return documentList;
+            return new SendOutcome(report, status == HttpStatus.SC_OK);
+        } catch (IOException | RuntimeException e) {
+            LogEvent.logWarn(this.getClass().getSimpleName(), "send",
+                    "result report " + report.getId() + " could not be sent: " + e.getMessage());
+            return new SendOutcome(report, false);
         }
+    }
 
-        private DocumentType getResultType() {
-            return documentTypeService.getDocumentTypeByName("resultExport");
+    private void recordOutcomes(List<ReportExternalExport> sent, List<ReportExternalExport> failed) {
+        try {
+            reportExportQueueService.recordSent(sent, DOCUMENT_TYPE);
+        } catch (RuntimeException e) {
+            // the rows stay claimed and are sent again once the claim expires
+            LogEvent.logError(e);
+        }
+        try {
+            reportExportQueueService.recordFailed(failed, retryBaseSeconds, retryMaxSeconds);
+        } catch (RuntimeException e) {
+            LogEvent.logError(e);
         }
+        sent.clear();
+        failed.clear();
+    }
+
+    private boolean shouldReportResults() {
+        String reportResults = ConfigurationProperties.getInstance().getPropertyValueLowerCase(Property.reportResults);
+        return ("true".equals(reportResults) || "enable".equals(reportResults));
+    }
+
+    private static class SendOutcome {
+        private final ReportExternalExport report;
+        private final boolean success;
 
-        private String getResultTableId() {
-            return referenceTablesService.getReferenceTableByName("RESULT").getId();
+        private SendOutcome(ReportExternalExport report, boolean success) {
+            this.report = report;
+            this.success = success;
         }
     }
 }
@@ -2,6 +2,7 @@ package org.openelisglobal.search.service;
 
 import java.util.List;
 import javax.transaction.Transactional;
+import org.openelisglobal.common.provider.query.PatientSearchPage;
 import org.openelisglobal.common.provider.query.PatientSearchResults;
 import org.openelisglobal.sample.dao.SearchResultsDAO;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +25,15 @@ public class LuceneSearchResultsServiceImpl implements SearchResultsService {
                 patientID, guid, dateOfBirth, gender);
     }
 
+    @Override
+    @Transactional
+    public PatientSearchPage getSearchResultsPage(String lastName, String firstName, String STNumber,
+            String subjectNumber, String nationalID, String externalID, String patientID, String guid,
+            String dateOfBirth, String gender, int page, int pageSize) {
+        return searchResultsDAO.getSearchResultsPage(lastName, firstName, STNumber, subjectNumber, nationalID,
+                externalID, patientID, guid, dateOfBirth, gender, page, pageSize);
+    }
+
     @Override
     @Transactional
     public List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
@@ -1,6 +1,7 @@
 package org.openelisglobal.search.service;
 
 import java.util.List;
+import org.openelisglobal.common.provider.query.PatientSearchPage;
 import org.openelisglobal.common.provider.query.PatientSearchResults;
 
 public interface SearchResultsService {
@@ -9,6 +10,10 @@ public interface SearchResultsService {
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender);
 
+    PatientSearchPage getSearchResultsPage(String lastName, String firstName, String STNumber, String subjectNumber,
+            String nationalID, String externalID, String patientID, String guid, String dateOfBirth, String gender,
+            int page, int pageSize);
+
     List<PatientSearchResults> getSearchResultsExact(String lastName, String firstName, String STNumber,
             String subjectNumber, String nationalID, String externalID, String patientID, String guid,
             String dateOfBirth, String gender);
@@ -1,7 +1,5 @@
 package org.openelisglobal.security.login;
 
-import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 import org.openelisglobal.common.action.IActionConstants;
@@ -9,11 +7,9 @@ import org.openelisglobal.common.util.ConfigurationProperties;
 import org.openelisglobal.login.service.LoginUserService;
 import org.openelisglobal.login.valueholder.LoginUser;
 import org.openelisglobal.login.valueholder.UserSessionData;
+import org.openelisglobal.systemmodule.service.ModulePermissionService;
 import org.openelisglobal.systemuser.service.SystemUserService;
 import org.openelisglobal.systemuser.valueholder.SystemUser;
-import org.openelisglobal.systemusermodule.service.PermissionModuleService;
-import org.openelisglobal.systemusermodule.valueholder.PermissionModule;
-import org.openelisglobal.userrole.service.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
@@ -28,9 +24,7 @@ public class BasicAuthFilter extends BasicAuthenticationFilter {
     @Autowired
     private SystemUserService systemUserService;
     @Autowired
-    private UserRoleService userRoleService;
-    @Autowired
-    private PermissionModuleService<PermissionModule> permissionModuleService;
+    private ModulePermissionService modulePermissionService;
 
     @Autowired
     public BasicAuthFilter(AuthenticationManager authenticationManager) {
@@ -59,23 +53,9 @@ public class BasicAuthFilter extends BasicAuthenticationFilter {
 
         // get permitted actions map (available modules for the current user)
         if (ConfigurationProperties.getInstance().getPropertyValue("permissions.agent").equalsIgnoreCase("ROLE")) {
-            Set<String> permittedPages = getPermittedForms(usd.getSystemUserId());
+            Set<String> permittedPages = modulePermissionService.login(request, usd, null);
             request.setAttribute(IActionConstants.PERMITTED_ACTIONS_MAP, permittedPages);
             // showAdminMenu |= permittedPages.contains("MasterList");
         }
     }
-
-    private Set<String> getPermittedForms(int systemUserId) {
-        Set<String> allPermittedPages = new HashSet<>();
-
-        List<String> roleIds = userRoleService.getRoleIdsForUser(Integer.toString(systemUserId));
-
-        for (String roleId : roleIds) {
-            Set<String> permittedPagesForRole = permissionModuleService
-                    .getAllPermittedPagesFromAgentId(Integer.parseInt(roleId));
-            allPermittedPages.addAll(permittedPagesForRole);
-        }
-
-        return allPermittedPages;
-    }
 }
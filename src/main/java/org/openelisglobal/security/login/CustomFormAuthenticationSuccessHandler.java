@@ -2,7 +2,6 @@ package org.openelisglobal.security.login;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -20,10 +19,8 @@ import org.openelisglobal.login.service.LoginUserService;
 import org.openelisglobal.login.valueholder.LoginUser;
 import org.openelisglobal.login.valueholder.UserSessionData;
 import org.openelisglobal.systemuser.service.SystemUserService;
+import org.openelisglobal.systemmodule.service.ModulePermissionService;
 import org.openelisglobal.systemuser.valueholder.SystemUser;
-import org.openelisglobal.systemusermodule.service.PermissionModuleService;
-import org.openelisglobal.systemusermodule.valueholder.PermissionModule;
-import org.openelisglobal.userrole.service.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -42,9 +39,7 @@ public class CustomFormAuthenticationSuccessHandler extends SavedRequestAwareAut
     @Autowired
     private LoginUserService loginService;
     @Autowired
-    private UserRoleService userRoleService;
-    @Autowired
-    private PermissionModuleService<PermissionModule> permissionModuleService;
+    private ModulePermissionService modulePermissionService;
     @Autowired
     private SystemUserService systemUserService;
 
@@ -160,26 +155,12 @@ public class CustomFormAuthenticationSuccessHandler extends SavedRequestAwareAut
 
         // get permitted actions map (available modules for the current user)
         if (ConfigurationProperties.getInstance().getPropertyValue("permissions.agent").equalsIgnoreCase("ROLE")) {
-            Set<String> permittedPages = getPermittedForms(usd.getSystemUserId());
+            Set<String> permittedPages = modulePermissionService.login(request, usd, null);
             request.getSession().setAttribute(IActionConstants.PERMITTED_ACTIONS_MAP, permittedPages);
             // showAdminMenu |= permittedPages.contains("MasterList");
         }
     }
 
-    private Set<String> getPermittedForms(int systemUserId) {
-        Set<String> allPermittedPages = new HashSet<>();
-
-        List<String> roleIds = userRoleService.getRoleIdsForUser(Integer.toString(systemUserId));
-
-        for (String roleId : roleIds) {
-            Set<String> permittedPagesForRole = permissionModuleService
-                    .getAllPermittedPagesFromAgentId(Integer.parseInt(roleId));
-            allPermittedPages.addAll(permittedPagesForRole);
-        }
-
-        return allPermittedPages;
-    }
-
     private boolean passwordExpiringSoon(LoginUser loginInfo) {
         return loginInfo.getPasswordExpiredDayNo() <= Integer
                 .parseInt(ConfigurationProperties.getInstance().getPropertyValue("login.user.expired.reminder.day"))
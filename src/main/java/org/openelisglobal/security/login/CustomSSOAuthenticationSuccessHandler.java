@@ -24,6 +24,7 @@ import org.openelisglobal.login.valueholder.LoginUser;
 import org.openelisglobal.login.valueholder.UserSessionData;
 import org.openelisglobal.role.service.RoleService;
 import org.openelisglobal.role.valueholder.Role;
+import org.openelisglobal.systemmodule.service.ModulePermissionService;
 import org.openelisglobal.systemuser.service.SystemUserService;
 import org.openelisglobal.systemuser.valueholder.SystemUser;
 import org.openelisglobal.systemusermodule.service.PermissionModuleService;
@@ -53,6 +54,8 @@ public class CustomSSOAuthenticationSuccessHandler extends SavedRequestAwareAuth
     private SystemUserService systemUserService;
     @Autowired
     private RoleService roleService;
+    @Autowired
+    private ModulePermissionService modulePermissionService;
 
     @Value("${org.openelisglobal.timezone:}")
     private String timezone;
@@ -240,7 +243,7 @@ public class CustomSSOAuthenticationSuccessHandler extends SavedRequestAwareAuth
 
         // get permitted actions map (available modules for the current user)
         if (ConfigurationProperties.getInstance().getPropertyValue("permissions.agent").equalsIgnoreCase("ROLE")) {
-            Set<String> permittedPages = getPermittedForms(authorities);
+            Set<String> permittedPages = getPermittedForms(request, usd, authorities);
             request.getSession().setAttribute(IActionConstants.PERMITTED_ACTIONS_MAP, permittedPages);
             // showAdminMenu |= permittedPages.contains("MasterList");
         }
@@ -287,15 +290,14 @@ public class CustomSSOAuthenticationSuccessHandler extends SavedRequestAwareAuth
 
         // get permitted actions map (available modules for the current user)
         if (ConfigurationProperties.getInstance().getPropertyValue("permissions.agent").equalsIgnoreCase("ROLE")) {
-            Set<String> permittedPages = getPermittedForms(authorities);
+            Set<String> permittedPages = getPermittedForms(request, usd, authorities);
             request.getSession().setAttribute(IActionConstants.PERMITTED_ACTIONS_MAP, permittedPages);
             // showAdminMenu |= permittedPages.contains("MasterList");
         }
     }
 
-    private Set<String> getPermittedForms(Collection<? extends GrantedAuthority> authorities) {
-        Set<String> allPermittedPages = new HashSet<>();
-
+    private Set<String> getPermittedForms(HttpServletRequest request, UserSessionData usd,
+            Collection<? extends GrantedAuthority> authorities) {
         // List<String> roleIds =
         // userRoleService.getRoleIdsForUser(Integer.toString(systemUserId));
         List<String> roleIds = new ArrayList<>();
@@ -310,13 +312,7 @@ public class CustomSSOAuthenticationSuccessHandler extends SavedRequestAwareAuth
             }
         }
 
-        for (String roleId : roleIds) {
-            Set<String> permittedPagesForRole = permissionModuleService
-                    .getAllPermittedPagesFromAgentId(Integer.parseInt(roleId));
-            allPermittedPages.addAll(permittedPagesForRole);
-        }
-
-        return allPermittedPages;
+        return modulePermissionService.login(request, usd, roleIds);
     }
 
     private String getRoleForAuthority(String string) {
@@ -0,0 +1,98 @@
+package org.openelisglobal.systemmodule.service;
+
+import java.util.Arrays;
+import java.util.Objects;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.openelisglobal.login.valueholder.LoginUser;
+import org.openelisglobal.systemmodule.valueholder.SystemModule;
+import org.openelisglobal.systemmodule.valueholder.SystemModuleParam;
+import org.openelisglobal.systemmodule.valueholder.SystemModuleUrl;
+import org.openelisglobal.systemusermodule.valueholder.RoleModule;
+import org.openelisglobal.userrole.valueholder.UserRole;
+
+/**
+ * Has the permission snapshot read again once a change to a module, its urls,
+ * a role's modules, a user's roles or a login has committed. Of the changes to
+ * a login, such as a new password, only the name and the administrator flag
+ * count.
+ */
+class ModulePermissionEventListener
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ModulePermissionServiceImpl permissionService;
+    private final int loginName;
+    private final int loginIsAdmin;
+
+    ModulePermissionEventListener(ModulePermissionServiceImpl permissionService, EntityPersister loginPersister) {
+        this.permissionService = permissionService;
+        loginName = indexOf(loginPersister, "loginName");
+        loginIsAdmin = indexOf(loginPersister, "isAdmin");
+    }
+
+    private static int indexOf(EntityPersister persister, String propertyName) {
+        int index = Arrays.asList(persister.getPropertyNames()).indexOf(propertyName);
+        if (index < 0) {
+            throw new IllegalStateException(persister.getEntityName() + " has no property " + propertyName);
+        }
+        return index;
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return SystemModule.class.equals(type) || SystemModuleUrl.class.equals(type)
+                || SystemModuleParam.class.equals(type) || RoleModule.class.equals(type) || UserRole.class.equals(type)
+                || LoginUser.class.equals(type);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (requiresPostCommitHanding(event.getPersister())) {
+            permissionService.rebuildSoon();
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!requiresPostCommitHanding(event.getPersister())) {
+            return;
+        }
+        Object[] before = event.getOldState();
+        Object[] after = event.getState();
+        if (LoginUser.class.equals(event.getPersister().getMappedClass()) && before != null
+                && Objects.equals(before[loginName], after[loginName])
+                && Objects.equals(before[loginIsAdmin], after[loginIsAdmin])) {
+            return;
+        }
+        permissionService.rebuildSoon();
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (requiresPostCommitHanding(event.getPersister())) {
+            permissionService.rebuildSoon();
+        }
+    }
+
+    // the snapshot is left as it is, the change never happened
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+}
@@ -0,0 +1,27 @@
+package org.openelisglobal.systemmodule.service;
+
+import java.util.List;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import org.openelisglobal.login.valueholder.UserSessionData;
+
+public interface ModulePermissionService {
+
+    /**
+     * Works out the modules the user logging in may use and keeps them in the
+     * session.
+     *
+     * @param loginRoleIds the roles given by the identity provider, null to use
+     *                     the roles assigned to the user in OpenELIS
+     * @return the names of the modules the user may use
+     */
+    Set<String> login(HttpServletRequest request, UserSessionData usd, List<String> loginRoleIds);
+
+    /**
+     * @return the permissions of the user of the request, kept in the session at
+     *         login, without reading the database
+     */
+    UserModulePermissions getPermissions(HttpServletRequest request);
+
+    void rebuild();
+}
@@ -0,0 +1,169 @@
+package org.openelisglobal.systemmodule.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.openelisglobal.common.action.IActionConstants;
+import org.openelisglobal.common.log.LogEvent;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.login.service.LoginUserService;
+import org.openelisglobal.login.valueholder.LoginUser;
+import org.openelisglobal.login.valueholder.UserSessionData;
+import org.openelisglobal.rolemodule.service.RoleModuleService;
+import org.openelisglobal.userrole.service.UserRoleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Decides page permissions from a snapshot of the modules, their urls, the
+ * roles and the users read at startup, so a request is authorized without
+ * reading the database. The snapshot is read again after every committed
+ * change to any of them, and every reconcileMillis to take in changes made by
+ * other nodes or outside Hibernate. The permissions kept in each session are
+ * worked out again from the new snapshot on the session's next request.
+ */
+@Service
+@DependsOn({ "springContext" })
+public class ModulePermissionServiceImpl implements ModulePermissionService {
+
+    @Autowired
+    private SystemModuleUrlService systemModuleUrlService;
+    @Autowired
+    private RoleModuleService roleModuleService;
+    @Autowired
+    private UserRoleService userRoleService;
+    @Autowired
+    private LoginUserService loginUserService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier(AsyncConfig.DEFAULT_EXECUTOR)
+    private InstrumentedTaskExecutor asyncExecutor;
+
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private volatile ModulePermissionSnapshot snapshot;
+
+    @PostConstruct
+    public void start() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        ModulePermissionEventListener listener = new ModulePermissionEventListener(this,
+                sessionFactory.getMetamodel().entityPersister(LoginUser.class));
+        EventListenerRegistry listenerRegistry = sessionFactory.getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listenerRegistry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        listenerRegistry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        listenerRegistry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+        rebuild();
+    }
+
+    @Override
+    public Set<String> login(HttpServletRequest request, UserSessionData usd, List<String> loginRoleIds) {
+        UserModulePermissions permissions = snapshot().permissionsFor(usd.getSystemUserId(), usd.getLoginName(),
+                loginRoleIds);
+        request.getSession().setAttribute(IActionConstants.MODULE_PERMISSIONS, permissions);
+        return permissions.getModuleNames();
+    }
+
+    @Override
+    public UserModulePermissions getPermissions(HttpServletRequest request) {
+        ModulePermissionSnapshot current = snapshot();
+        HttpSession session = request.getSession();
+        Object kept = session.getAttribute(IActionConstants.MODULE_PERMISSIONS);
+        if (kept instanceof UserModulePermissions && ((UserModulePermissions) kept).isCurrent(current)) {
+            return (UserModulePermissions) kept;
+        }
+
+        UserSessionData usd = (UserSessionData) session.getAttribute(IActionConstants.USER_SESSION_DATA);
+        if (usd == null) {
+            usd = (UserSessionData) request.getAttribute(IActionConstants.USER_SESSION_DATA);
+        }
+        if (usd == null) {
+            // nobody is logged in, nothing is permitted
+            return current.permissionsFor(0, null, Collections.emptyList());
+        }
+        // a session from before the permissions were kept in it takes the roles
+        // assigned in OpenELIS
+        List<String> loginRoleIds = kept instanceof UserModulePermissions
+                ? ((UserModulePermissions) kept).getLoginRoleIds()
+                : null;
+        UserModulePermissions permissions = current.permissionsFor(usd.getSystemUserId(), usd.getLoginName(),
+                loginRoleIds);
+        session.setAttribute(IActionConstants.MODULE_PERMISSIONS, permissions);
+        if (session.getAttribute(IActionConstants.PERMITTED_ACTIONS_MAP) != null) {
+            session.setAttribute(IActionConstants.PERMITTED_ACTIONS_MAP, permissions.getModuleNames());
+        }
+        return permissions;
+    }
+
+    private ModulePermissionSnapshot snapshot() {
+        ModulePermissionSnapshot current = snapshot;
+        if (current == null) {
+            // only the first read waits, on the first build
+            synchronized (rebuildLock) {
+                current = snapshot;
+                if (current == null) {
+                    current = rebuildSnapshot();
+                }
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${org.openelisglobal.permissions.reconcileMillis:300000}",
+            fixedDelayString = "${org.openelisglobal.permissions.reconcileMillis:300000}")
+    public void reconcile() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            LogEvent.logError("error reading the module permissions", e);
+        }
+    }
+
+    /*
+     * a rebuild that has not started yet reads every change committed before it
+     * does, so one queued rebuild is enough
+     */
+    void rebuildSoon() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            asyncExecutor.execute(() -> {
+                rebuildQueued.set(false);
+                reconcile();
+            });
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            rebuildSnapshot();
+        }
+    }
+
+    // in a transaction of its own, after a commit the finished one is still bound
+    private ModulePermissionSnapshot rebuildSnapshot() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        snapshot = transactionTemplate.execute(status -> ModulePermissionSnapshot.build(systemModuleUrlService.getAll(),
+                roleModuleService.getAll(), userRoleService.getAll(), loginUserService.getAll()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,233 @@
+package org.openelisglobal.systemmodule.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.servlet.http.HttpServletRequest;
+import org.openelisglobal.common.action.IActionConstants;
+import org.openelisglobal.login.valueholder.LoginUser;
+import org.openelisglobal.systemmodule.service.UserModulePermissions.Access;
+import org.openelisglobal.systemmodule.valueholder.SystemModuleParam;
+import org.openelisglobal.systemmodule.valueholder.SystemModuleUrl;
+import org.openelisglobal.systemusermodule.valueholder.RoleModule;
+import org.openelisglobal.userrole.valueholder.UserRole;
+
+/**
+ * Everything a page permission is decided on, read from the database at once
+ * and never changed after: the modules each url belongs to, compiled into a
+ * tree of the url characters, the modules of each role as a bit set, the roles
+ * of each user and the logins that are administrators.
+ *
+ * <p>A request is matched by walking the tree along its path and testing the
+ * user's bits, which needs neither the database nor any allocation.
+ */
+final class ModulePermissionSnapshot {
+
+    private final String[] moduleNames;
+    private final UrlNode urls;
+    private final Map<String, long[]> modulesByRole;
+    private final Map<Integer, List<String>> rolesByUser;
+    private final Set<String> adminLoginNames;
+
+    private ModulePermissionSnapshot(String[] moduleNames, UrlNode urls, Map<String, long[]> modulesByRole,
+            Map<Integer, List<String>> rolesByUser, Set<String> adminLoginNames) {
+        this.moduleNames = moduleNames;
+        this.urls = urls;
+        this.modulesByRole = modulesByRole;
+        this.rolesByUser = rolesByUser;
+        this.adminLoginNames = adminLoginNames;
+    }
+
+    static ModulePermissionSnapshot build(Collection<SystemModuleUrl> moduleUrls, Collection<RoleModule> roleModules,
+            Collection<UserRole> userRoles, Collection<LoginUser> logins) {
+        // a page is permitted by module name, so each name gets one bit
+        Map<String, Integer> moduleIndexes = new HashMap<>();
+        List<String> moduleNames = new ArrayList<>();
+        for (SystemModuleUrl moduleUrl : moduleUrls) {
+            indexOf(moduleUrl.getSystemModule().getSystemModuleName(), moduleIndexes, moduleNames);
+        }
+        for (RoleModule roleModule : roleModules) {
+            indexOf(roleModule.getSystemModule().getSystemModuleName(), moduleIndexes, moduleNames);
+        }
+
+        UrlNode.Builder urls = new UrlNode.Builder();
+        for (SystemModuleUrl moduleUrl : moduleUrls) {
+            SystemModuleParam param = moduleUrl.getParam();
+            urls.add(moduleUrl.getUrlPath(), moduleIndexes.get(moduleUrl.getSystemModule().getSystemModuleName()),
+                    param == null ? null : param.getName(), param == null ? null : param.getValue());
+        }
+
+        int words = (moduleNames.size() + 63) / 64;
+        Map<String, long[]> modulesByRole = new HashMap<>();
+        for (RoleModule roleModule : roleModules) {
+            long[] modules = modulesByRole.computeIfAbsent(roleModule.getRole().getId(), id -> new long[words]);
+            set(modules, moduleIndexes.get(roleModule.getSystemModule().getSystemModuleName()));
+        }
+
+        Map<Integer, List<String>> rolesByUser = new HashMap<>();
+        for (UserRole userRole : userRoles) {
+            rolesByUser.computeIfAbsent(Integer.valueOf(userRole.getSystemUserId()), id -> new ArrayList<>())
+                    .add(userRole.getRoleId());
+        }
+
+        Set<String> adminLoginNames = new HashSet<>();
+        for (LoginUser login : logins) {
+            if (IActionConstants.YES.equalsIgnoreCase(login.getIsAdmin())) {
+                adminLoginNames.add(login.getLoginName());
+            }
+        }
+
+        return new ModulePermissionSnapshot(moduleNames.toArray(new String[0]), urls.build(), modulesByRole,
+                rolesByUser, adminLoginNames);
+    }
+
+    private static int indexOf(String moduleName, Map<String, Integer> moduleIndexes, List<String> moduleNames) {
+        return moduleIndexes.computeIfAbsent(moduleName, name -> {
+            moduleNames.add(name);
+            return moduleNames.size() - 1;
+        });
+    }
+
+    private static void set(long[] modules, int index) {
+        modules[index >>> 6] |= 1L << index;
+    }
+
+    private static boolean isSet(long[] modules, int index) {
+        return (modules[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param loginRoleIds the roles given by the identity provider at login, null
+     *                     for the roles assigned to the user in OpenELIS
+     */
+    UserModulePermissions permissionsFor(int systemUserId, String loginName, List<String> loginRoleIds) {
+        Collection<String> roleIds = loginRoleIds != null ? loginRoleIds
+                : rolesByUser.getOrDefault(systemUserId, Collections.emptyList());
+        long[] modules = new long[(moduleNames.length + 63) / 64];
+        for (String roleId : roleIds) {
+            long[] roleModules = modulesByRole.get(roleId);
+            if (roleModules != null) {
+                for (int i = 0; i < modules.length; i++) {
+                    modules[i] |= roleModules[i];
+                }
+            }
+        }
+        return new UserModulePermissions(this, modules, adminLoginNames.contains(loginName), loginRoleIds);
+    }
+
+    Set<String> getModuleNames(long[] modules) {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < moduleNames.length; i++) {
+            if (isSet(modules, i)) {
+                names.add(moduleNames[i]);
+            }
+        }
+        return names;
+    }
+
+    /*
+     * the path is the request uri after the context path, without the query and,
+     * for .do and .html pages, without the suffix
+     */
+    Access getAccess(HttpServletRequest request, long[] modules) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length();
+        int end = uri.indexOf('?', start);
+        if (end < 0) {
+            end = uri.length();
+        }
+        if (contains(uri, ".do", start, end) || contains(uri, ".html", start, end)) {
+            end = uri.lastIndexOf('.', end - 1);
+        }
+
+        UrlNode node = urls.find(uri, start, end);
+        if (node == null || node.modules.length == 0) {
+            return Access.NO_MODULE;
+        }
+        boolean anyModule = false;
+        for (int i = 0; i < node.modules.length; i++) {
+            if (node.paramNames[i] != null && !node.paramValues[i].equals(request.getParameter(node.paramNames[i]))) {
+                continue;
+            }
+            anyModule = true;
+            if (isSet(modules, node.modules[i])) {
+                return Access.PERMITTED;
+            }
+        }
+        return anyModule ? Access.DENIED : Access.NO_MODULE;
+    }
+
+    private static boolean contains(String uri, String part, int start, int end) {
+        int index = uri.indexOf(part, start);
+        return index >= 0 && index + part.length() <= end;
+    }
+
+    /*
+     * one node for each character of the paths, the children sorted by character
+     * and the modules of the path ending at the node in parallel arrays
+     */
+    private static final class UrlNode {
+
+        private static final UrlNode[] NO_CHILDREN = new UrlNode[0];
+
+        private final char[] characters;
+        private final UrlNode[] children;
+        private final int[] modules;
+        private final String[] paramNames;
+        private final String[] paramValues;
+
+        private UrlNode(char[] characters, UrlNode[] children, int[] modules, String[] paramNames,
+                String[] paramValues) {
+            this.characters = characters;
+            this.children = children;
+            this.modules = modules;
+            this.paramNames = paramNames;
+            this.paramValues = paramValues;
+        }
+
+        UrlNode find(String path, int start, int end) {
+            UrlNode node = this;
+            for (int i = start; i < end && node != null; i++) {
+                int child = Arrays.binarySearch(node.characters, path.charAt(i));
+                node = child < 0 ? null : node.children[child];
+            }
+            return node;
+        }
+
+        private static final class Builder {
+            private final TreeMap<Character, Builder> children = new TreeMap<>();
+            private final List<Integer> modules = new ArrayList<>();
+            private final List<String> paramNames = new ArrayList<>();
+            private final List<String> paramValues = new ArrayList<>();
+
+            void add(String path, int module, String paramName, String paramValue) {
+                Builder node = this;
+                for (int i = 0; i < path.length(); i++) {
+                    node = node.children.computeIfAbsent(path.charAt(i), c -> new Builder());
+                }
+                node.modules.add(module);
+                node.paramNames.add(paramName);
+                node.paramValues.add(paramValue);
+            }
+
+            UrlNode build() {
+                char[] characters = new char[children.size()];
+                UrlNode[] builtChildren = children.isEmpty() ? NO_CHILDREN : new UrlNode[children.size()];
+                int i = 0;
+                for (Map.Entry<Character, Builder> child : children.entrySet()) {
+                    characters[i] = child.getKey();
+                    builtChildren[i++] = child.getValue().build();
+                }
+                return new UrlNode(characters, builtChildren, modules.stream().mapToInt(Integer::intValue).toArray(),
+                        paramNames.toArray(new String[0]), paramValues.toArray(new String[0]));
+            }
+        }
+    }
+}
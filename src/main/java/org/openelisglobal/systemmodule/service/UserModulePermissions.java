@@ -0,0 +1,60 @@
+package org.openelisglobal.systemmodule.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The modules a logged in user may use, kept in their session. It is worked out
+ * again from the user's roles when the roles, the modules or their urls change,
+ * and when the session is read back after a restart.
+ */
+public final class UserModulePermissions implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Access {
+        PERMITTED, DENIED,
+        // no module is assigned to the page
+        NO_MODULE
+    }
+
+    private final transient ModulePermissionSnapshot snapshot;
+    private final transient long[] modules;
+    private final transient boolean admin;
+    private final ArrayList<String> loginRoleIds;
+
+    UserModulePermissions(ModulePermissionSnapshot snapshot, long[] modules, boolean admin,
+            List<String> loginRoleIds) {
+        this.snapshot = snapshot;
+        this.modules = modules;
+        this.admin = admin;
+        this.loginRoleIds = loginRoleIds == null ? null : new ArrayList<>(loginRoleIds);
+    }
+
+    public Access getAccess(HttpServletRequest request) {
+        return snapshot.getAccess(request, modules);
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    public Set<String> getModuleNames() {
+        return snapshot.getModuleNames(modules);
+    }
+
+    boolean isCurrent(ModulePermissionSnapshot current) {
+        return snapshot == current;
+    }
+
+    /**
+     * @return the roles given by the identity provider at login, null when the
+     *         roles are those assigned to the user in OpenELIS
+     */
+    List<String> getLoginRoleIds() {
+        return loginRoleIds;
+    }
+}
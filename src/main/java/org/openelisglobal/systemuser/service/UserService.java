@@ -37,6 +37,8 @@ public interface UserService {
     List<TestResultItem> filterResultsByLabUnitRoles(String SystemUserId, List<TestResultItem> results,
             String roleName);
 
+    Set<String> getUserTestIdsByLabUnitRoles(String systemUserId, String roleName);
+
     List<IdValuePair> getUserPrograms(String systemUserId, String userRole);
 
     List<IdValuePair> getUserSampleTypes(String systemUserId, String roleName, String testSectionName);
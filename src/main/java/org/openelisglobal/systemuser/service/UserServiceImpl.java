@@ -297,10 +297,8 @@ public class UserServiceImpl implements UserService {
 
         List<Test> allTests = testService.getTestsByTestSectionIds(testUnitIds);
         Set<String> sampleIds = new HashSet<>();
-        // clear cache to create a fresh Map of testId To TypeOfSample
         List<IdValuePair> userSampleTypes = new ArrayList<>();
         if (allTests != null) {
-            typeOfSampleService.clearCache();
             allTests.forEach(test -> {
                 List<TypeOfSample> sampleTypes = typeOfSampleService.getTypeOfSampleForTest(test.getId());
                 if (sampleTypes != null) {
@@ -341,7 +339,6 @@ public class UserServiceImpl implements UserService {
 
         List<IdValuePair> userSampleTypes = new ArrayList<>();
         if (allTests != null) {
-            typeOfSampleService.clearCache();
             allTests.forEach(test -> sampleIds.addAll(typeOfSampleService.getTypeOfSampleForTest(test.getId()).stream()
                     .map(e -> e.getId()).collect(Collectors.toList())));
         }
@@ -375,6 +372,12 @@ public class UserServiceImpl implements UserService {
     @Override
     public List<TestResultItem> filterResultsByLabUnitRoles(String systemUserId, List<TestResultItem> results,
             String roleName) {
+        Set<String> allTestsIds = getUserTestIdsByLabUnitRoles(systemUserId, roleName);
+        return results.stream().filter(result -> allTestsIds.contains(result.getTestId())).collect(Collectors.toList());
+    }
+
+    @Override
+    public Set<String> getUserTestIdsByLabUnitRoles(String systemUserId, String roleName) {
         String resultsRoleId = roleService.getRoleByName(roleName).getId();
         List<IdValuePair> testSections = getUserTestSections(systemUserId, resultsRoleId);
         List<Integer> testUnitIds = new ArrayList<>();
@@ -383,9 +386,9 @@ public class UserServiceImpl implements UserService {
         }
 
         List<Test> allTests = testService.getTestsByTestSectionIds(testUnitIds);
-        List<String> allTestsIds = new ArrayList<>();
+        Set<String> allTestsIds = new HashSet<>();
         allTests.forEach(test -> allTestsIds.add(test.getId()));
-        return results.stream().filter(result -> allTestsIds.contains(result.getTestId())).collect(Collectors.toList());
+        return allTestsIds;
     }
 
     @Override
@@ -9,6 +9,7 @@ import org.openelisglobal.systemmodule.service.SystemModuleService;
 import org.openelisglobal.systemmodule.valueholder.SystemModule;
 import org.openelisglobal.systemusermodule.valueholder.RoleModule;
 import org.openelisglobal.typeofsample.service.TypeOfSamplePanelService;
+import org.openelisglobal.typeofsample.service.TypeOfSampleService;
 import org.openelisglobal.typeofsample.valueholder.TypeOfSamplePanel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -27,6 +28,8 @@ public class PanelCreateServiceImpl implements PanelCreateService {
     private TypeOfSamplePanelService typeOfSamplePanelService;
     @Autowired
     private LocalizationService localizationService;
+    @Autowired
+    private TypeOfSampleService typeOfSampleService;
 
     @Override
     @Transactional
@@ -39,6 +42,7 @@ public class PanelCreateServiceImpl implements PanelCreateService {
 
         TypeOfSamplePanel typeOfSamplePanel = createTypeOfSamplePanel(sampleTypeId, panel, systemUserId);
         typeOfSamplePanelService.insert(typeOfSamplePanel);
+        typeOfSampleService.clearCache();
 
         systemModuleService.insert(workplanModule);
         systemModuleService.insert(resultModule);
@@ -43,5 +43,6 @@ public class SampleTypeTestAssignServiceImpl implements SampleTypeTestAssignServ
         if (deActivateTypeOfSample != null) {
             typeOfSampleService.update(deActivateTypeOfSample);
         }
+        typeOfSampleService.clearCache();
     }
 }
@@ -1,46 +1,47 @@
 package org.openelisglobal.typeofsample.service;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
-import javax.annotation.PostConstruct;
 import org.hibernate.Hibernate;
 import org.openelisglobal.common.exception.LIMSDuplicateRecordException;
+import org.openelisglobal.common.log.LogEvent;
 import org.openelisglobal.common.service.AuditableBaseObjectServiceImpl;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
 import org.openelisglobal.localization.valueholder.Localization;
 import org.openelisglobal.panel.service.PanelService;
-import org.openelisglobal.panel.valueholder.Panel;
 import org.openelisglobal.test.service.TestService;
 import org.openelisglobal.test.valueholder.Test;
 import org.openelisglobal.test.valueholder.TestComparator;
 import org.openelisglobal.typeofsample.dao.TypeOfSampleDAO;
 import org.openelisglobal.typeofsample.dao.TypeOfSampleDAO.SampleDomain;
 import org.openelisglobal.typeofsample.valueholder.TypeOfSample;
-import org.openelisglobal.typeofsample.valueholder.TypeOfSamplePanel;
 import org.openelisglobal.typeofsample.valueholder.TypeOfSampleTest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @DependsOn({ "springContext" })
 public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<TypeOfSample, String>
         implements TypeOfSampleService {
 
-    private Map<String, List<Test>> sampleIdTestMap = new HashMap<>();
-    private Map<String, String> typeOfSampleIdToNameMap;
-    private Map<String, String> typeOfSampleWellKnownNameToIdMap;
-    private Map<String, List<TypeOfSample>> testIdToTypeOfSampleMap = null;
-    private Map<String, List<TypeOfSample>> panelIdToTypeOfSampleMap = null;
-    // The purpose of this map is to make sure all the references refer to the same
-    // instances of the TypeOfSample objects
-    // Without this comparisons may fail
-    private Map<String, TypeOfSample> typeOfSampleIdtoTypeOfSampleMap = null;
+    // read without locking, replaced whole when the sample types, their tests or
+    // panels change
+    private volatile TypeOfSampleSnapshot snapshot;
+    private final Object snapshotLock = new Object();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
 
     @Autowired
     protected TypeOfSampleDAO baseObjectDAO;
@@ -53,13 +54,11 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
     private TypeOfSampleTestService typeOfSampleTestService;
     @Autowired
     private PanelService panelService;
-
-    @PostConstruct
-    private synchronized void initializeGlobalVariables() {
-        if (typeOfSampleIdtoTypeOfSampleMap == null) {
-            createTypeOfSampleIdentityMap();
-        }
-    }
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier(AsyncConfig.DEFAULT_EXECUTOR)
+    private InstrumentedTaskExecutor asyncExecutor;
 
     TypeOfSampleServiceImpl() {
         super(TypeOfSample.class);
@@ -77,25 +76,12 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public synchronized List<Test> getActiveTestsBySampleTypeId(String sampleTypeId, boolean orderableOnly) {
-
-        List<Test> testList = sampleIdTestMap.get(sampleTypeId);
-
-        if (testList == null) {
-            testList = createSampleIdTestMap(sampleTypeId);
-        }
-
-        if (orderableOnly) {
-            return filterByOrderable(testList);
-        } else {
-            return testList;
-        }
+    public List<Test> getActiveTestsBySampleTypeId(String sampleTypeId, boolean orderableOnly) {
+        return snapshot().getActiveTests(sampleTypeId, orderableOnly);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public synchronized List<Test> getActiveTestsBySampleTypeIdAndTestUnit(String sampleType, boolean b,
+    public List<Test> getActiveTestsBySampleTypeIdAndTestUnit(String sampleType, boolean b,
             List<String> testUnitIds) {
         List<Test> testList = getActiveTestsBySampleTypeId(sampleType, b);
         return testList.stream().filter(test -> testUnitIds.contains(test.getTestSection().getId()))
@@ -123,139 +109,105 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
         return baseObjectDAO.getTypeOfSampleById(id);
     }
 
-    private List<Test> filterByOrderable(List<Test> testList) {
-        List<Test> filteredList = new ArrayList<>();
-
-        for (Test test : testList) {
-            if (test.getOrderable()) {
-                filteredList.add(test);
-            }
-        }
-
-        return filteredList;
+    @Override
+    public List<TypeOfSample> getTypeOfSampleForTest(String testId) {
+        return snapshot().getTypeOfSamplesForTest(testId);
     }
 
+    /**
+     * The lists of tests for each type of sample are rebuilt in the background when
+     * the sample types or their tests change, once the change has committed. Until
+     * then the lists from before the change are returned.
+     */
     @Override
-    @Transactional(readOnly = true)
-    public synchronized List<TypeOfSample> getTypeOfSampleForTest(String testId) {
-        if (testIdToTypeOfSampleMap == null) {
-            createTestIdToTypeOfSampleMap();
+    public void clearCache() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            queueRebuild();
+            return;
         }
-
-        return testIdToTypeOfSampleMap.get(testId);
-    }
-
-    private synchronized void createTestIdToTypeOfSampleMap() {
-        testIdToTypeOfSampleMap = new HashMap<>();
-
-        List<TypeOfSampleTest> typeOfSampleTestList = typeOfSampleTestService.getAllTypeOfSampleTests();
-
-        for (TypeOfSampleTest typeTest : typeOfSampleTestList) {
-            String testId = typeTest.getTestId();
-            TypeOfSample typeOfSample = typeOfSampleIdtoTypeOfSampleMap
-                    .get(baseObjectDAO.getTypeOfSampleById(typeTest.getTypeOfSampleId()).getId());
-            if (testIdToTypeOfSampleMap.containsKey(testId)) {
-                testIdToTypeOfSampleMap.get(testId).add(typeOfSample);
-            } else {
-                testIdToTypeOfSampleMap.put(testId, new ArrayList<>(Arrays.asList(typeOfSample)));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof RebuildSnapshot) {
+                return;
             }
         }
+        TransactionSynchronizationManager.registerSynchronization(new RebuildSnapshot());
     }
 
-    private synchronized List<Test> createSampleIdTestMap(String sampleTypeId) {
-        List<Test> testList;
-        List<TypeOfSampleTest> tests = typeOfSampleTestService.getTypeOfSampleTestsForSampleType(sampleTypeId);
-
-        testList = new ArrayList<>();
-
-        for (TypeOfSampleTest link : tests) {
-            Test test = testService.getActiveTestById(Integer.valueOf(link.getTestId()));
-            if (test != null) {
-                testList.add(test);
-            }
+    private class RebuildSnapshot implements TransactionSynchronization {
+        @Override
+        public void afterCommit() {
+            queueRebuild();
         }
-
-        Collections.sort(testList, TestComparator.NAME_COMPARATOR);
-
-        sampleIdTestMap.put(sampleTypeId, testList);
-        return testList;
     }
 
     /**
-     * This class keeps lists of tests for each type of sample. If the DB of tests
-     * changes, we need to invalidate such lists.
+     * Reads the lists again every reconcileMillis to take in changes made by other
+     * nodes or outside Hibernate, which do not clear the cache.
      */
-    @Override
-    public synchronized void clearCache() {
-        sampleIdTestMap.clear();
-        createTypeOfSampleIdentityMap();
-        typeOfSampleIdToNameMap = null;
-        typeOfSampleWellKnownNameToIdMap = null;
-        testIdToTypeOfSampleMap = null;
+    @Scheduled(initialDelayString = "${org.openelisglobal.typeOfSample.reconcileMillis:300000}",
+            fixedDelayString = "${org.openelisglobal.typeOfSample.reconcileMillis:300000}")
+    public void reconcile() {
+        try {
+            rebuildSnapshot();
+        } catch (RuntimeException e) {
+            LogEvent.logError("error reading the tests for each type of sample", e);
+        }
     }
 
-    private synchronized void createTypeOfSampleIdentityMap() {
-        typeOfSampleIdtoTypeOfSampleMap = new HashMap<>();
-
-        List<TypeOfSample> typeOfSampleList = baseObjectDAO.getAllTypeOfSamples();
-
-        for (TypeOfSample typeOfSample : typeOfSampleList) {
-            typeOfSampleIdtoTypeOfSampleMap.put(typeOfSample.getId(), typeOfSample);
+    /*
+     * a rebuild that has not started yet reads every change made before it does,
+     * so one queued rebuild is enough
+     */
+    private void queueRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            asyncExecutor.execute(() -> {
+                rebuildQueued.set(false);
+                reconcile();
+            });
         }
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public synchronized String getTypeOfSampleNameForId(String id) {
-        if (typeOfSampleIdToNameMap == null) {
-            createSampleNameIDMaps();
+    private TypeOfSampleSnapshot snapshot() {
+        TypeOfSampleSnapshot current = snapshot;
+        if (current == null) {
+            // only the first read waits, on the first build
+            synchronized (snapshotLock) {
+                current = snapshot;
+                if (current == null) {
+                    current = rebuildSnapshot();
+                }
+            }
+        }
+        return current;
+    }
+
+    // in a transaction of its own, after a commit the finished one is still bound
+    TypeOfSampleSnapshot rebuildSnapshot() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        synchronized (snapshotLock) {
+            snapshot = transactionTemplate.execute(status -> TypeOfSampleSnapshot.build(
+                    baseObjectDAO.getAllTypeOfSamples(), typeOfSampleTestService.getAllTypeOfSampleTests(),
+                    testService.getAllActiveTests(false), panelService.getAllActivePanels(),
+                    typeOfSamplePanelService.getAll(), TestComparator.NAME_COMPARATOR));
+            return snapshot;
         }
-
-        return typeOfSampleIdToNameMap.get(id);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public synchronized String getTypeOfSampleIdForLocalAbbreviation(String name) {
-        if (typeOfSampleWellKnownNameToIdMap == null) {
-            createSampleNameIDMaps();
-        }
-
-        return typeOfSampleWellKnownNameToIdMap.get(name);
+    public String getTypeOfSampleNameForId(String id) {
+        return snapshot().getName(id);
     }
 
-    private synchronized void createSampleNameIDMaps() {
-        typeOfSampleIdToNameMap = new HashMap<>();
-        typeOfSampleWellKnownNameToIdMap = new HashMap<>();
-
-        List<TypeOfSample> allTypes = baseObjectDAO.getAllTypeOfSamples();
-        for (TypeOfSample typeOfSample : allTypes) {
-            typeOfSampleIdToNameMap.put(typeOfSample.getId(), typeOfSample.getLocalizedName());
-            typeOfSampleWellKnownNameToIdMap.put(typeOfSample.getLocalAbbreviation(), typeOfSample.getId());
-        }
+    @Override
+    public String getTypeOfSampleIdForLocalAbbreviation(String name) {
+        return snapshot().getIdForLocalAbbreviation(name);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public synchronized List<TypeOfSample> getTypeOfSampleForPanelId(String id) {
-        if (panelIdToTypeOfSampleMap == null) {
-            panelIdToTypeOfSampleMap = new HashMap<>();
-
-            List<Panel> panels = panelService.getAllActivePanels();
-
-            for (Panel panel : panels) {
-                List<TypeOfSamplePanel> typeOfSamplePanels = typeOfSamplePanelService
-                        .getTypeOfSamplePanelsForPanel(panel.getId());
-                List<TypeOfSample> typeOfSampleList = new ArrayList<>();
-                for (TypeOfSamplePanel typeOfSamplePanel : typeOfSamplePanels) {
-                    typeOfSampleList.add(typeOfSampleIdtoTypeOfSampleMap
-                            .get(baseObjectDAO.getTypeOfSampleById(typeOfSamplePanel.getTypeOfSampleId()).getId()));
-                }
-                panelIdToTypeOfSampleMap.put(panel.getId(), typeOfSampleList);
-            }
-        }
-
-        return panelIdToTypeOfSampleMap.get(id);
+    public List<TypeOfSample> getTypeOfSampleForPanelId(String id) {
+        return snapshot().getTypeOfSamplesForPanel(id);
     }
 
     @Override
@@ -335,6 +287,7 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
     public void delete(TypeOfSample typeOfSample) {
         super.delete(typeOfSample);
         getBaseObjectDAO().clearMap();
+        clearCache();
     }
 
     @Override
@@ -344,6 +297,7 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + typeOfSample.getDescription());
         }
         baseObjectDAO.clearMap();
+        clearCache();
         return super.insert(typeOfSample);
     }
 
@@ -354,6 +308,7 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + typeOfSample.getDescription());
         }
         baseObjectDAO.clearMap();
+        clearCache();
         return super.save(typeOfSample);
     }
 
@@ -364,6 +319,7 @@ public class TypeOfSampleServiceImpl extends AuditableBaseObjectServiceImpl<Type
             throw new LIMSDuplicateRecordException("Duplicate record exists for " + typeOfSample.getDescription());
         }
         baseObjectDAO.clearMap();
+        clearCache();
         return super.update(typeOfSample);
     }
 
@@ -0,0 +1,134 @@
+package org.openelisglobal.typeofsample.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.openelisglobal.panel.valueholder.Panel;
+import org.openelisglobal.test.valueholder.Test;
+import org.openelisglobal.typeofsample.valueholder.TypeOfSample;
+import org.openelisglobal.typeofsample.valueholder.TypeOfSamplePanel;
+import org.openelisglobal.typeofsample.valueholder.TypeOfSampleTest;
+
+/**
+ * The sample types with their tests and panels as they were when it was built.
+ * It is never changed once built so it can be read by any number of threads
+ * without locking, a change builds a new one.
+ *
+ * <p>Every list refers to the same TypeOfSample instances, so they can be
+ * compared with each other.
+ */
+final class TypeOfSampleSnapshot {
+
+    private final Map<String, List<Test>> activeTestsBySampleTypeId;
+    private final Map<String, List<Test>> orderableTestsBySampleTypeId;
+    private final Map<String, List<TypeOfSample>> typeOfSamplesByTestId;
+    private final Map<String, List<TypeOfSample>> typeOfSamplesByPanelId;
+    private final Map<String, String> nameById;
+    private final Map<String, String> idByLocalAbbreviation;
+
+    private TypeOfSampleSnapshot(Map<String, List<Test>> activeTestsBySampleTypeId,
+            Map<String, List<Test>> orderableTestsBySampleTypeId, Map<String, List<TypeOfSample>> typeOfSamplesByTestId,
+            Map<String, List<TypeOfSample>> typeOfSamplesByPanelId, Map<String, String> nameById,
+            Map<String, String> idByLocalAbbreviation) {
+        this.activeTestsBySampleTypeId = activeTestsBySampleTypeId;
+        this.orderableTestsBySampleTypeId = orderableTestsBySampleTypeId;
+        this.typeOfSamplesByTestId = typeOfSamplesByTestId;
+        this.typeOfSamplesByPanelId = typeOfSamplesByPanelId;
+        this.nameById = nameById;
+        this.idByLocalAbbreviation = idByLocalAbbreviation;
+    }
+
+    /**
+     * @param testOrder the order of the tests for each sample type
+     */
+    static TypeOfSampleSnapshot build(Collection<TypeOfSample> typeOfSamples,
+            Collection<TypeOfSampleTest> typeOfSampleTests, Collection<Test> activeTests,
+            Collection<Panel> activePanels, Collection<TypeOfSamplePanel> typeOfSamplePanels,
+            Comparator<Test> testOrder) {
+        Map<String, TypeOfSample> typeOfSampleById = new HashMap<>();
+        Map<String, String> nameById = new HashMap<>();
+        Map<String, String> idByLocalAbbreviation = new HashMap<>();
+        for (TypeOfSample typeOfSample : typeOfSamples) {
+            typeOfSampleById.put(typeOfSample.getId(), typeOfSample);
+            nameById.put(typeOfSample.getId(), typeOfSample.getLocalizedName());
+            idByLocalAbbreviation.put(typeOfSample.getLocalAbbreviation(), typeOfSample.getId());
+        }
+        Map<String, Test> activeTestById = new HashMap<>();
+        for (Test test : activeTests) {
+            activeTestById.put(test.getId(), test);
+        }
+
+        Map<String, List<Test>> activeTestsBySampleTypeId = new HashMap<>();
+        Map<String, List<TypeOfSample>> typeOfSamplesByTestId = new HashMap<>();
+        for (TypeOfSampleTest link : typeOfSampleTests) {
+            Test test = activeTestById.get(link.getTestId());
+            if (test != null) {
+                activeTestsBySampleTypeId.computeIfAbsent(link.getTypeOfSampleId(), id -> new ArrayList<>()).add(test);
+            }
+            TypeOfSample typeOfSample = typeOfSampleById.get(link.getTypeOfSampleId());
+            if (typeOfSample != null) {
+                typeOfSamplesByTestId.computeIfAbsent(link.getTestId(), id -> new ArrayList<>()).add(typeOfSample);
+            }
+        }
+        Map<String, List<Test>> orderableTestsBySampleTypeId = new HashMap<>();
+        activeTestsBySampleTypeId.forEach((sampleTypeId, tests) -> {
+            tests.sort(testOrder);
+            orderableTestsBySampleTypeId.put(sampleTypeId, Collections.unmodifiableList(
+                    tests.stream().filter(Test::getOrderable).collect(Collectors.toList())));
+        });
+        activeTestsBySampleTypeId.replaceAll((sampleTypeId, tests) -> Collections.unmodifiableList(tests));
+        typeOfSamplesByTestId.replaceAll((testId, types) -> Collections.unmodifiableList(types));
+
+        Set<String> activePanelIds = new HashSet<>();
+        Map<String, List<TypeOfSample>> typeOfSamplesByPanelId = new HashMap<>();
+        for (Panel panel : activePanels) {
+            activePanelIds.add(panel.getId());
+            typeOfSamplesByPanelId.put(panel.getId(), new ArrayList<>());
+        }
+        for (TypeOfSamplePanel link : typeOfSamplePanels) {
+            TypeOfSample typeOfSample = typeOfSampleById.get(link.getTypeOfSampleId());
+            if (activePanelIds.contains(link.getPanelId()) && typeOfSample != null) {
+                typeOfSamplesByPanelId.get(link.getPanelId()).add(typeOfSample);
+            }
+        }
+        typeOfSamplesByPanelId.replaceAll((panelId, types) -> Collections.unmodifiableList(types));
+
+        return new TypeOfSampleSnapshot(activeTestsBySampleTypeId, orderableTestsBySampleTypeId,
+                typeOfSamplesByTestId, typeOfSamplesByPanelId, nameById, idByLocalAbbreviation);
+    }
+
+    List<Test> getActiveTests(String sampleTypeId, boolean orderableOnly) {
+        List<Test> tests = (orderableOnly ? orderableTestsBySampleTypeId : activeTestsBySampleTypeId)
+                .get(sampleTypeId);
+        return tests == null ? Collections.emptyList() : tests;
+    }
+
+    /**
+     * @return null when the test is not linked to any sample type
+     */
+    List<TypeOfSample> getTypeOfSamplesForTest(String testId) {
+        return typeOfSamplesByTestId.get(testId);
+    }
+
+    /**
+     * @return null when the panel is not active
+     */
+    List<TypeOfSample> getTypeOfSamplesForPanel(String panelId) {
+        return typeOfSamplesByPanelId.get(panelId);
+    }
+
+    String getName(String typeOfSampleId) {
+        return nameById.get(typeOfSampleId);
+    }
+
+    String getIdForLocalAbbreviation(String localAbbreviation) {
+        return idByLocalAbbreviation.get(localAbbreviation);
+    }
+}
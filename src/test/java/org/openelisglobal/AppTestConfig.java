@@ -8,6 +8,9 @@ import java.util.List;
 import lombok.NonNull;
 import org.openelisglobal.audittrail.dao.AuditTrailService;
 import org.openelisglobal.common.util.Versioning;
+import org.openelisglobal.config.AsyncConfig;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.config.InstrumentedTaskExecutor.OverflowPolicy;
 import org.openelisglobal.dataexchange.fhir.service.FhirPersistanceService;
 import org.openelisglobal.externalconnections.service.BasicAuthenticationDataService;
 import org.openelisglobal.externalconnections.service.ExternalConnectionService;
@@ -15,6 +18,7 @@ import org.openelisglobal.internationalization.MessageUtil;
 import org.openelisglobal.localization.dao.LocalizationDAO;
 import org.openelisglobal.localization.service.LocalizationServiceImpl;
 import org.openelisglobal.siteinformation.service.SiteInformationService;
+import org.openelisglobal.systemmodule.service.ModulePermissionService;
 import org.openelisglobal.test.dao.TestDAO;
 import org.openelisglobal.test.service.TestServiceImpl;
 import org.openelisglobal.testresult.service.TestResultService;
@@ -51,7 +55,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
         "org.openelisglobal.systemusermodule.daoimpl", "org.openelisglobal.systemusermodule.service",
         "org.openelisglobal.login.service", "org.openelisglobal.view", "org.openelisglobal.search.service",
         "org.openelisglobal.sample.daoimpl", "org.openelisglobal.common.util",
-        "org.openelisglobal.role", }, excludeFilters = {
+        "org.openelisglobal.role", "org.openelisglobal.dataexchange.order.daoimpl",
+        "org.openelisglobal.hibernate.resources", }, excludeFilters = {
                 @ComponentScan.Filter(type = FilterType.REGEX, pattern = "org.openelisglobal.patient.controller.*"),
                 @ComponentScan.Filter(type = FilterType.REGEX, pattern = "org.openelisglobal.dictionary.controller.*.java"),
                 @ComponentScan.Filter(type = FilterType.REGEX, pattern = "org.openelisglobal.config.*"),
@@ -103,6 +108,13 @@ public class AppTestConfig implements WebMvcConfigurer {
         return mock(AuditTrailService.class);
     }
 
+    // the audit history writer moves its outbox on it
+    @Bean(AsyncConfig.DEFAULT_EXECUTOR)
+    @Profile("test")
+    public InstrumentedTaskExecutor defaultExecutor() {
+        return new InstrumentedTaskExecutor("default", 2, 100, OverflowPolicy.CALLER_RUNS, false);
+    }
+
     @Bean()
     @Profile("test")
     public TestDAO testDao() {
@@ -139,6 +151,12 @@ public class AppTestConfig implements WebMvcConfigurer {
         return mock(SiteInformationService.class);
     }
 
+    @Bean()
+    @Profile("test")
+    public ModulePermissionService modulePermissionService() {
+        return mock(ModulePermissionService.class);
+    }
+
     @Bean
     @Profile("test")
     public PasswordEncoder passwordEncoder() {
@@ -0,0 +1,126 @@
+package org.openelisglobal.analyzerimport.analyzerreaders;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openelisglobal.common.services.PluginAnalyzerService;
+import org.openelisglobal.plugin.AnalyzerImporterPlugin;
+import org.openelisglobal.spring.util.SpringContext;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.ApplicationContext;
+
+public class ASTMAnalyzerReaderTest {
+
+    private static final char STX = 0x02;
+    private static final char ETX = 0x03;
+    private static final char ENQ = 0x05;
+    private static final char EOT = 0x04;
+
+    private PluginAnalyzerService pluginAnalyzerService;
+
+    @Before
+    public void init() {
+        pluginAnalyzerService = new PluginAnalyzerService();
+        AutowireCapableBeanFactory factory = mock(AutowireCapableBeanFactory.class);
+        when(factory.getBean(PluginAnalyzerService.class)).thenReturn(pluginAnalyzerService);
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getAutowireCapableBeanFactory()).thenReturn(factory);
+        new SpringContext().setApplicationContext(context);
+    }
+
+    @Test
+    public void processData_shouldHandAPluginTheLinesAsTheyWereSent() {
+        StubPlugin plugin = new StubPlugin("Legacy", 0);
+        pluginAnalyzerService.registerAnalyzerPlugin(plugin);
+        String message = ENQ + "\n" + STX + "1H|\\^&|||Legacy\r\n\n" + STX + "2P|1\r\n" + STX + "3O|1|LAB001\r\n"
+                + STX + "4R|1|^^^HIV|40" + ETX + "\r\n" + STX + "5L|1|N\r\n" + EOT;
+
+        ASTMAnalyzerReader reader = new ASTMAnalyzerReader();
+        Assert.assertTrue(reader.readStream(stream(message)));
+        Assert.assertTrue(reader.processData("1"));
+
+        Assert.assertEquals(1, plugin.inserted.size());
+        Assert.assertEquals(Arrays.asList(String.valueOf(ENQ), STX + "1H|\\^&|||Legacy", "", STX + "2P|1",
+                STX + "3O|1|LAB001", STX + "4R|1|^^^HIV|40" + ETX, STX + "5L|1|N", String.valueOf(EOT)),
+                plugin.inserted.get(0));
+    }
+
+    @Test
+    public void processData_shouldHandAPluginWhichTakesChunksTheRecordsAsTheyAreRead() {
+        StubPlugin plugin = new StubPlugin("Chunked", 3);
+        pluginAnalyzerService.registerAnalyzerPlugin(plugin);
+        String message = String.join("\r\n", "H|\\^&|||Chunked", "P|1", "O|1|LAB001", "R|1|^^^HIV|40", "R|2|^^^HBV|12",
+                "O|2|LAB002", "R|1|^^^HIV|80", "L|1|N");
+
+        ASTMAnalyzerReader reader = new ASTMAnalyzerReader();
+        Assert.assertTrue(reader.readStream(stream(message)));
+        Assert.assertTrue(reader.processData("1"));
+
+        Assert.assertTrue(plugin.inserted.size() > 1);
+        for (List<String> chunk : plugin.inserted) {
+            Assert.assertEquals("H|\\^&|||Chunked", chunk.get(0));
+        }
+        Assert.assertEquals(Arrays.asList("H|\\^&|||Chunked", "P|1", "O|1|LAB001", "R|1|^^^HIV|40", "R|2|^^^HBV|12"),
+                plugin.inserted.get(0));
+    }
+
+    private static ByteArrayInputStream stream(String message) {
+        return new ByteArrayInputStream(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class StubPlugin implements AnalyzerImporterPlugin {
+
+        private final String analyzer;
+        private final int recordsPerChunk;
+        private final List<List<String>> inserted = new ArrayList<>();
+
+        StubPlugin(String analyzer, int recordsPerChunk) {
+            this.analyzer = analyzer;
+            this.recordsPerChunk = recordsPerChunk;
+        }
+
+        @Override
+        public boolean connect() {
+            return true;
+        }
+
+        @Override
+        public boolean isTargetAnalyzer(List<String> lines) {
+            return lines.stream().anyMatch(line -> line.contains("|||" + analyzer));
+        }
+
+        @Override
+        public boolean isTargetAnalyzerHeader(String headerRecord) {
+            return recordsPerChunk > 0 && headerRecord.endsWith("|||" + analyzer);
+        }
+
+        @Override
+        public AnalyzerLineInserter getAnalyzerLineInserter() {
+            return new AnalyzerLineInserter() {
+                @Override
+                public boolean insert(List<String> lines, String currentUserId) {
+                    inserted.add(new ArrayList<>(lines));
+                    return true;
+                }
+
+                @Override
+                public int getRecordsPerChunk() {
+                    return recordsPerChunk;
+                }
+
+                @Override
+                public String getError() {
+                    return null;
+                }
+            };
+        }
+    }
+}
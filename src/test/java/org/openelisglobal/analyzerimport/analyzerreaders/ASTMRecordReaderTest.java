@@ -0,0 +1,54 @@
+package org.openelisglobal.analyzerimport.analyzerreaders;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ASTMRecordReaderTest {
+
+    private static final char STX = 0x02;
+    private static final char ETX = 0x03;
+    private static final char ETB = 0x17;
+    private static final char ENQ = 0x05;
+    private static final char EOT = 0x04;
+
+    @Test
+    public void nextRecord_shouldReadRecordsOneToALine() throws IOException {
+        ASTMRecordReader reader = new ASTMRecordReader(
+                new StringReader("H|\\^&|||Analyzer\r\n\r\nP|1\nO|1|LAB001\rR|1|^^^HIV|40\r\nL|1|N"));
+
+        Assert.assertEquals(Arrays.asList("H|\\^&|||Analyzer", "P|1", "O|1|LAB001", "R|1|^^^HIV|40", "L|1|N"),
+                reader.readAll());
+    }
+
+    @Test
+    public void nextRecord_shouldJoinRecordsSplitOverFrames() throws IOException {
+        String message = ENQ + frame('1', "H|\\^&|||Analyzer\r", ETX) + frame('2', "R|1|^^^HI", ETB)
+                + frame('3', "V|40\r", ETX) + frame('4', "L|1|N\r", ETX) + EOT;
+        ASTMRecordReader reader = new ASTMRecordReader(new StringReader(message));
+
+        Assert.assertEquals(Arrays.asList("H|\\^&|||Analyzer", "R|1|^^^HIV|40", "L|1|N"), reader.readAll());
+    }
+
+    @Test
+    public void nextChunk_shouldStartEachChunkWithTheHeaderAndPatient() throws IOException {
+        ASTMRecordReader reader = new ASTMRecordReader(new StringReader(String.join("\r",
+                Arrays.asList("H|1", "P|1", "O|1", "R|1", "R|2", "O|2", "R|1", "P|2", "O|1", "R|1", "L|1"))));
+
+        List<String> first = reader.nextChunk(4);
+        List<String> second = reader.nextChunk(4);
+        List<String> third = reader.nextChunk(4);
+
+        Assert.assertEquals(Arrays.asList("H|1", "P|1", "O|1", "R|1", "R|2"), first);
+        Assert.assertEquals(Arrays.asList("H|1", "P|1", "O|2", "R|1"), second);
+        Assert.assertEquals(Arrays.asList("H|1", "P|2", "O|1", "R|1", "L|1"), third);
+        Assert.assertNull(reader.nextChunk(4));
+    }
+
+    private static String frame(char number, String text, char end) {
+        return STX + String.valueOf(number) + text + end + "A7\r\n";
+    }
+}
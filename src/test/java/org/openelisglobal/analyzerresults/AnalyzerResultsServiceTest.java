@@ -0,0 +1,159 @@
+package org.openelisglobal.analyzerresults;
+
+import static org.mockito.Mockito.mock;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openelisglobal.BaseWebContextSensitiveTest;
+import org.openelisglobal.analysis.service.AnalysisService;
+import org.openelisglobal.analyzerresults.service.AnalyzerResultsService;
+import org.openelisglobal.analyzerresults.valueholder.AnalyzerResults;
+import org.openelisglobal.note.service.NoteService;
+import org.openelisglobal.result.service.ResultService;
+import org.openelisglobal.sample.service.SampleService;
+import org.openelisglobal.samplehuman.service.SampleHumanService;
+import org.openelisglobal.sampleitem.service.SampleItemService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * Needs the testcontainers database, so Docker
+ */
+@ContextConfiguration(classes = AnalyzerResultsServiceTest.AnalyzerResultsTestConfig.class)
+public class AnalyzerResultsServiceTest extends BaseWebContextSensitiveTest {
+
+    private static final String ANALYZER_ID = "9001";
+    // 100 samples each run for two tests
+    private static final int ROWS = 200;
+    private static final Timestamp FIRST_RUN = Timestamp.valueOf("2024-03-01 09:00:00");
+    private static final Timestamp SECOND_RUN = Timestamp.valueOf("2024-03-02 09:00:00");
+
+    @Autowired
+    AnalyzerResultsService analyzerResultsService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void init() throws Exception {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        deleteResults();
+        jdbcTemplate.update("INSERT INTO clinlims.analyzer (id, name, is_active) SELECT ?, 'test analyzer', true"
+                + " WHERE NOT EXISTS (SELECT 1 FROM clinlims.analyzer WHERE id = ?)", Integer.valueOf(ANALYZER_ID),
+                Integer.valueOf(ANALYZER_ID));
+    }
+
+    @After
+    public void tearDown() {
+        deleteResults();
+        jdbcTemplate.update("DELETE FROM clinlims.analyzer WHERE id = ?", Integer.valueOf(ANALYZER_ID));
+    }
+
+    @Test
+    public void insertAnalyzerResults_shouldPrepareAFewStatementsPerJdbcBatch() throws Exception {
+        analyzerResultsService.insertAnalyzerResults(file(FIRST_RUN), "1");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            // every row repeats one of the first run, so each is inserted and the one
+            // it repeats is updated. Row by row that was at least three statements a
+            // row.
+            List<AnalyzerResults> rerun = file(SECOND_RUN);
+            analyzerResultsService.insertAnalyzerResults(rerun, "1");
+            long statements = statistics.getPrepareStatementCount();
+
+            Assert.assertEquals(Integer.valueOf(ROWS * 2), jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM clinlims.analyzer_results WHERE analyzer_id = ?", Integer.class,
+                    Integer.valueOf(ANALYZER_ID)));
+            for (AnalyzerResults result : rerun) {
+                Assert.assertNotNull(result.getDuplicateAnalyzerResultId());
+            }
+            Assert.assertTrue("statements: " + statements, statements <= ROWS / 10);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    private List<AnalyzerResults> file(Timestamp completeDate) {
+        List<AnalyzerResults> file = new ArrayList<>();
+        for (int row = 0; row < ROWS; row++) {
+            AnalyzerResults result = new AnalyzerResults();
+            result.setAnalyzerId(ANALYZER_ID);
+            result.setAccessionNumber(String.format("LAB%05d", row / 2));
+            result.setTestName(row % 2 == 0 ? "HIV VL" : "HIV VL log");
+            result.setCompleteDate(completeDate);
+            result.setResult(String.valueOf(row));
+            file.add(result);
+        }
+        return file;
+    }
+
+    private void deleteResults() {
+        jdbcTemplate.update("DELETE FROM clinlims.analyzer_results WHERE analyzer_id = ?",
+                Integer.valueOf(ANALYZER_ID));
+    }
+
+    // only this test loads the analyzer results service, with mocks for the
+    // services it pulls in
+    @Configuration
+    @ComponentScan(basePackages = { "org.openelisglobal.analyzerresults.service",
+            "org.openelisglobal.analyzerresults.daoimpl" })
+    static class AnalyzerResultsTestConfig {
+        @Bean()
+        @Profile("test")
+        public NoteService noteService() {
+            return mock(NoteService.class);
+        }
+
+        @Bean()
+        @Profile("test")
+        public SampleService sampleService() {
+            return mock(SampleService.class);
+        }
+
+        @Bean()
+        @Profile("test")
+        public SampleHumanService sampleHumanService() {
+            return mock(SampleHumanService.class);
+        }
+
+        @Bean()
+        @Profile("test")
+        public SampleItemService sampleItemService() {
+            return mock(SampleItemService.class);
+        }
+
+        @Bean()
+        @Profile("test")
+        public AnalysisService analysisService() {
+            return mock(AnalysisService.class);
+        }
+
+        @Bean()
+        @Profile("test")
+        public ResultService resultService() {
+            return mock(ResultService.class);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.openelisglobal.analyzerresults.service;
+
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openelisglobal.analyzerresults.dao.AnalyzerResultsDAO;
+import org.openelisglobal.analyzerresults.valueholder.AnalyzerResults;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Imports a synthetic 1,000 row analyzer file, half of whose rows repeat an
+ * earlier run, row by row as the service did and in bulk as it does now. The
+ * database is an in-memory stand in which charges roundTripMicros for every
+ * query and every flush, the flushes following the JDBC batch size when in
+ * batch write mode as BaseDAOImpl does.
+ *
+ * <p>Run with mvn test-compile, then run main with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerResultsImportBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int JDBC_BATCH_SIZE = 50;
+    private static final Timestamp EARLIER_RUN = Timestamp.valueOf("2024-03-01 09:00:00");
+    private static final Timestamp THIS_RUN = Timestamp.valueOf("2024-03-02 09:00:00");
+
+    @Param({ "0", "300" })
+    public long roundTripMicros;
+
+    private final Map<List<String>, List<AnalyzerResults>> stored = new HashMap<>();
+    private int nextId;
+    private int batchDepth;
+    private int pendingWrites;
+    private AnalyzerResultsDAO analyzerResultsDAO;
+    private AnalyzerResultsServiceImpl analyzerResultsService;
+    private List<AnalyzerResults> file;
+
+    @Setup
+    public void setUp() {
+        analyzerResultsDAO = (AnalyzerResultsDAO) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AnalyzerResultsDAO.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getDuplicateResultByAccessionAndTest":
+                        roundTrip();
+                        List<AnalyzerResults> previous = stored.get(key((AnalyzerResults) args[0]));
+                        return previous == null ? null : new ArrayList<>(previous);
+                    case "getResultsByAccessionNumbers":
+                        roundTrip();
+                        return getResultsByAccessionNumbers((String) args[0], (Collection<?>) args[1]);
+                    case "insert":
+                        AnalyzerResults result = (AnalyzerResults) args[0];
+                        result.setId(String.valueOf(++nextId));
+                        stored.computeIfAbsent(key(result), k -> new ArrayList<>()).add(result);
+                        write();
+                        return result.getId();
+                    case "update":
+                        write();
+                        return args[0];
+                    case "beginBatchWrite":
+                        batchDepth++;
+                        return null;
+                    case "endBatchWrite":
+                        if (--batchDepth == 0 && pendingWrites > 0) {
+                            pendingWrites = 0;
+                            roundTrip();
+                        }
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        analyzerResultsService = new AnalyzerResultsServiceImpl();
+        ReflectionTestUtils.setField(analyzerResultsService, "baseObjectDAO", analyzerResultsDAO);
+    }
+
+    @Setup(Level.Invocation)
+    public void newFile() {
+        stored.clear();
+        for (int i = 0; i < ROWS / 2; i++) {
+            AnalyzerResults earlier = result(i, EARLIER_RUN);
+            earlier.setId(String.valueOf(++nextId));
+            earlier.setLastupdated(EARLIER_RUN);
+            stored.computeIfAbsent(key(earlier), k -> new ArrayList<>()).add(earlier);
+        }
+        file = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            file.add(result(i, THIS_RUN));
+        }
+    }
+
+    @Benchmark
+    public List<AnalyzerResults> bulk() {
+        analyzerResultsService.insertAnalyzerResults(file, "1");
+        return file;
+    }
+
+    /**
+     * The loop the service ran before, a query and a flush for every row
+     */
+    @Benchmark
+    public List<AnalyzerResults> rowByRow() {
+        for (AnalyzerResults result : file) {
+            boolean duplicateByAccessionAndTestOnly = false;
+            List<AnalyzerResults> previousResults = analyzerResultsDAO.getDuplicateResultByAccessionAndTest(result);
+            AnalyzerResults previousResult = null;
+            if (previousResults != null) {
+                duplicateByAccessionAndTestOnly = true;
+                for (AnalyzerResults foundResult : previousResults) {
+                    previousResult = foundResult;
+                    if (foundResult.getCompleteDate() != null
+                            && foundResult.getCompleteDate().equals(result.getCompleteDate())) {
+                        duplicateByAccessionAndTestOnly = false;
+                        break;
+                    }
+                }
+            }
+            if (duplicateByAccessionAndTestOnly && previousResult != null) {
+                result.setDuplicateAnalyzerResultId(previousResult.getId());
+                result.setReadOnly(true);
+            }
+            if (previousResults == null || duplicateByAccessionAndTestOnly) {
+                result.setSysUserId("1");
+                String id = analyzerResultsDAO.insert(result);
+                if (duplicateByAccessionAndTestOnly && previousResult != null) {
+                    previousResult.setDuplicateAnalyzerResultId(id);
+                    analyzerResultsDAO.update(previousResult);
+                }
+            }
+        }
+        return file;
+    }
+
+    private List<AnalyzerResults> getResultsByAccessionNumbers(String analyzerId, Collection<?> accessionNumbers) {
+        List<AnalyzerResults> results = new ArrayList<>();
+        for (List<AnalyzerResults> previous : stored.values()) {
+            for (AnalyzerResults result : previous) {
+                if (result.getAnalyzerId().equals(analyzerId)
+                        && accessionNumbers.contains(result.getAccessionNumber())) {
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    private void write() {
+        if (batchDepth == 0 || ++pendingWrites >= JDBC_BATCH_SIZE) {
+            pendingWrites = 0;
+            roundTrip();
+        }
+    }
+
+    private void roundTrip() {
+        if (roundTripMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+        }
+    }
+
+    // 500 samples each run for two tests
+    private static AnalyzerResults result(int row, Timestamp completeDate) {
+        AnalyzerResults result = new AnalyzerResults();
+        result.setAnalyzerId("3");
+        result.setAccessionNumber(String.format("LAB%05d", row / 2));
+        result.setTestName(row % 2 == 0 ? "HIV VL" : "HIV VL log");
+        result.setCompleteDate(completeDate);
+        result.setResult(String.valueOf(row));
+        return result;
+    }
+
+    private static List<String> key(AnalyzerResults result) {
+        return Arrays.asList(result.getAnalyzerId(), result.getAccessionNumber(), result.getTestName());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AnalyzerResultsImportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
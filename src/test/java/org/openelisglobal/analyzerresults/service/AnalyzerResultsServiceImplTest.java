@@ -0,0 +1,82 @@
+package org.openelisglobal.analyzerresults.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.analyzerresults.dao.AnalyzerResultsDAO;
+import org.openelisglobal.analyzerresults.valueholder.AnalyzerResults;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class AnalyzerResultsServiceImplTest {
+
+    private static final Timestamp FIRST_RUN = Timestamp.valueOf("2024-03-01 09:00:00");
+    private static final Timestamp SECOND_RUN = Timestamp.valueOf("2024-03-02 09:00:00");
+    private static final Timestamp THIRD_RUN = Timestamp.valueOf("2024-03-03 09:00:00");
+
+    @Mock
+    private AnalyzerResultsDAO analyzerResultsDAO;
+
+    @InjectMocks
+    private AnalyzerResultsServiceImpl analyzerResultsService;
+
+    private final AtomicInteger nextId = new AtomicInteger(100);
+
+    @Before
+    public void setUp() {
+        when(analyzerResultsDAO.insert(any(AnalyzerResults.class)))
+                .thenAnswer(invocation -> String.valueOf(nextId.incrementAndGet()));
+        when(analyzerResultsDAO.update(any(AnalyzerResults.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    public void insertAnalyzerResults_shouldResolveDuplicatesFromOneLookup() {
+        AnalyzerResults earlier = result("LAB001", "HIV VL", FIRST_RUN);
+        earlier.setId("7");
+        when(analyzerResultsDAO.getResultsByAccessionNumbers(eq("3"), anyCollection()))
+                .thenReturn(new ArrayList<>(Collections.singletonList(earlier)));
+
+        AnalyzerResults rerun = result("LAB001", "HIV VL", SECOND_RUN);
+        AnalyzerResults reread = result("LAB001", "HIV VL", FIRST_RUN);
+        AnalyzerResults first = result("LAB002", "HIV VL", SECOND_RUN);
+        AnalyzerResults repeated = result("LAB002", "HIV VL", THIRD_RUN);
+
+        analyzerResultsService.insertAnalyzerResults(Arrays.asList(rerun, reread, first, repeated), "1");
+
+        verify(analyzerResultsDAO, times(1)).getResultsByAccessionNumbers(eq("3"), anyCollection());
+        verify(analyzerResultsDAO, times(3)).insert(any(AnalyzerResults.class));
+        Assert.assertEquals("7", rerun.getDuplicateAnalyzerResultId());
+        Assert.assertTrue(rerun.isReadOnly());
+        Assert.assertEquals(rerun.getId(), earlier.getDuplicateAnalyzerResultId());
+        Assert.assertNull(reread.getId());
+        // a row repeated within the file is linked with the one inserted before it
+        Assert.assertEquals(first.getId(), repeated.getDuplicateAnalyzerResultId());
+        Assert.assertEquals(repeated.getId(), first.getDuplicateAnalyzerResultId());
+        Assert.assertFalse(first.isReadOnly());
+    }
+
+    private static AnalyzerResults result(String accessionNumber, String testName, Timestamp completeDate) {
+        AnalyzerResults result = new AnalyzerResults();
+        result.setAnalyzerId("3");
+        result.setAccessionNumber(accessionNumber);
+        result.setTestName(testName);
+        result.setCompleteDate(completeDate);
+        result.setResult("40");
+        return result;
+    }
+}
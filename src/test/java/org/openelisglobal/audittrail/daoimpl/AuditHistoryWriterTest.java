@@ -0,0 +1,92 @@
+package org.openelisglobal.audittrail.daoimpl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.audittrail.dao.AuditHistoryOutboxDAO;
+import org.openelisglobal.audittrail.valueholder.History;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.history.service.HistoryService;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuditHistoryWriterTest {
+
+    @Mock
+    private HistoryService historyService;
+    @Mock
+    private AuditHistoryOutboxDAO auditHistoryOutboxDAO;
+    @Mock
+    private InstrumentedTaskExecutor defaultExecutor;
+
+    @InjectMocks
+    private AuditHistoryWriter auditHistoryWriter;
+
+    @Before
+    public void init() {
+        ReflectionTestUtils.setField(auditHistoryWriter, "batchSize", 2);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void write_shouldInsertTheRowsOfATransactionIntoTheOutboxTogetherBeforeItCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        History first = new History();
+        History second = new History();
+
+        auditHistoryWriter.write(first);
+        auditHistoryWriter.write(second);
+
+        verify(auditHistoryOutboxDAO, never()).insertAll(anyList());
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+        verify(auditHistoryOutboxDAO).insertAll(Arrays.asList(first, second));
+        verify(historyService, never()).insertAll(anyList());
+        verify(defaultExecutor, never()).execute(any(Runnable.class));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        verify(defaultExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void poll_shouldMoveTheOutboxUntilABatchIsNotFull() {
+        when(historyService.moveFromOutbox(2)).thenReturn(2, 2, 1);
+
+        auditHistoryWriter.poll();
+
+        verify(historyService, times(3)).moveFromOutbox(2);
+    }
+
+    @Test
+    public void write_shouldInsertAtOnceOutsideATransaction() {
+        History history = new History();
+
+        auditHistoryWriter.write(history);
+
+        verify(historyService).insertAll(Collections.singletonList(history));
+    }
+}
@@ -0,0 +1,138 @@
+package org.openelisglobal.blob.controller.rest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.Optional;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.blob.service.BlobStoreService;
+import org.openelisglobal.common.action.IActionConstants;
+import org.openelisglobal.login.valueholder.UserSessionData;
+import org.openelisglobal.userrole.service.UserRoleService;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class BlobRestControllerTest {
+
+    private static final String ID = "ab" + new String(new char[62]).replace('\0', 'c');
+
+    @Mock
+    private BlobStoreService blobStoreService;
+    @Mock
+    private UserRoleService userRoleService;
+
+    @InjectMocks
+    private BlobRestController controller;
+
+    @Test
+    public void upload_shouldRefuseAUserWhoCanNotEditCases() {
+        when(userRoleService.userInRole(eq("7"), anyCollection())).thenReturn(false);
+
+        ResponseEntity<?> response = controller.upload(file(), request(7));
+
+        Assert.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(blobStoreService, never()).store(any(InputStream.class));
+    }
+
+    @Test
+    public void upload_shouldRefuseWithoutALogin() {
+        ResponseEntity<?> response = controller.upload(file(), new MockHttpServletRequest());
+
+        Assert.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    }
+
+    @Test
+    public void upload_shouldStoreTheFileOfAUserWhoCanEditCases() {
+        when(userRoleService.userInRole(eq("7"), anyCollection())).thenReturn(true);
+        when(blobStoreService.store(any(InputStream.class))).thenReturn(ID);
+
+        ResponseEntity<?> response = controller.upload(file(), request(7));
+
+        Assert.assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    }
+
+    @Test
+    public void download_shouldRefuseAUserWhoCanNotOpenCases() {
+        when(userRoleService.userInRole(eq("7"), anyCollection())).thenReturn(false);
+
+        ResponseEntity<Resource> response = controller.download(ID, request(7));
+
+        Assert.assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verify(blobStoreService, never()).getPath(ID);
+    }
+
+    @Test
+    public void download_shouldShowAnImageInline() {
+        when(userRoleService.userInRole(eq("7"), anyCollection())).thenReturn(true);
+        when(blobStoreService.getPath(ID)).thenReturn(Optional.of(Paths.get("slide")));
+        when(blobStoreService.getContentType(ID)).thenReturn(MediaType.IMAGE_PNG_VALUE);
+
+        ResponseEntity<Resource> response = controller.download(ID, request(7));
+
+        Assert.assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType());
+        Assert.assertEquals("inline", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    }
+
+    @Test
+    public void download_shouldOfferAnythingElseAsAFile() {
+        when(userRoleService.userInRole(eq("7"), anyCollection())).thenReturn(true);
+        when(blobStoreService.getPath(ID)).thenReturn(Optional.of(Paths.get("page")));
+        when(blobStoreService.getContentType(ID)).thenReturn(MediaType.TEXT_HTML_VALUE);
+
+        ResponseEntity<Resource> response = controller.download(ID, request(7));
+
+        Assert.assertEquals(MediaType.APPLICATION_OCTET_STREAM, response.getHeaders().getContentType());
+        Assert.assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).startsWith("attachment"));
+    }
+
+    @Test
+    public void thumbnail_shouldRefuseASizeThatIsNotOffered() {
+        when(userRoleService.userInRole(eq("7"), anyCollection())).thenReturn(true);
+
+        ResponseEntity<Resource> response = controller.thumbnail(ID, 300, request(7));
+
+        Assert.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(blobStoreService, never()).getThumbnail(eq(ID), anyInt());
+    }
+
+    @Test
+    public void thumbnail_shouldServeAnOfferedSize() {
+        when(userRoleService.userInRole(eq("7"), anyCollection())).thenReturn(true);
+        when(blobStoreService.getThumbnail(ID, 128)).thenReturn(Optional.of(Paths.get("slide.128.jpg")));
+
+        ResponseEntity<Resource> response = controller.thumbnail(ID, 128, request(7));
+
+        Assert.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assert.assertEquals(MediaType.IMAGE_JPEG, response.getHeaders().getContentType());
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file", "slide.png", MediaType.IMAGE_PNG_VALUE, new byte[] { 1, 2, 3 });
+    }
+
+    private static MockHttpServletRequest request(int systemUserId) {
+        UserSessionData usd = new UserSessionData();
+        usd.setSytemUserId(systemUserId);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.getSession().setAttribute(IActionConstants.USER_SESSION_DATA, usd);
+        return request;
+    }
+}
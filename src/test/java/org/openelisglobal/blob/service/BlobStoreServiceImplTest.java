@@ -0,0 +1,83 @@
+package org.openelisglobal.blob.service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BlobStoreServiceImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private BlobStoreServiceImpl blobStoreService;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("blobs");
+        blobStoreService = new BlobStoreServiceImpl(root.getPath());
+    }
+
+    @Test
+    public void store_shouldKeepTheSameContentOnce() throws IOException {
+        byte[] content = "%PDF-1.4 slide report".getBytes(StandardCharsets.UTF_8);
+
+        String id = blobStoreService.store(content);
+
+        Assert.assertTrue(BlobStoreServiceImpl.isId(id));
+        Assert.assertEquals(id, blobStoreService.store(content.clone()));
+        Path path = blobStoreService.getPath(id).get();
+        Assert.assertArrayEquals(content, Files.readAllBytes(path));
+        Assert.assertEquals(root.toPath().resolve(id.substring(0, 2)).resolve(id.substring(2, 4)).resolve(id), path);
+        Assert.assertEquals("application/pdf", blobStoreService.getContentType(id));
+        Assert.assertEquals(0, new File(root, "tmp").list().length);
+    }
+
+    @Test
+    public void getPath_shouldRefuseWhatIsNotAnId() {
+        Assert.assertFalse(blobStoreService.getPath("../../etc/passwd").isPresent());
+        Assert.assertFalse(blobStoreService.getPath(null).isPresent());
+        Assert.assertFalse(blobStoreService.getPath(new String(new char[64]).replace('\0', 'a')).isPresent());
+    }
+
+    @Test
+    public void getThumbnail_shouldScaleImagesOnly() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "png", png);
+        String imageId = blobStoreService.store(png.toByteArray());
+        String textId = blobStoreService.store("not an image".getBytes(StandardCharsets.UTF_8));
+
+        Optional<Path> thumbnail = blobStoreService.getThumbnail(imageId, 100);
+
+        Assert.assertTrue(thumbnail.isPresent());
+        BufferedImage scaled = ImageIO.read(thumbnail.get().toFile());
+        Assert.assertEquals(100, scaled.getWidth());
+        Assert.assertEquals(50, scaled.getHeight());
+        Assert.assertEquals("image/png", blobStoreService.getContentType(imageId));
+        Assert.assertFalse(blobStoreService.getThumbnail(textId, 100).isPresent());
+    }
+
+    @Test
+    public void getContentType_shouldOnlyNameTypesShownWithoutRunningAnything() {
+        String tiffId = blobStoreService.store(new byte[] { 'I', 'I', '*', 0, 8, 0, 0, 0 });
+        String htmlId = blobStoreService
+                .store("<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8));
+        String svgId = blobStoreService
+                .store("<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals("image/tiff", blobStoreService.getContentType(tiffId));
+        Assert.assertEquals("application/octet-stream", blobStoreService.getContentType(htmlId));
+        Assert.assertEquals("application/octet-stream", blobStoreService.getContentType(svgId));
+    }
+}
@@ -0,0 +1,102 @@
+package org.openelisglobal.common.daoimpl;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.note.valueholder.Note;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class BaseDAOImplBatchWriteTest {
+
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private SessionImplementor session;
+    @Mock
+    private SessionImplementor otherSession;
+
+    private BaseDAOImpl<Note, String> noteDAO;
+    private BaseDAOImpl<Note, String> otherDAO;
+
+    @Before
+    public void init() {
+        when(session.isOpen()).thenReturn(true);
+        when(session.getConfiguredJdbcBatchSize()).thenReturn(3);
+        useSession(session);
+        noteDAO = dao();
+        otherDAO = dao();
+    }
+
+    @Test
+    public void flushWrite_shouldFlushOncePerJdbcBatchInBatchWriteMode() {
+        noteDAO.beginBatchWrite();
+        for (int i = 0; i < 7; i++) {
+            noteDAO.flushWrite();
+        }
+        verify(entityManager, times(2)).flush();
+
+        noteDAO.endBatchWrite(true);
+        verify(session).flush();
+    }
+
+    @Test
+    public void flushWrite_shouldFlushAtOnceThroughAnotherDAO() {
+        noteDAO.beginBatchWrite();
+        otherDAO.flushWrite();
+        verify(entityManager).flush();
+
+        noteDAO.flushWrite();
+        verify(entityManager).flush();
+        noteDAO.endBatchWrite(true);
+    }
+
+    @Test
+    public void flushWrite_shouldFlushAtOnceInAnotherSession() {
+        noteDAO.beginBatchWrite();
+        useSession(otherSession);
+        noteDAO.flushWrite();
+        verify(entityManager).flush();
+
+        useSession(session);
+        noteDAO.flushWrite();
+        verify(entityManager).flush();
+        noteDAO.endBatchWrite(true);
+        verify(session).flush();
+    }
+
+    @Test
+    public void endBatchWrite_shouldOnlyEndTheOutermostBatchAndNotFlushWhenAsked() {
+        noteDAO.beginBatchWrite();
+        noteDAO.beginBatchWrite();
+        noteDAO.flushWrite();
+        noteDAO.endBatchWrite(true);
+        verify(session, never()).flush();
+
+        noteDAO.endBatchWrite(false);
+        verify(session, never()).flush();
+        noteDAO.flushWrite();
+        verify(entityManager).flush();
+    }
+
+    private void useSession(SessionImplementor current) {
+        when(entityManager.unwrap(Session.class)).thenReturn(current);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(current);
+    }
+
+    private BaseDAOImpl<Note, String> dao() {
+        BaseDAOImpl<Note, String> dao = new BaseDAOImpl<Note, String>(Note.class) {
+        };
+        dao.entityManager = entityManager;
+        return dao;
+    }
+}
@@ -0,0 +1,64 @@
+package org.openelisglobal.common.log;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Category;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures a trace call made while trace is off, as it is in production, with
+ * the message concatenated by the caller, built by a supplier and filled in
+ * from parameters.
+ *
+ * <p>Run with mvn test-compile, then run main with the test classpath, adding
+ * -prof gc to the options to see the allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogEventBenchmark {
+
+    private String sampleId;
+    private Object status;
+
+    @Setup
+    public void setUp() {
+        Category.getInstance(LogEvent.class).setLevel(Level.INFO);
+        sampleId = "2041";
+        status = Thread.State.RUNNABLE;
+    }
+
+    @Benchmark
+    public void concatenated() {
+        LogEvent.logTrace("LogEventBenchmark", "concatenated", "sample " + sampleId + " is " + status);
+    }
+
+    @Benchmark
+    public void supplied() {
+        LogEvent.logTrace("LogEventBenchmark", "supplied", () -> "sample " + sampleId + " is " + status);
+    }
+
+    @Benchmark
+    public void parameterized() {
+        LogEvent.logTrace("LogEventBenchmark", "parameterized", "sample {} is {}", sampleId, status);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LogEventBenchmark.class.getSimpleName()).build()).run();
+    }
+}
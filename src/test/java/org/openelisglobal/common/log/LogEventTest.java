@@ -0,0 +1,46 @@
+package org.openelisglobal.common.log;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Category;
+import org.apache.log4j.Level;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogEventTest {
+
+    private Category log;
+    private Level level;
+
+    @Before
+    public void setUp() {
+        log = Category.getInstance(LogEvent.class);
+        level = log.getLevel();
+        log.setLevel(Level.INFO);
+    }
+
+    @After
+    public void tearDown() {
+        log.setLevel(level);
+    }
+
+    @Test
+    public void format_shouldReplaceEachParameterInOrder() {
+        Assert.assertEquals("task 12 changed to COMPLETED", LogEvent.format("task {} changed to {}", 12, "COMPLETED"));
+        Assert.assertEquals("no parameters", LogEvent.format("no parameters", "unused"));
+        Assert.assertEquals("one null and {}", LogEvent.format("one {} and {}", (Object) null));
+    }
+
+    @Test
+    public void logTrace_shouldNotBuildTheMessageWhenTraceIsOff() {
+        AtomicInteger built = new AtomicInteger();
+
+        LogEvent.logTrace("LogEventTest", "test", () -> "message " + built.incrementAndGet());
+        LogEvent.logDebug("LogEventTest", "test", () -> "message " + built.incrementAndGet());
+        LogEvent.logInfo("LogEventTest", "test", () -> "message " + built.incrementAndGet());
+
+        Assert.assertFalse(LogEvent.isDebugEnabled());
+        Assert.assertEquals(1, built.get());
+    }
+}
@@ -0,0 +1,179 @@
+package org.openelisglobal.common.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openelisglobal.common.dao.AccessionDAO;
+import org.openelisglobal.common.provider.validation.AccessionNumberValidatorFactory.AccessionFormat;
+import org.openelisglobal.common.valueholder.AccessionNumberInfo;
+import org.openelisglobal.common.valueholder.AccessionNumberInfo.AccessionIdentity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AccessionNumberBlockAllocatorTest {
+
+    private static final AccessionIdentity IDENTITY = new AccessionIdentity("DEV0126", AccessionFormat.SITEYEARNUM);
+
+    @Test
+    public void nextNumber_shouldNotReturnDuplicatesUnderConcurrentCallers() throws Exception {
+        int threads = 32;
+        int callsPerThread = 2000;
+        FakeAccessionNumberTable table = new FakeAccessionNumberTable();
+        // two allocators stand in for two nodes sharing accession_number_info
+        AccessionNumberBlockAllocator nodeA = new AccessionNumberBlockAllocator(table, 50);
+        AccessionNumberBlockAllocator nodeB = new AccessionNumberBlockAllocator(table, 7);
+
+        Set<Long> issued = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            AccessionNumberBlockAllocator allocator = i % 2 == 0 ? nodeA : nodeB;
+            futures.add(executor.submit((Callable<Integer>) () -> {
+                start.await();
+                int duplicates = 0;
+                for (int j = 0; j < callsPerThread; j++) {
+                    if (!issued.add(allocator.nextNumber(IDENTITY))) {
+                        duplicates++;
+                    }
+                }
+                return duplicates;
+            }));
+        }
+        start.countDown();
+        int duplicates = 0;
+        for (Future<Integer> future : futures) {
+            duplicates += future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(0, duplicates);
+        Assert.assertEquals(threads * callsPerThread, issued.size());
+        Assert.assertTrue(table.reservations < threads * callsPerThread / 7 + threads);
+    }
+
+    @Test
+    public void releaseLeases_shouldReturnUnusedNumbersWhenBlockIsLast() {
+        FakeAccessionNumberTable table = new FakeAccessionNumberTable();
+        AccessionNumberBlockAllocator allocator = new AccessionNumberBlockAllocator(table, 50);
+
+        Assert.assertEquals(1, allocator.nextNumber(IDENTITY));
+        Assert.assertEquals(2, allocator.nextNumber(IDENTITY));
+        Assert.assertEquals(3, allocator.peekNumber(IDENTITY));
+        allocator.releaseLeases();
+
+        Assert.assertEquals(2, table.curVal);
+        Assert.assertEquals(0, allocator.peekNumber(IDENTITY));
+        Assert.assertEquals(3, allocator.nextNumber(IDENTITY));
+    }
+
+    @Test
+    public void releaseLeases_shouldLeaveGapWhenAnotherBlockWasReservedAfter() {
+        FakeAccessionNumberTable table = new FakeAccessionNumberTable();
+        AccessionNumberBlockAllocator nodeA = new AccessionNumberBlockAllocator(table, 10);
+        AccessionNumberBlockAllocator nodeB = new AccessionNumberBlockAllocator(table, 10);
+
+        Assert.assertEquals(1, nodeA.nextNumber(IDENTITY));
+        Assert.assertEquals(11, nodeB.nextNumber(IDENTITY));
+        nodeA.releaseLeases();
+
+        Assert.assertEquals(20, table.curVal);
+        Assert.assertEquals(12, nodeB.nextNumber(IDENTITY));
+    }
+
+    @Test
+    public void setCurVal_shouldRefuseNumbersAnotherNodeMayHaveLeased() {
+        FakeAccessionNumberTable table = new FakeAccessionNumberTable();
+        AccessionNumberBlockAllocator nodeA = new AccessionNumberBlockAllocator(table, 10);
+        AccessionNumberBlockAllocator nodeB = new AccessionNumberBlockAllocator(table, 10);
+        AccessionServiceImpl accessionService = new AccessionServiceImpl();
+        ReflectionTestUtils.setField(accessionService, "accessionDAO", table);
+        ReflectionTestUtils.setField(accessionService, "accessionNumberBlockAllocator", nodeA);
+
+        Assert.assertEquals(1, nodeA.nextNumber(IDENTITY));
+        Assert.assertEquals(11, nodeB.nextNumber(IDENTITY));
+        // 15 is in the block leased by node B
+        Assert.assertFalse(accessionService.setCurVal(IDENTITY.getPrefix(), IDENTITY.getType(), 15));
+        Assert.assertEquals(20, table.curVal);
+        Assert.assertTrue(accessionService.setCurVal(IDENTITY.getPrefix(), IDENTITY.getType(), 25));
+
+        Assert.assertEquals(25, table.curVal);
+        Assert.assertEquals(12, nodeB.nextNumber(IDENTITY));
+        Assert.assertEquals(26, nodeA.nextNumber(IDENTITY));
+    }
+
+    private static class FakeAccessionNumberTable implements AccessionNumberBlockService, AccessionDAO {
+        private long curVal;
+        private int reservations;
+
+        @Override
+        public synchronized long reserveBlock(AccessionIdentity accessionIdentity, int blockSize) {
+            reservations++;
+            curVal += blockSize;
+            return curVal;
+        }
+
+        @Override
+        public synchronized boolean releaseBlock(AccessionIdentity accessionIdentity, long blockEnd,
+                long firstUnused) {
+            if (curVal != blockEnd) {
+                return false;
+            }
+            curVal = firstUnused - 1;
+            return true;
+        }
+
+        @Override
+        public synchronized boolean raiseCurVal(String prefix, AccessionFormat accessionFormat, long value) {
+            if (curVal >= value) {
+                return false;
+            }
+            curVal = value;
+            return true;
+        }
+
+        @Override
+        public synchronized long getNextNumberNoIncrement(String prefix, AccessionFormat accessionFormat) {
+            return curVal + 1;
+        }
+
+        @Override
+        public synchronized long getNextNumberIncrement(String prefix, AccessionFormat accessionFormat) {
+            return ++curVal;
+        }
+
+        @Override
+        public long reserveNumberBlock(String prefix, AccessionFormat accessionFormat, int blockSize) {
+            return reserveBlock(new AccessionIdentity(prefix, accessionFormat), blockSize);
+        }
+
+        @Override
+        public boolean releaseNumberBlock(String prefix, AccessionFormat accessionFormat, long blockEnd,
+                long firstUnused) {
+            return releaseBlock(new AccessionIdentity(prefix, accessionFormat), blockEnd, firstUnused);
+        }
+
+        @Override
+        public AccessionNumberInfo save(AccessionNumberInfo info) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AccessionNumberInfo get(AccessionIdentity accessionIdentity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean exists(AccessionIdentity accessionIdentity) {
+            return true;
+        }
+    }
+}
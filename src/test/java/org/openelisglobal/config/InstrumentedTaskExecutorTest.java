@@ -0,0 +1,70 @@
+package org.openelisglobal.config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openelisglobal.config.InstrumentedTaskExecutor.OverflowPolicy;
+import org.springframework.core.task.TaskRejectedException;
+
+public class InstrumentedTaskExecutorTest {
+
+    @Test
+    public void callerRuns_shouldRunOverflowOnSubmittingThread() throws InterruptedException {
+        InstrumentedTaskExecutor executor = startedExecutor(OverflowPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> await(release));
+            executor.execute(() -> await(release));
+            Thread caller = Thread.currentThread();
+            AtomicInteger ranOnCaller = new AtomicInteger();
+            executor.execute(() -> {
+                if (Thread.currentThread() == caller) {
+                    ranOnCaller.incrementAndGet();
+                }
+            });
+
+            Assert.assertEquals(1, ranOnCaller.get());
+            Assert.assertEquals(1, executor.getStats().getQueueSize());
+            Assert.assertEquals(1, executor.getStats().getRejected());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void abort_shouldRejectWhenQueueIsFull() {
+        InstrumentedTaskExecutor executor = startedExecutor(OverflowPolicy.ABORT);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> await(release));
+            executor.execute(() -> await(release));
+            try {
+                executor.execute(() -> {
+                });
+                Assert.fail("expected the task to be rejected");
+            } catch (TaskRejectedException e) {
+                Assert.assertEquals(3, executor.getStats().getSubmitted());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private InstrumentedTaskExecutor startedExecutor(OverflowPolicy policy) {
+        InstrumentedTaskExecutor executor = new InstrumentedTaskExecutor("test", 1, 1, policy, false);
+        executor.initialize();
+        return executor;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.openelisglobal.dataexchange.common;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import org.exolab.castor.mapping.Mapping;
+import org.exolab.castor.xml.Marshaller;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openelisglobal.dataexchange.aggregatereporting.AggregateReportXmit;
+import org.openelisglobal.dataexchange.aggregatereporting.SendingAggregateReportWrapper;
+import org.xml.sax.InputSource;
+
+public class CastorMarshallerCacheTest {
+
+    // the mapping the aggregate reports are sent with
+    private static final String MAPPING = CastorMarshallerCache.getInstance()
+            .getMappingName("AggregateReportingMapping");
+
+    @Test
+    public void getContext_shouldLoadEachMappingOnce() throws Exception {
+        CastorMarshallerCache cache = CastorMarshallerCache.getInstance();
+
+        Assert.assertSame(cache.getContext(MAPPING), cache.getContext(MAPPING));
+    }
+
+    @Test
+    public void marshal_shouldWriteSameXmlAsAFreshlyLoadedMapping() throws Exception {
+        SendingAggregateReportWrapper wrapper = new SendingAggregateReportWrapper();
+        wrapper.setVersion("1.0");
+        wrapper.setUser("lab");
+        wrapper.setReports(new ArrayList<>());
+        AggregateReportXmit report = new AggregateReportXmit();
+        report.setData("<counts>3</counts>");
+        wrapper.getReports().add(report);
+
+        StringWriter cached = new StringWriter();
+        CastorMarshallerCache.getInstance().marshal(wrapper, MAPPING, cached);
+
+        StringWriter fresh = new StringWriter();
+        try (InputStream mappingXml = getClass().getClassLoader().getResourceAsStream(MAPPING)) {
+            Mapping mapping = new Mapping();
+            mapping.loadMapping(new InputSource(mappingXml));
+            Marshaller marshaller = new Marshaller();
+            marshaller.setMapping(mapping);
+            marshaller.setWriter(fresh);
+            marshaller.marshal(wrapper);
+        }
+
+        Assert.assertEquals(fresh.toString(), cached.toString());
+        Assert.assertTrue(cached.toString().contains("aggregate-reports"));
+    }
+}
@@ -0,0 +1,116 @@
+package org.openelisglobal.dataexchange.common;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.exolab.castor.mapping.Mapping;
+import org.exolab.castor.xml.Marshaller;
+import org.openelisglobal.dataexchange.aggregatereporting.AggregateReportXmit;
+import org.openelisglobal.dataexchange.aggregatereporting.SendingAggregateReportWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.InputSource;
+
+/**
+ * Compares sending a report as ReportTransmission did, loading the Castor
+ * mapping and marshalling the whole report into a String for every send, with
+ * marshalling through the cached context straight into the request body. The
+ * body is written to a stream that only counts the bytes, so the network is
+ * left out of both.
+ *
+ * <p>Run with mvn test-compile, then run main with the test classpath, adding
+ * -prof gc to the options to see the allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CastorReportMarshallingBenchmark {
+
+    // the mapping the aggregate reports are sent with
+    private static final String MAPPING = CastorMarshallerCache.getInstance()
+            .getMappingName("AggregateReportingMapping");
+
+    @Param({ "10", "500" })
+    public int reports;
+
+    private SendingAggregateReportWrapper wrapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        wrapper = new SendingAggregateReportWrapper();
+        wrapper.setVersion("1.0");
+        wrapper.setUser("lab");
+        wrapper.setReports(new ArrayList<>());
+        for (int i = 0; i < reports; i++) {
+            AggregateReportXmit report = new AggregateReportXmit();
+            report.setData("<counts><test id=\"" + i + "\">" + (i * 7 % 113) + "</test></counts>");
+            wrapper.getReports().add(report);
+        }
+        // the cached context is loaded before measuring, as it is after the first
+        // send
+        CastorMarshallerCache.getInstance().getContext(MAPPING);
+    }
+
+    @Benchmark
+    public void freshMappingToString(Blackhole blackhole) throws Exception {
+        StringWriter writer = new StringWriter();
+        // the mapping is read when it is first used, so the stream stays open
+        try (InputStream mappingXml = getClass().getClassLoader().getResourceAsStream(MAPPING)) {
+            Mapping mapping = new Mapping();
+            mapping.loadMapping(new InputSource(mappingXml));
+            Marshaller marshaller = new Marshaller();
+            marshaller.setMapping(mapping);
+            marshaller.setWriter(writer);
+            marshaller.marshal(wrapper);
+        }
+        blackhole.consume(writer.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void cachedContextStreamed(Blackhole blackhole) throws Exception {
+        CountingOutputStream body = new CountingOutputStream();
+        Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+        CastorMarshallerCache.getInstance().marshal(wrapper, MAPPING, writer);
+        blackhole.consume(body.count);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CastorReportMarshallingBenchmark.class.getSimpleName()).build())
+                .run();
+    }
+}
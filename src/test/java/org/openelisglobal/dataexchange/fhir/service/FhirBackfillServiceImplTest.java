@@ -0,0 +1,112 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.hl7.fhir.r4.model.Bundle;
+import org.itech.fhir.dataexport.api.service.DataExportService;
+import org.itech.fhir.dataexport.core.service.DataExportTaskService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.dataexchange.fhir.service.FhirBackfillProgress.Phase;
+import org.openelisglobal.dataexchange.fhir.service.FhirBackfillProgress.Status;
+import org.openelisglobal.sample.service.SampleService;
+import org.openelisglobal.samplehuman.service.SampleHumanService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class FhirBackfillServiceImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private SampleService sampleService;
+    @Mock
+    private SampleHumanService sampleHumanService;
+    @Mock
+    private FhirTransformService fhirTransformService;
+    @Mock
+    private DataExportService dataExportService;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private DataExportTaskService dataExportTaskService;
+
+    @InjectMocks
+    private FhirBackfillServiceImpl backfillService;
+
+    private Path checkpoint;
+
+    @Before
+    public void setUp() throws Exception {
+        checkpoint = folder.getRoot().toPath().resolve("checkpoint.properties");
+        ReflectionTestUtils.setField(backfillService, "checkpointFile", checkpoint.toString());
+        when(sampleHumanService.getPatientIdsWithSampleEnteredAfter(anyString(), anyInt(), anyBoolean()))
+                .thenReturn(Collections.emptyList());
+        when(dataExportTaskService.getDAO().findAll()).thenReturn(Collections.emptyList());
+        Bundle response = new Bundle();
+        response.addEntry();
+        response.addEntry();
+        when(fhirTransformService.transformPersistObjectsUnderSamples(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(response));
+    }
+
+    @Test
+    public void run_shouldWalkSampleIdsInBatchesAndCheckpointTheLastOne() throws Exception {
+        when(sampleService.getSampleIdsAfter("0", 100, true)).thenReturn(ids(1, 100));
+        when(sampleService.getSampleIdsAfter("100", 100, true)).thenReturn(ids(101, 200));
+        when(sampleService.getSampleIdsAfter("200", 100, true)).thenReturn(ids(201, 250));
+        when(sampleService.getSampleIdsAfter("250", 100, true)).thenReturn(Collections.emptyList());
+
+        backfillService.run(new FhirBackfillProgress(false, false, 100, 2));
+
+        FhirBackfillProgress saved = FhirBackfillProgress.load(checkpoint);
+        Assert.assertEquals(Status.COMPLETED, saved.getStatus());
+        Assert.assertEquals(Phase.DONE, saved.getPhase());
+        Assert.assertEquals("250", saved.getLastSampleId());
+        Assert.assertEquals(250, saved.getSamplesProcessed());
+        Assert.assertEquals(3, saved.getBatches());
+        Assert.assertEquals(6, saved.getResourcesPersisted());
+    }
+
+    @Test
+    public void run_shouldCarryOnAfterTheCheckpointedSample() throws Exception {
+        FhirBackfillProgress interrupted = new FhirBackfillProgress(false, false, 100, 1);
+        interrupted.nextPhase();
+        interrupted.batchPersisted(Phase.SAMPLES, "100", 100, 2);
+        when(sampleService.getSampleIdsAfter("100", 100, true)).thenReturn(ids(101, 150));
+        when(sampleService.getSampleIdsAfter("150", 100, true)).thenReturn(Collections.emptyList());
+
+        backfillService.run(interrupted);
+
+        verify(sampleService, never()).getSampleIdsAfter(eq("0"), anyInt(), anyBoolean());
+        Assert.assertEquals("150", interrupted.getLastSampleId());
+        Assert.assertEquals(150, interrupted.getSamplesProcessed());
+    }
+
+    private List<String> ids(int from, int to) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            ids.add(Integer.toString(i));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,48 @@
+package org.openelisglobal.dataexchange.fhir.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RemotePollCheckpointTest {
+
+    private static final String STORE = "https://remote.example.org/fhir/";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void load_shouldCarryOnFromTheSavedCheckpoint() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("fhir").resolve("remote-poll.properties");
+        RemotePollCheckpoint checkpoint = RemotePollCheckpoint.load(file);
+        Assert.assertNull(checkpoint.getOrdersSince(STORE));
+        Assert.assertNull(checkpoint.getResultsSince(STORE));
+        Assert.assertTrue(checkpoint.getAcceptedReferrals(STORE).isEmpty());
+
+        checkpoint.ordersPolled(STORE, new Date(1000L));
+        checkpoint.resultsPolled(STORE, new Date(2000L), Arrays.asList("a", "b"));
+
+        RemotePollCheckpoint reloaded = RemotePollCheckpoint.load(file);
+        Assert.assertEquals(new Date(1000L), reloaded.getOrdersSince(STORE));
+        Assert.assertEquals(new Date(2000L), reloaded.getResultsSince(STORE));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")), reloaded.getAcceptedReferrals(STORE));
+        Assert.assertNull(reloaded.getOrdersSince("https://other.example.org/fhir/"));
+        Assert.assertFalse(Files.exists(file.resolveSibling("remote-poll.properties.tmp")));
+    }
+
+    @Test
+    public void resultsPolled_shouldForgetReferralsNoLongerWaiting() {
+        RemotePollCheckpoint checkpoint = RemotePollCheckpoint
+                .load(folder.getRoot().toPath().resolve("remote-poll.properties"));
+        checkpoint.resultsPolled(STORE, new Date(1000L), Arrays.asList("a", "b"));
+        checkpoint.resultsPolled(STORE, new Date(2000L), Arrays.asList());
+
+        Assert.assertTrue(checkpoint.getAcceptedReferrals(STORE).isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+package org.openelisglobal.dataexchange.order.daoimpl;
+
+import java.util.Collections;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openelisglobal.BaseWebContextSensitiveTest;
+import org.openelisglobal.dataexchange.order.dao.ElectronicOrderDAO;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder;
+import org.openelisglobal.dataexchange.order.valueholder.ElectronicOrder.SortOrder;
+import org.openelisglobal.patient.service.PatientService;
+import org.openelisglobal.patient.valueholder.Patient;
+import org.openelisglobal.person.service.PersonService;
+import org.openelisglobal.person.valueholder.Person;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class ElectronicOrderDAOImplTest extends BaseWebContextSensitiveTest {
+
+    private static final String EXTERNAL_ID = "EO-DAO-TEST-1";
+
+    @Autowired
+    ElectronicOrderDAO electronicOrderDAO;
+
+    @Autowired
+    PatientService patientService;
+
+    @Autowired
+    PersonService personService;
+
+    @Autowired
+    DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private Patient patient;
+
+    @Before
+    public void init() throws Exception {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        deleteOrders();
+
+        Person person = new Person();
+        person.setFirstName("Jean");
+        person.setLastName("Dupont");
+        personService.save(person);
+        patient = new Patient();
+        patient.setPerson(person);
+        patient.setGender("M");
+        patientService.insert(patient);
+
+        // the order is searched by the terms it was received with
+        jdbcTemplate.update("INSERT INTO clinlims.electronic_order (id, external_id, patient_id, status_id,"
+                + " order_timestamp, data, lastupdated, search_terms) SELECT nextval('clinlims.electronic_order_seq'),"
+                + " ?, ?, (SELECT MIN(id) FROM clinlims.status_of_sample), now(), '{}', now(), ?", EXTERNAL_ID,
+                Integer.valueOf(patient.getId()), "\neo-dao-test-1\nacc-42\njean\ndupont\njean dupont\n");
+    }
+
+    @After
+    public void tearDown() {
+        deleteOrders();
+        patientService.delete(patient);
+        personService.delete(patient.getPerson());
+    }
+
+    @Test
+    public void getAllElectronicOrdersContainingValuesOrderedBy_shouldFindAnOrderByItsAccessionNumber() {
+        List<ElectronicOrder> orders = electronicOrderDAO.getAllElectronicOrdersContainingValuesOrderedBy("ACC-4",
+                null, null, null, SortOrder.STATUS_ID);
+
+        Assert.assertEquals(1, orders.size());
+        Assert.assertEquals(EXTERNAL_ID, orders.get(0).getExternalId());
+    }
+
+    @Test
+    public void getAllElectronicOrdersContainingValuesOrderedBy_shouldFindAnOrderByThePatientsCurrentName() {
+        Person person = patient.getPerson();
+        person.setFirstName("Jeanne");
+        person.setLastName("Martin");
+        personService.update(person);
+
+        List<ElectronicOrder> orders = electronicOrderDAO.getAllElectronicOrdersContainingValuesOrderedBy(null,
+                "mart", "jeanne", null, SortOrder.STATUS_ID);
+
+        Assert.assertEquals(1, orders.size());
+        Assert.assertEquals(EXTERNAL_ID, orders.get(0).getExternalId());
+    }
+
+    @Test
+    public void getAllElectronicOrdersContainingValuesOrderedBy_shouldNotFindAnOrderByThePatientsFormerName() {
+        Person person = patient.getPerson();
+        person.setLastName("Martin");
+        personService.update(person);
+
+        Assert.assertTrue(electronicOrderDAO
+                .getAllElectronicOrdersContainingValuesOrderedBy(null, "dupont", null, null, SortOrder.STATUS_ID)
+                .isEmpty());
+    }
+
+    @Test
+    public void getAllElectronicOrdersContainingValueOrderedBy_shouldFindAnOrderByThePatientsCurrentName() {
+        Person person = patient.getPerson();
+        person.setLastName("Martin");
+        personService.update(person);
+
+        List<ElectronicOrder> orders = electronicOrderDAO.getAllElectronicOrdersContainingValueOrderedBy("mart",
+                SortOrder.STATUS_ID);
+
+        Assert.assertEquals(1, orders.size());
+        Assert.assertEquals(EXTERNAL_ID, orders.get(0).getExternalId());
+    }
+
+    @Test
+    public void getAllElectronicOrdersMatchingAnyValue_shouldFindAnOrderByThePatientsCurrentName() {
+        Person person = patient.getPerson();
+        person.setLastName("Martin");
+        personService.update(person);
+
+        List<ElectronicOrder> orders = electronicOrderDAO
+                .getAllElectronicOrdersMatchingAnyValue(Collections.singletonList("other-order"), "MARTIN",
+                        SortOrder.STATUS_ID);
+
+        Assert.assertEquals(1, orders.size());
+        Assert.assertTrue(electronicOrderDAO.getAllElectronicOrdersMatchingAnyValue(
+                Collections.singletonList("other-order"), "mart", SortOrder.STATUS_ID).isEmpty());
+    }
+
+    private void deleteOrders() {
+        jdbcTemplate.update("DELETE FROM clinlims.electronic_order WHERE external_id = ?", EXTERNAL_ID);
+    }
+}
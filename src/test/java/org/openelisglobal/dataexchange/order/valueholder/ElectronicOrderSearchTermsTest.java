@@ -0,0 +1,32 @@
+package org.openelisglobal.dataexchange.order.valueholder;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openelisglobal.dataexchange.order.action.MessagePatient;
+
+public class ElectronicOrderSearchTermsTest {
+
+    @Test
+    public void toString_shouldKeepEachTermOnItsOwnLine() {
+        MessagePatient patient = new MessagePatient();
+        patient.setFirstName(" Jean ");
+        patient.setLastName("DUPONT");
+        patient.setNationalId("NAT-1");
+
+        String terms = new ElectronicOrderSearchTerms().add("ORD-7", null, "", "ord-7", "94500-6").addPatient(patient)
+                .toString();
+
+        Assert.assertEquals("\nord-7\n94500-6\njean\ndupont\nnat-1\njean dupont\n", terms);
+    }
+
+    @Test
+    public void toString_shouldBeNullWithoutTerms() {
+        Assert.assertNull(new ElectronicOrderSearchTerms().add(" ", null).toString());
+    }
+
+    @Test
+    public void patterns_shouldEscapeTheLikeWildcards() {
+        Assert.assertEquals("%jean dupont%", ElectronicOrderSearchTerms.containing(" Jean\tDupont"));
+        Assert.assertEquals("%\n10!%!_a!!\n%", ElectronicOrderSearchTerms.matching("10%_A!"));
+    }
+}
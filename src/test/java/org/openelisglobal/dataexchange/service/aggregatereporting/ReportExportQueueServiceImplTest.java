@@ -0,0 +1,57 @@
+package org.openelisglobal.dataexchange.service.aggregatereporting;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.dataexchange.aggregatereporting.dao.ReportExternalExportDAO;
+import org.openelisglobal.dataexchange.aggregatereporting.valueholder.ReportExternalExport;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ReportExportQueueServiceImplTest {
+
+    @Mock
+    private ReportExternalExportDAO reportExternalExportDAO;
+
+    @InjectMocks
+    private ReportExportQueueServiceImpl queueService;
+
+    @Test
+    public void retryDelaySeconds_shouldDoubleUpToTheMaximum() {
+        Assert.assertEquals(60, ReportExportQueueServiceImpl.retryDelaySeconds(1, 60, 3600));
+        Assert.assertEquals(120, ReportExportQueueServiceImpl.retryDelaySeconds(2, 60, 3600));
+        Assert.assertEquals(1920, ReportExportQueueServiceImpl.retryDelaySeconds(6, 60, 3600));
+        Assert.assertEquals(3600, ReportExportQueueServiceImpl.retryDelaySeconds(7, 60, 3600));
+        Assert.assertEquals(3600, ReportExportQueueServiceImpl.retryDelaySeconds(500, 60, 3600));
+    }
+
+    @Test
+    public void recordFailed_shouldReleaseClaimAndScheduleNextAttempt() {
+        ReportExternalExport stored = report("7", 2);
+        stored.setClaimedUntil(new Timestamp(System.currentTimeMillis() + 600000L));
+        when(reportExternalExportDAO.get(anyList())).thenReturn(Collections.singletonList(stored));
+
+        long before = System.currentTimeMillis();
+        queueService.recordFailed(Arrays.asList(report("7", 0)), 60, 3600);
+
+        Assert.assertEquals(3, stored.getSendAttempts());
+        Assert.assertNull(stored.getClaimedUntil());
+        long wait = stored.getNextAttemptTime().getTime() - before;
+        Assert.assertTrue(wait >= 240000L && wait < 250000L);
+    }
+
+    private ReportExternalExport report(String id, int attempts) {
+        ReportExternalExport report = new ReportExternalExport();
+        report.setId(id);
+        report.setSendAttempts(attempts);
+        return report;
+    }
+}
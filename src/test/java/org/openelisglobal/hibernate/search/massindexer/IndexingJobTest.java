@@ -0,0 +1,42 @@
+package org.openelisglobal.hibernate.search.massindexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openelisglobal.hibernate.search.massindexer.IndexingJob.Status;
+import org.openelisglobal.hibernate.search.massindexer.IndexingJob.Type;
+
+public class IndexingJobTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void load_shouldCarryOnAfterLastSavedChunk() throws IOException {
+        Path checkpoint = folder.getRoot().toPath().resolve("checkpoint.properties");
+        IndexingJob job = new IndexingJob(Type.ID_RANGE, null, 100L, 2000L);
+        job.setTotalCount(1500);
+        job.chunkIndexed(600L, 500);
+        job.save(checkpoint);
+
+        IndexingJob loaded = IndexingJob.load(checkpoint);
+
+        assertEquals(job.getId(), loaded.getId());
+        assertEquals(Type.ID_RANGE, loaded.getType());
+        assertEquals(Status.RUNNING, loaded.getStatus());
+        assertEquals(600L, loaded.getLastIndexedId());
+        assertEquals(500L, loaded.getIndexedCount());
+        assertEquals(Long.valueOf(2000L), loaded.getToId());
+        assertEquals(33, loaded.getPercentComplete());
+    }
+
+    @Test
+    public void load_shouldReturnNullWithoutCheckpoint() throws IOException {
+        assertNull(IndexingJob.load(folder.getRoot().toPath().resolve("missing.properties")));
+    }
+}
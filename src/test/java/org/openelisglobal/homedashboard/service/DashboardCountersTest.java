@@ -0,0 +1,67 @@
+package org.openelisglobal.homedashboard.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openelisglobal.homedashboard.service.DashboardCounters.AnalysisState;
+
+public class DashboardCountersTest {
+
+    private static final String NOT_STARTED = "4";
+    private static final String TECHNICAL_ACCEPTANCE = "15";
+    private static final String FINALIZED = "6";
+    private static final String REJECTED = "20";
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 15);
+
+    @Test
+    public void analysisChanged_shouldMoveTheAnalysisThroughTheCounts() {
+        DashboardCounters counters = new DashboardCounters(TODAY, FINALIZED, REJECTED);
+        AnalysisState entered = state(NOT_STARTED, TODAY.minusDays(2), null, null);
+        AnalysisState resulted = state(TECHNICAL_ACCEPTANCE, TODAY.minusDays(2), TODAY.minusDays(1), null);
+        AnalysisState validated = state(FINALIZED, TODAY.minusDays(2), TODAY.minusDays(1), TODAY);
+
+        counters.analysisChanged(null, entered);
+        Assert.assertEquals(1, counters.getAnalyses(NOT_STARTED));
+        counters.analysisChanged(entered, resulted);
+        counters.analysisChanged(resulted, validated);
+
+        Assert.assertEquals(0, counters.getAnalyses(NOT_STARTED));
+        Assert.assertEquals(0, counters.getAnalyses(TECHNICAL_ACCEPTANCE));
+        Assert.assertEquals(1, counters.getReleasedOnDay(FINALIZED));
+        Assert.assertEquals(48.0, counters.getReceptionToValidation().getAverageHours(), 0.0);
+        Assert.assertEquals(24.0, counters.getResultToValidation().getAverageHours(), 0.0);
+        // completed yesterday
+        Assert.assertEquals(0, counters.getReceptionToResult().getCount());
+
+        counters.analysisChanged(validated, null);
+        Assert.assertEquals(0, counters.getReleasedOnDay(FINALIZED));
+        Assert.assertEquals(0.0, counters.getReceptionToValidation().getAverageHours(), 0.0);
+    }
+
+    @Test
+    public void getCountOverHours_shouldCountTheAnalysesTakingLonger() {
+        DashboardCounters counters = new DashboardCounters(TODAY, FINALIZED, REJECTED);
+        counters.addAnalysisOnDay(state(FINALIZED, TODAY.minusDays(4), TODAY, TODAY));
+        counters.addAnalysisOnDay(state(FINALIZED, TODAY.minusDays(5), TODAY, TODAY));
+        counters.addAnalysisOnDay(state(FINALIZED, TODAY.minusDays(400), TODAY, TODAY));
+        // rejected analyses have no result
+        counters.addAnalysisOnDay(state(REJECTED, TODAY, TODAY, null));
+
+        TurnAroundHistogram receptionToValidation = counters.getReceptionToValidation();
+        Assert.assertEquals(2, receptionToValidation.getCountOverHours(96));
+        Assert.assertEquals(3, receptionToValidation.getCountOverHours(0));
+        Assert.assertEquals((4 + 5 + 400) * 24 / 3.0, receptionToValidation.getAverageHours(), 0.000001);
+        Assert.assertEquals(3, counters.getReceptionToResult().getCount());
+        Assert.assertEquals(1, counters.getStartedOnDay());
+        Assert.assertEquals(1, counters.getStartedOnDay(REJECTED));
+    }
+
+    private static AnalysisState state(String statusId, LocalDate started, LocalDate completed, LocalDate released) {
+        return new AnalysisState(statusId, date(started), date(completed), date(released));
+    }
+
+    private static Date date(LocalDate date) {
+        return date == null ? null : Date.valueOf(date);
+    }
+}
@@ -0,0 +1,50 @@
+package org.openelisglobal.liquibase;
+
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ElectronicOrderSearchTermsBackfillTest {
+
+    private static final Set<String> TEST_LOINCS = Collections.singleton("25836-8");
+
+    private static final String HL7_ORDER = String.join("\r",
+            "MSH|^~\\&|iSante|clinic|OpenELIS|lab|20240301090000||OML^O21^OML_O21|MSG-1|P|2.5.1",
+            "PID|||PAT-9^^^^MR||Dupont^Jean||19800101|M",
+            "ORC|NW" + "|".repeat(28) + "25836-8",
+            "OBR|1|||encounter;ORD-7");
+
+    private static final String FHIR_ORDER = "{\"resourceType\":\"Task\",\"id\":\"task-3\","
+            + "\"identifier\":[{\"system\":\"http://clinic/accession\",\"value\":\"ACC-42\"}],"
+            + "\"basedOn\":[{\"reference\":\"ServiceRequest/sr-5\"}],\"status\":\"requested\",\"intent\":\"order\"}";
+
+    private final ElectronicOrderSearchTermsBackfill backfill = new ElectronicOrderSearchTermsBackfill();
+
+    @Test
+    public void addTermsFromData_shouldAddTheOrderPatientAndTestOfAnHL7Order() {
+        String terms = backfill.addTermsFromData("\nord-7\ndupont\n", HL7_ORDER, TEST_LOINCS);
+
+        Assert.assertEquals("\nord-7\ndupont\njean\njean dupont\npat-9\n25836-8\n", terms);
+    }
+
+    @Test
+    public void addTermsFromData_shouldLeaveOutATestThatIsNotInTheLab() {
+        String terms = backfill.addTermsFromData(null, HL7_ORDER, Collections.emptySet());
+
+        Assert.assertFalse(terms.contains("\n25836-8\n"));
+    }
+
+    @Test
+    public void addTermsFromData_shouldAddTheTaskAndServiceRequestIdsOfAFhirOrder() {
+        String terms = backfill.addTermsFromData("\ntask-3\n", FHIR_ORDER, TEST_LOINCS);
+
+        Assert.assertEquals("\ntask-3\nacc-42\nsr-5\n", terms);
+    }
+
+    @Test
+    public void addTermsFromData_shouldKeepTheTermsOfAnOrderThatCanNotBeRead() {
+        Assert.assertEquals("\nord-7\n", backfill.addTermsFromData("\nord-7\n", "{not a task", TEST_LOINCS));
+        Assert.assertNull(backfill.addTermsFromData(null, "MSH|broken", TEST_LOINCS));
+    }
+}
@@ -0,0 +1,302 @@
+package org.openelisglobal.notification.service.sender;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import org.jsmpp.bean.CancelSm;
+import org.jsmpp.bean.DataCodings;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.DeliveryReceipt;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GSMSpecificFeature;
+import org.jsmpp.bean.MessageMode;
+import org.jsmpp.bean.MessageType;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.QuerySm;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.ReplaceSm;
+import org.jsmpp.bean.SMSCDeliveryReceipt;
+import org.jsmpp.bean.SubmitMulti;
+import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.DataSmResult;
+import org.jsmpp.session.QuerySmResult;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.SMPPServerSessionListener;
+import org.jsmpp.session.ServerMessageReceiverListener;
+import org.jsmpp.session.ServerResponseDeliveryAdapter;
+import org.jsmpp.session.Session;
+import org.jsmpp.util.DeliveryReceiptState;
+import org.jsmpp.util.MessageId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openelisglobal.config.InstrumentedTaskExecutor;
+import org.openelisglobal.config.InstrumentedTaskExecutor.OverflowPolicy;
+import org.openelisglobal.notification.valueholder.NotificationPayload;
+import org.openelisglobal.notification.valueholder.SMSNotification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class SMPPSessionManagerTest {
+
+    private StubSmsc smsc;
+    private InstrumentedTaskExecutor notificationExecutor;
+    private SMPPSessionManager sessionManager;
+
+    @Before
+    public void setUp() throws Exception {
+        smsc = new StubSmsc();
+        notificationExecutor = new InstrumentedTaskExecutor("notification", 4, 100, OverflowPolicy.CALLER_RUNS, false);
+        notificationExecutor.initialize();
+        sessionManager = new SMPPSessionManager() {
+            @Override
+            SmscAccount account() {
+                return new SmscAccount("localhost", smsc.port, "openelis", "secret");
+            }
+        };
+        ReflectionTestUtils.setField(sessionManager, "notificationExecutor", notificationExecutor);
+        ReflectionTestUtils.setField(sessionManager, "serviceType", "CMT");
+        ReflectionTestUtils.setField(sessionManager, "bindParamSystemType", "");
+        ReflectionTestUtils.setField(sessionManager, "bindType", "BIND_TRX");
+        ReflectionTestUtils.setField(sessionManager, "sessions", 1);
+        ReflectionTestUtils.setField(sessionManager, "window", 4);
+        ReflectionTestUtils.setField(sessionManager, "maxPerSecond", 0);
+        ReflectionTestUtils.setField(sessionManager, "queueCapacity", 100);
+        ReflectionTestUtils.setField(sessionManager, "maxAttempts", 3);
+        ReflectionTestUtils.setField(sessionManager, "enquireLinkMillis", 30000);
+        ReflectionTestUtils.setField(sessionManager, "responseTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(sessionManager, "rebindDelayMillis", 0L);
+        ReflectionTestUtils.setField(sessionManager, "receiptTimeoutMinutes", 60L);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        sessionManager.shutdown();
+        notificationExecutor.shutdown();
+        smsc.close();
+        Assert.assertNull("the stub SMSC failed", smsc.failure.get());
+    }
+
+    @Test
+    public void enqueue_shouldSendEveryMessageOverOneBindAndMatchTheReceipts() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(sessionManager.enqueue(sms("+2376000000" + i)));
+        }
+
+        waitFor(() -> sessionManager.getDeliveredCount() == 20);
+        Assert.assertEquals(20, smsc.submits.get());
+        Assert.assertEquals(1, smsc.binds.get());
+        Assert.assertEquals(1, sessionManager.getBindCount());
+        Assert.assertEquals(0, sessionManager.getPendingReceiptCount());
+        Assert.assertEquals(0, sessionManager.getFailedCount());
+    }
+
+    @Test
+    public void enqueue_shouldNotRequestReceiptsWhenBoundAsTransmitter() throws Exception {
+        ReflectionTestUtils.setField(sessionManager, "bindType", "BIND_TX");
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(sessionManager.enqueue(sms("+2376000000" + i)));
+        }
+
+        waitFor(() -> sessionManager.getSubmittedCount() == 5);
+        Assert.assertEquals(5, smsc.submits.get());
+        Assert.assertEquals(0, smsc.receiptsRequested.size());
+        Assert.assertEquals(0, sessionManager.getPendingReceiptCount());
+        Assert.assertEquals(0, sessionManager.getFailedCount());
+    }
+
+    @Test
+    public void enqueue_shouldRebindWhenTheSmscDropsTheSession() throws Exception {
+        sessionManager.enqueue(sms("+237600000001"));
+        waitFor(() -> sessionManager.getDeliveredCount() == 1);
+
+        smsc.dropSessions();
+        waitFor(() -> smsc.sessions.stream().noneMatch(session -> session.getSessionState().isBound()));
+        sessionManager.enqueue(sms("+237600000002"));
+
+        waitFor(() -> sessionManager.getDeliveredCount() == 2);
+        Assert.assertEquals(2, sessionManager.getBindCount());
+        Assert.assertEquals(0, sessionManager.getFailedCount());
+    }
+
+    @Test
+    public void enqueue_shouldHoldMessagesUntilTheRebindDelayIsOverWithoutCountingAnAttempt() throws Exception {
+        ReflectionTestUtils.setField(sessionManager, "rebindDelayMillis", 1500L);
+        ReflectionTestUtils.setField(sessionManager, "maxAttempts", 1);
+        long firstBindAt = System.currentTimeMillis();
+        sessionManager.enqueue(sms("+237600000001"));
+        waitFor(() -> sessionManager.getDeliveredCount() == 1);
+
+        smsc.dropSessions();
+        waitFor(() -> smsc.sessions.stream().noneMatch(session -> session.getSessionState().isBound()));
+        waitFor(() -> sessionManager.getQueuedCount() == 0);
+        for (int i = 0; i < 5; i++) {
+            sessionManager.enqueue(sms("+2376000001" + i));
+        }
+
+        waitFor(() -> sessionManager.getDeliveredCount() == 6);
+        Assert.assertTrue(System.currentTimeMillis() - firstBindAt >= 1500);
+        Assert.assertEquals(2, sessionManager.getBindCount());
+        Assert.assertEquals(0, sessionManager.getFailedCount());
+    }
+
+    @Test
+    public void rateLimiter_shouldSpaceThePermits() throws Exception {
+        SMPPSessionManager.RateLimiter rateLimiter = new SMPPSessionManager.RateLimiter(20);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.acquire();
+        }
+        // the first permit is free, the next four are 50ms apart
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+    }
+
+    private SMSNotification sms(String receiver) {
+        NotificationPayload payload = mock(NotificationPayload.class);
+        when(payload.getMessage()).thenReturn("results are ready");
+        SMSNotification notification = new SMSNotification();
+        notification.setPayload(payload);
+        notification.setReceiverPhoneNumber(receiver);
+        return notification;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("timed out", System.currentTimeMillis() < giveUpAt);
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * An SMSC which accepts every bind and submit_sm and sends a delivered
+     * receipt for each message which asks for one. Anything that goes wrong in
+     * it is kept in failure and fails the test.
+     */
+    private static class StubSmsc extends ServerResponseDeliveryAdapter implements ServerMessageReceiverListener {
+
+        private final int port;
+        private final SMPPServerSessionListener listener;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final List<SMPPServerSession> sessions = new CopyOnWriteArrayList<>();
+        private final AtomicInteger binds = new AtomicInteger();
+        private final AtomicInteger submits = new AtomicInteger();
+        private final Set<String> receiptsRequested = ConcurrentHashMap.newKeySet();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean closed;
+
+        private StubSmsc() throws IOException {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            listener = new SMPPServerSessionListener(port);
+            listener.setMessageReceiverListener(this);
+            listener.setResponseDeliveryListener(this);
+            executor.execute(this::acceptSessions);
+        }
+
+        private void acceptSessions() {
+            while (!closed) {
+                try {
+                    SMPPServerSession session = listener.accept();
+                    session.waitForBind(5000).accept("stub");
+                    binds.incrementAndGet();
+                    sessions.add(session);
+                } catch (Exception e) {
+                    if (!closed) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }
+        }
+
+        private void dropSessions() {
+            sessions.forEach(SMPPServerSession::unbindAndClose);
+        }
+
+        private void close() throws IOException {
+            closed = true;
+            dropSessions();
+            listener.close();
+            executor.shutdownNow();
+        }
+
+        @Override
+        public MessageId onAcceptSubmitSm(SubmitSm submitSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            try {
+                MessageId messageId = new MessageId(Integer.toHexString(submits.incrementAndGet()));
+                if (SMSCDeliveryReceipt.SUCCESS_FAILURE.containedIn(submitSm.getRegisteredDelivery())) {
+                    receiptsRequested.add(messageId.getValue());
+                }
+                return messageId;
+            } catch (Exception e) {
+                throw new ProcessRequestException(e.getMessage(), 8);
+            }
+        }
+
+        // the receipt can only be sent once the submit_sm_resp has gone
+        @Override
+        public void onSubmitSmRespSent(MessageId messageId, SMPPServerSession source) {
+            if (!receiptsRequested.contains(messageId.getValue())) {
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    DeliveryReceipt receipt = new DeliveryReceipt(messageId.getValue(), 1, 1, new Date(), new Date(),
+                            DeliveryReceiptState.DELIVRD, "000", "");
+                    source.deliverShortMessage("CMT", TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+                            "OpenELIS", TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "receiver",
+                            new ESMClass(MessageMode.DEFAULT, MessageType.SMSC_DEL_RECEIPT, GSMSpecificFeature.DEFAULT),
+                            (byte) 0, (byte) 0, new RegisteredDelivery(0), DataCodings.ZERO,
+                            receipt.toString().getBytes());
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+
+        @Override
+        public SubmitMultiResult onAcceptSubmitMulti(SubmitMulti submitMulti, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("not supported", 3);
+        }
+
+        @Override
+        public QuerySmResult onAcceptQuerySm(QuerySm querySm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("not supported", 3);
+        }
+
+        @Override
+        public void onAcceptReplaceSm(ReplaceSm replaceSm, SMPPServerSession source) throws ProcessRequestException {
+            throw new ProcessRequestException("not supported", 3);
+        }
+
+        @Override
+        public void onAcceptCancelSm(CancelSm cancelSm, SMPPServerSession source) throws ProcessRequestException {
+            throw new ProcessRequestException("not supported", 3);
+        }
+
+        @Override
+        public DataSmResult onAcceptDataSm(DataSm dataSm, Session source) throws ProcessRequestException {
+            throw new ProcessRequestException("not supported", 3);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.openelisglobal.notifications.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.notifications.dao.NotificationDAO;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class NotificationFeedServiceImplTest {
+
+    @Mock
+    private NotificationDAO notificationDAO;
+    @Spy
+    private NotificationFeedWatcher feedWatcher = new NotificationFeedWatcher();
+
+    @InjectMocks
+    private NotificationFeedServiceImpl feedService;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(feedService, "maxLimit", 100);
+        ReflectionTestUtils.setField(feedService, "retentionDays", 90);
+        ReflectionTestUtils.setField(feedService, "archiveBatchSize", 2);
+    }
+
+    @Test
+    public void getFeed_shouldReadOneMoreThanThePageToTellIfThereIsAnother() {
+        when(notificationDAO.getFeedBefore("5", null, 3)).thenReturn(items(9L, 8L, 7L));
+        when(notificationDAO.getUnreadCount("5")).thenReturn(4L);
+
+        NotificationFeed feed = feedService.getFeed("5", null, null, 2);
+
+        Assert.assertEquals(2, feed.getNotifications().size());
+        Assert.assertEquals(Long.valueOf(9L), feed.getNotifications().get(0).getId());
+        Assert.assertTrue(feed.isHasMore());
+        Assert.assertEquals(4L, feed.getUnreadCount());
+    }
+
+    @Test
+    public void getFeed_shouldReturnNotificationsAfterTheCursorNewestFirst() {
+        when(notificationDAO.getFeedAfter("5", 6L, 21)).thenReturn(items(7L, 8L));
+
+        NotificationFeed feed = feedService.getFeed("5", 6L, null, 20);
+
+        Assert.assertEquals(Long.valueOf(8L), feed.getNotifications().get(0).getId());
+        Assert.assertEquals(Long.valueOf(7L), feed.getNotifications().get(1).getId());
+        Assert.assertFalse(feed.isHasMore());
+    }
+
+    @Test
+    public void getETag_shouldChangeWithTheFeedInTheDatabase() {
+        OffsetDateTime readAt = OffsetDateTime.now();
+        NotificationFeedVersion feed = new NotificationFeedVersion(9L, 3L, 2L, readAt);
+        NotificationFeedVersion oneRead = new NotificationFeedVersion(9L, 3L, 1L, readAt.plusSeconds(1));
+        NotificationFeedVersion oneAdded = new NotificationFeedVersion(10L, 4L, 2L, readAt.plusSeconds(1));
+        NotificationFeedVersion oneArchived = new NotificationFeedVersion(10L, 3L, 2L, readAt.plusSeconds(1));
+        when(notificationDAO.getFeedVersion("5")).thenReturn(feed, oneRead, oneAdded, oneArchived);
+
+        String eTag = feedService.getETag("5");
+        feedWatcher.changed(Collections.singleton("5"));
+        String read = feedService.getETag("5");
+        Assert.assertNotEquals(eTag, read);
+        feedWatcher.changed(Collections.singleton("5"));
+        String added = feedService.getETag("5");
+        Assert.assertNotEquals(read, added);
+        feedWatcher.changed(Collections.singleton("5"));
+        Assert.assertNotEquals(added, feedService.getETag("5"));
+    }
+
+    @Test
+    public void getETag_shouldReadTheDatabaseOnlyUntilTheFeedChanges() {
+        when(notificationDAO.getFeedVersion("5")).thenReturn(new NotificationFeedVersion(9L, 3L, 2L, null),
+                new NotificationFeedVersion(10L, 4L, 3L, null));
+
+        String eTag = feedService.getETag("5");
+        Assert.assertEquals(eTag, feedService.getETag("5"));
+        verify(notificationDAO, times(1)).getFeedVersion("5");
+
+        feedService.markAllAsRead("5");
+
+        Assert.assertNotEquals(eTag, feedService.getETag("5"));
+        verify(notificationDAO, times(2)).getFeedVersion("5");
+    }
+
+    @Test
+    public void reconcileETags_shouldWakeThePollsOfAFeedChangedOnAnotherNode() {
+        NotificationFeedVersion feed = new NotificationFeedVersion(9L, 3L, 2L, null);
+        when(notificationDAO.getFeedVersion(any())).thenReturn(feed);
+        AtomicInteger woken = new AtomicInteger();
+        feedService.awaitChange("5", feedService.getETag("5"), woken::incrementAndGet);
+        feedService.awaitChange("6", feedService.getETag("6"), woken::incrementAndGet);
+        // another node added a notification for user 6 only, user 5 has none left
+        Map<String, NotificationFeedVersion> versions = new HashMap<>();
+        versions.put("6", new NotificationFeedVersion(10L, 4L, 3L, null));
+        when(notificationDAO.getFeedVersions(anyCollection())).thenReturn(versions);
+
+        feedService.reconcileETags();
+
+        Assert.assertEquals(2, woken.get());
+        Assert.assertTrue(feedWatcher.getKeptUserIds().isEmpty());
+    }
+
+    @Test
+    public void reconcileETags_shouldKeepATagThatHasNotChanged() {
+        NotificationFeedVersion feed = new NotificationFeedVersion(9L, 3L, 2L, null);
+        when(notificationDAO.getFeedVersion("5")).thenReturn(feed);
+        when(notificationDAO.getFeedVersions(anyCollection())).thenReturn(Collections.singletonMap("5", feed));
+        AtomicInteger woken = new AtomicInteger();
+        feedService.awaitChange("5", feedService.getETag("5"), woken::incrementAndGet);
+
+        feedService.reconcileETags();
+
+        Assert.assertEquals(0, woken.get());
+        Assert.assertEquals(Collections.singleton("5"), feedWatcher.getKeptUserIds());
+    }
+
+    @Test
+    public void markAllAsRead_shouldWakeTheWaitingPolls() {
+        when(notificationDAO.getFeedVersion(any())).thenReturn(new NotificationFeedVersion(9L, 3L, 2L, null));
+        AtomicInteger woken = new AtomicInteger();
+        feedService.awaitChange("5", feedService.getETag("5"), woken::incrementAndGet);
+        Runnable cancel = feedService.awaitChange("6", feedService.getETag("6"), woken::incrementAndGet);
+        cancel.run();
+
+        feedService.markAllAsRead("5");
+        feedWatcher.changed(Collections.singleton("6"));
+
+        Assert.assertEquals(1, woken.get());
+        Assert.assertEquals(0, feedWatcher.getWaiterCount());
+    }
+
+    @Test
+    public void awaitChange_shouldNotWaitWhenTheTagHasAlreadyChanged() {
+        when(notificationDAO.getFeedVersion("5")).thenReturn(new NotificationFeedVersion(10L, 4L, 3L, null));
+        AtomicInteger woken = new AtomicInteger();
+
+        feedService.awaitChange("5", new NotificationFeedVersion(9L, 3L, 2L, null).toETag(),
+                woken::incrementAndGet);
+
+        Assert.assertEquals(1, woken.get());
+    }
+
+    @Test
+    public void archiveReadNotifications_shouldMoveBatchesUntilOneIsShort() {
+        when(notificationDAO.archiveReadNotifications(any(OffsetDateTime.class), anyInt())).thenReturn(2, 2, 1);
+        when(notificationDAO.getFeedVersion("5")).thenReturn(new NotificationFeedVersion(9L, 3L, 2L, null));
+        AtomicInteger woken = new AtomicInteger();
+        feedService.awaitChange("5", feedService.getETag("5"), woken::incrementAndGet);
+
+        feedService.archiveReadNotifications();
+
+        verify(notificationDAO, times(3)).archiveReadNotifications(any(OffsetDateTime.class), eq(2));
+        Assert.assertEquals(1, woken.get());
+    }
+
+    private List<NotificationFeedItem> items(Long... ids) {
+        List<NotificationFeedItem> items = new ArrayList<>();
+        for (Long id : ids) {
+            items.add(new NotificationFeedItem(id, "results are ready", OffsetDateTime.now(), null));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,122 @@
+package org.openelisglobal.notifications.service;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.notifications.dao.NotificationDAO;
+import org.openelisglobal.notifications.dao.NotificationPushQueueDAO;
+import org.openelisglobal.notifications.dao.NotificationSubscriptionDAO;
+import org.openelisglobal.notifications.entity.Notification;
+import org.openelisglobal.notifications.entity.NotificationPushTask;
+import org.openelisglobal.notifications.entity.NotificationSubscriptions;
+import org.openelisglobal.systemuser.valueholder.SystemUser;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class NotificationPushQueueServiceImplTest {
+
+    @Mock
+    private NotificationDAO notificationDAO;
+    @Mock
+    private NotificationSubscriptionDAO notificationSubscriptionDAO;
+    @Mock
+    private NotificationPushQueueDAO notificationPushQueueDAO;
+
+    @InjectMocks
+    private NotificationPushQueueServiceImpl queueService;
+
+    @Test
+    public void claimDue_shouldClaimSubscribedAndDropUnsubscribed() {
+        NotificationPushTask subscribed = task(1L, notification(10L, "5"));
+        NotificationPushTask unsubscribed = task(2L, notification(11L, "6"));
+        when(notificationPushQueueDAO.getDueForUpdate(any(OffsetDateTime.class), anyInt()))
+                .thenReturn(Arrays.asList(subscribed, unsubscribed));
+        when(notificationDAO.getNotificationsByIds(anyCollection()))
+                .thenReturn(Arrays.asList(subscribed.getNotification(), unsubscribed.getNotification()));
+        NotificationSubscriptions subscription = new NotificationSubscriptions();
+        subscription.setUser(subscribed.getNotification().getUser());
+        subscription.setPfEndpoint("https://push.example.org/abc");
+        when(notificationSubscriptionDAO.getNotificationSubscriptionsByUserIds(anyCollection()))
+                .thenReturn(Collections.singletonList(subscription));
+
+        List<PendingPush> pushes = queueService.claimDue(100, 300);
+
+        Assert.assertEquals(1, pushes.size());
+        Assert.assertEquals(Long.valueOf(1L), pushes.get(0).getTaskId());
+        Assert.assertEquals("https://push.example.org/abc", pushes.get(0).getEndpoint());
+        Assert.assertNotNull(subscribed.getClaimedUntil());
+        verify(notificationPushQueueDAO).deleteTasks(Collections.singletonList(2L));
+    }
+
+    @Test
+    public void recordFailed_shouldRetryLaterAndGiveUpAfterMaxAttempts() {
+        NotificationPushTask retried = task(1L, notification(10L, "5"));
+        retried.setAttempts(1);
+        retried.setClaimedUntil(OffsetDateTime.now().plusMinutes(5));
+        NotificationPushTask givenUp = task(2L, notification(11L, "5"));
+        givenUp.setAttempts(4);
+        when(notificationPushQueueDAO.getTasks(anyCollection())).thenReturn(Arrays.asList(retried, givenUp));
+
+        OffsetDateTime before = OffsetDateTime.now();
+        queueService.recordFailed(Arrays.asList(1L, 2L), 30, 3600, 5);
+
+        Assert.assertEquals(2, retried.getAttempts());
+        Assert.assertNull(retried.getClaimedUntil());
+        Assert.assertFalse(retried.getNextAttemptTime().isBefore(before.plusSeconds(60)));
+        verify(notificationPushQueueDAO).deleteTasks(Collections.singletonList(2L));
+    }
+
+    @Test
+    public void release_shouldRetryLaterWithoutCountingAnAttempt() {
+        NotificationPushTask released = task(1L, notification(10L, "5"));
+        released.setAttempts(2);
+        released.setClaimedUntil(OffsetDateTime.now().plusMinutes(5));
+        when(notificationPushQueueDAO.getTasks(anyCollection())).thenReturn(Collections.singletonList(released));
+
+        OffsetDateTime before = OffsetDateTime.now();
+        queueService.release(Collections.singletonList(1L), 30);
+
+        Assert.assertEquals(2, released.getAttempts());
+        Assert.assertNull(released.getClaimedUntil());
+        Assert.assertFalse(released.getNextAttemptTime().isBefore(before.plusSeconds(30)));
+    }
+
+    @Test
+    public void resultOf_shouldTreatNotFoundAndGoneAsDeadSubscriptions() {
+        Assert.assertEquals(PushNotificationDispatcher.Result.SENT, PushNotificationDispatcher.resultOf(201));
+        Assert.assertEquals(PushNotificationDispatcher.Result.GONE, PushNotificationDispatcher.resultOf(410));
+        Assert.assertEquals(PushNotificationDispatcher.Result.GONE, PushNotificationDispatcher.resultOf(404));
+        Assert.assertEquals(PushNotificationDispatcher.Result.FAILED, PushNotificationDispatcher.resultOf(429));
+        Assert.assertEquals(PushNotificationDispatcher.Result.FAILED, PushNotificationDispatcher.resultOf(503));
+    }
+
+    private NotificationPushTask task(Long id, Notification notification) {
+        NotificationPushTask task = new NotificationPushTask(notification);
+        task.setId(id);
+        ReflectionTestUtils.setField(task, "notificationId", notification.getId());
+        return task;
+    }
+
+    private Notification notification(Long id, String userId) {
+        SystemUser user = new SystemUser();
+        user.setId(userId);
+        Notification notification = new Notification();
+        notification.setId(id);
+        notification.setUser(user);
+        notification.setMessage("results are ready");
+        return notification;
+    }
+}
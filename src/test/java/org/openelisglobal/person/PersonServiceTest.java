@@ -3,9 +3,14 @@ package org.openelisglobal.person;
 import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
+import javax.persistence.EntityManagerFactory;
 import javax.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -25,6 +30,9 @@ public class PersonServiceTest extends BaseWebContextSensitiveTest {
     @Autowired
     PatientService patientService;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     @Before
     public void init() throws Exception {
         patientService.deleteAll(patientService.getAll());
@@ -91,6 +99,34 @@ public class PersonServiceTest extends BaseWebContextSensitiveTest {
         }
     }
 
+    @Test
+    public void insertAll_shouldPrepareFewerStatementsThanSingleInserts() throws Exception {
+        int count = 40;
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            for (int i = 0; i < count; i++) {
+                personService.insert(createPerson("John", "Single" + i));
+            }
+            long singleInsertStatements = statistics.getPrepareStatementCount();
+
+            List<Person> persons = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                persons.add(createPerson("John", "Batch" + i));
+            }
+            statistics.clear();
+            personService.insertAll(persons);
+            long batchInsertStatements = statistics.getPrepareStatementCount();
+
+            Assert.assertEquals(count * 2, personService.getAllPersons().size());
+            Assert.assertTrue("single: " + singleInsertStatements + " batch: " + batchInsertStatements,
+                    batchInsertStatements <= singleInsertStatements - count + 1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
     @Test
     public void getAllPerson_shouldGetAllPerson() throws Exception {
         Person person = new Person();
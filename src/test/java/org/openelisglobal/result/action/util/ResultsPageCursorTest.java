@@ -0,0 +1,60 @@
+package org.openelisglobal.result.action.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResultsPageCursorTest {
+
+    private static final List<Integer> STATUSES = Arrays.asList(1, 2);
+    private static final Set<String> ALL_TESTS = new HashSet<>(Arrays.asList("t1", "t2"));
+
+    @Test
+    public void cursor_shouldNotSplitASampleOverTwoPages() {
+        List<Object[]> keys = new ArrayList<>();
+        keys.add(new Object[] { "1", "DEV01", "t1" });
+        keys.add(new Object[] { "2", "DEV01", "t2" });
+        keys.add(new Object[] { "3", "DEV02", "t1" });
+        keys.add(new Object[] { "4", "DEV02", "t2" });
+        keys.add(new Object[] { "5", "DEV02", "t1" });
+        keys.add(new Object[] { "6", "DEV03", "t1" });
+
+        ResultsPageCursor cursor = new ResultsPageCursor("36", STATUSES, STATUSES, keys, ALL_TESTS, 3);
+
+        Assert.assertEquals(2, cursor.getTotalPages());
+        Assert.assertEquals(6, cursor.getAnalysisCount());
+        ResultsPageCursor.Page first = cursor.getPage(1);
+        Assert.assertEquals("DEV01", first.getFirstAccessionNumber());
+        Assert.assertEquals("DEV02", first.getLastAccessionNumber());
+        Assert.assertTrue(first.contains("5"));
+        Assert.assertFalse(first.contains("6"));
+        Assert.assertEquals("DEV03", cursor.getPage(2).getFirstAccessionNumber());
+        Assert.assertNull(cursor.getPage(3));
+        Assert.assertEquals("2", cursor.getSearchTermToPage().get(2).getValue());
+    }
+
+    @Test
+    public void cursor_shouldLeaveOutTestsTheUserCannotSee() {
+        List<Object[]> keys = new ArrayList<>();
+        keys.add(new Object[] { "1", "DEV01", "t1" });
+        keys.add(new Object[] { "2", "DEV02", "t3" });
+
+        ResultsPageCursor cursor = new ResultsPageCursor("36", STATUSES, STATUSES, keys, ALL_TESTS, 10);
+
+        Assert.assertEquals(1, cursor.getAnalysisCount());
+        Assert.assertEquals(1, cursor.getSearchTermToPage().size());
+        Assert.assertFalse(cursor.getPage(1).contains("2"));
+    }
+
+    @Test
+    public void cursor_shouldBeEmptyWithoutKeys() {
+        ResultsPageCursor cursor = new ResultsPageCursor("36", STATUSES, STATUSES, new ArrayList<>(), ALL_TESTS, 10);
+
+        Assert.assertTrue(cursor.isEmpty());
+        Assert.assertNull(cursor.getPage(1));
+    }
+}
@@ -0,0 +1,172 @@
+package org.openelisglobal.result.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openelisglobal.analysis.valueholder.Analysis;
+import org.openelisglobal.note.service.NoteService;
+import org.openelisglobal.note.service.NoteServiceImpl.NoteType;
+import org.openelisglobal.observationhistory.service.ObservationHistoryService;
+import org.openelisglobal.patient.service.PatientService;
+import org.openelisglobal.referral.service.ReferralService;
+import org.openelisglobal.referral.valueholder.Referral;
+import org.openelisglobal.result.valueholder.Result;
+import org.openelisglobal.result.valueholder.ResultInventory;
+import org.openelisglobal.result.valueholder.ResultSignature;
+import org.openelisglobal.sample.valueholder.Sample;
+import org.openelisglobal.samplehuman.service.SampleHumanService;
+import org.openelisglobal.sampleitem.valueholder.SampleItem;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class ResultItemPrefetchServiceImplTest {
+
+    @Mock
+    private SampleHumanService sampleHumanService;
+    @Mock
+    private PatientService patientService;
+    @Mock
+    private ResultService resultService;
+    @Mock
+    private ResultSignatureService resultSignatureService;
+    @Mock
+    private ResultInventoryService resultInventoryService;
+    @Mock
+    private NoteService noteService;
+    @Mock
+    private ReferralService referralService;
+    @Mock
+    private ObservationHistoryService observationHistoryService;
+
+    @InjectMocks
+    private ResultItemPrefetchServiceImpl prefetchService;
+
+    @Test
+    public void prefetch_shouldQueryOncePerChunkNotOncePerAnalysis() {
+        List<Analysis> analyses = new ArrayList<>();
+        for (int i = 1; i <= 1200; i++) {
+            analyses.add(analysis(String.valueOf(i), String.valueOf(i), String.valueOf((i + 3) / 4)));
+        }
+        when(sampleHumanService.getPatientsForSamples(anyList())).thenReturn(new HashMap<>());
+        when(patientService.getNationalIds(any())).thenReturn(new HashMap<>());
+        when(resultService.getResultsForAnalysisIdList(anyList())).thenAnswer(invocation -> {
+            List<Result> results = new ArrayList<>();
+            for (Object analysisId : (List<?>) invocation.getArgument(0)) {
+                results.add(result(String.valueOf(analysisId), analysis(String.valueOf(analysisId), "1", "1")));
+            }
+            return results;
+        });
+        when(resultSignatureService.getResultSignaturesByResults(anyList())).thenReturn(new ArrayList<>());
+        when(resultInventoryService.getResultInventorysByResults(anyList())).thenReturn(new ArrayList<>());
+        when(noteService.getNotesAsStringForAnalyses(anyList(), anyBoolean(), anyBoolean(), anyString(),
+                any(NoteType[].class), anyBoolean())).thenReturn(new HashMap<>());
+        when(referralService.getReferralsByAnalysisIds(anyList())).thenReturn(new ArrayList<>());
+        when(observationHistoryService.getObservationHistoriesBySampleItemIds(anyList()))
+                .thenReturn(new ArrayList<>());
+
+        ResultItemPrefetch prefetch = prefetchService.prefetch(analyses, true, true, true, true);
+
+        // 1200 analyses are read in three chunks, each chunk with one query per kind
+        // of data
+        verify(sampleHumanService, times(3)).getPatientsForSamples(anyList());
+        verify(patientService, times(3)).getNationalIds(any());
+        verify(resultService, times(3)).getResultsForAnalysisIdList(anyList());
+        verify(resultSignatureService, times(3)).getResultSignaturesByResults(anyList());
+        verify(resultInventoryService, times(3)).getResultInventorysByResults(anyList());
+        verify(noteService, times(3)).getNotesAsStringForAnalyses(anyList(), anyBoolean(), anyBoolean(), anyString(),
+                any(NoteType[].class), anyBoolean());
+        verify(referralService, times(3)).getReferralsByAnalysisIds(anyList());
+        verify(observationHistoryService, times(3)).getObservationHistoriesBySampleItemIds(anyList());
+        verifyNoMoreInteractions(sampleHumanService, patientService, resultService, resultSignatureService,
+                resultInventoryService, noteService, referralService, observationHistoryService);
+        Assert.assertEquals(1, prefetch.getResults("1200").size());
+    }
+
+    @Test
+    public void prefetch_shouldGiveSameAnswersAsSingleAnalysisLookups() {
+        Analysis first = analysis("1", "10", "100");
+        Analysis second = analysis("2", "20", "100");
+        Result laterResult = result("12", first);
+        Result earlierResult = result("11", first);
+        when(resultService.getResultsForAnalysisIdList(anyList()))
+                .thenReturn(new ArrayList<>(Arrays.asList(laterResult, earlierResult)));
+        when(resultSignatureService.getResultSignaturesByResults(anyList()))
+                .thenReturn(Arrays.asList(signature("s1", "11", false), signature("s2", "12", true)));
+        when(resultInventoryService.getResultInventorysByResults(anyList()))
+                .thenReturn(Arrays.asList(inventory("i1", "11"), inventory("i2", "11")));
+        when(referralService.getReferralsByAnalysisIds(anyList()))
+                .thenReturn(Arrays.asList(referral("r1", first), referral("r2", first), referral("r3", second)));
+        when(noteService.getNotesAsStringForAnalyses(anyList(), anyBoolean(), anyBoolean(), anyString(),
+                any(NoteType[].class), anyBoolean())).thenReturn(new HashMap<>());
+
+        ResultItemPrefetch prefetch = prefetchService.prefetch(Arrays.asList(first, second), false, true, true,
+                false);
+
+        Assert.assertEquals("11", prefetch.getResults("1").get(0).getId());
+        Assert.assertEquals("12", prefetch.getResults("1").get(1).getId());
+        Assert.assertTrue(prefetch.getResults("2").isEmpty());
+        // supervisor signatures are not used
+        Assert.assertEquals("s1", prefetch.getTechSignature("1").getId());
+        Assert.assertEquals("i1", prefetch.getInventory("11").getId());
+        // getReferralByAnalysisId gives nothing when there is more than one referral
+        Assert.assertNull(prefetch.getReferral("1"));
+        Assert.assertEquals("r3", prefetch.getReferral("2").getId());
+        Assert.assertEquals("", prefetch.getNationalId(null));
+    }
+
+    private Analysis analysis(String id, String sampleItemId, String sampleId) {
+        Sample sample = new Sample();
+        sample.setId(sampleId);
+        SampleItem sampleItem = new SampleItem();
+        sampleItem.setId(sampleItemId);
+        sampleItem.setSample(sample);
+        Analysis analysis = new Analysis();
+        analysis.setId(id);
+        analysis.setSampleItem(sampleItem);
+        return analysis;
+    }
+
+    private Result result(String id, Analysis analysis) {
+        Result result = new Result();
+        result.setId(id);
+        result.setAnalysis(analysis);
+        return result;
+    }
+
+    private ResultSignature signature(String id, String resultId, boolean supervisor) {
+        ResultSignature signature = new ResultSignature();
+        signature.setId(id);
+        signature.setResultId(resultId);
+        signature.setIsSupervisor(supervisor);
+        return signature;
+    }
+
+    private ResultInventory inventory(String id, String resultId) {
+        ResultInventory inventory = new ResultInventory();
+        inventory.setId(id);
+        inventory.setResultId(resultId);
+        return inventory;
+    }
+
+    private Referral referral(String id, Analysis analysis) {
+        Referral referral = new Referral();
+        referral.setId(id);
+        referral.setAnalysis(analysis);
+        return referral;
+    }
+}
@@ -0,0 +1,92 @@
+package org.openelisglobal.resultlimit.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.validator.GenericValidator;
+import org.openelisglobal.resultlimits.valueholder.ResultLimit;
+
+/**
+ * The lookup ResultLimitServiceImpl did before the reference range index,
+ * scanning a test's limits in order. Kept to check the index against and to
+ * benchmark it.
+ */
+class LinearResultLimitMatcher {
+
+    static ResultLimit match(List<ResultLimit> testLimits, String gender, boolean hasAge, double age) {
+        // the database handed out a new list on each call, which was changed below
+        List<ResultLimit> resultLimits = new ArrayList<>(testLimits);
+        if (resultLimits.isEmpty()) {
+            return null;
+        } else if (!hasAge && GenericValidator.isBlankOrNull(gender)) {
+            return defaultResultLimit(resultLimits);
+        } else if (GenericValidator.isBlankOrNull(gender)) {
+            return ageBasedResultLimit(resultLimits, age);
+        } else if (!hasAge) {
+            return genderBasedResultLimit(resultLimits, gender);
+        } else {
+            return ageAndGenderBasedResultLimit(resultLimits, gender, age);
+        }
+    }
+
+    private static ResultLimit defaultResultLimit(List<ResultLimit> resultLimits) {
+        for (ResultLimit limit : resultLimits) {
+            if (GenericValidator.isBlankOrNull(limit.getGender()) && limit.ageLimitsAreDefault()) {
+                return limit;
+            }
+        }
+        return ReferenceRangeIndex.NO_LIMIT;
+    }
+
+    private static ResultLimit ageBasedResultLimit(List<ResultLimit> resultLimits, double age) {
+        for (ResultLimit limit : resultLimits) {
+            if (GenericValidator.isBlankOrNull(limit.getGender()) && !limit.ageLimitsAreDefault()
+                    && inAgeRange(age, limit)) {
+                return limit;
+            }
+        }
+        for (ResultLimit limit : resultLimits) {
+            if (!limit.ageLimitsAreDefault() && inAgeRange(age, limit)) {
+                return limit;
+            }
+        }
+        return defaultResultLimit(resultLimits);
+    }
+
+    private static ResultLimit genderBasedResultLimit(List<ResultLimit> resultLimits, String gender) {
+        for (ResultLimit limit : resultLimits) {
+            if (limit.ageLimitsAreDefault() && gender.equals(limit.getGender())) {
+                return limit;
+            }
+        }
+        for (ResultLimit limit : resultLimits) {
+            if (gender.equals(limit.getGender())) {
+                return limit;
+            }
+        }
+        return defaultResultLimit(resultLimits);
+    }
+
+    private static ResultLimit ageAndGenderBasedResultLimit(List<ResultLimit> resultLimits, String gender,
+            double age) {
+        List<ResultLimit> fullySpecifiedLimits = new ArrayList<>();
+        for (ResultLimit limit : resultLimits) {
+            if (gender.equals(limit.getGender()) && !limit.ageLimitsAreDefault()) {
+                fullySpecifiedLimits.add(limit);
+                if (inAgeRange(age, limit)) {
+                    return limit;
+                }
+            }
+        }
+        resultLimits.removeAll(fullySpecifiedLimits);
+        for (ResultLimit limit : resultLimits) {
+            if (!limit.ageLimitsAreDefault() && inAgeRange(age, limit)) {
+                return limit;
+            }
+        }
+        return genderBasedResultLimit(resultLimits, gender);
+    }
+
+    private static boolean inAgeRange(double age, ResultLimit limit) {
+        return age >= limit.getMinAge() && age <= limit.getMaxAge();
+    }
+}
@@ -0,0 +1,100 @@
+package org.openelisglobal.resultlimit.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openelisglobal.resultlimits.valueholder.ResultLimit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares looking up a patient's result limit in the reference range index
+ * with scanning the test's limits as the service did. The scan is measured
+ * without the database read that came before it, so the real difference is
+ * larger.
+ *
+ * <p>Run with mvn test-compile, then run main with the test classpath, adding
+ * -prof gc to the options to see the allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceRangeIndexBenchmark {
+
+    private static final String[] GENDERS = { "", "M", "F" };
+
+    @Param({ "4", "16" })
+    public int limitsPerTest;
+
+    private final int tests = 500;
+    private final int lookups = 1024;
+
+    private ReferenceRangeIndex index;
+    private Map<String, List<ResultLimit>> limitsByTest;
+    private String[] testIds;
+    private String[] genders;
+    private double[] ages;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<ResultLimit> allLimits = new ArrayList<>();
+        limitsByTest = new HashMap<>();
+        for (int test = 0; test < tests; test++) {
+            String testId = String.valueOf(test + 1);
+            List<ResultLimit> limits = ReferenceRangeIndexTest.randomLimits(random, testId, limitsPerTest);
+            for (ResultLimit limit : limits) {
+                limit.setId(testId + "-" + limit.getId());
+            }
+            limitsByTest.put(testId, limits);
+            allLimits.addAll(limits);
+        }
+        index = ReferenceRangeIndex.build(allLimits);
+
+        testIds = new String[lookups];
+        genders = new String[lookups];
+        ages = new double[lookups];
+        for (int i = 0; i < lookups; i++) {
+            testIds[i] = String.valueOf(1 + random.nextInt(tests));
+            genders[i] = GENDERS[random.nextInt(GENDERS.length)];
+            ages[i] = random.nextInt(365 * 80);
+        }
+    }
+
+    @Benchmark
+    public void index(Blackhole blackhole) {
+        for (int i = 0; i < lookups; i++) {
+            blackhole.consume(index.lookup(testIds[i], genders[i], true, ages[i]));
+        }
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (int i = 0; i < lookups; i++) {
+            blackhole.consume(LinearResultLimitMatcher.match(limitsByTest.get(testIds[i]), genders[i], true, ages[i]));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ReferenceRangeIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
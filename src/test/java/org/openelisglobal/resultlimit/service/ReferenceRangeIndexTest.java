@@ -0,0 +1,87 @@
+package org.openelisglobal.resultlimit.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openelisglobal.resultlimits.valueholder.ResultLimit;
+
+public class ReferenceRangeIndexTest {
+
+    private static final String[] GENDERS = { null, "", "M", "F" };
+    private static final double[] AGE_ENDS = { 0, 7, 30, 365, 365 * 5, 365 * 18, 365 * 65 };
+
+    @Test
+    public void lookup_shouldPreferGenderAndAgeThenAgeThenGenderThenDefault() {
+        ResultLimit anyone = limit("1", "10", null, 0, Double.POSITIVE_INFINITY);
+        ResultLimit women = limit("2", "10", "F", 0, Double.POSITIVE_INFINITY);
+        ResultLimit children = limit("3", "10", null, 0, 365 * 18);
+        ResultLimit girls = limit("4", "10", "F", 0, 365 * 12);
+        ReferenceRangeIndex index = ReferenceRangeIndex.build(Arrays.asList(girls, children, women, anyone));
+
+        Assert.assertSame(girls, index.lookup("10", "F", true, 365 * 12));
+        Assert.assertSame(children, index.lookup("10", "F", true, 365 * 12 + 1));
+        Assert.assertSame(women, index.lookup("10", "F", true, 365 * 18 + 1));
+        Assert.assertSame(women, index.lookup("10", "F", false, 0));
+        Assert.assertSame(children, index.lookup("10", "M", true, 365));
+        Assert.assertSame(anyone, index.lookup("10", "M", true, 365 * 40));
+        Assert.assertSame(anyone, index.lookup("10", "", false, 0));
+        Assert.assertNull(index.lookup("11", "F", true, 365));
+    }
+
+    @Test
+    public void lookup_shouldReturnNoLimitWhenTheTestHasLimitsButNoneApply() {
+        ReferenceRangeIndex index = ReferenceRangeIndex.build(Arrays.asList(limit("1", "10", "M", 0, 365)));
+
+        Assert.assertSame(ReferenceRangeIndex.NO_LIMIT, index.lookup("10", "F", true, 400));
+        Assert.assertSame(ReferenceRangeIndex.NO_LIMIT, index.lookup("10", null, false, 0));
+    }
+
+    @Test
+    public void lookup_shouldMatchTheLinearScanForOverlappingRanges() {
+        Random random = new Random(20241018L);
+        for (int round = 0; round < 200; round++) {
+            List<ResultLimit> limits = randomLimits(random, "10", 1 + random.nextInt(8));
+            ReferenceRangeIndex index = ReferenceRangeIndex.build(limits);
+            for (String gender : GENDERS) {
+                Assert.assertSame(LinearResultLimitMatcher.match(limits, gender, false, 0),
+                        index.lookup("10", gender, false, 0));
+                for (double end : AGE_ENDS) {
+                    for (double age : new double[] { end - 1, end, end + 1 }) {
+                        Assert.assertSame("age " + age + " gender " + gender,
+                                LinearResultLimitMatcher.match(limits, gender, true, age),
+                                index.lookup("10", gender, true, age));
+                    }
+                }
+            }
+        }
+    }
+
+    static List<ResultLimit> randomLimits(Random random, String testId, int count) {
+        List<ResultLimit> limits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String gender = GENDERS[random.nextInt(GENDERS.length)];
+            if (random.nextInt(3) == 0) {
+                limits.add(limit(String.valueOf(i + 1), testId, gender, 0, Double.POSITIVE_INFINITY));
+            } else {
+                int from = random.nextInt(AGE_ENDS.length - 1);
+                int to = from + 1 + random.nextInt(AGE_ENDS.length - from - 1);
+                limits.add(limit(String.valueOf(i + 1), testId, gender, AGE_ENDS[from],
+                        to == AGE_ENDS.length - 1 && random.nextBoolean() ? Double.POSITIVE_INFINITY : AGE_ENDS[to]));
+            }
+        }
+        return limits;
+    }
+
+    static ResultLimit limit(String id, String testId, String gender, double minAge, double maxAge) {
+        ResultLimit limit = new ResultLimit();
+        limit.setId(id);
+        limit.setTestId(testId);
+        limit.setGender(gender);
+        limit.setMinAge(minAge);
+        limit.setMaxAge(maxAge);
+        return limit;
+    }
+}
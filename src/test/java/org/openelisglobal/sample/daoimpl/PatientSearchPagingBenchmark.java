@@ -0,0 +1,149 @@
+package org.openelisglobal.sample.daoimpl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares a fuzzy last name search over a synthetic patient index read the
+ * way the search used to, every hit and the id of each, with the first page of
+ * it read the way LuceneSearchResultsDAOImpl does, the top hits up to the page
+ * with the count stopped at totalHitCountThreshold. The surnames are drawn so a
+ * few of them are very common, which is the case that pulled back most of the
+ * patient table. The database read of the ids that follows is left out, it
+ * grows with the number of ids in the same way.
+ *
+ * <p>Run with mvn test-compile, then run main with the test classpath, adding
+ * -prof gc to the options to see the allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientSearchPagingBenchmark {
+
+    private static final String[] COMMON_SURNAMES = { "diallo", "traore", "kone", "coulibaly", "camara", "toure" };
+
+    @Param({ "100000", "500000" })
+    public int patients;
+
+    private final int pageSize = 25;
+    private final int totalHitCountThreshold = 1000;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private Query query;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (int i = 0; i < patients; i++) {
+                Document patient = new Document();
+                patient.add(new StringField("id", String.valueOf(i + 1), Field.Store.YES));
+                patient.add(new TextField("person.firstName", randomName(random), Field.Store.NO));
+                patient.add(new TextField("person.lastName", surname(random), Field.Store.NO));
+                writer.addDocument(patient);
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        // as match().fuzzy() builds it, two edits and no exact prefix
+        query = new FuzzyQuery(new Term("person.lastName", "diallo"), 2, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public List<String> allHits() throws IOException {
+        TopDocs topDocs = searcher.search(query, reader.maxDoc());
+        return ids(topDocs.scoreDocs, 0);
+    }
+
+    @Benchmark
+    public List<String> firstPage() throws IOException {
+        TopScoreDocCollector collector = TopScoreDocCollector.create(pageSize, totalHitCountThreshold);
+        searcher.search(query, collector);
+        return ids(collector.topDocs().scoreDocs, 0);
+    }
+
+    @Benchmark
+    public List<String> fourthPage() throws IOException {
+        int offset = 3 * pageSize;
+        TopScoreDocCollector collector = TopScoreDocCollector.create(offset + pageSize, totalHitCountThreshold);
+        searcher.search(query, collector);
+        return ids(collector.topDocs().scoreDocs, offset);
+    }
+
+    private List<String> ids(ScoreDoc[] hits, int offset) throws IOException {
+        List<String> ids = new ArrayList<>(Math.max(0, hits.length - offset));
+        for (int i = offset; i < hits.length; i++) {
+            ids.add(searcher.doc(hits[i].doc).get("id"));
+        }
+        return ids;
+    }
+
+    /*
+     * one patient in five has a common surname, the rest are spread thin
+     */
+    private static String surname(Random random) {
+        if (random.nextInt(5) == 0) {
+            return COMMON_SURNAMES[random.nextInt(COMMON_SURNAMES.length)];
+        }
+        return randomName(random);
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[5 + random.nextInt(5)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(name);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PatientSearchPagingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package org.openelisglobal.systemmodule.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openelisglobal.login.valueholder.LoginUser;
+import org.openelisglobal.role.valueholder.Role;
+import org.openelisglobal.systemmodule.service.UserModulePermissions.Access;
+import org.openelisglobal.systemmodule.valueholder.SystemModule;
+import org.openelisglobal.systemmodule.valueholder.SystemModuleParam;
+import org.openelisglobal.systemmodule.valueholder.SystemModuleUrl;
+import org.openelisglobal.systemusermodule.valueholder.RoleModule;
+import org.openelisglobal.userrole.valueholder.UserRole;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class ModulePermissionSnapshotTest {
+
+    private ModulePermissionSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        SystemModule results = module("LogbookResults");
+        SystemModule validation = module("ResultValidation");
+        SystemModule admin = module("MasterList");
+
+        LoginUser adminLogin = new LoginUser();
+        adminLogin.setLoginName("admin");
+        adminLogin.setIsAdmin("Y");
+        LoginUser clerkLogin = new LoginUser();
+        clerkLogin.setLoginName("clerk");
+        clerkLogin.setIsAdmin("N");
+
+        snapshot = ModulePermissionSnapshot.build(
+                Arrays.asList(url("/LogbookResults", results, "type", "Hematology"),
+                        url("/ResultValidation", validation, null, null), url("/MasterListsPage", admin, null, null)),
+                Arrays.asList(roleModule("1", results), roleModule("2", validation)),
+                Arrays.asList(userRole("7", "1")), Arrays.asList(adminLogin, clerkLogin));
+    }
+
+    @Test
+    public void getAccess_shouldMatchThePathAndItsParameter() {
+        UserModulePermissions permissions = snapshot.permissionsFor(7, "clerk", null);
+
+        Assert.assertEquals(Access.PERMITTED,
+                permissions.getAccess(request("/LogbookResults", "type", "Hematology")));
+        Assert.assertEquals(Access.PERMITTED,
+                permissions.getAccess(request("/LogbookResults.do", "type", "Hematology")));
+        Assert.assertEquals(Access.NO_MODULE, permissions.getAccess(request("/LogbookResults", "type", "Virology")));
+        Assert.assertEquals(Access.DENIED, permissions.getAccess(request("/ResultValidation", null, null)));
+        Assert.assertEquals(Access.NO_MODULE, permissions.getAccess(request("/ResultValidationX", null, null)));
+        Assert.assertEquals(Access.NO_MODULE, permissions.getAccess(request("/Result", null, null)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("LogbookResults")), permissions.getModuleNames());
+        Assert.assertFalse(permissions.isAdmin());
+    }
+
+    @Test
+    public void permissionsFor_shouldTakeTheRolesGivenAtLogin() {
+        UserModulePermissions permissions = snapshot.permissionsFor(8, "admin", Arrays.asList("2"));
+
+        Assert.assertEquals(Access.PERMITTED, permissions.getAccess(request("/ResultValidation", null, null)));
+        Assert.assertEquals(Access.DENIED, permissions.getAccess(request("/MasterListsPage", null, null)));
+        Assert.assertTrue(permissions.isAdmin());
+        Assert.assertTrue(snapshot.permissionsFor(8, null, Collections.emptyList()).getModuleNames().isEmpty());
+    }
+
+    private static MockHttpServletRequest request(String path, String paramName, String paramValue) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/OpenELIS-Global" + path);
+        request.setContextPath("/OpenELIS-Global");
+        if (paramName != null) {
+            request.setParameter(paramName, paramValue);
+        }
+        return request;
+    }
+
+    private static SystemModule module(String name) {
+        SystemModule module = new SystemModule();
+        module.setSystemModuleName(name);
+        return module;
+    }
+
+    private static SystemModuleUrl url(String path, SystemModule module, String paramName, String paramValue) {
+        SystemModuleUrl url = new SystemModuleUrl();
+        url.setUrlPath(path);
+        url.setSystemModule(module);
+        if (paramName != null) {
+            SystemModuleParam param = new SystemModuleParam();
+            param.setName(paramName);
+            param.setValue(paramValue);
+            url.setParam(param);
+        }
+        return url;
+    }
+
+    private static RoleModule roleModule(String roleId, SystemModule module) {
+        Role role = new Role();
+        role.setId(roleId);
+        RoleModule roleModule = new RoleModule();
+        roleModule.setRole(role);
+        roleModule.setSystemModule(module);
+        return roleModule;
+    }
+
+    private static UserRole userRole(String systemUserId, String roleId) {
+        UserRole userRole = new UserRole();
+        userRole.setSystemUserId(systemUserId);
+        userRole.setRoleId(roleId);
+        return userRole;
+    }
+}
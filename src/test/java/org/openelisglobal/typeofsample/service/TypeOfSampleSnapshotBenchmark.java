@@ -0,0 +1,153 @@
+package org.openelisglobal.typeofsample.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openelisglobal.test.valueholder.Test;
+import org.openelisglobal.typeofsample.valueholder.TypeOfSample;
+import org.openelisglobal.typeofsample.valueholder.TypeOfSampleTest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 64 threads reading the tests of a sample type, as order entry pages do, from
+ * the snapshot and from a copy of the synchronized maps the service used
+ * before. The old service's cache was also cleared on every request for a
+ * user's sample types; clearEvery sets how many reads there are between
+ * clears, 0 for none.
+ *
+ * <p>Neither measures the database reads made when the old maps were refilled,
+ * so the real difference is larger.
+ *
+ * <p>Run with mvn test-compile, then run main with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class TypeOfSampleSnapshotBenchmark {
+
+    private static final int SAMPLE_TYPES = 40;
+    private static final int TESTS = 400;
+    private static final Comparator<Test> BY_DESCRIPTION = Comparator.comparing(Test::getDescription);
+
+    @Param({ "0", "50" })
+    public int clearEvery;
+
+    private TypeOfSampleSnapshot snapshot;
+    private SynchronizedMaps synchronizedMaps;
+
+    @Setup
+    public void setUp() {
+        List<TypeOfSample> typeOfSamples = new ArrayList<>();
+        for (int i = 0; i < SAMPLE_TYPES; i++) {
+            TypeOfSample typeOfSample = new TypeOfSample();
+            typeOfSample.setId(String.valueOf(i));
+            typeOfSample.setLocalAbbreviation("type " + i);
+            typeOfSamples.add(typeOfSample);
+        }
+        List<Test> tests = new ArrayList<>();
+        List<TypeOfSampleTest> links = new ArrayList<>();
+        for (int i = 0; i < TESTS; i++) {
+            Test test = new Test();
+            test.setId(String.valueOf(i));
+            test.setDescription("test " + (TESTS - i));
+            test.setOrderable(i % 5 != 0);
+            tests.add(test);
+            for (int type = i % SAMPLE_TYPES; type < SAMPLE_TYPES; type += 7) {
+                TypeOfSampleTest link = new TypeOfSampleTest();
+                link.setTestId(test.getId());
+                link.setTypeOfSampleId(String.valueOf(type));
+                links.add(link);
+            }
+        }
+        snapshot = TypeOfSampleSnapshot.build(typeOfSamples, links, tests, Collections.emptyList(),
+                Collections.emptyList(), BY_DESCRIPTION);
+        synchronizedMaps = new SynchronizedMaps(links, tests);
+    }
+
+    @Benchmark
+    public List<Test> snapshot() {
+        return snapshot.getActiveTests(randomSampleType(), true);
+    }
+
+    @Benchmark
+    public List<Test> synchronizedMaps() {
+        if (clearEvery > 0 && ThreadLocalRandom.current().nextInt(clearEvery) == 0) {
+            synchronizedMaps.clearCache();
+        }
+        return synchronizedMaps.getActiveTestsBySampleTypeId(randomSampleType(), true);
+    }
+
+    private static String randomSampleType() {
+        return String.valueOf(ThreadLocalRandom.current().nextInt(SAMPLE_TYPES));
+    }
+
+    /**
+     * The caching TypeOfSampleServiceImpl did before, with the database reads
+     * replaced by reads of the same lists
+     */
+    private static class SynchronizedMaps {
+        private final Map<String, List<Test>> sampleIdTestMap = new HashMap<>();
+        private final List<TypeOfSampleTest> links;
+        private final Map<String, Test> activeTests = new HashMap<>();
+
+        private SynchronizedMaps(List<TypeOfSampleTest> links, List<Test> tests) {
+            this.links = links;
+            tests.forEach(test -> activeTests.put(test.getId(), test));
+        }
+
+        private synchronized List<Test> getActiveTestsBySampleTypeId(String sampleTypeId, boolean orderableOnly) {
+            List<Test> testList = sampleIdTestMap.get(sampleTypeId);
+            if (testList == null) {
+                testList = new ArrayList<>();
+                for (TypeOfSampleTest link : links) {
+                    if (link.getTypeOfSampleId().equals(sampleTypeId)) {
+                        testList.add(activeTests.get(link.getTestId()));
+                    }
+                }
+                testList.sort(BY_DESCRIPTION);
+                sampleIdTestMap.put(sampleTypeId, testList);
+            }
+            if (!orderableOnly) {
+                return testList;
+            }
+            List<Test> filteredList = new ArrayList<>();
+            for (Test test : testList) {
+                if (test.getOrderable()) {
+                    filteredList.add(test);
+                }
+            }
+            return filteredList;
+        }
+
+        private synchronized void clearCache() {
+            sampleIdTestMap.clear();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TypeOfSampleSnapshotBenchmark.class.getSimpleName()).build()).run();
+    }
+}
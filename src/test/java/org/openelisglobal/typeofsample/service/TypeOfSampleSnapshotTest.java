@@ -0,0 +1,83 @@
+package org.openelisglobal.typeofsample.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openelisglobal.panel.valueholder.Panel;
+import org.openelisglobal.typeofsample.valueholder.TypeOfSample;
+import org.openelisglobal.typeofsample.valueholder.TypeOfSamplePanel;
+import org.openelisglobal.typeofsample.valueholder.TypeOfSampleTest;
+
+public class TypeOfSampleSnapshotTest {
+
+    private static final Comparator<org.openelisglobal.test.valueholder.Test> BY_DESCRIPTION = Comparator
+            .comparing(org.openelisglobal.test.valueholder.Test::getDescription);
+
+    @Test
+    public void getActiveTests_shouldSortTheActiveTestsOfTheSampleType() {
+        TypeOfSampleSnapshot snapshot = TypeOfSampleSnapshot.build(
+                Arrays.asList(typeOfSample("1", "Blood"), typeOfSample("2", "Urine")),
+                Arrays.asList(link("1", "10"), link("1", "11"), link("1", "12"), link("2", "10")),
+                Arrays.asList(test("10", "Hemoglobin", true), test("11", "CD4", false)), Collections.emptyList(),
+                Collections.emptyList(), BY_DESCRIPTION);
+
+        Assert.assertEquals(Arrays.asList("11", "10"), ids(snapshot.getActiveTests("1", false)));
+        Assert.assertEquals(Arrays.asList("10"), ids(snapshot.getActiveTests("1", true)));
+        Assert.assertTrue(snapshot.getActiveTests("3", false).isEmpty());
+        Assert.assertEquals(Arrays.asList("1", "2"),
+                snapshot.getTypeOfSamplesForTest("10").stream().map(TypeOfSample::getId).collect(Collectors.toList()));
+        // the test is inactive but still linked to the sample type
+        Assert.assertEquals(1, snapshot.getTypeOfSamplesForTest("12").size());
+        Assert.assertEquals("1", snapshot.getIdForLocalAbbreviation("Blood"));
+    }
+
+    @Test
+    public void getTypeOfSamplesForPanel_shouldOnlyHaveActivePanels() {
+        TypeOfSample blood = typeOfSample("1", "Blood");
+        Panel panel = new Panel();
+        panel.setId("5");
+        TypeOfSampleSnapshot snapshot = TypeOfSampleSnapshot.build(Collections.singletonList(blood),
+                Collections.emptyList(), Collections.emptyList(), Collections.singletonList(panel),
+                Arrays.asList(panelLink("1", "5"), panelLink("1", "6")), BY_DESCRIPTION);
+
+        Assert.assertSame(blood, snapshot.getTypeOfSamplesForPanel("5").get(0));
+        Assert.assertNull(snapshot.getTypeOfSamplesForPanel("6"));
+    }
+
+    private static TypeOfSample typeOfSample(String id, String localAbbreviation) {
+        TypeOfSample typeOfSample = new TypeOfSample();
+        typeOfSample.setId(id);
+        typeOfSample.setLocalAbbreviation(localAbbreviation);
+        return typeOfSample;
+    }
+
+    private static org.openelisglobal.test.valueholder.Test test(String id, String description, boolean orderable) {
+        org.openelisglobal.test.valueholder.Test test = new org.openelisglobal.test.valueholder.Test();
+        test.setId(id);
+        test.setDescription(description);
+        test.setOrderable(orderable);
+        return test;
+    }
+
+    private static TypeOfSampleTest link(String typeOfSampleId, String testId) {
+        TypeOfSampleTest link = new TypeOfSampleTest();
+        link.setTypeOfSampleId(typeOfSampleId);
+        link.setTestId(testId);
+        return link;
+    }
+
+    private static TypeOfSamplePanel panelLink(String typeOfSampleId, String panelId) {
+        TypeOfSamplePanel link = new TypeOfSamplePanel();
+        link.setTypeOfSampleId(typeOfSampleId);
+        link.setPanelId(panelId);
+        return link;
+    }
+
+    private static List<String> ids(List<org.openelisglobal.test.valueholder.Test> tests) {
+        return tests.stream().map(org.openelisglobal.test.valueholder.Test::getId).collect(Collectors.toList());
+    }
+}